@@ -0,0 +1,8 @@
+package it.gw;
+
+public class GatewayHook {
+
+    public void startup() {
+    }
+
+}
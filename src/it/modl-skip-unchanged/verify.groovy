@@ -0,0 +1,29 @@
+import java.util.zip.ZipFile
+
+// every execution of the modl goal appends its phases to the history; a reused module has no zip phase
+def executions = new File(basedir, 'modl-history.csv').readLines()
+    .drop(1)
+    .collect { it.split(',') }
+    .groupBy { it[0] }
+    .values()
+    .collect { rows -> rows.collect { it[3] } }
+
+assert executions.size() == 3
+assert executions[0].contains('zip') : 'the first build must build the module'
+assert !executions[1].contains('zip') : 'the unchanged second build must reuse the module'
+assert executions[2].contains('zip') : 'the build after editing doc/ must build the module again'
+
+def modl = new File(basedir, 'build/target/Skip-Unchanged-unsigned.modl')
+def zip = new ZipFile(modl)
+try {
+    def doc = zip.entries().find { it.name.endsWith('index.html') }
+    assert doc != null
+    assert zip.getInputStream(doc).text.contains('edited')
+} finally {
+    zip.close()
+}
+
+def inputs = new File(basedir, 'build/target/ignition/modl-inputs.txt').text
+assert inputs.startsWith('fingerprint ')
+
+return true
@@ -0,0 +1,197 @@
+package com.inductiveautomation.ignitionsdk;
+
+import java.io.IOException;
+import java.util.Map;
+
+/**
+ * A stage that rewrites the jars of a module before they are placed in the modl, e.g. to relocate packages, rewrite
+ * resources or add entries.
+ * <p/>
+ * Transformers are found with {@link java.util.ServiceLoader}: list the implementation in
+ * {@code META-INF/services/com.inductiveautomation.ignitionsdk.ArtifactTransformer} of a jar, add that jar as a
+ * dependency of the plugin, and enable the transformer by its {@link #getId() id} in the {@code transformers}
+ * parameter of the {@code modl} goal. Enabled transformers run as a chain in the configured order: every entry of a
+ * jar is passed through each transformer's {@link Stage} in turn, one entry at a time, so a jar is never held in
+ * memory as a whole.
+ * <p/>
+ * Jars are transformed concurrently, so an implementation must be safe to {@link #open(Artifact) open} from several
+ * threads; the stage returned for one jar is only used by one thread. The output of a chain is cached by the content
+ * of the input jar and the id, {@link #getVersion() version} and properties of every transformer in it, so a
+ * transformer must change its version whenever its output for the same input changes.
+ */
+public interface ArtifactTransformer {
+
+    /**
+     * @return the name the transformer is enabled by in the {@code transformers} parameter.
+     */
+    String getId();
+
+    /**
+     * @return the version of the transformer's behavior, part of the cache key of its output.
+     */
+    String getVersion();
+
+    /**
+     * Called once before any jar is transformed.
+     *
+     * @param properties the {@code transformerProperties} of the {@code modl} goal whose keys start with this
+     *                   transformer's id and a dot, with that prefix removed.
+     */
+    default void configure(Map<String, String> properties) {
+    }
+
+    /**
+     * @return {@code true} if the transformer should run on {@code artifact}. Defaults to true.
+     */
+    default boolean accepts(Artifact artifact) {
+        return true;
+    }
+
+    /**
+     * @return the stage that transforms the entries of {@code artifact}.
+     * @throws IOException if the stage could not be created.
+     */
+    Stage open(Artifact artifact) throws IOException;
+
+    /**
+     * Transforms the entries of one jar.
+     */
+    interface Stage {
+
+        /**
+         * Write {@code entry}, a replacement for it, or nothing to {@code out}. Any number of entries may be written,
+         * but each name only once per jar.
+         *
+         * @throws IOException if the entry could not be transformed.
+         */
+        void entry(Entry entry, Sink out) throws IOException;
+
+        /**
+         * Called after the last entry, to write any entries that depend on the whole jar.
+         *
+         * @throws IOException if the entries could not be written.
+         */
+        default void finish(Sink out) throws IOException {
+        }
+
+    }
+
+    /**
+     * Receives the entries written by a stage.
+     */
+    interface Sink {
+
+        void write(Entry entry) throws IOException;
+
+    }
+
+    /**
+     * A jar entry. Directories have a name ending in "/" and no content.
+     */
+    final class Entry {
+
+        private final String name;
+        private final long time;
+        private final byte[] content;
+
+        /**
+         * @param time the modification time, in milliseconds since the epoch.
+         */
+        public Entry(String name, long time, byte[] content) {
+            this.name = name;
+            this.time = time;
+            this.content = content;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public long getTime() {
+            return time;
+        }
+
+        public byte[] getContent() {
+            return content;
+        }
+
+        public boolean isDirectory() {
+            return name.endsWith("/");
+        }
+
+        /**
+         * @return a copy of this entry with different content.
+         */
+        public Entry withContent(byte[] content) {
+            return new Entry(name, time, content);
+        }
+
+    }
+
+    /**
+     * The jar being transformed and where it is placed in the module.
+     */
+    final class Artifact {
+
+        private final String groupId;
+        private final String artifactId;
+        private final String version;
+        private final String fileName;
+        private final String scope;
+        private final boolean thirdParty;
+        private final boolean signed;
+
+        Artifact(String groupId, String artifactId, String version, String fileName, String scope,
+                 boolean thirdParty, boolean signed) {
+            this.groupId = groupId;
+            this.artifactId = artifactId;
+            this.version = version;
+            this.fileName = fileName;
+            this.scope = scope;
+            this.thirdParty = thirdParty;
+            this.signed = signed;
+        }
+
+        public String getGroupId() {
+            return groupId;
+        }
+
+        public String getArtifactId() {
+            return artifactId;
+        }
+
+        public String getVersion() {
+            return version;
+        }
+
+        /**
+         * @return the file name of the jar inside the module.
+         */
+        public String getFileName() {
+            return fileName;
+        }
+
+        /**
+         * @return the Ignition scope of the jar, e.g. "G" or "CD".
+         */
+        public String getScope() {
+            return scope;
+        }
+
+        /**
+         * @return {@code true} if the jar is a dependency rather than one of the module's own projects.
+         */
+        public boolean isThirdParty() {
+            return thirdParty;
+        }
+
+        /**
+         * @return {@code true} if the jar is signed; changing its entries invalidates the signature.
+         */
+        public boolean isSigned() {
+            return signed;
+        }
+
+    }
+
+}
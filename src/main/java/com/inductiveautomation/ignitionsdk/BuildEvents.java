@@ -0,0 +1,180 @@
+package com.inductiveautomation.ignitionsdk;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+/**
+ * Java Flight Recorder events for the phases of building and posting a module, so that a recording of a slow build
+ * shows the plugin's work by name rather than as anonymous I/O and zip frames. They are shown under "Ignition SDK"
+ * in JDK Mission Control.
+ * <p/>
+ * Events are emitted with the usual begin / end / {@link Event#shouldCommit()} pattern, and fields are only filled in
+ * when the event will be committed, so the cost is a few branches when no recording is running. Stack traces are
+ * turned off because the events are emitted from a handful of known places.
+ */
+final class BuildEvents {
+
+    private static final String CATEGORY = "Ignition SDK";
+
+    private BuildEvents() {}
+
+    @Name("com.inductiveautomation.ignitionsdk.ScopeResolution")
+    @Label("Scope Resolution")
+    @Description("The compile scoped artifacts of one project mapped to the Ignition scopes it is loaded in")
+    @Category({CATEGORY, "Module Build"})
+    @StackTrace(false)
+    static class ScopeResolution extends Event {
+
+        @Label("Project")
+        String project;
+
+        @Label("Ignition Scope")
+        String ignitionScope;
+
+        @Label("Artifacts")
+        int artifacts;
+
+    }
+
+    @Name("com.inductiveautomation.ignitionsdk.ArtifactPlacement")
+    @Label("Artifact Placement")
+    @Description("A file placed in the staging directory, or found to be unchanged")
+    @Category({CATEGORY, "Module Build"})
+    @StackTrace(false)
+    static class ArtifactPlacement extends Event {
+
+        @Label("Path")
+        @Description("The path in the module")
+        String path;
+
+        @Label("Source")
+        String source;
+
+        @Label("Strategy")
+        @Description("How the file was placed, or \"unchanged\" if it was already staged")
+        String strategy;
+
+        @Label("Size")
+        @DataAmount
+        long bytes;
+
+    }
+
+    @Name("com.inductiveautomation.ignitionsdk.ModuleXmlWrite")
+    @Label("module.xml Write")
+    @Description("module.xml generated and written to the staging directory if its content changed")
+    @Category({CATEGORY, "Module Build"})
+    @StackTrace(false)
+    static class ModuleXmlWrite extends Event {
+
+        @Label("Staging Directory")
+        String stagingDirectory;
+
+        @Label("Size")
+        @DataAmount
+        long bytes;
+
+        @Label("Written")
+        @Description("False if the staged module.xml already had the same content")
+        boolean written;
+
+    }
+
+    @Name("com.inductiveautomation.ignitionsdk.DocumentCopy")
+    @Label("Documentation / License Copy")
+    @Description("The doc directory or license file synced to the staging directory")
+    @Category({CATEGORY, "Module Build"})
+    @StackTrace(false)
+    static class DocumentCopy extends Event {
+
+        @Label("Kind")
+        @Description("\"documentation\" or \"license\"")
+        String kind;
+
+        @Label("Source")
+        String source;
+
+    }
+
+    @Name("com.inductiveautomation.ignitionsdk.ZipEntryWrite")
+    @Label("Zip Entry Write")
+    @Description("One file of the module read, hashed and deflated")
+    @Category({CATEGORY, "Module Build"})
+    @StackTrace(false)
+    static class ZipEntryWrite extends Event {
+
+        @Label("Name")
+        String name;
+
+        @Label("Size")
+        @DataAmount
+        long size;
+
+        @Label("Compressed Size")
+        @DataAmount
+        long compressedSize;
+
+        @Label("Spilled")
+        @Description("True if the entry was too large to buffer in memory and was compressed to a spill file")
+        boolean spilled;
+
+    }
+
+    @Name("com.inductiveautomation.ignitionsdk.Base64Encode")
+    @Label("Base64 Encode")
+    @Description("A module encoded while it was uploaded; the duration includes time waiting on the upload")
+    @Category({CATEGORY, "Module Post"})
+    @StackTrace(false)
+    static class Base64Encode extends Event {
+
+        @Label("Module")
+        String module;
+
+        @Label("Module Size")
+        @DataAmount
+        long moduleBytes;
+
+        @Label("Encoded Size")
+        @DataAmount
+        long encodedBytes;
+
+        @Label("Encode Time")
+        @Description("Time spent reading and encoding, excluding time waiting on the upload")
+        @Timespan
+        long encodeTime;
+
+    }
+
+    @Name("com.inductiveautomation.ignitionsdk.ModulePost")
+    @Label("Module Post")
+    @Description("A module posted to a gateway, from sending the request to receiving the response")
+    @Category({CATEGORY, "Module Post"})
+    @StackTrace(false)
+    static class ModulePost extends Event {
+
+        @Label("Module")
+        String module;
+
+        @Label("Gateway URL")
+        String url;
+
+        @Label("HTTP Version")
+        String httpVersion;
+
+        @Label("Module Size")
+        @DataAmount
+        long moduleBytes;
+
+        @Label("Status")
+        @Description("The HTTP status code, or -1 if the post failed without a response")
+        int status;
+
+    }
+
+}
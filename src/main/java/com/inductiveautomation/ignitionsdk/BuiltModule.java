@@ -0,0 +1,88 @@
+package com.inductiveautomation.ignitionsdk;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+
+import org.apache.maven.project.MavenProject;
+
+/**
+ * A module file built earlier in the same build, handed from the {@code modl} goal to later goals such as
+ * {@code post} through the project context, so they do not have to locate, re-read or hash it.
+ */
+class BuiltModule {
+
+    private static final String CONTEXT_KEY = BuiltModule.class.getName();
+
+    private final Path path;
+    private final String sha256;
+    private final long size;
+    private final FileTime modified;
+
+    private BuiltModule(Path path, String sha256, long size, FileTime modified) {
+        this.path = path;
+        this.sha256 = sha256;
+        this.size = size;
+        this.modified = modified;
+    }
+
+    /**
+     * Record {@code path}, with the given SHA-256 as lowercase hex, as the module built by {@code project}.
+     *
+     * @throws IOException if the file's attributes could not be read.
+     */
+    static BuiltModule publish(MavenProject project, Path path, String sha256) throws IOException {
+        BuiltModule module = describe(path, sha256);
+
+        project.setContextValue(CONTEXT_KEY, module);
+        return module;
+    }
+
+    /**
+     * Describe {@code path}, with the given SHA-256 as lowercase hex, without publishing it.
+     *
+     * @throws IOException if the file's attributes could not be read.
+     */
+    static BuiltModule describe(Path path, String sha256) throws IOException {
+        return new BuiltModule(path.toAbsolutePath(), sha256, Files.size(path), Files.getLastModifiedTime(path));
+    }
+
+    /**
+     * @return the module built by {@code project} in this build, or {@code null} if none was built or the file has
+     * changed since.
+     */
+    static BuiltModule get(MavenProject project) {
+        Object value = project.getContextValue(CONTEXT_KEY);
+        if (!(value instanceof BuiltModule)) {
+            return null;
+        }
+
+        BuiltModule module = (BuiltModule) value;
+        try {
+            if (Files.size(module.path) == module.size &&
+                Files.getLastModifiedTime(module.path).equals(module.modified)) {
+                return module;
+            }
+        } catch (IOException e) {
+            // deleted or unreadable, fall through
+        }
+        return null;
+    }
+
+    Path getPath() {
+        return path;
+    }
+
+    /**
+     * @return the SHA-256 of the whole module file, as lowercase hex.
+     */
+    String getSha256() {
+        return sha256;
+    }
+
+    long getSize() {
+        return size;
+    }
+
+}
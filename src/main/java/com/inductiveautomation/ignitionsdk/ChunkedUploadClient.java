@@ -0,0 +1,258 @@
+package com.inductiveautomation.ignitionsdk;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Semaphore;
+
+import org.apache.maven.plugin.logging.Log;
+
+/**
+ * Uploads a module in checksummed chunks that are sent in parallel, and resumes an interrupted upload from the
+ * chunks the gateway already has rather than from the start.
+ * <p/>
+ * The protocol has three requests, all relative to the upload URL, where {@code <sha256>} is the lowercase hex
+ * SHA-256 of the whole module and identifies the upload:
+ * <dl>
+ * <dt>{@code GET <sha256>}</dt>
+ * <dd>200 with the indexes of the chunks received so far, one per line, or 404 if none were.</dd>
+ * <dt>{@code PUT <sha256>/<index>}</dt>
+ * <dd>The raw bytes of chunk {@code index}, which starts at {@code index * X-Chunk-Size}. Every chunk but the last
+ * is {@code X-Chunk-Size} bytes long. The server checks the body against {@code X-Chunk-SHA256} and answers 204 if
+ * it was stored, or 400 if it does not match.</dd>
+ * <dt>{@code POST <sha256>}</dt>
+ * <dd>Assemble the chunks, check the module's SHA-256 and install it as {@code X-Upload-Name}. The answer is 200 if
+ * it was installed, 409 with the missing chunk indexes, one per line, if some chunks have not been received, 422 if
+ * the assembled module does not match its SHA-256, in which case the server discards the chunks, or another error
+ * status if the gateway refused to install the module.</dd>
+ * </dl>
+ * Every request carries {@code X-Upload-Name}, {@code X-Upload-Size} and {@code X-Chunk-Size}. Because uploads are
+ * identified by content, a module that is rebuilt with the same bytes resumes the earlier upload, and a module that
+ * changed starts a new one. {@link ChunkedUploadHandler} is a reference implementation of the server side.
+ */
+class ChunkedUploadClient {
+
+    static final String NAME_HEADER = "X-Upload-Name";
+    static final String SIZE_HEADER = "X-Upload-Size";
+    static final String CHUNK_SIZE_HEADER = "X-Chunk-Size";
+    static final String CHUNK_SHA256_HEADER = "X-Chunk-SHA256";
+
+    private final HttpClient client;
+    private final URI uploadUri;
+    private final int chunkSize;
+    private final int parallelism;
+    private final int retries;
+    private final Duration requestTimeout;
+    private final Log log;
+
+    /**
+     * @param uploadUri the URL the protocol's requests are relative to; must end with "/".
+     * @param chunkSize the size of every chunk but the last, in bytes.
+     * @param parallelism the number of chunks sent at once.
+     * @param retries how many more times to send chunks that failed, with a growing pause in between.
+     * @param requestTimeout the timeout of each request, or {@code null} for none.
+     */
+    ChunkedUploadClient(HttpClient client, URI uploadUri, int chunkSize, int parallelism, int retries,
+                        Duration requestTimeout, Log log) {
+        this.client = client;
+        this.uploadUri = uploadUri;
+        this.chunkSize = chunkSize;
+        this.parallelism = Math.max(1, parallelism);
+        this.retries = retries;
+        this.requestTimeout = requestTimeout;
+        this.log = log;
+    }
+
+    /**
+     * Upload {@code module} and have the gateway install it.
+     *
+     * @throws IOException if chunks still failed after every retry, or the gateway refused the module. Running the
+     *                     upload again resumes it.
+     */
+    void upload(Path module) throws IOException, InterruptedException {
+        upload(module, null);
+    }
+
+    /**
+     * Upload {@code module}, whose SHA-256 is already known, and have the gateway install it.
+     *
+     * @param sha256 the SHA-256 of the module as lowercase hex, or {@code null} to hash the module.
+     * @throws IOException if chunks still failed after every retry, or the gateway refused the module. Running the
+     *                     upload again resumes it.
+     */
+    void upload(Path module, String sha256) throws IOException, InterruptedException {
+        long size = module.toFile().length();
+        if (sha256 == null) {
+            sha256 = InputFingerprint.sha256(module);
+        }
+        URI moduleUri = uploadUri.resolve(sha256);
+        int chunks = (int) ((size + chunkSize - 1) / chunkSize);
+
+        Set<Integer> received = received(moduleUri, module, size);
+        List<Integer> missing = new ArrayList<>();
+        for (int i = 0; i < chunks; i++) {
+            if (!received.contains(i)) {
+                missing.add(i);
+            }
+        }
+
+        if (received.isEmpty()) {
+            log.info(String.format("Uploading %s in %d chunks of %d bytes", module.getFileName(), chunks, chunkSize));
+        } else {
+            log.info(String.format("Resuming upload of %s: %d of %d chunks already on the gateway",
+                module.getFileName(), chunks - missing.size(), chunks));
+        }
+
+        for (int attempt = 0; ; attempt++) {
+            if (!missing.isEmpty()) {
+                if (attempt > retries) {
+                    throw new IOException(String.format("%d chunks of %s could not be uploaded after %d retries; " +
+                        "post again to resume the upload", missing.size(), module.getFileName(), retries));
+                }
+                if (attempt > 0) {
+                    long pause = 1000L << Math.min(attempt - 1, 5);
+                    log.warn(String.format("%d chunks failed, retrying in %d ms", missing.size(), pause));
+                    Thread.sleep(pause);
+                }
+
+                missing = sendChunks(moduleUri, module, size, missing);
+                continue;
+            }
+
+            HttpResponse<String> response = client.send(
+                request(moduleUri, module, size).POST(HttpRequest.BodyPublishers.noBody()).build(),
+                HttpResponse.BodyHandlers.ofString());
+
+            if (response.statusCode() == 409 && attempt <= retries) {
+                missing = parseIndexes(response.body());
+                log.warn(String.format("Gateway is missing %d chunks of %s", missing.size(), module.getFileName()));
+            } else if (response.statusCode() / 100 != 2) {
+                throw new IOException(String.format("Gateway refused %s: HTTP %d %s",
+                    module.getFileName(), response.statusCode(), response.body()));
+            } else {
+                log.debug(response.body());
+                return;
+            }
+        }
+    }
+
+    private Set<Integer> received(URI moduleUri, Path module, long size) throws IOException, InterruptedException {
+        HttpResponse<String> response = client.send(request(moduleUri, module, size).GET().build(),
+            HttpResponse.BodyHandlers.ofString());
+
+        if (response.statusCode() == 404) {
+            return new HashSet<>();
+        }
+        if (response.statusCode() != 200) {
+            throw new IOException(String.format("Could not get the upload state of %s: HTTP %d %s",
+                module.getFileName(), response.statusCode(), response.body()));
+        }
+        return new HashSet<>(parseIndexes(response.body()));
+    }
+
+    /**
+     * Send {@code indexes}, at most {@code parallelism} at a time. Only that many chunks are held in memory.
+     *
+     * @return the indexes of the chunks that failed.
+     */
+    private List<Integer> sendChunks(URI moduleUri, Path module, long size, List<Integer> indexes)
+        throws IOException, InterruptedException {
+
+        Semaphore inFlight = new Semaphore(parallelism);
+        Map<Integer, CompletableFuture<Boolean>> sends = new LinkedHashMap<>();
+
+        try (FileChannel channel = FileChannel.open(module, StandardOpenOption.READ)) {
+            for (int index : indexes) {
+                inFlight.acquire();
+
+                byte[] chunk = readChunk(channel, index, size);
+                MessageDigest digest = ContentManifest.newDigest();
+                digest.update(chunk);
+
+                HttpRequest request = request(moduleUri.resolve(moduleUri.getPath() + "/" + index), module, size)
+                    .header(CHUNK_SHA256_HEADER, ContentManifest.hex(digest.digest()))
+                    .PUT(HttpRequest.BodyPublishers.ofByteArray(chunk))
+                    .build();
+
+                sends.put(index, client.sendAsync(request, HttpResponse.BodyHandlers.ofString())
+                    .handle((response, e) -> {
+                        inFlight.release();
+                        if (e != null) {
+                            log.debug(String.format("chunk %d failed: %s", index, e));
+                            return false;
+                        }
+                        if (response.statusCode() / 100 != 2) {
+                            log.debug(String.format("chunk %d failed: HTTP %d %s",
+                                index, response.statusCode(), response.body()));
+                            return false;
+                        }
+                        return true;
+                    }));
+            }
+        }
+
+        List<Integer> failed = new ArrayList<>();
+        for (Map.Entry<Integer, CompletableFuture<Boolean>> send : sends.entrySet()) {
+            if (!send.getValue().join()) {
+                failed.add(send.getKey());
+            }
+        }
+        return failed;
+    }
+
+    private byte[] readChunk(FileChannel channel, int index, long size) throws IOException {
+        long position = (long) index * chunkSize;
+        ByteBuffer chunk = ByteBuffer.allocate((int) Math.min(chunkSize, size - position));
+
+        while (chunk.hasRemaining()) {
+            if (channel.read(chunk, position + chunk.position()) < 0) {
+                throw new IOException("Module changed while it was being uploaded");
+            }
+        }
+        return chunk.array();
+    }
+
+    private HttpRequest.Builder request(URI uri, Path module, long size) {
+        HttpRequest.Builder builder = HttpRequest.newBuilder(uri)
+            .header(NAME_HEADER, module.getFileName().toString())
+            .header(SIZE_HEADER, String.valueOf(size))
+            .header(CHUNK_SIZE_HEADER, String.valueOf(chunkSize));
+        if (requestTimeout != null) {
+            builder.timeout(requestTimeout);
+        }
+        return builder;
+    }
+
+    /**
+     * @throws IOException if a line is not a chunk index.
+     */
+    static List<Integer> parseIndexes(String body) throws IOException {
+        List<Integer> indexes = new ArrayList<>();
+        for (String line : body.split("\n")) {
+            if (!line.isBlank()) {
+                try {
+                    indexes.add(Integer.parseInt(line.trim()));
+                } catch (NumberFormatException e) {
+                    throw new IOException("Not a chunk index: " + line);
+                }
+            }
+        }
+        return indexes;
+    }
+
+}
@@ -0,0 +1,264 @@
+package com.inductiveautomation.ignitionsdk;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.security.DigestOutputStream;
+import java.security.MessageDigest;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+
+/**
+ * A reference implementation of the server side of the chunked upload protocol described in
+ * {@link ChunkedUploadClient}, served by {@link MockGateway} and a model for a gateway endpoint.
+ * <p/>
+ * Chunks are stored as files under {@code <storage>/chunks/<sha256>/}, so an upload survives a restart of the
+ * server. A completed module is verified, moved to {@code <storage>/<name>} and passed to the install callback.
+ */
+class ChunkedUploadHandler implements HttpHandler {
+
+    private final Path storage;
+    private final Consumer<Path> install;
+
+    /**
+     * @param storage the directory chunks and completed modules are written to.
+     * @param install called with each completed module; throws {@link InstallFailure} to refuse it.
+     */
+    ChunkedUploadHandler(Path storage, Consumer<Path> install) {
+        this.storage = storage;
+        this.install = install;
+    }
+
+    @Override
+    public void handle(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            String path = exchange.getRequestURI().getPath().substring(exchange.getHttpContext().getPath().length());
+            String[] parts = path.replaceAll("^/+", "").split("/");
+
+            if (parts.length == 0 || !parts[0].matches("[0-9a-f]{64}") || parts.length > 2) {
+                respond(exchange, 404, "unknown upload: " + path);
+                return;
+            }
+
+            Upload upload;
+            try {
+                upload = new Upload(parts[0], exchange);
+            } catch (IllegalArgumentException e) {
+                respond(exchange, 400, e.getMessage());
+                return;
+            }
+
+            String method = exchange.getRequestMethod();
+            if (parts.length == 1 && method.equals("GET")) {
+                received(exchange, upload);
+            } else if (parts.length == 2 && method.equals("PUT")) {
+                putChunk(exchange, upload, parts[1]);
+            } else if (parts.length == 1 && method.equals("POST")) {
+                complete(exchange, upload);
+            } else {
+                respond(exchange, 405, method + " is not supported here");
+            }
+        }
+    }
+
+    private void received(HttpExchange exchange, Upload upload) throws IOException {
+        if (!Files.isDirectory(upload.dir)) {
+            // with a body, so the server keeps the connection open for the chunks that follow
+            respond(exchange, 404, "no chunks of " + upload.sha256 + " received");
+            return;
+        }
+
+        StringBuilder body = new StringBuilder();
+        for (int i = 0; i < upload.chunks; i++) {
+            if (Files.exists(upload.chunk(i))) {
+                body.append(i).append('\n');
+            }
+        }
+        respond(exchange, 200, body.toString());
+    }
+
+    private void putChunk(HttpExchange exchange, Upload upload, String indexText) throws IOException {
+        int index;
+        try {
+            index = Integer.parseInt(indexText);
+        } catch (NumberFormatException e) {
+            index = -1;
+        }
+        if (index < 0 || index >= upload.chunks) {
+            respond(exchange, 400, "chunk index out of range: " + indexText);
+            return;
+        }
+
+        String expectedSha256 = exchange.getRequestHeaders().getFirst(ChunkedUploadClient.CHUNK_SHA256_HEADER);
+        long expectedLength = Math.min(upload.chunkSize, upload.size - (long) index * upload.chunkSize);
+
+        byte[] chunk;
+        try (InputStream in = exchange.getRequestBody()) {
+            chunk = in.readNBytes((int) expectedLength + 1);
+        }
+
+        MessageDigest digest = ContentManifest.newDigest();
+        digest.update(chunk);
+        if (chunk.length != expectedLength || !ContentManifest.hex(digest.digest()).equals(expectedSha256)) {
+            respond(exchange, 400, String.format("chunk %d does not match its length or checksum", index));
+            return;
+        }
+
+        Files.createDirectories(upload.dir);
+        Path temp = Files.createTempFile(upload.dir, "chunk", ".tmp");
+        Files.write(temp, chunk);
+        move(temp, upload.chunk(index));
+
+        exchange.sendResponseHeaders(204, -1);
+    }
+
+    private void complete(HttpExchange exchange, Upload upload) throws IOException {
+        String missing = Stream.iterate(0, i -> i + 1).limit(upload.chunks)
+            .filter(i -> !Files.exists(upload.chunk(i)))
+            .map(String::valueOf)
+            .collect(Collectors.joining("\n"));
+
+        if (!missing.isEmpty()) {
+            respond(exchange, 409, missing + "\n");
+            return;
+        }
+
+        Files.createDirectories(storage);
+        Path temp = Files.createTempFile(storage, "module", ".tmp");
+        MessageDigest digest = ContentManifest.newDigest();
+
+        try {
+            try (OutputStream out = new DigestOutputStream(Files.newOutputStream(temp), digest)) {
+                for (int i = 0; i < upload.chunks; i++) {
+                    Files.copy(upload.chunk(i), out);
+                }
+            }
+
+            if (!ContentManifest.hex(digest.digest()).equals(upload.sha256) || Files.size(temp) != upload.size) {
+                deleteChunks(upload);
+                respond(exchange, 422, "assembled module does not match its SHA-256; chunks discarded");
+                return;
+            }
+
+            Path module = storage.resolve(upload.name);
+            move(temp, module);
+            deleteChunks(upload);
+
+            try {
+                install.accept(module);
+            } catch (InstallFailure e) {
+                respond(exchange, e.getStatus(), e.getMessage());
+                return;
+            }
+            respond(exchange, 200, "installed " + upload.name);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    private static void deleteChunks(Upload upload) throws IOException {
+        if (Files.isDirectory(upload.dir)) {
+            try (Stream<Path> files = Files.list(upload.dir)) {
+                for (Path file : files.collect(Collectors.toList())) {
+                    Files.deleteIfExists(file);
+                }
+            }
+            Files.deleteIfExists(upload.dir);
+        }
+    }
+
+    private static void move(Path source, Path target) throws IOException {
+        try {
+            Files.move(source, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(source, target, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    static void respond(HttpExchange exchange, int status, String body) throws IOException {
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "text/plain; charset=utf-8");
+        exchange.sendResponseHeaders(status, bytes.length == 0 ? -1 : bytes.length);
+        if (bytes.length > 0) {
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(bytes);
+            }
+        }
+    }
+
+    /**
+     * Thrown by the install callback to answer the request with an error status instead of 200.
+     */
+    static class InstallFailure extends RuntimeException {
+
+        private static final long serialVersionUID = 1L;
+
+        private final int status;
+
+        InstallFailure(int status, String message) {
+            super(message);
+            this.status = status;
+        }
+
+        int getStatus() {
+            return status;
+        }
+
+    }
+
+    /**
+     * The upload a request is about, from its path and headers.
+     */
+    private class Upload {
+
+        private final String sha256;
+        private final String name;
+        private final long size;
+        private final int chunkSize;
+        private final int chunks;
+        private final Path dir;
+
+        Upload(String sha256, HttpExchange exchange) {
+            this.sha256 = sha256;
+
+            String name = exchange.getRequestHeaders().getFirst(ChunkedUploadClient.NAME_HEADER);
+            if (name == null || name.isEmpty() || !Paths.get(name).getFileName().toString().equals(name) ||
+                name.startsWith(".")) {
+                throw new IllegalArgumentException("missing or invalid " + ChunkedUploadClient.NAME_HEADER);
+            }
+            this.name = name;
+
+            try {
+                this.size = Long.parseLong(exchange.getRequestHeaders().getFirst(ChunkedUploadClient.SIZE_HEADER));
+                this.chunkSize = Integer.parseInt(
+                    exchange.getRequestHeaders().getFirst(ChunkedUploadClient.CHUNK_SIZE_HEADER));
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("missing or invalid " + ChunkedUploadClient.SIZE_HEADER +
+                    " or " + ChunkedUploadClient.CHUNK_SIZE_HEADER);
+            }
+            if (size < 0 || chunkSize <= 0) {
+                throw new IllegalArgumentException("invalid upload or chunk size");
+            }
+
+            this.chunks = (int) ((size + chunkSize - 1) / chunkSize);
+            // the chunk size is part of the directory, so chunks of a different size are never mixed
+            this.dir = storage.resolve("chunks").resolve(sha256 + "-" + chunkSize);
+        }
+
+        Path chunk(int index) {
+            return dir.resolve(index + ".chunk");
+        }
+
+    }
+
+}
@@ -0,0 +1,110 @@
+package com.inductiveautomation.ignitionsdk;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * The content manifest embedded in every module built by the plugin, listing each file entry's SHA-256, uncompressed
+ * size and path, one per line in path order:
+ * <pre>
+ * 2c26b46b68ffc68ff99b453c1d30413413422d706483bfa0f98a5e886266e7ae 1234 sample-gateway-1.0.0.jar
+ * </pre>
+ * Identical modules, and identical jars across modules, can be found by comparing manifests without unzipping
+ * anything. The manifest does not list itself.
+ */
+class ContentManifest {
+
+    static final String NAME = "contents.sha256";
+
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+    private final Map<String, Item> items = new LinkedHashMap<>();
+
+    void add(String path, long size, byte[] sha256) {
+        items.put(path, new Item(hex(sha256), size));
+    }
+
+    /**
+     * @return the items keyed by path, in the order they were added.
+     */
+    Map<String, Item> getItems() {
+        return items;
+    }
+
+    byte[] toBytes() {
+        StringBuilder sb = new StringBuilder();
+        items.forEach((path, item) ->
+            sb.append(item.sha256).append(' ').append(item.size).append(' ').append(path).append('\n'));
+        return sb.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * @throws IOException if {@code bytes} is not a content manifest.
+     */
+    static ContentManifest parse(byte[] bytes) throws IOException {
+        ContentManifest manifest = new ContentManifest();
+
+        for (String line : new String(bytes, StandardCharsets.UTF_8).split("\n")) {
+            if (line.isEmpty()) {
+                continue;
+            }
+
+            String[] fields = line.split(" ", 3);
+            try {
+                if (fields.length != 3 || fields[0].length() != 64) {
+                    throw new NumberFormatException();
+                }
+                manifest.items.put(fields[2], new Item(fields[0], Long.parseLong(fields[1])));
+            } catch (NumberFormatException e) {
+                throw new IOException("malformed " + NAME + " line: " + line);
+            }
+        }
+
+        return manifest;
+    }
+
+    static MessageDigest newDigest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+
+    static String hex(byte[] bytes) {
+        char[] chars = new char[bytes.length * 2];
+        for (int i = 0; i < bytes.length; i++) {
+            chars[i * 2] = HEX[(bytes[i] >> 4) & 0xF];
+            chars[i * 2 + 1] = HEX[bytes[i] & 0xF];
+        }
+        return new String(chars);
+    }
+
+    static class Item {
+
+        private final String sha256;
+        private final long size;
+
+        Item(String sha256, long size) {
+            this.sha256 = sha256;
+            this.size = size;
+        }
+
+        /**
+         * @return the SHA-256 as lowercase hex.
+         */
+        String getSha256() {
+            return sha256;
+        }
+
+        long getSize() {
+            return size;
+        }
+
+    }
+
+}
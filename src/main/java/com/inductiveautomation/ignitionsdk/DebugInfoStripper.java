@@ -0,0 +1,157 @@
+package com.inductiveautomation.ignitionsdk;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Enumeration;
+import java.util.List;
+import java.util.zip.Deflater;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+import java.util.zip.ZipOutputStream;
+
+import org.objectweb.asm.ClassReader;
+import org.objectweb.asm.ClassVisitor;
+import org.objectweb.asm.ClassWriter;
+import org.objectweb.asm.Label;
+import org.objectweb.asm.MethodVisitor;
+import org.objectweb.asm.Opcodes;
+
+/**
+ * Rewrites the classes of a jar without their debug attributes and recompresses the jar at the maximum deflate
+ * level.
+ * <p/>
+ * LocalVariableTable, LocalVariableTypeTable and SourceDebugExtension are always removed. LineNumberTable and
+ * SourceFile are kept if line numbers are kept, so stack traces still show file and line. Otherwise they are removed
+ * too, and the source file and the line range of every method, by name and descriptor, are returned as a mapping.
+ * A frame showing "Unknown Source" names only the method, so the mapping narrows it down to the overloads of that
+ * name rather than to one line.
+ */
+class DebugInfoStripper {
+
+    private final boolean keepLineNumbers;
+
+    /**
+     * @param keepLineNumbers {@code true} to keep LineNumberTable and SourceFile attributes.
+     */
+    DebugInfoStripper(boolean keepLineNumbers) {
+        this.keepLineNumbers = keepLineNumbers;
+    }
+
+    /**
+     * Copy {@code source} to {@code target}, stripping debug attributes from every class.
+     *
+     * @return the mapping lines for the stripped classes; empty if line numbers are kept.
+     * @throws IOException if reading the source or writing the target failed.
+     */
+    List<String> strip(Path source, Path target) throws IOException {
+        List<String> mapping = new ArrayList<>();
+
+        try (ZipFile zip = new ZipFile(source.toFile());
+             ZipOutputStream out = new ZipOutputStream(Files.newOutputStream(target))) {
+
+            out.setLevel(Deflater.BEST_COMPRESSION);
+
+            Enumeration<? extends ZipEntry> entries = zip.entries();
+            while (entries.hasMoreElements()) {
+                ZipEntry entry = entries.nextElement();
+
+                byte[] bytes;
+                try (InputStream in = zip.getInputStream(entry)) {
+                    bytes = in.readAllBytes();
+                }
+
+                if (entry.getName().endsWith(".class")) {
+                    bytes = stripClass(bytes, mapping);
+                }
+
+                ZipEntry copy = new ZipEntry(entry.getName());
+                copy.setTime(entry.getTime());
+                out.putNextEntry(copy);
+                out.write(bytes);
+                out.closeEntry();
+            }
+        }
+
+        return mapping;
+    }
+
+    private byte[] stripClass(byte[] bytes, List<String> mapping) {
+        ClassWriter writer = new ClassWriter(0);
+        new ClassReader(bytes).accept(new StrippingClassVisitor(writer, mapping), 0);
+        return writer.toByteArray();
+    }
+
+    private class StrippingClassVisitor extends ClassVisitor {
+
+        private final List<String> mapping;
+        private String className;
+        private int mappingStart;
+
+        StrippingClassVisitor(ClassVisitor cv, List<String> mapping) {
+            super(Opcodes.ASM9, cv);
+            this.mapping = mapping;
+        }
+
+        @Override
+        public void visit(int version, int access, String name, String signature, String superName,
+                          String[] interfaces) {
+
+            className = name.replace('/', '.');
+            mappingStart = mapping.size();
+            if (!keepLineNumbers) {
+                mapping.add(className + ":");
+            }
+            super.visit(version, access, name, signature, superName, interfaces);
+        }
+
+        @Override
+        public void visitSource(String source, String debug) {
+            if (keepLineNumbers) {
+                super.visitSource(source, null);
+            } else if (source != null) {
+                mapping.set(mappingStart, className + " -> " + source + ":");
+            }
+        }
+
+        @Override
+        public MethodVisitor visitMethod(int access, String name, String descriptor, String signature,
+                                         String[] exceptions) {
+
+            MethodVisitor mv = super.visitMethod(access, name, descriptor, signature, exceptions);
+
+            return new MethodVisitor(Opcodes.ASM9, mv) {
+                private int firstLine = Integer.MAX_VALUE;
+                private int lastLine = -1;
+
+                @Override
+                public void visitLocalVariable(String name, String descriptor, String signature, Label start,
+                                               Label end, int index) {
+                    // dropped
+                }
+
+                @Override
+                public void visitLineNumber(int line, Label start) {
+                    if (keepLineNumbers) {
+                        super.visitLineNumber(line, start);
+                    } else {
+                        firstLine = Math.min(firstLine, line);
+                        lastLine = Math.max(lastLine, line);
+                    }
+                }
+
+                @Override
+                public void visitEnd() {
+                    if (lastLine >= 0) {
+                        mapping.add(String.format("    %s%s %d-%d", name, descriptor, firstLine, lastLine));
+                    }
+                    super.visitEnd();
+                }
+            };
+        }
+
+    }
+
+}
@@ -0,0 +1,469 @@
+package com.inductiveautomation.ignitionsdk;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.apache.maven.plugin.AbstractMojo;
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugin.MojoFailureException;
+import org.apache.maven.plugins.annotations.Mojo;
+import org.apache.maven.plugins.annotations.Parameter;
+import org.apache.maven.project.MavenProject;
+
+/**
+ * Reports what changed between two builds of a module: added, removed and changed files, jars, and the classes and
+ * resources inside changed jars, with byte deltas, plus a field by field comparison of module.xml.
+ * <p/>
+ * Entries are compared by the size and CRC-32 recorded in each archive's central directory, so unchanged jars are
+ * never decompressed. Changed jars are opened and compared in parallel; a jar whose entries are all unchanged, e.g.
+ * one that was only rebuilt, is not reported. A jar removed and another added with the same artifact name, e.g.
+ * foo-1.0.jar and foo-1.1.jar, are compared to each other as one changed jar.
+ */
+@Mojo(name = "diff")
+public class DiffMojo extends AbstractMojo {
+
+    private static final int LOGGED_ENTRIES_PER_JAR = 20;
+
+    /**
+     * The start of the version in a jar file name: the first '-' followed by a digit.
+     */
+    private static final Pattern VERSION = Pattern.compile("-\\d");
+
+    /**
+     * The {@link MavenProject}.
+     */
+    @Parameter(defaultValue = "${project}", readonly = true)
+    private MavenProject project;
+
+    /**
+     * The name of the module. Used to locate the module in the build directory if {@code moduleFile} is not set.
+     */
+    @Parameter(required = false)
+    private String moduleName;
+
+    /**
+     * The newer module file. Defaults to the signed module in the build directory, or the unsigned module if no
+     * signed module exists.
+     */
+    @Parameter(required = false)
+    private File moduleFile;
+
+    /**
+     * The older module file to compare against. Can be set on the command line with {@code -Dignition.baseline}.
+     */
+    @Parameter(property = "ignition.baseline", required = true)
+    private File baselineFile;
+
+    /**
+     * The file the JSON report is written to.
+     */
+    @Parameter(defaultValue = "${project.build.directory}/ignition/diff.json")
+    private File reportFile;
+
+    @Override
+    public void execute() throws MojoExecutionException, MojoFailureException {
+        Path modulePath = moduleFile != null ?
+            moduleFile.toPath() :
+            ModuleFiles.locate(Paths.get(project.getBuild().getDirectory()), moduleName);
+        Path baselinePath = baselineFile.toPath();
+
+        getLog().info("Comparing " + baselinePath + " to " + modulePath);
+        long start = System.nanoTime();
+
+        ZipIndex baseline;
+        ZipIndex module;
+        try {
+            baseline = ZipIndex.open(baselinePath);
+            module = ZipIndex.open(modulePath);
+        } catch (IOException e) {
+            throw new MojoExecutionException("Error reading modules: " + e.getMessage(), e);
+        }
+
+        List<Change> changes = compare(baseline, module);
+        pairVersionedJars(changes);
+        List<String> descriptorChanges;
+
+        ExecutorService executor = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors());
+        try {
+            Map<Change, Future<List<Change>>> jarChanges = new LinkedHashMap<>();
+            for (Change change : changes) {
+                if (change.kind == Kind.CHANGED && isTopLevelJar(change.name)) {
+                    jarChanges.put(change, executor.submit(() ->
+                        compare(openJar(baseline, change.beforeName()), openJar(module, change.name))));
+                }
+            }
+
+            descriptorChanges = compareDescriptors(baseline, module);
+
+            for (Map.Entry<Change, Future<List<Change>>> e : jarChanges.entrySet()) {
+                e.getKey().entries = e.getValue().get();
+
+                // a rebuilt jar with identical entries differs only in timestamps
+                if (e.getKey().entries.isEmpty() && e.getKey().previousName == null) {
+                    changes.remove(e.getKey());
+                }
+            }
+        } catch (ExecutionException e) {
+            throw new MojoExecutionException("Error comparing jars: " + e.getCause().getMessage(), e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new MojoExecutionException("Interrupted while comparing modules.", e);
+        } catch (IOException e) {
+            throw new MojoExecutionException("Error reading module.xml: " + e.getMessage(), e);
+        } finally {
+            executor.shutdownNow();
+        }
+
+        long baselineBytes;
+        long moduleBytes;
+        try {
+            baselineBytes = Files.size(baselinePath);
+            moduleBytes = Files.size(modulePath);
+        } catch (IOException e) {
+            throw new MojoExecutionException("Error reading module size.", e);
+        }
+
+        logReport(baselineBytes, moduleBytes, changes, descriptorChanges);
+
+        try {
+            writeReport(baselinePath, modulePath, baselineBytes, moduleBytes, changes, descriptorChanges);
+        } catch (IOException e) {
+            throw new MojoExecutionException("Error writing diff report: " + reportFile, e);
+        }
+
+        getLog().info(String.format("Compared in %.1f ms", (System.nanoTime() - start) / 1e6));
+    }
+
+    /**
+     * Compare the entries of two archives by size and CRC.
+     *
+     * @return the added, removed and changed entries, in name order.
+     */
+    private static List<Change> compare(ZipIndex before, ZipIndex after) {
+        Set<String> names = new TreeSet<>();
+        for (ZipIndex.Entry entry : before.entries()) {
+            names.add(entry.getName());
+        }
+        for (ZipIndex.Entry entry : after.entries()) {
+            names.add(entry.getName());
+        }
+
+        List<Change> changes = new ArrayList<>();
+        for (String name : names) {
+            ZipIndex.Entry b = before.entry(name);
+            ZipIndex.Entry a = after.entry(name);
+
+            if ((b != null && b.isDirectory()) || (a != null && a.isDirectory()) ||
+                name.equals(ContentManifest.NAME)) {
+                continue;
+            }
+
+            if (b == null) {
+                changes.add(new Change(name, Kind.ADDED, 0, a.getSize()));
+            } else if (a == null) {
+                changes.add(new Change(name, Kind.REMOVED, b.getSize(), 0));
+            } else if (b.getCrc() != a.getCrc() || b.getSize() != a.getSize()) {
+                changes.add(new Change(name, Kind.CHANGED, b.getSize(), a.getSize()));
+            }
+        }
+        return changes;
+    }
+
+    /**
+     * Replace each removed top-level jar and the added one with the same artifact name, e.g. foo-1.0.jar and
+     * foo-1.1.jar, with one changed jar, so a version bump is compared class by class. An artifact name shared by
+     * more than one removed or added jar is left as it is.
+     */
+    private static void pairVersionedJars(List<Change> changes) {
+        Map<String, List<Change>> removed = new LinkedHashMap<>();
+        Map<String, List<Change>> added = new LinkedHashMap<>();
+        for (Change change : changes) {
+            if (isTopLevelJar(change.name) && change.kind != Kind.CHANGED) {
+                (change.kind == Kind.REMOVED ? removed : added)
+                    .computeIfAbsent(artifactName(change.name), k -> new ArrayList<>()).add(change);
+            }
+        }
+
+        for (Map.Entry<String, List<Change>> e : removed.entrySet()) {
+            List<Change> candidates = added.get(e.getKey());
+            if (e.getValue().size() == 1 && candidates != null && candidates.size() == 1) {
+                Change before = e.getValue().get(0);
+                Change after = candidates.get(0);
+
+                Change paired = new Change(after.name, Kind.CHANGED, before.before, after.after);
+                paired.previousName = before.name;
+                changes.set(changes.indexOf(after), paired);
+                changes.remove(before);
+            }
+        }
+    }
+
+    /**
+     * @return the name of a jar file without its version and extension, e.g. "commons-lang3" for
+     * "commons-lang3-3.12.0.jar".
+     */
+    static String artifactName(String jarName) {
+        String name = jarName.substring(0, jarName.length() - ".jar".length());
+        Matcher version = VERSION.matcher(name);
+        return version.find() ? name.substring(0, version.start()) : name;
+    }
+
+    private static ZipIndex openJar(ZipIndex modl, String name) throws IOException {
+        try {
+            return new ZipIndex(ByteBuffer.wrap(modl.readAllBytes(modl.entry(name))));
+        } catch (IOException e) {
+            throw new IOException(name + ": " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * @return one line per difference between the two module.xml files, e.g. "version: 1.0.0 -> 1.0.1" or
+     * "+ hook G com.example.GatewayHook".
+     */
+    private static List<String> compareDescriptors(ZipIndex before, ZipIndex after) throws IOException {
+        ZipIndex.Entry b = before.entry(ModuleDescriptor.MODULE_XML);
+        ZipIndex.Entry a = after.entry(ModuleDescriptor.MODULE_XML);
+
+        List<String> lines = new ArrayList<>();
+        if (b == null || a == null) {
+            if (b != a) {
+                lines.add((b == null ? "+ " : "- ") + ModuleDescriptor.MODULE_XML);
+            }
+            return lines;
+        }
+        if (b.getCrc() == a.getCrc() && b.getSize() == a.getSize()) {
+            return lines;
+        }
+
+        ModuleDescriptor d1 = ModuleDescriptor.parse(new ByteArrayInputStream(before.readAllBytes(b)));
+        ModuleDescriptor d2 = ModuleDescriptor.parse(new ByteArrayInputStream(after.readAllBytes(a)));
+
+        compareField(lines, "id", d1.getId(), d2.getId());
+        compareField(lines, "name", d1.getName(), d2.getName());
+        compareField(lines, "version", d1.getVersion(), d2.getVersion());
+        compareField(lines, "requiredIgnitionVersion", d1.getRequiredIgnitionVersion(),
+            d2.getRequiredIgnitionVersion());
+        compareField(lines, "requiredFrameworkVersion", d1.getRequiredFrameworkVersion(),
+            d2.getRequiredFrameworkVersion());
+        compareField(lines, "license", d1.getLicense(), d2.getLicense());
+        compareField(lines, "documentation", d1.getDocumentation(), d2.getDocumentation());
+
+        compareSets(lines, "jar", jars(d1), jars(d2));
+        compareSets(lines, "hook", hooks(d1), hooks(d2));
+        compareSets(lines, "depends", depends(d1), depends(d2));
+
+        return lines;
+    }
+
+    private static void compareField(List<String> lines, String field, String before, String after) {
+        if (!Objects.equals(before, after)) {
+            lines.add(String.format("%s: %s -> %s", field, before, after));
+        }
+    }
+
+    private static void compareSets(List<String> lines, String kind, Set<String> before, Set<String> after) {
+        for (String value : before) {
+            if (!after.contains(value)) {
+                lines.add("- " + kind + " " + value);
+            }
+        }
+        for (String value : after) {
+            if (!before.contains(value)) {
+                lines.add("+ " + kind + " " + value);
+            }
+        }
+    }
+
+    private static Set<String> jars(ModuleDescriptor descriptor) {
+        Set<String> jars = new LinkedHashSet<>();
+        for (ModuleDescriptor.Jar jar : descriptor.getJars()) {
+            jars.add(jar.getScope() + " " + jar.getName());
+        }
+        return jars;
+    }
+
+    private static Set<String> hooks(ModuleDescriptor descriptor) {
+        Set<String> hooks = new LinkedHashSet<>();
+        for (ModuleHook hook : descriptor.getHooks()) {
+            hooks.add(hook.getScope() + " " + hook.getHookClass());
+        }
+        return hooks;
+    }
+
+    private static Set<String> depends(ModuleDescriptor descriptor) {
+        Set<String> depends = new LinkedHashSet<>();
+        for (ModuleDepends d : descriptor.getDepends()) {
+            depends.add(d.getScope() + " " + d.getModuleId());
+        }
+        return depends;
+    }
+
+    private void logReport(long baselineBytes, long moduleBytes, List<Change> changes,
+                           List<String> descriptorChanges) {
+
+        getLog().info(String.format("module: %d -> %d bytes (%+d)",
+            baselineBytes, moduleBytes, moduleBytes - baselineBytes));
+
+        if (changes.isEmpty()) {
+            getLog().info("No entries changed.");
+        }
+
+        for (Change change : changes) {
+            String name = change.previousName != null ? change.previousName + " -> " + change.name : change.name;
+            getLog().info(String.format("%s %-60s %+12d", change.kind.symbol, name, change.delta()));
+
+            if (change.entries != null) {
+                int logged = 0;
+                for (Change entry : change.entries) {
+                    if (logged++ == LOGGED_ENTRIES_PER_JAR) {
+                        getLog().info(String.format("      ... %d more, see %s",
+                            change.entries.size() - LOGGED_ENTRIES_PER_JAR, reportFile));
+                        break;
+                    }
+                    getLog().info(String.format("    %s %-56s %+12d",
+                        entry.kind.symbol, displayName(entry.name), entry.delta()));
+                }
+            }
+        }
+
+        if (!descriptorChanges.isEmpty()) {
+            getLog().info("");
+            getLog().info(ModuleDescriptor.MODULE_XML + ":");
+            for (String line : descriptorChanges) {
+                getLog().info("  " + line);
+            }
+        }
+    }
+
+    private void writeReport(Path baselinePath, Path modulePath, long baselineBytes, long moduleBytes,
+                             List<Change> changes, List<String> descriptorChanges) throws IOException {
+
+        Files.createDirectories(reportFile.toPath().toAbsolutePath().getParent());
+
+        try (Writer writer = Files.newBufferedWriter(reportFile.toPath(), StandardCharsets.UTF_8)) {
+            JsonWriter json = new JsonWriter(writer);
+
+            json.beginObject();
+            json.name("baseline").value(baselinePath.toString());
+            json.name("module").value(modulePath.toString());
+            json.name("baselineBytes").value(baselineBytes);
+            json.name("moduleBytes").value(moduleBytes);
+
+            json.name("changes").beginArray();
+            for (Change change : changes) {
+                writeChange(json, change);
+            }
+            json.endArray();
+
+            json.name("moduleXml").beginArray();
+            for (String line : descriptorChanges) {
+                json.value(line);
+            }
+            json.endArray();
+
+            json.endObject();
+            writer.write('\n');
+        }
+
+        getLog().info("Diff report written to " + reportFile);
+    }
+
+    private static void writeChange(JsonWriter json, Change change) throws IOException {
+        json.beginObject();
+        json.name("name").value(change.name);
+        if (change.previousName != null) {
+            json.name("previousName").value(change.previousName);
+        }
+        json.name("change").value(change.kind.name().toLowerCase());
+        json.name("bytesBefore").value(change.before);
+        json.name("bytesAfter").value(change.after);
+        json.name("delta").value(change.delta());
+
+        if (change.entries != null) {
+            json.name("entries").beginArray();
+            for (Change entry : change.entries) {
+                writeChange(json, entry);
+            }
+            json.endArray();
+        }
+
+        json.endObject();
+    }
+
+    private static String displayName(String entryName) {
+        if (entryName.endsWith(".class")) {
+            return entryName.substring(0, entryName.length() - 6).replace('/', '.');
+        } else {
+            return entryName;
+        }
+    }
+
+    private static boolean isTopLevelJar(String name) {
+        return name.endsWith(".jar") && name.indexOf('/') < 0;
+    }
+
+    private enum Kind {
+        ADDED("+"),
+        REMOVED("-"),
+        CHANGED("~");
+
+        private final String symbol;
+
+        Kind(String symbol) {
+            this.symbol = symbol;
+        }
+    }
+
+    /**
+     * An added, removed or changed entry; for a changed jar, also the changes inside it, and the name it had in the
+     * baseline if its version changed.
+     */
+    private static class Change {
+
+        private final String name;
+        private final Kind kind;
+        private final long before;
+        private final long after;
+
+        private List<Change> entries;
+        private String previousName;
+
+        Change(String name, Kind kind, long before, long after) {
+            this.name = name;
+            this.kind = kind;
+            this.before = before;
+            this.after = after;
+        }
+
+        long delta() {
+            return after - before;
+        }
+
+        String beforeName() {
+            return previousName != null ? previousName : name;
+        }
+
+    }
+
+}
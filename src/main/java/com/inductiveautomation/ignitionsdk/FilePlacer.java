@@ -0,0 +1,197 @@
+package com.inductiveautomation.ignitionsdk;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.channels.FileChannel;
+import java.nio.file.FileStore;
+import java.nio.file.FileSystemException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.EnumMap;
+import java.util.HashSet;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Places a file at a new path as cheaply as the file system allows.
+ * <p/>
+ * Strategies are tried in order: a hard link, a copy-on-write clone (reflink), a zero-copy
+ * {@link FileChannel#transferTo} copy, and finally a buffered stream copy. A strategy that fails for a file store is
+ * not tried again for that file store. Copies keep the source's modification time so later syncs can skip them.
+ */
+class FilePlacer {
+
+    enum Strategy {
+        HARD_LINK("hard link"),
+        REFLINK("reflink"),
+        TRANSFER("transferTo"),
+        COPY("buffered copy");
+
+        private final String description;
+
+        Strategy(String description) {
+            this.description = description;
+        }
+
+        @Override
+        public String toString() {
+            return description;
+        }
+    }
+
+    /**
+     * {@code auto} tries every strategy, {@code reflink} never hard links, so the placed file can not change when the
+     * source is rewritten in place, and {@code copy} always copies.
+     */
+    static final String AUTO = "auto";
+    static final String NO_LINKS = "reflink";
+    static final String COPY_ONLY = "copy";
+
+    private static final boolean LINUX =
+        System.getProperty("os.name", "").toLowerCase(Locale.ROOT).startsWith("linux");
+
+    private final boolean tryHardLink;
+    private final boolean tryReflink;
+
+    private final Set<FileStore> noHardLink = new HashSet<>();
+    private final Set<FileStore> noReflink = new HashSet<>();
+    private final Map<Strategy, Integer> counts = new EnumMap<>(Strategy.class);
+
+    /**
+     * @param mode one of {@link #AUTO}, {@link #NO_LINKS} or {@link #COPY_ONLY}.
+     */
+    FilePlacer(String mode) {
+        switch (mode) {
+            case AUTO:
+                tryHardLink = true;
+                tryReflink = LINUX;
+                break;
+            case NO_LINKS:
+                tryHardLink = false;
+                tryReflink = LINUX;
+                break;
+            case COPY_ONLY:
+                tryHardLink = false;
+                tryReflink = false;
+                break;
+            default:
+                throw new IllegalArgumentException("unknown placement strategy: " + mode);
+        }
+    }
+
+    /**
+     * Place a copy of {@code source} at {@code target}, which must not exist.
+     *
+     * @return the strategy that was used.
+     * @throws IOException if every strategy failed.
+     */
+    Strategy place(Path source, Path target) throws IOException {
+        FileStore store = Files.getFileStore(source);
+        Strategy strategy;
+
+        if (tryHardLink && !noHardLink.contains(store) && hardLink(source, target)) {
+            strategy = Strategy.HARD_LINK;
+        } else if (tryReflink && !noReflink.contains(store) && reflink(source, target)) {
+            strategy = Strategy.REFLINK;
+        } else if (transfer(source, target)) {
+            strategy = Strategy.TRANSFER;
+        } else {
+            copy(source, target);
+            strategy = Strategy.COPY;
+        }
+
+        if (tryHardLink && strategy != Strategy.HARD_LINK) {
+            noHardLink.add(store);
+        }
+        if (tryReflink && strategy != Strategy.HARD_LINK && strategy != Strategy.REFLINK) {
+            noReflink.add(store);
+        }
+
+        counts.merge(strategy, 1, Integer::sum);
+        return strategy;
+    }
+
+    /**
+     * @return the number of files placed with each strategy, e.g. "2 hard link, 1 transferTo".
+     */
+    String summary() {
+        StringBuilder summary = new StringBuilder();
+
+        for (Map.Entry<Strategy, Integer> e : counts.entrySet()) {
+            if (summary.length() > 0) {
+                summary.append(", ");
+            }
+            summary.append(e.getValue()).append(' ').append(e.getKey());
+        }
+
+        return summary.length() > 0 ? summary.toString() : "nothing placed";
+    }
+
+    private static boolean hardLink(Path source, Path target) {
+        try {
+            Files.createLink(target, source);
+            return true;
+        } catch (UnsupportedOperationException | IOException e) {
+            return false;
+        }
+    }
+
+    /**
+     * There is no Java API for copy-on-write clones, so defer to GNU cp, which uses FICLONE on btrfs, XFS and other
+     * file systems that support it, and fails rather than falling back to a full copy.
+     */
+    private static boolean reflink(Path source, Path target) {
+        try {
+            Process process = new ProcessBuilder(
+                "cp", "--reflink=always", "--preserve=timestamps", source.toString(), target.toString())
+                .redirectErrorStream(true)
+                .redirectOutput(ProcessBuilder.Redirect.DISCARD)
+                .start();
+
+            if (process.waitFor(30, TimeUnit.SECONDS) && process.exitValue() == 0) {
+                return true;
+            }
+
+            process.destroyForcibly();
+            Files.deleteIfExists(target);
+            return false;
+        } catch (IOException e) {
+            return false;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    private static boolean transfer(Path source, Path target) throws IOException {
+        try (FileChannel in = FileChannel.open(source, StandardOpenOption.READ);
+             FileChannel out = FileChannel.open(target, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE)) {
+
+            long size = in.size();
+            long position = 0;
+            while (position < size) {
+                position += in.transferTo(position, size - position, out);
+            }
+        } catch (UnsupportedOperationException | FileSystemException e) {
+            Files.deleteIfExists(target);
+            return false;
+        }
+
+        Files.setLastModifiedTime(target, Files.getLastModifiedTime(source));
+        return true;
+    }
+
+    private static void copy(Path source, Path target) throws IOException {
+        try (InputStream in = Files.newInputStream(source);
+             OutputStream out = Files.newOutputStream(target)) {
+            in.transferTo(out);
+        }
+
+        Files.setLastModifiedTime(target, Files.getLastModifiedTime(source));
+    }
+
+}
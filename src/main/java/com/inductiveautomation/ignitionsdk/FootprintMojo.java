@@ -0,0 +1,459 @@
+package com.inductiveautomation.ignitionsdk;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+import java.util.zip.ZipInputStream;
+
+import org.apache.maven.plugin.AbstractMojo;
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugin.MojoFailureException;
+import org.apache.maven.plugins.annotations.LifecyclePhase;
+import org.apache.maven.plugins.annotations.Mojo;
+import org.apache.maven.plugins.annotations.Parameter;
+import org.apache.maven.project.MavenProject;
+
+/**
+ * Reports what a built module costs to download, by scope and by jar, and fails the build if a scope exceeds its
+ * byte budget.
+ */
+@Mojo(name = "footprint", defaultPhase = LifecyclePhase.VERIFY)
+public class FootprintMojo extends AbstractMojo {
+
+    private static final String SCOPES = "CDG";
+
+    /**
+     * The {@link MavenProject}.
+     */
+    @Parameter(defaultValue = "${project}", readonly = true)
+    private MavenProject project;
+
+    /**
+     * The name of the module. Used to locate the module in the build directory if {@code moduleFile} is not set.
+     */
+    @Parameter(required = false)
+    private String moduleName;
+
+    /**
+     * The module file to analyze. Defaults to the signed module in the build directory, or the unsigned module if
+     * no signed module exists.
+     */
+    @Parameter(required = false)
+    private File moduleFile;
+
+    /**
+     * Byte budgets keyed by scope. A single scope, e.g. "C", is compared to every jar loaded in that scope; a
+     * combination, e.g. "CD", is compared to the jars listed in module.xml with exactly that scope, whatever the
+     * order of its letters. Values are bytes and may use a k, m or g suffix, e.g. {@code <C>5m</C>}.
+     */
+    @Parameter
+    private Map<String, String> budgets;
+
+    /**
+     * The number of largest packages to report for each scope.
+     */
+    @Parameter(defaultValue = "10")
+    private int topPackages;
+
+    /**
+     * The file the JSON report is written to.
+     */
+    @Parameter(defaultValue = "${project.build.directory}/ignition/footprint.json")
+    private File reportFile;
+
+    /**
+     * The parsed {@code budgets}, keyed by scope letters in {@link #SCOPES} order.
+     */
+    private Map<String, Long> limits;
+
+    @Override
+    public void execute() throws MojoExecutionException, MojoFailureException {
+        limits = parseBudgets();
+
+        Path modulePath = moduleFile != null ?
+            moduleFile.toPath() :
+            ModuleFiles.locate(Paths.get(project.getBuild().getDirectory()), moduleName);
+
+        getLog().info("Analyzing footprint of " + modulePath);
+
+        Map<String, JarFootprint> jars = new LinkedHashMap<>();
+        Map<String, Set<String>> jarsByCombination = new LinkedHashMap<>();
+        Map<String, Set<String>> jarsByScope = new LinkedHashMap<>();
+
+        try (ZipFile modl = new ZipFile(modulePath.toFile())) {
+            ModuleDescriptor descriptor = ModuleDescriptor.read(modl);
+
+            for (ModuleDescriptor.Jar jar : descriptor.getJars()) {
+                if (!jars.containsKey(jar.getName())) {
+                    ZipEntry entry = modl.getEntry(jar.getName());
+                    if (entry == null) {
+                        throw new MojoExecutionException("module.xml lists missing jar: " + jar.getName());
+                    }
+                    jars.put(jar.getName(), analyze(modl, entry));
+                }
+
+                jarsByCombination.computeIfAbsent(jar.getScope(), k -> new LinkedHashSet<>()).add(jar.getName());
+
+                for (char scope : SCOPES.toCharArray()) {
+                    if (jar.getScope().indexOf(scope) >= 0) {
+                        jarsByScope.computeIfAbsent(String.valueOf(scope), k -> new LinkedHashSet<>())
+                            .add(jar.getName());
+                    }
+                }
+            }
+        } catch (IOException e) {
+            throw new MojoExecutionException("Error reading module: " + modulePath, e);
+        }
+
+        Map<String, JarFootprint> scopeTotals = new LinkedHashMap<>();
+        for (Map.Entry<String, Set<String>> e : jarsByScope.entrySet()) {
+            scopeTotals.put(e.getKey(), total(e.getKey(), e.getValue(), jars));
+        }
+
+        Map<String, JarFootprint> combinationTotals = new LinkedHashMap<>();
+        for (Map.Entry<String, Set<String>> e : jarsByCombination.entrySet()) {
+            combinationTotals.put(e.getKey(), total(e.getKey(), e.getValue(), jars));
+        }
+
+        List<String> exceeded = checkBudgets(scopeTotals, combinationTotals);
+
+        logReport(jars, scopeTotals, combinationTotals, jarsByCombination);
+
+        try {
+            writeReport(modulePath, jars, scopeTotals, combinationTotals, jarsByCombination, exceeded);
+        } catch (IOException e) {
+            throw new MojoExecutionException("Error writing footprint report: " + reportFile, e);
+        }
+
+        if (!exceeded.isEmpty()) {
+            for (String message : exceeded) {
+                getLog().error(message);
+            }
+            throw new MojoFailureException(String.format("%d footprint budget(s) exceeded.", exceeded.size()));
+        }
+    }
+
+    private JarFootprint analyze(ZipFile modl, ZipEntry jarEntry) throws IOException {
+        JarFootprint footprint = new JarFootprint(jarEntry.getName());
+        footprint.bytes = jarEntry.getSize();
+
+        try (InputStream in = modl.getInputStream(jarEntry); ZipInputStream jar = new ZipInputStream(in)) {
+            byte[] buffer = new byte[8192];
+
+            ZipEntry entry;
+            while ((entry = jar.getNextEntry()) != null) {
+                if (entry.isDirectory()) {
+                    continue;
+                }
+
+                long size = 0;
+                int read;
+                while ((read = jar.read(buffer)) != -1) {
+                    size += read;
+                }
+
+                String name = entry.getName();
+                int slash = name.lastIndexOf('/');
+                String pkg = slash < 0 ? "(default)" : name.substring(0, slash).replace('/', '.');
+
+                footprint.uncompressedBytes += size;
+                footprint.packages.merge(pkg, size, Long::sum);
+
+                if (name.endsWith(".class")) {
+                    footprint.classes++;
+                }
+            }
+        }
+
+        return footprint;
+    }
+
+    private static JarFootprint total(String scope, Set<String> jarNames, Map<String, JarFootprint> jars) {
+        JarFootprint total = new JarFootprint(scope);
+
+        for (String jarName : jarNames) {
+            JarFootprint jar = jars.get(jarName);
+            total.bytes += jar.bytes;
+            total.uncompressedBytes += jar.uncompressedBytes;
+            total.classes += jar.classes;
+            jar.packages.forEach((pkg, size) -> total.packages.merge(pkg, size, Long::sum));
+        }
+
+        return total;
+    }
+
+    private List<String> checkBudgets(Map<String, JarFootprint> scopeTotals,
+                                      Map<String, JarFootprint> combinationTotals) {
+
+        List<String> exceeded = new ArrayList<>();
+
+        for (Map.Entry<String, Long> budget : limits.entrySet()) {
+            String scope = budget.getKey();
+            long limit = budget.getValue();
+
+            long bytes = 0;
+            if (scope.length() == 1) {
+                JarFootprint total = scopeTotals.get(scope);
+                bytes = total != null ? total.bytes : 0;
+            } else {
+                for (JarFootprint total : combinationTotals.values()) {
+                    if (scope.equals(normalizeScope(total.name))) {
+                        bytes += total.bytes;
+                    }
+                }
+            }
+
+            if (bytes > limit) {
+                exceeded.add(String.format("%s scope is %d bytes, over its budget of %d bytes by %d bytes",
+                    scope, bytes, limit, bytes - limit));
+            }
+        }
+
+        return exceeded;
+    }
+
+    private Map<String, Long> parseBudgets() throws MojoExecutionException {
+        Map<String, Long> parsed = new LinkedHashMap<>();
+
+        if (budgets == null) {
+            return parsed;
+        }
+
+        for (Map.Entry<String, String> budget : budgets.entrySet()) {
+            String scope = normalizeScope(budget.getKey());
+            if (scope == null) {
+                throw new MojoExecutionException(String.format(
+                    "Invalid footprint budget scope: %s. Use one or more of the scopes C, D and G, e.g. C or CD.",
+                    budget.getKey()));
+            }
+            if (parsed.put(scope, parseBytes(budget.getValue())) != null) {
+                throw new MojoExecutionException("More than one footprint budget is set for scope " + scope + ".");
+            }
+        }
+
+        return parsed;
+    }
+
+    /**
+     * Returns the letters of {@code scope} in {@link #SCOPES} order, or null if it is empty, repeats a letter or
+     * has a letter that is not a scope.
+     */
+    static String normalizeScope(String scope) {
+        if (scope == null || scope.isEmpty()) {
+            return null;
+        }
+
+        StringBuilder normalized = new StringBuilder();
+        for (char letter : SCOPES.toCharArray()) {
+            int count = 0;
+            for (char c : scope.toCharArray()) {
+                if (c == letter) {
+                    count++;
+                }
+            }
+            if (count > 1) {
+                return null;
+            }
+            if (count == 1) {
+                normalized.append(letter);
+            }
+        }
+
+        return normalized.length() == scope.length() ? normalized.toString() : null;
+    }
+
+    private static long parseBytes(String value) throws MojoExecutionException {
+        String v = value.trim().toLowerCase();
+        long multiplier = 1;
+
+        if (v.endsWith("k")) {
+            multiplier = 1024;
+        } else if (v.endsWith("m")) {
+            multiplier = 1024 * 1024;
+        } else if (v.endsWith("g")) {
+            multiplier = 1024 * 1024 * 1024;
+        }
+
+        if (multiplier != 1) {
+            v = v.substring(0, v.length() - 1).trim();
+        }
+
+        try {
+            return Long.parseLong(v) * multiplier;
+        } catch (NumberFormatException e) {
+            throw new MojoExecutionException("Invalid footprint budget: " + value, e);
+        }
+    }
+
+    private void logReport(Map<String, JarFootprint> jars,
+                           Map<String, JarFootprint> scopeTotals,
+                           Map<String, JarFootprint> combinationTotals,
+                           Map<String, Set<String>> jarsByCombination) {
+
+        getLog().info(String.format("%-8s %14s %14s %8s %14s", "scope", "bytes", "uncompressed", "classes", "budget"));
+        for (JarFootprint total : scopeTotals.values()) {
+            logTotal(total);
+        }
+        for (JarFootprint total : combinationTotals.values()) {
+            if (total.name.length() > 1) {
+                logTotal(total);
+            }
+        }
+
+        for (Map.Entry<String, Set<String>> e : jarsByCombination.entrySet()) {
+            getLog().info("");
+            getLog().info(e.getKey() + " scoped jars:");
+            for (String jarName : e.getValue()) {
+                JarFootprint jar = jars.get(jarName);
+                getLog().info(String.format("  %-50s %12d %12d %6d",
+                    jar.name, jar.bytes, jar.uncompressedBytes, jar.classes));
+            }
+        }
+
+        for (JarFootprint total : scopeTotals.values()) {
+            getLog().info("");
+            getLog().info(String.format("largest packages in %s scope (uncompressed):", total.name));
+            for (Map.Entry<String, Long> pkg : total.largestPackages(topPackages)) {
+                getLog().info(String.format("  %-60s %12d", pkg.getKey(), pkg.getValue()));
+            }
+        }
+    }
+
+    private void logTotal(JarFootprint total) {
+        Long limit = limitOf(total);
+        String budget = limit != null ? String.valueOf(limit) : "-";
+
+        getLog().info(String.format("%-8s %14d %14d %8d %14s",
+            total.name, total.bytes, total.uncompressedBytes, total.classes, budget));
+    }
+
+    private void writeReport(Path modulePath,
+                             Map<String, JarFootprint> jars,
+                             Map<String, JarFootprint> scopeTotals,
+                             Map<String, JarFootprint> combinationTotals,
+                             Map<String, Set<String>> jarsByCombination,
+                             List<String> exceeded) throws IOException {
+
+        Files.createDirectories(reportFile.toPath().toAbsolutePath().getParent());
+
+        try (Writer writer = Files.newBufferedWriter(reportFile.toPath(), StandardCharsets.UTF_8)) {
+            JsonWriter json = new JsonWriter(writer);
+
+            json.beginObject();
+            json.name("module").value(modulePath.getFileName().toString());
+            json.name("moduleBytes").value(Files.size(modulePath));
+
+            json.name("scopes").beginObject();
+            for (JarFootprint total : scopeTotals.values()) {
+                json.name(total.name);
+                writeTotal(json, total);
+            }
+            json.endObject();
+
+            json.name("combinations").beginObject();
+            for (JarFootprint total : combinationTotals.values()) {
+                json.name(total.name);
+                writeTotal(json, total);
+            }
+            json.endObject();
+
+            json.name("jars").beginArray();
+            for (JarFootprint jar : jars.values()) {
+                List<String> scopes = new ArrayList<>();
+                jarsByCombination.forEach((scope, names) -> {
+                    if (names.contains(jar.name)) {
+                        scopes.add(scope);
+                    }
+                });
+
+                json.beginObject();
+                json.name("name").value(jar.name);
+                json.name("scopes").beginArray();
+                for (String scope : scopes) {
+                    json.value(scope);
+                }
+                json.endArray();
+                json.name("bytes").value(jar.bytes);
+                json.name("uncompressedBytes").value(jar.uncompressedBytes);
+                json.name("classes").value(jar.classes);
+                json.endObject();
+            }
+            json.endArray();
+
+            json.name("budgetsExceeded").beginArray();
+            for (String message : exceeded) {
+                json.value(message);
+            }
+            json.endArray();
+
+            json.endObject();
+            writer.write('\n');
+        }
+
+        getLog().info("Footprint report written to " + reportFile);
+    }
+
+    private void writeTotal(JsonWriter json, JarFootprint total) throws IOException {
+        json.beginObject();
+        json.name("bytes").value(total.bytes);
+        json.name("uncompressedBytes").value(total.uncompressedBytes);
+        json.name("classes").value(total.classes);
+        Long limit = limitOf(total);
+        if (limit != null) {
+            json.name("budget").value(limit);
+        }
+        json.name("largestPackages").beginArray();
+        for (Map.Entry<String, Long> pkg : total.largestPackages(topPackages)) {
+            json.beginObject();
+            json.name("package").value(pkg.getKey());
+            json.name("uncompressedBytes").value(pkg.getValue());
+            json.endObject();
+        }
+        json.endArray();
+        json.endObject();
+    }
+
+    private Long limitOf(JarFootprint total) {
+        String scope = normalizeScope(total.name);
+        return scope != null ? limits.get(scope) : null;
+    }
+
+    /**
+     * Sizes and class count of one jar, or of all jars in a scope.
+     */
+    private static class JarFootprint {
+
+        private final String name;
+        private final Map<String, Long> packages = new HashMap<>();
+
+        private long bytes;
+        private long uncompressedBytes;
+        private int classes;
+
+        JarFootprint(String name) {
+            this.name = name;
+        }
+
+        List<Map.Entry<String, Long>> largestPackages(int limit) {
+            List<Map.Entry<String, Long>> largest = new ArrayList<>(packages.entrySet());
+            largest.sort(Map.Entry.<String, Long>comparingByValue().reversed());
+            return largest.subList(0, Math.min(limit, largest.size()));
+        }
+
+    }
+
+}
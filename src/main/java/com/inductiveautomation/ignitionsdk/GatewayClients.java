@@ -0,0 +1,51 @@
+package com.inductiveautomation.ignitionsdk;
+
+import java.net.http.HttpClient;
+import java.time.Duration;
+
+import org.apache.maven.execution.MavenSession;
+import org.eclipse.aether.SessionData;
+
+/**
+ * HTTP clients shared by every goal execution in a Maven session.
+ * <p/>
+ * A {@link HttpClient} keeps a pool of open connections and reuses TLS sessions, but only for requests sent through
+ * the same instance; creating a client per post means a new TCP connection and TLS handshake per post. Clients are
+ * kept in the session data rather than a static field so that a long-lived Maven process does not hold on to them
+ * between builds. Idle pooled connections are closed after {@code jdk.httpclient.keepalive.timeout} seconds, 1200 by
+ * default.
+ */
+class GatewayClients {
+
+    private GatewayClients() {}
+
+    /**
+     * @param version the preferred HTTP version; HTTP/2 falls back to HTTP/1.1 if the gateway does not support it.
+     * @param connectTimeout the connect timeout, or {@code null} for none.
+     * @return the session's client for this configuration, created on first use.
+     */
+    static HttpClient get(MavenSession session, HttpClient.Version version, Duration connectTimeout) {
+        SessionData data = session.getRepositorySession().getData();
+        String key = GatewayClients.class.getName() + "/" + version + "/" + connectTimeout;
+
+        while (true) {
+            Object existing = data.get(key);
+            if (existing instanceof HttpClient) {
+                return (HttpClient) existing;
+            }
+
+            HttpClient.Builder builder = HttpClient.newBuilder()
+                .version(version)
+                .followRedirects(HttpClient.Redirect.ALWAYS);
+            if (connectTimeout != null) {
+                builder.connectTimeout(connectTimeout);
+            }
+            HttpClient client = builder.build();
+
+            if (data.set(key, existing, client)) {
+                return client;
+            }
+        }
+    }
+
+}
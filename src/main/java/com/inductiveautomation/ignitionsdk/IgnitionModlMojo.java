@@ -2,27 +2,34 @@ package com.inductiveautomation.ignitionsdk;
 
 import com.google.common.collect.Sets;
 import org.apache.maven.artifact.Artifact;
-import org.apache.maven.artifact.resolver.filter.ScopeArtifactFilter;
 import org.apache.maven.plugin.AbstractMojo;
 import org.apache.maven.plugin.MojoExecutionException;
 import org.apache.maven.plugin.MojoFailureException;
 import org.apache.maven.plugins.annotations.*;
 import org.apache.maven.project.MavenProject;
-import org.codehaus.plexus.util.FileUtils;
+import org.apache.maven.settings.Server;
+import org.apache.maven.settings.Settings;
+import org.apache.maven.settings.crypto.DefaultSettingsDecryptionRequest;
+import org.apache.maven.settings.crypto.SettingsDecrypter;
+import org.apache.maven.settings.crypto.SettingsDecryptionResult;
 import org.codehaus.plexus.util.StringUtils;
-import org.zeroturnaround.zip.ZipUtil;
 
 import javax.xml.stream.XMLOutputFactory;
 import javax.xml.stream.XMLStreamException;
 import javax.xml.stream.XMLStreamWriter;
+import java.io.ByteArrayOutputStream;
 import java.io.File;
-import java.io.FileInputStream;
-import java.io.FileOutputStream;
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.security.GeneralSecurityException;
 import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 /**
  * Builds the Ignition module
@@ -32,6 +39,9 @@ import java.util.*;
     requiresDependencyResolution = ResolutionScope.COMPILE,
     requiresDependencyCollection = ResolutionScope.COMPILE)
 public class IgnitionModlMojo extends AbstractMojo {
+
+    private static final String INPUTS_FILE = "modl-inputs.txt";
+
     /**
      * The {@link MavenProject}.
      */
@@ -146,134 +156,1175 @@ public class IgnitionModlMojo extends AbstractMojo {
     @Parameter
     private String packPropsFilename;
 
-    private final Set<Artifact> clientScopeArtifacts = new HashSet<>();
-    private final Set<Artifact> designerScopeArtifacts = new HashSet<>();
-    private final Set<Artifact> gatewayScopeArtifacts = new HashSet<>();
+    /**
+     * Remove classes that are unreachable from the module's hooks from the third-party jars of the scopes listed in
+     * {@code pruneScopes}. Jars with no reachable classes are dropped from the module entirely. Defaults to false.
+     */
+    @Parameter(defaultValue = "false")
+    private boolean pruneScopeJars;
+
+    /**
+     * The Ignition scopes whose jars are pruned when {@code pruneScopeJars} is set. Defaults to "CD".
+     */
+    @Parameter(defaultValue = "CD")
+    private String pruneScopes;
+
+    /**
+     * Classes that are always kept when pruning, e.g. classes only loaded by reflection. A name ending in ".*" keeps
+     * a package and one ending in ".**" keeps a package and its sub-packages.
+     */
+    @Parameter
+    private String[] keepClasses;
+
+    /**
+     * Strip debug attributes (LocalVariableTable, and LineNumberTable and SourceFile unless {@code keepLineNumbers}
+     * is set) from the jars of the scopes listed in {@code stripDebugScopes} and recompress them at the maximum
+     * deflate level. If line numbers are stripped, a mapping of each method to its source lines is written to
+     * {@code target/ignition/debug-mapping.txt}. Defaults to false.
+     */
+    @Parameter(defaultValue = "false")
+    private boolean stripDebugInfo;
+
+    /**
+     * The Ignition scopes whose jars are stripped when {@code stripDebugInfo} is set. Defaults to "CD".
+     */
+    @Parameter(defaultValue = "CD")
+    private String stripDebugScopes;
+
+    /**
+     * Keep LineNumberTable and SourceFile attributes when stripping debug info, so stack traces still show file and
+     * line. Without them a frame shows only the class and method name, which the mapping cannot tell apart from the
+     * method's overloads. Defaults to true.
+     */
+    @Parameter(defaultValue = "true")
+    private boolean keepLineNumbers;
+
+    /**
+     * Optimize the web resources in the module's own jars, which browsers download from the gateway: remove source
+     * maps, minify JavaScript and CSS, and recompress PNG images losslessly. The bytes saved in each jar are written
+     * to {@code target/ignition/web-assets-report.txt}. Defaults to false.
+     */
+    @Parameter(defaultValue = "false")
+    private boolean optimizeWebAssets;
+
+    /**
+     * Minify JavaScript and CSS when {@code optimizeWebAssets} is set. Only comments and whitespace are removed;
+     * files ending in ".min.js" or ".min.css" are left as they are. Defaults to true.
+     */
+    @Parameter(defaultValue = "true")
+    private boolean minifyWebAssets;
+
+    /**
+     * Add a gzipped ".gz" copy next to each JavaScript, CSS, HTML, SVG and JSON resource that compresses well when
+     * {@code optimizeWebAssets} is set, for servers that serve precompressed files. Defaults to false.
+     */
+    @Parameter(defaultValue = "false")
+    private boolean precompressWebAssets;
+
+    /**
+     * The ids of the {@link ArtifactTransformer}s to run over every module jar, in order. Transformers are loaded
+     * from the plugin's dependencies with {@link java.util.ServiceLoader}.
+     */
+    @Parameter
+    private String[] transformers;
+
+    /**
+     * Properties for the {@code transformers}, each keyed by a transformer id, a dot, and the property name, e.g.
+     * {@code <relocate.prefix>shaded</relocate.prefix>}.
+     */
+    @Parameter
+    private Map<String, String> transformerProperties;
+
+    /**
+     * The directory transformed jars are cached in, keyed by the input jar's content and the version and
+     * properties of the transformers. Can be shared between projects.
+     */
+    @Parameter(defaultValue = "${project.build.directory}/ignition/transform-cache")
+    private File transformCacheDirectory;
+
+    /**
+     * Merge the third-party jars of each scope into a single jar, so the scope's classloader has one jar to open and
+     * search instead of dozens. {@code META-INF/services} files are merged and signed jars are left as they are.
+     * Defaults to false.
+     */
+    @Parameter(defaultValue = "false")
+    private boolean mergeScopeJars;
+
+    /**
+     * Fail the build if {@code mergeScopeJars} finds the same entry with different contents in more than one jar.
+     * Otherwise the first occurrence wins and the conflict is logged as a warning.
+     */
+    @Parameter(defaultValue = "false")
+    private boolean failOnMergeConflict;
+
+    /**
+     * Repack the jars of the scopes in {@code repackScopes} for faster startup: {@code META-INF} first, then the
+     * hook classes and the classes they load eagerly, in load order, then everything else. The order is estimated
+     * from the hooks' bytecode, or taken from {@code classloadTrace}. Runs after every other jar processing step.
+     * Defaults to false.
+     */
+    @Parameter(defaultValue = "false")
+    private boolean repackForStartup;
+
+    /**
+     * The Ignition scopes whose jars {@code repackForStartup} repacks. Defaults to "GCD".
+     */
+    @Parameter(defaultValue = "GCD")
+    private String repackScopes;
+
+    /**
+     * A class loading log recorded while the module starts, e.g. a gateway or designer run with
+     * {@code -Xlog:class+load:file=classload.txt}. The classes it names are placed in the order they were loaded
+     * and are the hot classes. Without a trace, the hot classes are the hooks, the classes they reference directly,
+     * and their supertypes.
+     */
+    @Parameter
+    private File classloadTrace;
+
+    /**
+     * Hot classes smaller than this many bytes are stored uncompressed by {@code repackForStartup}, so loading them
+     * needs no inflating. 0 compresses every class. Defaults to 4096.
+     */
+    @Parameter(defaultValue = "4096")
+    private int storeUncompressedBelow;
+
+    /**
+     * Sign the module while it is written, with the key of the {@code signingServerId} server in the Maven settings,
+     * and name it {@code <moduleName>.modl} instead of {@code <moduleName>-unsigned.modl}. Each file is signed from
+     * the SHA-256 computed as it is compressed, so there is no second pass over the module. Variants are signed too.
+     * Defaults to false.
+     */
+    @Parameter(property = "ignition.sign", defaultValue = "false")
+    private boolean sign;
+
+    /**
+     * The id of the {@code <server>} in settings.xml that holds the signing key: {@code <privateKey>} is the path of
+     * the keystore (JKS or PKCS #12), {@code <password>} the keystore password, {@code <username>} the alias of the
+     * key, needed only if the keystore holds more than one key, and {@code <passphrase>} the key password, needed only
+     * if it differs from the keystore password. Passwords may be encrypted with {@code mvn --encrypt-password}.
+     */
+    @Parameter(defaultValue = "ignition-module-signing")
+    private String signingServerId;
+
+    /**
+     * A PKCS #7 (.p7b) certificate chain to put in signed modules. Defaults to the key's chain from the keystore.
+     */
+    @Parameter
+    private File certificateChain;
+
+    @Parameter(defaultValue = "${settings}", readonly = true)
+    private Settings settings;
+
+    @Component
+    private SettingsDecrypter settingsDecrypter;
+
+    /**
+     * The directory the module is assembled in before it is zipped. It is kept between builds and reconciled
+     * incrementally, so unchanged jars, docs and license are not copied again.
+     */
+    @Parameter(defaultValue = "${project.build.directory}/ignition/staging")
+    private File stagingDirectory;
+
+    /**
+     * How new and changed files are placed in the staging directory. "auto" tries a hard link, then a copy-on-write
+     * clone (reflink), then a zero-copy transferTo copy, then a buffered copy. "reflink" skips hard links, so staged
+     * files never share an inode with their source. "copy" always copies. Defaults to "auto".
+     */
+    @Parameter(defaultValue = "auto")
+    private String placementStrategy;
+
+    /**
+     * The number of threads used to compress the module's entries. Defaults to the number of available processors.
+     */
+    @Parameter(defaultValue = "0")
+    private int compressionThreads;
+
+    /**
+     * Skip processing, staging and zipping when every input of the module, meaning the module jars, the license and
+     * documentation, and the parameters that affect the module's content, is the same as for the module already in
+     * the build directory. Inputs and their fingerprint are recorded in {@code target/ignition/modl-inputs.txt}, so
+     * a build directory restored from a cache is reused as well. The inputs are neither hashed nor recorded unless
+     * this is set. Defaults to false.
+     */
+    @Parameter(property = "ignition.skipUnchanged", defaultValue = "false")
+    private boolean skipUnchanged;
+
+    /**
+     * Extra builds of the module, each written next to the main module with the variant's name appended to the file
+     * name. Variants share the main module's resolved, processed and staged jars, and differ only in module.xml and
+     * in whether the license and documentation are included:
+     * <pre>
+     * &lt;variants&gt;
+     *   &lt;variant&gt;
+     *     &lt;name&gt;8.0&lt;/name&gt;
+     *     &lt;requiredIgnitionVersion&gt;8.0.0&lt;/requiredIgnitionVersion&gt;
+     *     &lt;includeLicense&gt;false&lt;/includeLicense&gt;
+     *   &lt;/variant&gt;
+     * &lt;/variants&gt;
+     * </pre>
+     */
+    @Parameter
+    private ModuleVariant[] variants;
+
+    /**
+     * A CSV file to append this execution's phase timings, byte counts and jar counts to, for the
+     * {@code perf-report} goal. Not written if unset. Point every module at the same file to track them together.
+     */
+    @Parameter
+    private File historyFile;
+
+    @Parameter(defaultValue = "${plugin.version}", readonly = true)
+    private String pluginVersion;
+
+    private ModuleScopes scopes;
+    private TransformerChain transformerChain;
+    private ModuleSigner moduleSigner;
+    private final List<ScopedJar> moduleJars = new ArrayList<>();
 
     @Override
     public void execute() throws MojoExecutionException, MojoFailureException {
-        Map<String, String> ignitionScopes = new HashMap<>();
+        PerformanceHistory history = new PerformanceHistory("modl", project.getArtifactId());
+
+        long start = System.nanoTime();
+        resolveModuleJars();
+        history.record("resolve", start, moduleJarBytes(), moduleJars.size());
+
+        // hashing the license and doc tree is only worth it when the result can be reused
+        InputFingerprint inputs = null;
+        if (skipUnchanged) {
+            start = System.nanoTime();
+            inputs = moduleInputs();
+            history.record("fingerprint", start, moduleJarBytes(), inputs.getLines().size());
+
+            if (reuseUnchangedModule(inputs)) {
+                appendHistory(history, BuiltModule.get(project).getSize());
+                return;
+            }
+        }
 
-        for (ProjectScope ps : projectScopes) {
-            ignitionScopes.put(ps.getName(), ps.getScope());
+        start = System.nanoTime();
+        processModuleJars();
+        history.record("process", start, moduleJarBytes(), moduleJars.size());
+
+        StagingDirectory staging;
+        try {
+            staging = newStagingDirectory(stagingDirectory.toPath());
+        } catch (IOException e) {
+            throw new MojoExecutionException("Error creating staging directory: " + stagingDirectory, e);
         }
 
-        MavenProject parent = project;
-        if (project.hasParent()) {
-            parent = project.getParent();
+        start = System.nanoTime();
+        stageModule(staging);
+        history.record("stage", start, moduleJarBytes(), moduleJars.size());
+
+        start = System.nanoTime();
+        BuiltModule module = createModlFile(staging.getRoot());
+        history.record("zip", start, module.getSize(), moduleJars.size());
+
+        start = System.nanoTime();
+        List<BuiltModule> variantModules = createVariants(staging);
+        if (!variantModules.isEmpty()) {
+            history.record("variants", start,
+                variantModules.stream().mapToLong(BuiltModule::getSize).sum(), variantModules.size());
         }
 
-        for (MavenProject p : parent.getCollectedProjects()) {
-            String ignitionScope = ignitionScopes.get(p.getName());
+        if (inputs != null) {
+            writeInputs(inputs, module, variantModules);
+        }
 
-            getLog().info(String.format("project=%s, ignitionScope=%s", p.getName(), ignitionScope));
+        appendHistory(history, module.getSize());
+    }
 
-            // maven project requires that an artifact filter be set to return artifacts from the project
-            p.setArtifactFilter(new ScopeArtifactFilter("compile"));
-            Set<Artifact> artifacts = p.getArtifacts();
-            getLog().info(String.format("Found %d artifacts for project: %s",
-                    artifacts.size(), p.getName()));
+    private long moduleJarBytes() {
+        long bytes = 0;
+        for (ScopedJar jar : moduleJars) {
+            bytes += jar.getSource().toFile().length();
+        }
+        return bytes;
+    }
 
-            if (StringUtils.contains(ignitionScope, "C")) {
-                getLog().info("building client scoped artifact set...");
+    private void appendHistory(PerformanceHistory history, long moduleBytes) {
+        if (historyFile != null) {
+            try {
+                history.append(historyFile.toPath(), moduleBytes, moduleJars.size());
+            } catch (IOException e) {
+                getLog().warn("Could not append to performance history " + historyFile + ": " + e.getMessage());
+            }
+        }
+    }
 
-                clientScopeArtifacts.add(p.getArtifact());
+    /**
+     * Resolve the scope artifact sets and build the list of jars the module will contain, applying the optional
+     * prune, strip and merge stages.
+     *
+     * @throws MojoExecutionException if one of the stages failed.
+     */
+    void prepareModuleJars() throws MojoExecutionException {
+        resolveModuleJars();
+        processModuleJars();
+    }
 
-                for (Artifact artifact : artifacts) {
-                    if ("compile".equals(artifact.getScope())) {
-                        clientScopeArtifacts.add(artifact);
+    private void resolveModuleJars() {
+        scopes = ModuleScopes.resolve(project, projectScopes, getLog());
+
+        collectModuleJars();
+    }
+
+    private void processModuleJars() throws MojoExecutionException {
+        if (pruneScopeJars) {
+            pruneScopeJars(workDirPath());
+        }
+
+        if (stripDebugInfo) {
+            stripDebugInfo(workDirPath());
+        }
+
+        if (optimizeWebAssets) {
+            optimizeWebAssets(workDirPath());
+        }
+
+        if (transformers != null && transformers.length > 0) {
+            transformModuleJars();
+        }
+
+        if (mergeScopeJars) {
+            mergeScopeJars(workDirPath());
+        }
+
+        if (repackForStartup) {
+            repackForStartup(workDirPath());
+        }
+    }
+
+    /**
+     * @param root the directory to stage the module in.
+     * @return a staging directory that places files using {@code placementStrategy}.
+     * @throws IOException if the directory could not be created.
+     * @throws MojoExecutionException if {@code placementStrategy} is not a known strategy.
+     */
+    StagingDirectory newStagingDirectory(Path root) throws IOException, MojoExecutionException {
+        FilePlacer placer;
+        try {
+            placer = new FilePlacer(placementStrategy);
+        } catch (IllegalArgumentException e) {
+            throw new MojoExecutionException(e.getMessage(), e);
+        }
+
+        return new StagingDirectory(root, placer, getLog());
+    }
+
+    /**
+     * Bring {@code staging} in line with the module: sync the jars, docs and license, and rewrite module.xml only if
+     * its content changed. Files that no longer belong to the module are removed.
+     *
+     * @param staging the exploded module directory.
+     * @throws MojoExecutionException if syncing failed.
+     */
+    void stageModule(StagingDirectory staging) throws MojoExecutionException {
+        try {
+            for (ScopedJar jar : moduleJars) {
+                staging.syncFile(jar.getSource(), jar.getName());
+            }
+
+            BuildEvents.ModuleXmlWrite xmlEvent = new BuildEvents.ModuleXmlWrite();
+            xmlEvent.begin();
+            byte[] xml = moduleXml();
+            boolean xmlWritten = staging.writeFile(xml, "module.xml");
+            commit(xmlEvent, staging, xml, xmlWritten);
+
+            if (xmlWritten) {
+                getLog().info("staged module.xml");
+            }
+
+            if (findDocs(staging)) {
+                getLog().info("Adding documentation to module.");
+            }
+
+            if (findLicense(staging).isPresent()) {
+                getLog().info("License file added to module.");
+            }
+
+            staging.removeStale();
+        } catch (IOException e) {
+            throw new MojoExecutionException("Error staging module in " + staging.getRoot(), e);
+        }
+
+        getLog().info(String.format("Staged module in %s: %s", staging.getRoot(), staging.summary()));
+    }
+
+    private static void commit(BuildEvents.ModuleXmlWrite event, StagingDirectory staging, byte[] xml,
+                               boolean written) {
+        event.end();
+        if (event.shouldCommit()) {
+            event.stagingDirectory = staging.getRoot().toString();
+            event.bytes = xml.length;
+            event.written = written;
+            event.commit();
+        }
+    }
+
+    private static void commit(BuildEvents.DocumentCopy event, String kind, Path source) {
+        event.end();
+        if (event.shouldCommit()) {
+            event.kind = kind;
+            event.source = source.toString();
+            event.commit();
+        }
+    }
+
+    /**
+     * @return the inputs the module's content depends on: the parameters written to module.xml or used to process
+     * jars, the content of every module jar, the license, and the doc directory.
+     */
+    private InputFingerprint moduleInputs() throws MojoExecutionException {
+        InputFingerprint inputs = new InputFingerprint()
+            .value("pluginVersion", pluginVersion)
+            .value("moduleId", moduleId)
+            .value("moduleName", moduleName)
+            .value("moduleDescription", moduleDescription)
+            .value("moduleVersion", moduleVersion)
+            .value("requiredIgnitionVersion", requiredIgnitionVersion)
+            .value("requiredFrameworkVersion", requiredFrameworkVersion)
+            .value("licenseFile", licenseFile)
+            .value("documentationFile", documentationFile)
+            .value("pruneScopeJars", pruneScopeJars)
+            .value("pruneScopes", pruneScopes)
+            .value("keepClasses", keepClasses != null ? Arrays.toString(keepClasses) : null)
+            .value("stripDebugInfo", stripDebugInfo)
+            .value("stripDebugScopes", stripDebugScopes)
+            .value("keepLineNumbers", keepLineNumbers)
+            .value("optimizeWebAssets", optimizeWebAssets)
+            .value("minifyWebAssets", minifyWebAssets)
+            .value("precompressWebAssets", precompressWebAssets)
+            .value("transformers", transformers != null ? Arrays.toString(transformers) : null)
+            .value("mergeScopeJars", mergeScopeJars)
+            .value("failOnMergeConflict", failOnMergeConflict)
+            .value("repackForStartup", repackForStartup)
+            .value("repackScopes", repackScopes)
+            .value("storeUncompressedBelow", storeUncompressedBelow)
+            .value("sign", sign);
+
+        if (sign) {
+            inputs.value("signingCertificates", moduleSigner().certificatesSha256());
+        }
+
+        if (transformers != null && transformers.length > 0) {
+            for (String transformer : transformerChain().describe()) {
+                inputs.value("transformer", transformer);
+            }
+        }
+
+        if (depends != null) {
+            for (ModuleDepends d : depends) {
+                inputs.value("depends", d.getScope() + " " + d.getModuleId());
+            }
+        }
+
+        for (ModuleHook hook : hooks) {
+            inputs.value("hook", hook.getScope() + " " + hook.getHookClass());
+        }
+
+        if (variants != null) {
+            for (ModuleVariant variant : variants) {
+                inputs.value("variant", String.join(" ", variant.getName(),
+                    String.valueOf(variant.getRequiredIgnitionVersion()),
+                    String.valueOf(variant.getRequiredFrameworkVersion()),
+                    String.valueOf(variant.getIncludeLicense()),
+                    String.valueOf(variant.getIncludeDocumentation())));
+            }
+        }
+
+        try {
+            for (ScopedJar jar : moduleJars) {
+                inputs.jar(jar.getScope() + " " + jar.getName(), jar.getSource());
+            }
+
+            if (licenseFile != null) {
+                inputs.file("license.html", locateLicense());
+            }
+
+            if (repackForStartup && classloadTrace != null) {
+                inputs.file("classloadTrace", classloadTrace.toPath());
+            }
+
+            if (documentationFile != null) {
+                inputs.tree("doc", Paths.get(project.getBasedir().getAbsolutePath(), "doc"));
+            }
+        } catch (IOException e) {
+            throw new MojoExecutionException("Error reading module inputs: " + e.getMessage(), e);
+        }
+
+        return inputs;
+    }
+
+    /**
+     * If the recorded inputs of the module in the build directory match {@code inputs}, and the module is the file
+     * that was recorded, publish it as this build's module.
+     *
+     * @return true if the module was reused.
+     */
+    private boolean reuseUnchangedModule(InputFingerprint inputs) throws MojoExecutionException {
+        Path inputsFile = workDirPath().resolve(INPUTS_FILE);
+        Path modlPath = modlFilePath();
+
+        try {
+            if (!Files.exists(inputsFile) || !Files.exists(modlPath)) {
+                return false;
+            }
+
+            List<String> recorded = Files.readAllLines(inputsFile, StandardCharsets.UTF_8);
+            if (recorded.size() < 2 ||
+                !recorded.get(0).equals("fingerprint " + inputs.fingerprint()) ||
+                !recorded.get(1).startsWith("module ")) {
+                return false;
+            }
+
+            String sha256 = recorded.get(1).substring("module ".length());
+            if (!sha256.equals(InputFingerprint.sha256(modlPath))) {
+                getLog().info("Module inputs are unchanged but " + modlPath + " was modified, rebuilding.");
+                return false;
+            }
+
+            for (String line : recorded) {
+                if (line.startsWith("variant ")) {
+                    String[] fields = line.split(" ", 3);
+                    Path variantPath = modlPath.resolveSibling(fields[2]);
+                    if (!Files.exists(variantPath) || !fields[1].equals(InputFingerprint.sha256(variantPath))) {
+                        getLog().info("Module inputs are unchanged but " + variantPath + " is missing or was " +
+                            "modified, rebuilding.");
+                        return false;
                     }
                 }
             }
 
-            if (StringUtils.contains(ignitionScope, "D")) {
-                getLog().info("building designer scoped artifact set...");
+            BuiltModule.publish(project, modlPath, sha256);
+            getLog().info(String.format("Module inputs are unchanged (fingerprint %s), reusing %s",
+                inputs.fingerprint(), modlPath));
+            return true;
+        } catch (IOException e) {
+            getLog().debug("Could not check recorded module inputs, rebuilding.", e);
+            return false;
+        }
+    }
+
+    private void writeInputs(InputFingerprint inputs, BuiltModule module, List<BuiltModule> variantModules)
+        throws MojoExecutionException {
 
-                designerScopeArtifacts.add(p.getArtifact());
+        Path inputsFile = workDirPath().resolve(INPUTS_FILE);
+
+        List<String> lines = new ArrayList<>();
+        lines.add("fingerprint " + inputs.fingerprint());
+        lines.add("module " + module.getSha256());
+        for (BuiltModule variant : variantModules) {
+            lines.add("variant " + variant.getSha256() + " " + variant.getPath().getFileName());
+        }
+        lines.addAll(inputs.getLines());
+
+        try {
+            Files.write(inputsFile, lines, StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            throw new MojoExecutionException("Error writing module inputs: " + inputsFile, e);
+        }
+    }
+
+    private void collectModuleJars() {
+        Set<Artifact> clientScopeArtifacts = scopes.getClientScopeArtifacts();
+        Set<Artifact> designerScopeArtifacts = scopes.getDesignerScopeArtifacts();
+
+        for (Artifact artifact : scopes.getGatewayScopeArtifacts()) {
+            if (isPackaged(artifact)) {
+                moduleJars.add(toScopedJar(artifact, "G"));
+            }
+        }
+
+        for (Artifact artifact : Sets.union(clientScopeArtifacts, designerScopeArtifacts)) {
+            String scope = "";
+            if (clientScopeArtifacts.contains(artifact)) {
+                scope += "C";
+            }
+            if (designerScopeArtifacts.contains(artifact)) {
+                scope += "D";
+            }
+
+            if (isPackaged(artifact) && !scope.isEmpty()) {
+                moduleJars.add(toScopedJar(artifact, scope));
+            }
+        }
+    }
+
+    private boolean isPackaged(Artifact artifact) {
+        // The artifact obtained from MavenProject#getArtifact() has a null scope.
+        return artifact.getScope() == null || StringUtils.equals("compile", artifact.getScope());
+    }
+
+    private ScopedJar toScopedJar(Artifact artifact, String scope) {
+        String artifactFileName = artifact.getArtifactId() + "-" + artifact.getVersion() + ".jar";
+
+        return new ScopedJar(artifactFileName, scope, artifact.getFile().toPath(),
+            !scopes.getProjectArtifacts().contains(artifact), artifact);
+    }
+
+    /**
+     * Merge the unsigned third-party jars of each scope into one jar per scope, replacing them in
+     * {@link #moduleJars}. Signed jars are left as they are because merging would invalidate their signatures.
+     *
+     * @param workDirPath the directory the merged jars are written to.
+     * @throws MojoExecutionException if merging failed, or if conflicts were found and
+     * {@code failOnMergeConflict} is set.
+     */
+    private void mergeScopeJars(Path workDirPath) throws MojoExecutionException {
+        Map<String, List<ScopedJar>> mergeable = new LinkedHashMap<>();
 
-                for (Artifact artifact : artifacts) {
-                    if ("compile".equals(artifact.getScope())) {
-                        designerScopeArtifacts.add(artifact);
+        try {
+            for (ScopedJar jar : moduleJars) {
+                if (jar.isThirdParty()) {
+                    if (JarMerger.isSigned(jar.getSource())) {
+                        getLog().info("not merging signed jar: " + jar.getName());
+                    } else {
+                        mergeable.computeIfAbsent(jar.getScope(), k -> new ArrayList<>()).add(jar);
                     }
                 }
             }
 
-            if (StringUtils.contains(ignitionScope, "G")) {
-                getLog().info("building gateway scoped artifact set...");
+            List<ScopedJar> mergedJars = new ArrayList<>(moduleJars);
+
+            for (Map.Entry<String, List<ScopedJar>> group : mergeable.entrySet()) {
+                String scope = group.getKey();
+                List<ScopedJar> jars = group.getValue();
 
-                gatewayScopeArtifacts.add(p.getArtifact());
+                if (jars.size() < 2) {
+                    continue;
+                }
+
+                String mergedFileName = String.format("%s-%s-libs-%s.jar",
+                    project.getArtifactId(), scope.toLowerCase(), moduleVersion);
+                Path mergedPath = workDirPath.resolve(mergedFileName);
+
+                List<Path> sources = new ArrayList<>();
+                for (ScopedJar jar : jars) {
+                    sources.add(jar.getSource());
+                }
 
-                for (Artifact artifact : artifacts) {
-                    if ("compile".equals(artifact.getScope())) {
-                        gatewayScopeArtifacts.add(artifact);
+                JarMerger merger = new JarMerger();
+                merger.merge(sources, mergedPath);
+
+                getLog().info(String.format("merged %d %s scoped jars into %s (%d entries)",
+                    jars.size(), scope, mergedFileName, merger.getEntryCount()));
+
+                if (!merger.getConflicts().isEmpty()) {
+                    for (String conflict : merger.getConflicts()) {
+                        getLog().warn("conflicting entry in " + scope + " scope: " + conflict);
+                    }
+
+                    if (failOnMergeConflict) {
+                        throw new MojoExecutionException(String.format(
+                            "%d conflicting entries found while merging %s scoped jars.",
+                            merger.getConflicts().size(), scope));
                     }
                 }
+
+                int index = mergedJars.indexOf(jars.get(0));
+                mergedJars.removeAll(jars);
+                mergedJars.add(index, new ScopedJar(mergedFileName, scope, mergedPath, true));
             }
+
+            moduleJars.clear();
+            moduleJars.addAll(mergedJars);
+        } catch (IOException e) {
+            throw new MojoExecutionException("Error merging dependency artifacts.", e);
         }
+    }
+
+    /**
+     * Prune the third-party jars of the scopes in {@code pruneScopes} down to the classes reachable from that scope's
+     * hooks, keep rules and service providers, and write a report of the bytes saved per scope.
+     *
+     * @param workDirPath the directory the pruned jars and the report are written to.
+     * @throws MojoExecutionException if analysing or writing a jar failed.
+     */
+    private void pruneScopeJars(Path workDirPath) throws MojoExecutionException {
+        List<String> keepRules = keepClasses != null ? Arrays.asList(keepClasses) : Collections.emptyList();
+        Map<Character, Set<String>> reachableByScope = new HashMap<>();
 
-        Path tempDirPath;
         try {
-            tempDirPath = Files.createTempDirectory("modl");
+            for (char scope : pruneScopes.toCharArray()) {
+                List<String> roots = new ArrayList<>();
+                for (ModuleHook h : hooks) {
+                    if (StringUtils.contains(h.getScope(), scope)) {
+                        roots.add(h.getHookClass());
+                    }
+                }
+
+                if (roots.isEmpty()) {
+                    getLog().info(String.format("no %s scoped hook, not pruning %s scoped jars", scope, scope));
+                    continue;
+                }
+
+                List<Path> universe = new ArrayList<>();
+                for (ScopedJar jar : moduleJars) {
+                    if (jar.getScope().indexOf(scope) >= 0) {
+                        universe.add(jar.getSource());
+                    }
+                }
+
+                try (ReachabilityPruner pruner = new ReachabilityPruner(universe)) {
+                    Set<String> reachable = pruner.reachableFrom(roots, keepRules);
+                    reachableByScope.put(scope, reachable);
+                    getLog().info(String.format("%d classes reachable in %s scope", reachable.size(), scope));
+                }
+            }
+
+            Map<String, long[]> savingsByScope = new LinkedHashMap<>();
+            List<ScopedJar> prunedJars = new ArrayList<>();
+
+            for (ScopedJar jar : moduleJars) {
+                Set<String> reachable = new HashSet<>();
+                boolean prunable = jar.isThirdParty();
+
+                for (char scope : jar.getScope().toCharArray()) {
+                    Set<String> scopeReachable = reachableByScope.get(scope);
+                    if (scopeReachable == null) {
+                        prunable = false;
+                    } else {
+                        reachable.addAll(scopeReachable);
+                    }
+                }
+
+                if (!prunable) {
+                    prunedJars.add(jar);
+                    continue;
+                }
+
+                long[] savings = savingsByScope.computeIfAbsent(jar.getScope(), k -> new long[2]);
+                long size = Files.size(jar.getSource());
+                savings[0] += size;
+
+                int reachableCount = ReachabilityPruner.countReachable(jar.getSource(), reachable);
+                if (reachableCount == 0) {
+                    getLog().info(String.format("dropping unused %s scoped jar: %s", jar.getScope(), jar.getName()));
+                    savings[1] += size;
+                    continue;
+                }
+
+                if (reachableCount < 0) {
+                    prunedJars.add(jar);
+                    continue;
+                }
+
+                String prunedFileName = rewrittenFileName(jar);
+                Path prunedPath = workDirPath.resolve(prunedFileName);
+                int dropped = ReachabilityPruner.prune(jar.getSource(), prunedPath, reachable);
+
+                if (dropped == 0) {
+                    Files.delete(prunedPath);
+                    prunedJars.add(jar);
+                } else {
+                    getLog().info(String.format("pruned %d unreachable classes from %s scoped jar: %s",
+                        dropped, jar.getScope(), jar.getName()));
+                    savings[1] += size - Files.size(prunedPath);
+                    prunedJars.add(jar.withSource(prunedFileName, prunedPath));
+                }
+            }
+
+            moduleJars.clear();
+            moduleJars.addAll(prunedJars);
+
+            StringBuilder report = new StringBuilder("scope\tbytes before\tbytes saved\n");
+            for (Map.Entry<String, long[]> e : savingsByScope.entrySet()) {
+                long[] savings = e.getValue();
+                getLog().info(String.format("pruning saved %d of %d bytes in %s scope",
+                    savings[1], savings[0], e.getKey()));
+                report.append(e.getKey()).append('\t')
+                    .append(savings[0]).append('\t')
+                    .append(savings[1]).append('\n');
+            }
+            Files.writeString(workDirPath.resolve("prune-report.txt"), report);
         } catch (IOException e) {
-            throw new MojoExecutionException("Error creating temp directory.", e);
+            throw new MojoExecutionException("Error pruning dependency artifacts.", e);
         }
-
-        copyArtifacts(tempDirPath);
-        writeModuleXml(tempDirPath);
-        createModlFile(tempDirPath);
     }
 
-    private void copyArtifacts(Path tempDirPath) throws MojoExecutionException {
-        getLog().info("Using temp dir: " + tempDirPath);
+    /**
+     * Strip debug attributes from the jars of the scopes in {@code stripDebugScopes}, in parallel, and write the
+     * mapping needed to retrace stack traces to {@code debug-mapping.txt}.
+     *
+     * @param workDirPath the directory the stripped jars and the mapping are written to.
+     * @throws MojoExecutionException if rewriting a jar failed.
+     */
+    private void stripDebugInfo(Path workDirPath) throws MojoExecutionException {
+        DebugInfoStripper stripper = new DebugInfoStripper(keepLineNumbers);
+        Map<ScopedJar, Future<List<String>>> results = new LinkedHashMap<>();
+        Map<ScopedJar, ScopedJar> strippedJars = new HashMap<>();
+
+        ExecutorService executor = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors());
 
         try {
-            getLog().info("copying g artifacts");
-            for (Artifact artifact : gatewayScopeArtifacts) {
-                // The artifact obtained from MavenProject#getArtifact() has a null scope.
-                if (artifact.getScope() == null ||
-                    StringUtils.equals("compile", artifact.getScope())) {
+            for (ScopedJar jar : moduleJars) {
+                boolean strippable = true;
+                for (char scope : jar.getScope().toCharArray()) {
+                    if (stripDebugScopes.indexOf(scope) < 0) {
+                        strippable = false;
+                    }
+                }
+
+                if (!strippable) {
+                    continue;
+                }
+
+                if (JarMerger.isSigned(jar.getSource())) {
+                    getLog().info("not stripping signed jar: " + jar.getName());
+                    continue;
+                }
 
-                    String artifactFileName = artifact.getArtifactId() + "-" + artifact.getVersion() + ".jar";
-                    getLog().info("copying dependency artifact: " + artifactFileName);
+                String strippedFileName = rewrittenFileName(jar);
+                Path strippedPath = workDirPath.resolve(StringUtils.replace(strippedFileName, ".jar", "-stripped.jar"));
 
-                    File artifactFile = new File(tempDirPath.toFile(), artifactFileName);
+                strippedJars.put(jar, jar.withSource(strippedFileName, strippedPath));
+                results.put(jar, executor.submit(() -> stripper.strip(jar.getSource(), strippedPath)));
+            }
+
+            List<String> mapping = new ArrayList<>();
+            Map<String, long[]> sizesByScope = new LinkedHashMap<>();
+
+            for (Map.Entry<ScopedJar, Future<List<String>>> result : results.entrySet()) {
+                ScopedJar jar = result.getKey();
+                ScopedJar stripped = strippedJars.get(jar);
+
+                mapping.addAll(result.getValue().get());
+
+                long before = Files.size(jar.getSource());
+                long after = Files.size(stripped.getSource());
+                getLog().debug(String.format("stripped %s: %d -> %d bytes", jar.getName(), before, after));
+
+                long[] sizes = sizesByScope.computeIfAbsent(jar.getScope(), k -> new long[2]);
+                sizes[0] += before;
+                sizes[1] += after;
+            }
+
+            for (Map.Entry<String, long[]> e : sizesByScope.entrySet()) {
+                long[] sizes = e.getValue();
+                getLog().info(String.format("stripping debug info reduced %s scoped jars from %d to %d bytes (%.1f%%)",
+                    e.getKey(), sizes[0], sizes[1], 100.0 * (sizes[0] - sizes[1]) / Math.max(1, sizes[0])));
+            }
+
+            if (!mapping.isEmpty()) {
+                Files.write(workDirPath.resolve("debug-mapping.txt"), mapping);
+            }
+
+            moduleJars.replaceAll(jar -> strippedJars.getOrDefault(jar, jar));
+        } catch (IOException | ExecutionException e) {
+            throw new MojoExecutionException("Error stripping debug info from dependency artifacts.", e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new MojoExecutionException("Interrupted while stripping debug info.", e);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Optimize the web resources of the module's own unsigned jars, one jar at a time with its resources in
+     * parallel, and write a report of the bytes saved per jar.
+     *
+     * @param workDirPath the directory the optimized jars and the report are written to.
+     * @throws MojoExecutionException if rewriting a jar failed.
+     */
+    private void optimizeWebAssets(Path workDirPath) throws MojoExecutionException {
+        ExecutorService executor = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors());
+        WebAssetOptimizer optimizer = new WebAssetOptimizer(minifyWebAssets, precompressWebAssets, executor);
+        Map<ScopedJar, ScopedJar> optimizedJars = new HashMap<>();
+        StringBuilder report = new StringBuilder();
+
+        try {
+            for (ScopedJar jar : moduleJars) {
+                if (jar.isThirdParty() || !optimizer.hasWebAssets(jar.getSource())) {
+                    continue;
+                }
 
-                    Files.copy(new FileInputStream(artifact.getFile()), artifactFile.toPath());
+                if (JarMerger.isSigned(jar.getSource())) {
+                    getLog().info("not optimizing web assets of signed jar: " + jar.getName());
+                    continue;
                 }
+
+                String optimizedFileName = rewrittenFileName(jar);
+                Path optimizedPath = workDirPath.resolve(StringUtils.replace(optimizedFileName, ".jar", "-web.jar"));
+
+                WebAssetOptimizer.Report saved = optimizer.optimize(jar.getSource(), optimizedPath);
+                getLog().info(String.format("optimized web assets of %s from %d to %d bytes: %s",
+                    jar.getName(), saved.getBefore(), saved.getAfter(), saved));
+                report.append(jar.getName()).append('\t').append(saved.toColumns()).append('\n');
+
+                optimizedJars.put(jar, jar.withSource(optimizedFileName, optimizedPath));
+            }
+
+            Files.writeString(workDirPath.resolve("web-assets-report.txt"), report);
+
+            moduleJars.replaceAll(jar -> optimizedJars.getOrDefault(jar, jar));
+        } catch (IOException e) {
+            throw new MojoExecutionException("Error optimizing web assets: " + e.getMessage(), e);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Repack the jars of the scopes in {@code repackScopes} in startup order and write a report of the classes moved
+     * and stored per jar. The load order and the hot classes are worked out per scope, as each scope has its own
+     * hooks and class loader; a jar shared by several scopes is ordered for the first of them, followed by the
+     * classes only the others load.
+     *
+     * @param workDirPath the directory the repacked jars and the report are written to.
+     * @throws MojoExecutionException if analysing or writing a jar failed.
+     */
+    private void repackForStartup(Path workDirPath) throws MojoExecutionException {
+        Map<Character, Set<String>> orderByScope = new HashMap<>();
+        Map<Character, Set<String>> hotByScope = new HashMap<>();
+
+        try {
+            List<String> trace = Collections.emptyList();
+            if (classloadTrace != null) {
+                trace = StartupJarRepacker.readTrace(classloadTrace.toPath());
+                getLog().info(String.format("read %d classes from class loading trace %s", trace.size(),
+                    classloadTrace));
             }
 
-            getLog().info("copying c+d artifacts");
-            for (Artifact artifact : Sets.union(clientScopeArtifacts, designerScopeArtifacts)) {
-                // The artifact obtained from MavenProject#getArtifact() has a null scope.
-                if (artifact.getScope() == null ||
-                    StringUtils.equals("compile", artifact.getScope())) {
+            for (char scope : repackScopes.toCharArray()) {
+                List<String> roots = new ArrayList<>();
+                for (ModuleHook h : hooks) {
+                    if (StringUtils.contains(h.getScope(), scope)) {
+                        roots.add(h.getHookClass());
+                    }
+                }
+
+                List<Path> universe = new ArrayList<>();
+                for (ScopedJar jar : moduleJars) {
+                    if (jar.getScope().indexOf(scope) >= 0) {
+                        universe.add(jar.getSource());
+                    }
+                }
+
+                if (universe.isEmpty() || (roots.isEmpty() && classloadTrace == null)) {
+                    continue;
+                }
+
+                // a recorded order takes precedence over the estimated one
+                Set<String> scopeOrder = new LinkedHashSet<>(trace);
+                Set<String> scopeHot = new LinkedHashSet<>();
+                try (ReachabilityPruner pruner = new ReachabilityPruner(universe)) {
+                    if (classloadTrace != null) {
+                        for (String className : trace) {
+                            if (pruner.hasClass(className)) {
+                                scopeHot.add(className);
+                            }
+                        }
+                    }
+
+                    for (Map.Entry<String, Integer> e : pruner.loadOrder(roots).entrySet()) {
+                        scopeOrder.add(e.getKey());
+                        if (classloadTrace == null && e.getValue() <= 1) {
+                            scopeHot.add(e.getKey());
+                        }
+                    }
+                }
 
-                    String artifactFileName = artifact.getArtifactId() + "-" + artifact.getVersion() + ".jar";
-                    getLog().info("'skipClientCompression' is true, skipping c+d packing and copying dependency artifact: " + artifact.getArtifactId() + ".jar");
+                orderByScope.put(scope, scopeOrder);
+                hotByScope.put(scope, scopeHot);
+                getLog().info(String.format("%d hot classes in %s scope", scopeHot.size(), scope));
+            }
 
-                    File artifactFile = new File(tempDirPath.toFile(), artifactFileName);
-                    if (!artifactFile.exists()) {
-                        Files.copy(artifact.getFile().toPath(), artifactFile.toPath());
+            Map<ScopedJar, ScopedJar> repackedJars = new HashMap<>();
+            StringBuilder report =
+                new StringBuilder("jar\thot classes\tstored uncompressed\tbytes before\tbytes after\n");
+
+            for (ScopedJar jar : moduleJars) {
+                Map<String, Integer> rank = new HashMap<>();
+                Set<String> hot = new HashSet<>();
+                for (char scope : jar.getScope().toCharArray()) {
+                    if (repackScopes.indexOf(scope) >= 0 && hotByScope.containsKey(scope)) {
+                        for (String className : orderByScope.get(scope)) {
+                            rank.putIfAbsent(className, rank.size());
+                        }
+                        hot.addAll(hotByScope.get(scope));
                     }
+                }
 
+                if (hot.isEmpty()) {
+                    continue;
                 }
+
+                StartupJarRepacker repacker = new StartupJarRepacker(rank, hot, storeUncompressedBelow);
+
+                String repackedFileName = rewrittenFileName(jar);
+                Path repackedPath = workDirPath.resolve(StringUtils.replace(repackedFileName, ".jar", "-startup.jar"));
+
+                int[] counts = repacker.repack(jar.getSource(), repackedPath);
+                if (counts == null) {
+                    Files.deleteIfExists(repackedPath);
+                    continue;
+                }
+
+                long before = Files.size(jar.getSource());
+                long after = Files.size(repackedPath);
+                getLog().debug(String.format("repacked %s: %d hot classes first, %d stored, %d -> %d bytes",
+                    jar.getName(), counts[0], counts[1], before, after));
+                report.append(jar.getName()).append('\t')
+                    .append(counts[0]).append('\t')
+                    .append(counts[1]).append('\t')
+                    .append(before).append('\t')
+                    .append(after).append('\n');
+
+                repackedJars.put(jar, jar.withSource(repackedFileName, repackedPath));
             }
+
+            getLog().info(String.format("repacked %d jars in startup order", repackedJars.size()));
+            Files.writeString(workDirPath.resolve("startup-report.txt"), report);
+            moduleJars.replaceAll(jar -> repackedJars.getOrDefault(jar, jar));
         } catch (IOException e) {
-            throw new MojoExecutionException("Error copying dependency artifacts.", e);
+            throw new MojoExecutionException("Error repacking jars for startup: " + e.getMessage(), e);
         }
     }
 
-    private void writeModuleXml(Path tempDirPath) throws MojoExecutionException {
+    /**
+     * Run the {@code transformers} over every module jar, several jars at a time. Each jar is streamed through the
+     * chain one entry at a time, so memory use is bounded by the number of threads rather than the size of the jars.
+     *
+     * @throws MojoExecutionException if a transformer could not be found or failed.
+     */
+    private void transformModuleJars() throws MojoExecutionException {
+        TransformerChain chain = transformerChain();
+        Map<ScopedJar, Future<TransformerChain.Result>> results = new LinkedHashMap<>();
+
+        ExecutorService executor = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors());
+
         try {
-            XMLOutputFactory factory = XMLOutputFactory.newFactory();
-            File moduleXmlFile = new File(tempDirPath.toFile(), "module.xml");
-            getLog().info("creating module.xml: " + moduleXmlFile);
+            for (ScopedJar jar : moduleJars) {
+                Artifact a = jar.getArtifact();
+                ArtifactTransformer.Artifact artifact = new ArtifactTransformer.Artifact(
+                    a != null ? a.getGroupId() : null,
+                    a != null ? a.getArtifactId() : null,
+                    a != null ? a.getVersion() : null,
+                    jar.getName(), jar.getScope(), jar.isThirdParty(), JarMerger.isSigned(jar.getSource()));
+
+                results.put(jar, executor.submit(() -> chain.transform(jar.getSource(), artifact)));
+            }
+
+            int transformed = 0;
+            int cached = 0;
+            Map<ScopedJar, ScopedJar> transformedJars = new HashMap<>();
+
+            for (Map.Entry<ScopedJar, Future<TransformerChain.Result>> e : results.entrySet()) {
+                ScopedJar jar = e.getKey();
+                TransformerChain.Result result = e.getValue().get();
+
+                if (result != null) {
+                    getLog().debug(String.format("transformed %s%s", jar.getName(),
+                        result.isCached() ? " (cached)" : ""));
+                    transformedJars.put(jar, jar.withSource(rewrittenFileName(jar), result.getPath()));
+                    transformed++;
+                    cached += result.isCached() ? 1 : 0;
+                }
+            }
+
+            getLog().info(String.format("transformed %d of %d jars with %s, %d from cache",
+                transformed, moduleJars.size(), String.join(", ", transformers), cached));
+
+            moduleJars.replaceAll(jar -> transformedJars.getOrDefault(jar, jar));
+        } catch (IOException | ExecutionException e) {
+            Throwable cause = e instanceof ExecutionException ? e.getCause() : e;
+            throw new MojoExecutionException("Error transforming module jars: " + cause.getMessage(), cause);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new MojoExecutionException("Interrupted while transforming module jars.", e);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * @return the signer loaded from the {@code signingServerId} server in the Maven settings.
+     */
+    private ModuleSigner moduleSigner() throws MojoExecutionException {
+        if (moduleSigner == null) {
+            Server server = settings.getServer(signingServerId);
+            if (server == null || server.getPrivateKey() == null) {
+                throw new MojoExecutionException(String.format("Signing needs a <server> with id '%s' and the " +
+                    "keystore as its <privateKey> in settings.xml.", signingServerId));
+            }
 
-            if (!moduleXmlFile.createNewFile()) {
-                throw new IOException("unable to create module.xml");
+            SettingsDecryptionResult decrypted =
+                settingsDecrypter.decrypt(new DefaultSettingsDecryptionRequest(server));
+            if (!decrypted.getProblems().isEmpty()) {
+                throw new MojoExecutionException("Could not decrypt the signing passwords: " +
+                    decrypted.getProblems());
             }
+            server = decrypted.getServer();
+
+            try {
+                moduleSigner = ModuleSigner.load(
+                    Paths.get(server.getPrivateKey()),
+                    server.getPassword() != null ? server.getPassword().toCharArray() : new char[0],
+                    server.getUsername(),
+                    server.getPassphrase() != null ? server.getPassphrase().toCharArray() : null,
+                    certificateChain != null ? certificateChain.toPath() : null);
+            } catch (IOException | GeneralSecurityException e) {
+                throw new MojoExecutionException("Could not load the signing key from " +
+                    server.getPrivateKey() + ": " + e.getMessage(), e);
+            }
+        }
+        return moduleSigner;
+    }
+
+    private TransformerChain transformerChain() throws MojoExecutionException {
+        if (transformerChain == null) {
+            try {
+                transformerChain = TransformerChain.load(transformers, transformerProperties,
+                    getClass().getClassLoader(), transformCacheDirectory.toPath());
+            } catch (IllegalArgumentException | ServiceConfigurationError e) {
+                throw new MojoExecutionException(e.getMessage(), e);
+            }
+        }
+        return transformerChain;
+    }
+
+    /**
+     * @return the file name for a rewritten copy of {@code jar}. A jar whose file is shared with another scope gets
+     * the scope appended, so the rewritten copy does not replace the file the other scope uses.
+     */
+    private String rewrittenFileName(ScopedJar jar) {
+        for (ScopedJar other : moduleJars) {
+            if (other != jar && other.getName().equals(jar.getName())) {
+                return StringUtils.replace(jar.getName(), ".jar", "-" + jar.getScope().toLowerCase() + ".jar");
+            }
+        }
+        return jar.getName();
+    }
+
+    /**
+     * @return the directory under the build directory where intermediate jars and reports are written.
+     * @throws MojoExecutionException if the directory could not be created.
+     */
+    private Path workDirPath() throws MojoExecutionException {
+        Path workDirPath = Paths.get(project.getBuild().getDirectory(), "ignition");
 
-            XMLStreamWriter writer = factory.createXMLStreamWriter(new FileOutputStream(moduleXmlFile), "UTF-8");
+        try {
+            return Files.createDirectories(workDirPath);
+        } catch (IOException e) {
+            throw new MojoExecutionException("Error creating work directory: " + workDirPath, e);
+        }
+    }
+
+    private byte[] moduleXml() throws MojoExecutionException {
+        return moduleXml(requiredIgnitionVersion, requiredFrameworkVersion, licenseFile != null,
+            documentationFile != null);
+    }
+
+    private byte[] moduleXml(String requiredIgnitionVersion, int requiredFrameworkVersion,
+                             boolean includeLicense, boolean includeDocumentation) throws MojoExecutionException {
+        try {
+            XMLOutputFactory factory = XMLOutputFactory.newFactory();
+            ByteArrayOutputStream moduleXml = new ByteArrayOutputStream();
+
+            XMLStreamWriter writer = factory.createXMLStreamWriter(moduleXml, "UTF-8");
 
             writer.writeStartDocument("UTF-8", "1.0");
             writer.writeStartElement("modules");
@@ -305,13 +1356,13 @@ public class IgnitionModlMojo extends AbstractMojo {
                 writer.writeEndElement();
             }
 
-            if (licenseFile != null) {
+            if (includeLicense) {
                 writer.writeStartElement("license");
                 writer.writeCharacters(licenseFile);
                 writer.writeEndElement();
             }
 
-            if (documentationFile != null) {
+            if (includeDocumentation) {
                 writer.writeStartElement("documentation");
                 if (documentationFile.startsWith("doc/")) {
                     writer.writeCharacters(documentationFile.substring(4));
@@ -330,35 +1381,13 @@ public class IgnitionModlMojo extends AbstractMojo {
                 }
             }
 
-            for (Artifact artifact : gatewayScopeArtifacts) {
-                String artifactFileName = artifact.getArtifactId() + "-" + artifact.getVersion() + ".jar";
-                String scope = "G";
-
+            for (ScopedJar jar : moduleJars) {
                 writer.writeStartElement("jar");
-                writer.writeAttribute("scope", scope);
-                writer.writeCharacters(artifactFileName);
+                writer.writeAttribute("scope", jar.getScope());
+                writer.writeCharacters(jar.getName());
                 writer.writeEndElement();
             }
 
-            for (Artifact artifact : Sets.union(clientScopeArtifacts, designerScopeArtifacts)) {
-                String artifactFileName = artifact.getArtifactId() + "-" + artifact.getVersion() + ".jar";
-
-                String scope = "";
-                if (clientScopeArtifacts.contains(artifact)) {
-                    scope += "C";
-                }
-                if (designerScopeArtifacts.contains(artifact)) {
-                    scope += "D";
-                }
-
-                if (!scope.isEmpty()) {
-                    writer.writeStartElement("jar");
-                    writer.writeAttribute("scope", scope);
-                    writer.writeCharacters(artifactFileName);
-                    writer.writeEndElement();
-                }
-            }
-
             for (ModuleHook h : hooks) {
                 writer.writeStartElement("hook");
                 writer.writeAttribute("scope", h.getScope());
@@ -371,53 +1400,209 @@ public class IgnitionModlMojo extends AbstractMojo {
             writer.writeEndDocument();
 
             writer.close();
-        } catch (IOException | XMLStreamException e) {
-            throw new MojoExecutionException("Error copying dependency artifacts.", e);
+
+            return moduleXml.toByteArray();
+        } catch (XMLStreamException e) {
+            throw new MojoExecutionException("Error writing module.xml.", e);
         }
     }
 
-    private void createModlFile(Path tempDirPath) throws MojoExecutionException {
+    BuiltModule createModlFile(Path stagingDirPath) throws MojoExecutionException {
         try {
             File buildDir = new File(project.getBuild().getDirectory());
             if (!buildDir.exists() && !buildDir.mkdirs()) {
                 throw new Exception("Could not create file: " + buildDir);
             }
 
-            // grab any docs or license we need and copy them to the tempDir
-            if (findDocs(tempDirPath)) {
-                getLog().info("Adding documentation to module.");
+            String filename = modlFilePath().toString();
+
+
+            getLog().info("Creating modl file at: " + filename);
+
+            int threads = compressionThreads > 0 ? compressionThreads : Runtime.getRuntime().availableProcessors();
+            byte[] sha256 = new ParallelZipWriter(threads, workDirPath().resolve("spill"), sign ? moduleSigner() : null)
+                .write(stagingDirPath, Paths.get(filename));
+
+            BuiltModule module = BuiltModule.publish(project, Paths.get(filename), ContentManifest.hex(sha256));
+            getLog().info(String.format("Module is %d bytes, SHA-256 %s", module.getSize(), module.getSha256()));
+            return module;
+
+        } catch (Exception e) {
+            throw new MojoExecutionException("Error creating modl file.", e);
+        }
+    }
+
+    /**
+     * Stage and zip each of the {@code variants}. Jars, license and docs are placed from the main module's staging
+     * directory, so they are linked rather than copied where the file system allows; the variants are then zipped
+     * concurrently, sharing the compression threads.
+     *
+     * @param main the staged main module.
+     * @return the variant modules, in configuration order.
+     */
+    private List<BuiltModule> createVariants(StagingDirectory main) throws MojoExecutionException {
+        if (variants == null || variants.length == 0) {
+            return Collections.emptyList();
+        }
+
+        checkVariantNames();
+
+        Map<ModuleVariant, StagingDirectory> staged = new LinkedHashMap<>();
+        for (ModuleVariant variant : variants) {
+            staged.put(variant, stageVariant(main.getRoot(), variant));
+        }
+
+        int threads = compressionThreads > 0 ? compressionThreads : Runtime.getRuntime().availableProcessors();
+        int threadsPerVariant = Math.max(1, threads / variants.length);
+        ModuleSigner signer = sign ? moduleSigner() : null;
+        ExecutorService executor = Executors.newFixedThreadPool(Math.min(threads, variants.length));
+
+        try {
+            Map<Path, Future<byte[]>> zips = new LinkedHashMap<>();
+            for (Map.Entry<ModuleVariant, StagingDirectory> e : staged.entrySet()) {
+                Path variantPath = variantFilePath(e.getKey());
+                getLog().info("Creating modl file at: " + variantPath);
+
+                zips.put(variantPath, executor.submit(() ->
+                    new ParallelZipWriter(threadsPerVariant, workDirPath().resolve("spill"), signer)
+                        .write(e.getValue().getRoot(), variantPath)));
             }
 
-            if (findLicense(tempDirPath).isPresent()) {
-                getLog().info("License file added to module.");
+            List<BuiltModule> modules = new ArrayList<>();
+            for (Map.Entry<Path, Future<byte[]>> e : zips.entrySet()) {
+                byte[] sha256 = e.getValue().get();
+                modules.add(BuiltModule.describe(e.getKey(), ContentManifest.hex(sha256)));
             }
+            return modules;
+        } catch (ExecutionException | IOException e) {
+            throw new MojoExecutionException("Error creating variant modl file.",
+                e instanceof ExecutionException ? e.getCause() : e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new MojoExecutionException("Interrupted while creating variant modl files.", e);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
 
-            String unsignedModuleName = StringUtils.replace(moduleName, ' ', '-') + "-unsigned.modl";
+    /**
+     * Check that every variant has a valid name of its own, and that its file would not overwrite the main module or
+     * another variant. Names are compared ignoring case, as they are on case-insensitive file systems.
+     *
+     * @throws MojoExecutionException if a name is invalid or taken.
+     */
+    private void checkVariantNames() throws MojoExecutionException {
+        Set<String> taken = new HashSet<>();
+        taken.add(ModuleFiles.signedFileName(moduleName).toLowerCase(Locale.ROOT));
+        taken.add(ModuleFiles.unsignedFileName(moduleName).toLowerCase(Locale.ROOT));
+
+        Set<String> names = new HashSet<>();
+        for (ModuleVariant variant : variants) {
+            String name = variant.getName();
+            if (name == null || !name.matches("[A-Za-z0-9._-]+")) {
+                throw new MojoExecutionException("Variant names must be made of letters, digits, '.', '_' and " +
+                    "'-': " + name);
+            }
+            if (!names.add(name.toLowerCase(Locale.ROOT))) {
+                throw new MojoExecutionException("More than one variant is named " + name + ".");
+            }
 
-            String filename = buildDir.getAbsolutePath() + File.separator + unsignedModuleName;
+            String fileName = variantFilePath(variant).getFileName().toString();
+            if (taken.contains(fileName.toLowerCase(Locale.ROOT))) {
+                throw new MojoExecutionException(String.format("Variant %s would be written to %s, which is the " +
+                    "main module's file name; choose another variant name.", name, fileName));
+            }
+        }
+    }
 
+    private StagingDirectory stageVariant(Path mainRoot, ModuleVariant variant) throws MojoExecutionException {
+        boolean includeLicense = variant.getIncludeLicense() != null ?
+            variant.getIncludeLicense() : licenseFile != null;
+        boolean includeDocumentation = variant.getIncludeDocumentation() != null ?
+            variant.getIncludeDocumentation() : documentationFile != null;
 
-            getLog().info("Creating modl file at: " + filename);
+        if (includeLicense && licenseFile == null) {
+            throw new MojoExecutionException("Variant " + variant.getName() + " includes a license but no " +
+                "licenseFile is configured.");
+        }
+        if (includeDocumentation && documentationFile == null) {
+            throw new MojoExecutionException("Variant " + variant.getName() + " includes documentation but no " +
+                "documentationFile is configured.");
+        }
 
-            ZipUtil.pack(new File(tempDirPath.toString()), new File(filename));
+        Path root = stagingDirectory.toPath().resolveSibling("variants").resolve(variant.getName());
+        try {
+            StagingDirectory staging = newStagingDirectory(root);
 
-        } catch (Exception e) {
-            throw new MojoExecutionException("Error creating modl file.", e);
+            for (ScopedJar jar : moduleJars) {
+                staging.syncFile(mainRoot.resolve(jar.getName()), jar.getName());
+            }
+
+            BuildEvents.ModuleXmlWrite xmlEvent = new BuildEvents.ModuleXmlWrite();
+            xmlEvent.begin();
+            byte[] xml = moduleXml(
+                variant.getRequiredIgnitionVersion() != null ?
+                    variant.getRequiredIgnitionVersion() : requiredIgnitionVersion,
+                variant.getRequiredFrameworkVersion() != null ?
+                    variant.getRequiredFrameworkVersion() : requiredFrameworkVersion,
+                includeLicense,
+                includeDocumentation);
+            commit(xmlEvent, staging, xml, staging.writeFile(xml, "module.xml"));
+
+            if (includeLicense) {
+                BuildEvents.DocumentCopy event = new BuildEvents.DocumentCopy();
+                event.begin();
+                staging.syncFile(mainRoot.resolve("license.html"), "license.html");
+                commit(event, "license", mainRoot.resolve("license.html"));
+            }
+            if (includeDocumentation) {
+                BuildEvents.DocumentCopy event = new BuildEvents.DocumentCopy();
+                event.begin();
+                staging.syncTree(mainRoot.resolve("doc"), "doc");
+                commit(event, "documentation", mainRoot.resolve("doc"));
+            }
+
+            staging.removeStale();
+
+            getLog().info(String.format("Staged variant %s in %s: %s", variant.getName(), root, staging.summary()));
+            return staging;
+        } catch (IOException e) {
+            throw new MojoExecutionException("Error staging variant " + variant.getName() + " in " + root, e);
         }
     }
 
+    private Path variantFilePath(ModuleVariant variant) {
+        return modlFilePath().resolveSibling(moduleFileName(moduleName + "-" + variant.getName()));
+    }
+
     /**
-     * If a {@code documentationFile} element exists, copy everything the "doc" directory into the module.
+     * @return the path of the module file in the build directory: the signed module if {@code sign} is set,
+     * otherwise the unsigned module.
+     */
+    Path modlFilePath() {
+        return Paths.get(project.getBuild().getDirectory()).toAbsolutePath()
+            .resolve(moduleFileName(moduleName));
+    }
+
+    private String moduleFileName(String name) {
+        return sign ? ModuleFiles.signedFileName(name) : ModuleFiles.unsignedFileName(name);
+    }
+
+    /**
+     * If a {@code documentationFile} element exists, sync everything in the "doc" directory into the module.
      *
-     * @param tempDir the path to the temp directory where the modl is being assembled.
-     * @return {@code true} if documents were found and copied
-     * @throws MojoExecutionException if copying the doc directory failed.
+     * @param staging the staging directory where the modl is being assembled.
+     * @return {@code true} if documents were found and synced
+     * @throws MojoExecutionException if syncing the doc directory failed.
      */
-    private boolean findDocs(Path tempDir) throws MojoExecutionException {
+    private boolean findDocs(StagingDirectory staging) throws MojoExecutionException {
         if (documentationFile != null) {
             try {
+                BuildEvents.DocumentCopy event = new BuildEvents.DocumentCopy();
+                event.begin();
                 Path pathToDoc = Paths.get(project.getBasedir().getAbsolutePath(), "doc");
-                FileUtils.copyDirectoryStructure(pathToDoc.toFile(), new File(tempDir.toFile(), "doc"));
+                staging.syncTree(pathToDoc, "doc");
+                commit(event, "documentation", pathToDoc);
                 return true;
             } catch (IOException e) {
                 getLog().warn("Failed to copy doc dir: " + e.getMessage(), e);
@@ -432,35 +1617,49 @@ public class IgnitionModlMojo extends AbstractMojo {
     /**
      * FindLicense looks for the license file based on the parameter specified in the plugin configs.  It will check
      * the build dir if no path is specified, otherwise it will try to find the license.html specified in a path
-     * and copy it to the temp directory to be zipped.
+     * and sync it to the staging directory to be zipped.
      *
-     * @param tempDir that contains the module assets to be packed into the .modl
-     * @return an optional containing the {@link Path} to the new file if copied, else empty.
+     * @param staging that contains the module assets to be packed into the .modl
+     * @return an optional containing the {@link Path} to the staged file if found, else empty.
      * @throws MojoExecutionException when there is a failure to copy specified file
      */
-    private Optional<Path> findLicense(Path tempDir) throws MojoExecutionException {
+    private Optional<Path> findLicense(StagingDirectory staging) throws MojoExecutionException {
         // if user specified a license in the pom configuration
         if (licenseFile != null) {
             try {
-                Path licensePath = licenseFile.contentEquals("license.html")
-                    ? Paths.get(project.getBasedir() + File.separator + licenseFile)
-                    : Paths.get(licenseFile);
-
-                getLog().debug("Attempting to locate " + licensePath.toAbsolutePath());
-
-                if (Files.exists(licensePath.toAbsolutePath()) && !Files.isDirectory(licensePath)) {
-                    getLog().debug("License found in default directory, copying to " + tempDir.resolve(licenseFile));
-                    return Optional.of(Files.copy(licensePath, tempDir.resolve("license.html")));
-                } else {
-                    throw new MojoExecutionException(String.format(
-                        "License file '%s' was declared but not found.  Verify license.html path in build pom plugin "
-                            + "configuration.",
-                        licensePath.toAbsolutePath()));
-                }
+                BuildEvents.DocumentCopy event = new BuildEvents.DocumentCopy();
+                event.begin();
+                Path licensePath = locateLicense();
+                getLog().debug("License found, syncing to " + staging.getRoot().resolve("license.html"));
+                staging.syncFile(licensePath, "license.html");
+                commit(event, "license", licensePath);
+                return Optional.of(staging.getRoot().resolve("license.html"));
             } catch (IOException e) {
                 throw new MojoExecutionException("Could locate license.html.  Check path in pom configuration.", e);
             }
         }
         return Optional.empty();
     }
+
+    /**
+     * @return the path of the configured {@code licenseFile}; "license.html" is resolved against the project's base
+     * directory.
+     * @throws MojoExecutionException if the license file does not exist.
+     */
+    private Path locateLicense() throws MojoExecutionException {
+        Path licensePath = licenseFile.contentEquals("license.html")
+            ? Paths.get(project.getBasedir() + File.separator + licenseFile)
+            : Paths.get(licenseFile);
+
+        getLog().debug("Attempting to locate " + licensePath.toAbsolutePath());
+
+        if (Files.exists(licensePath.toAbsolutePath()) && !Files.isDirectory(licensePath)) {
+            return licensePath;
+        } else {
+            throw new MojoExecutionException(String.format(
+                "License file '%s' was declared but not found.  Verify license.html path in build pom plugin "
+                    + "configuration.",
+                licensePath.toAbsolutePath()));
+        }
+    }
 }
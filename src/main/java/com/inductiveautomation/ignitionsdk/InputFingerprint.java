@@ -0,0 +1,117 @@
+package com.inductiveautomation.ignitionsdk;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.ZipException;
+
+/**
+ * A fingerprint of everything a build step's output depends on, built from one line per input: a parameter value,
+ * the SHA-256 of a file's content, or a digest of a jar's entries.
+ * <p/>
+ * Lines never contain absolute paths or modification times, so the same inputs give the same fingerprint on any
+ * machine and in any checkout directory.
+ */
+class InputFingerprint {
+
+    private final List<String> lines = new ArrayList<>();
+
+    InputFingerprint value(String name, Object value) {
+        lines.add("param " + name + " = " + value);
+        return this;
+    }
+
+    /**
+     * @param name a name for the file that does not depend on where the project is checked out.
+     */
+    InputFingerprint file(String name, Path file) throws IOException {
+        lines.add("file " + name + " " + sha256(file));
+        return this;
+    }
+
+    /**
+     * Add a jar by the names, sizes and CRCs of its entries rather than by its bytes, so that a jar rebuilt from the
+     * same classes, which differs only in entry timestamps, counts as unchanged. Only the jar's central directory is
+     * read.
+     *
+     * @param name a name for the jar that does not depend on where the project is checked out.
+     */
+    InputFingerprint jar(String name, Path jar) throws IOException {
+        ZipIndex index;
+        try {
+            index = ZipIndex.open(jar);
+        } catch (ZipException e) {
+            return file(name, jar);
+        }
+
+        MessageDigest digest = ContentManifest.newDigest();
+        for (ZipIndex.Entry entry : index.entries()) {
+            digest.update(String.format("%s %d %08x\n", entry.getName(), entry.getSize(), entry.getCrc())
+                .getBytes(StandardCharsets.UTF_8));
+        }
+
+        lines.add("jar " + name + " " + ContentManifest.hex(digest.digest()));
+        return this;
+    }
+
+    /**
+     * Add every file under {@code dir}, in path order, named by {@code name} and its path relative to {@code dir}.
+     */
+    InputFingerprint tree(String name, Path dir) throws IOException {
+        if (!Files.isDirectory(dir)) {
+            lines.add("tree " + name + " missing");
+            return this;
+        }
+
+        List<Path> files;
+        try (Stream<Path> walk = Files.walk(dir)) {
+            files = walk.filter(Files::isRegularFile).sorted().collect(Collectors.toList());
+        }
+
+        for (Path file : files) {
+            file(name + "/" + dir.relativize(file).toString().replace('\\', '/'), file);
+        }
+        return this;
+    }
+
+    /**
+     * @return the inputs, one per line, in the order they were added.
+     */
+    List<String> getLines() {
+        return lines;
+    }
+
+    /**
+     * @return the SHA-256 of the input lines, as lowercase hex.
+     */
+    String fingerprint() {
+        MessageDigest digest = ContentManifest.newDigest();
+        for (String line : lines) {
+            digest.update(line.getBytes(StandardCharsets.UTF_8));
+            digest.update((byte) '\n');
+        }
+        return ContentManifest.hex(digest.digest());
+    }
+
+    static String sha256(Path file) throws IOException {
+        MessageDigest digest = ContentManifest.newDigest();
+        byte[] buffer = new byte[64 * 1024];
+
+        try (InputStream in = Files.newInputStream(file)) {
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                digest.update(buffer, 0, read);
+            }
+        }
+
+        return ContentManifest.hex(digest.digest());
+    }
+
+}
@@ -0,0 +1,231 @@
+package com.inductiveautomation.ignitionsdk;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.jar.Attributes;
+import java.util.jar.JarEntry;
+import java.util.jar.JarFile;
+import java.util.jar.JarOutputStream;
+import java.util.jar.Manifest;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+/**
+ * Merges several jars into one consolidated jar so a scope's classloader has a single central directory to search.
+ * <p/>
+ * {@code META-INF/services} files are concatenated, a fresh manifest is written, and entries that appear in more than
+ * one jar with different contents are reported as conflicts; the first occurrence wins. Only license and notice
+ * files are expected to differ between jars and are not reported; everything else is, including
+ * {@code META-INF/versions/} classes and signature files.
+ * <p/>
+ * Entries keep the modification time of the entry they were copied from, and the manifest and service files take the
+ * newest modification time of the merged jars, so merging the same jars again produces the same jar.
+ */
+class JarMerger {
+
+    private static final String SERVICES_PREFIX = "META-INF/services/";
+
+    private final List<String> conflicts = new ArrayList<>();
+
+    private int entryCount = 0;
+
+    /**
+     * @param jar the jar to check.
+     * @return {@code true} if the jar carries a signature, in which case merging it would invalidate the signature.
+     * @throws IOException if the jar could not be read.
+     */
+    static boolean isSigned(Path jar) throws IOException {
+        try (ZipFile zip = new ZipFile(jar.toFile())) {
+            Enumeration<? extends ZipEntry> entries = zip.entries();
+            while (entries.hasMoreElements()) {
+                String name = entries.nextElement().getName().toUpperCase();
+
+                if (name.startsWith("META-INF/") && name.indexOf('/', 9) == -1 &&
+                    (name.endsWith(".SF") || name.endsWith(".RSA") || name.endsWith(".DSA") || name.endsWith(".EC"))) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Merge {@code jars}, in order, into {@code target}.
+     *
+     * @param jars the jars to merge.
+     * @param target the merged jar to create.
+     * @throws IOException if reading a source jar or writing the target failed.
+     */
+    void merge(List<Path> jars, Path target) throws IOException {
+        Map<String, Long> crcs = new HashMap<>();
+        Map<String, String> origins = new HashMap<>();
+        Map<String, ByteArrayOutputStream> services = new LinkedHashMap<>();
+        Set<String> directories = new HashSet<>();
+        boolean multiRelease = false;
+        long newest = 0;
+
+        for (Path jar : jars) {
+            try (JarFile jarFile = new JarFile(jar.toFile())) {
+                Manifest manifest = jarFile.getManifest();
+                if (manifest != null &&
+                    "true".equalsIgnoreCase(manifest.getMainAttributes().getValue("Multi-Release"))) {
+                    multiRelease = true;
+                }
+
+                Enumeration<JarEntry> entries = jarFile.entries();
+                while (entries.hasMoreElements()) {
+                    newest = Math.max(newest, entries.nextElement().getTime());
+                }
+            }
+        }
+
+        Manifest manifest = new Manifest();
+        manifest.getMainAttributes().put(Attributes.Name.MANIFEST_VERSION, "1.0");
+        manifest.getMainAttributes().putValue("Created-By", "ignition-maven-plugin");
+        if (multiRelease) {
+            manifest.getMainAttributes().putValue("Multi-Release", "true");
+        }
+
+        try (JarOutputStream out = new JarOutputStream(Files.newOutputStream(target))) {
+            out.putNextEntry(newEntry(JarFile.MANIFEST_NAME, newest));
+            manifest.write(out);
+            out.closeEntry();
+
+            for (Path jar : jars) {
+                String jarName = jar.getFileName().toString();
+
+                try (ZipFile zip = new ZipFile(jar.toFile())) {
+                    Enumeration<? extends ZipEntry> entries = zip.entries();
+                    while (entries.hasMoreElements()) {
+                        ZipEntry entry = entries.nextElement();
+                        String name = entry.getName();
+
+                        if (isExcluded(name)) {
+                            continue;
+                        }
+
+                        if (entry.isDirectory()) {
+                            if (directories.add(name)) {
+                                out.putNextEntry(newEntry(name, entry.getTime()));
+                                out.closeEntry();
+                            }
+                            continue;
+                        }
+
+                        if (name.startsWith(SERVICES_PREFIX) && name.indexOf('/', SERVICES_PREFIX.length()) == -1) {
+                            ByteArrayOutputStream buffer =
+                                services.computeIfAbsent(name, k -> new ByteArrayOutputStream());
+                            try (InputStream in = zip.getInputStream(entry)) {
+                                in.transferTo(buffer);
+                            }
+                            buffer.write('\n');
+                            continue;
+                        }
+
+                        Long crc = crcs.get(name);
+                        if (crc != null) {
+                            if (crc != entry.getCrc() && !isLicense(name)) {
+                                conflicts.add(String.format("%s (%s vs %s)", name, origins.get(name), jarName));
+                            }
+                            continue;
+                        }
+
+                        crcs.put(name, entry.getCrc());
+                        origins.put(name, jarName);
+
+                        out.putNextEntry(newEntry(name, entry.getTime()));
+                        try (InputStream in = zip.getInputStream(entry)) {
+                            in.transferTo(out);
+                        }
+                        out.closeEntry();
+                        entryCount++;
+                    }
+                }
+            }
+
+            for (Map.Entry<String, ByteArrayOutputStream> service : services.entrySet()) {
+                out.putNextEntry(newEntry(service.getKey(), newest));
+                writeServiceFile(service.getValue(), out);
+                out.closeEntry();
+                entryCount++;
+            }
+        }
+    }
+
+    /**
+     * @return entries found in more than one jar with different contents, as "path (first.jar vs other.jar)".
+     */
+    List<String> getConflicts() {
+        return conflicts;
+    }
+
+    /**
+     * @return the number of file entries written to the merged jar.
+     */
+    int getEntryCount() {
+        return entryCount;
+    }
+
+    private static JarEntry newEntry(String name, long time) {
+        JarEntry entry = new JarEntry(name);
+        entry.setTime(time);
+        return entry;
+    }
+
+    private static boolean isExcluded(String name) {
+        return name.equals(JarFile.MANIFEST_NAME) ||
+            name.equals("META-INF/") ||
+            name.equals("META-INF/INDEX.LIST") ||
+            name.endsWith("module-info.class");
+    }
+
+    /**
+     * @return {@code true} for license and notice files, e.g. {@code META-INF/LICENSE.txt} or {@code NOTICE}, at the
+     * root of the jar or in {@code META-INF/}.
+     */
+    private static boolean isLicense(String name) {
+        int slash = name.lastIndexOf('/');
+        if (slash != -1 && !name.substring(0, slash + 1).equals("META-INF/")) {
+            return false;
+        }
+
+        String fileName = name.substring(slash + 1).toUpperCase(Locale.ROOT);
+        return fileName.startsWith("LICENSE") || fileName.startsWith("NOTICE");
+    }
+
+    /**
+     * Write the concatenated provider lines, dropping duplicates, comments and blank lines.
+     */
+    private static void writeServiceFile(ByteArrayOutputStream content, OutputStream out) throws IOException {
+        Set<String> providers = new LinkedHashSet<>();
+
+        for (String line : content.toString(StandardCharsets.UTF_8).split("\\R")) {
+            int comment = line.indexOf('#');
+            String provider = (comment >= 0 ? line.substring(0, comment) : line).trim();
+            if (!provider.isEmpty()) {
+                providers.add(provider);
+            }
+        }
+
+        for (String provider : providers) {
+            out.write(provider.getBytes(StandardCharsets.UTF_8));
+            out.write('\n');
+        }
+    }
+
+}
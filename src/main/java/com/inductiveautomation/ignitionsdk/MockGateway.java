@@ -0,0 +1,403 @@
+package com.inductiveautomation.ignitionsdk;
+
+import java.io.BufferedOutputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+import com.sun.net.httpserver.Filter;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * A stand-in for the module loading endpoints of an Ignition gateway, for testing and load-testing the post goal
+ * without a gateway.
+ * <p/>
+ * It accepts the Base64 POST of {@link PostModuleMojo} at {@link #MODULE_LOADING_PATH} and the chunked upload
+ * protocol of {@link ChunkedUploadClient} at {@link #CHUNKED_UPLOAD_PATH}. Each module received is checked the way a
+ * gateway would before installing it: every entry must be readable and match its CRC, and module.xml must parse and
+ * list only jars that are in the module. Installs happen one at a time, as on a gateway.
+ * <p/>
+ * The network and gateway can be shaped: a latency is added before every request is handled, request bodies are
+ * read no faster than a bandwidth limit, every install takes an extra delay, and a fraction of installs fail with a
+ * configurable status. Every request is recorded as a {@link Request}.
+ */
+class MockGateway {
+
+    static final String MODULE_LOADING_PATH = "/main/system/DeveloperModuleLoadingServlet";
+    static final String CHUNKED_UPLOAD_PATH = "/main/system/DeveloperModuleChunkedUpload";
+
+    private final Path storage;
+    private final Duration latency;
+    private final long bytesPerSecond;
+    private final Duration installLatency;
+    private final double failureRate;
+    private final int failureStatus;
+    private final Random random;
+    private final RequestListener listener;
+
+    private final Object installLock = new Object();
+    private final List<Request> requests = Collections.synchronizedList(new ArrayList<>());
+
+    private HttpServer server;
+    private ExecutorService executor;
+
+    /**
+     * @param storage the directory received modules and upload chunks are written to.
+     * @param latency added before every request is handled.
+     * @param bytesPerSecond the most request body bytes read per second, per request, or 0 for no limit.
+     * @param installLatency added to every install.
+     * @param failureRate the fraction of installs, from 0 to 1, that fail with {@code failureStatus}.
+     * @param seed seeds the choice of failed installs, so a run can be repeated.
+     * @param listener told about every request once its response was sent, or null.
+     */
+    MockGateway(Path storage, Duration latency, long bytesPerSecond, Duration installLatency, double failureRate,
+                int failureStatus, long seed, RequestListener listener) {
+        this.storage = storage;
+        this.latency = latency;
+        this.bytesPerSecond = bytesPerSecond;
+        this.installLatency = installLatency;
+        this.failureRate = failureRate;
+        this.failureStatus = failureStatus;
+        this.random = new Random(seed);
+        this.listener = listener;
+    }
+
+    /**
+     * Start serving on {@code address}; port 0 picks a free port.
+     *
+     * @throws IOException if the server could not bind to {@code address}.
+     */
+    void start(InetSocketAddress address) throws IOException {
+        Files.createDirectories(storage);
+
+        server = HttpServer.create(address, 0);
+        server.createContext(MODULE_LOADING_PATH, this::handlePost).getFilters().add(new Shaping());
+        server.createContext(CHUNKED_UPLOAD_PATH, new ChunkedUploadHandler(storage.resolve("chunked"), this::install))
+            .getFilters().add(new Shaping());
+
+        executor = Executors.newCachedThreadPool();
+        server.setExecutor(executor);
+        server.start();
+    }
+
+    /**
+     * @return the address the gateway is listening on, e.g. {@code http://127.0.0.1:8088}.
+     */
+    String getAddress() {
+        InetSocketAddress address = server.getAddress();
+        return "http://" + address.getHostString() + ":" + address.getPort();
+    }
+
+    /**
+     * @return the requests handled so far, in the order they finished.
+     */
+    List<Request> getRequests() {
+        synchronized (requests) {
+            return new ArrayList<>(requests);
+        }
+    }
+
+    void stop() {
+        if (server != null) {
+            server.stop(0);
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Handle a post in the format of {@link PostModuleMojo}: the module Base64-encoded as the whole request body.
+     */
+    private void handlePost(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            if (!exchange.getRequestMethod().equals("POST")) {
+                ChunkedUploadHandler.respond(exchange, 405, "modules must be POSTed");
+                return;
+            }
+
+            Path module = Files.createTempFile(storage, "post", ".modl");
+            try {
+                try (InputStream in = new Base64.InputStream(exchange.getRequestBody(), Base64.DECODE);
+                     OutputStream out = new BufferedOutputStream(Files.newOutputStream(module), 64 * 1024)) {
+                    in.transferTo(out);
+                }
+
+                install(module);
+                ChunkedUploadHandler.respond(exchange, 200, "module installed");
+            } catch (ChunkedUploadHandler.InstallFailure e) {
+                ChunkedUploadHandler.respond(exchange, e.getStatus(), e.getMessage());
+            } catch (IOException e) {
+                ChunkedUploadHandler.respond(exchange, 400, "could not decode module: " + e.getMessage());
+            } finally {
+                Files.deleteIfExists(module);
+            }
+        }
+    }
+
+    /**
+     * Check and "install" a received module: wait for the install latency, holding the install lock, and fail if
+     * chosen to.
+     *
+     * @throws ChunkedUploadHandler.InstallFailure if the module is not valid or the install was chosen to fail.
+     */
+    private void install(Path module) {
+        long start = System.nanoTime();
+
+        try {
+            String problem = validate(module);
+            if (problem != null) {
+                throw new ChunkedUploadHandler.InstallFailure(400, "invalid module: " + problem);
+            }
+
+            synchronized (installLock) {
+                try {
+                    Thread.sleep(installLatency.toMillis());
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new ChunkedUploadHandler.InstallFailure(503, "gateway is shutting down");
+                }
+
+                boolean fail;
+                synchronized (random) {
+                    fail = random.nextDouble() < failureRate;
+                }
+                if (fail) {
+                    throw new ChunkedUploadHandler.InstallFailure(failureStatus, "simulated install failure");
+                }
+            }
+        } finally {
+            InstallTimer.record((System.nanoTime() - start) / 1_000_000);
+        }
+    }
+
+    /**
+     * @return what is wrong with {@code module}, or null if it could be installed.
+     */
+    static String validate(Path module) {
+        try (ZipFile zip = new ZipFile(module.toFile())) {
+            byte[] buffer = new byte[64 * 1024];
+            Enumeration<? extends ZipEntry> entries = zip.entries();
+            while (entries.hasMoreElements()) {
+                // reading each entry to the end checks its CRC
+                try (InputStream in = zip.getInputStream(entries.nextElement())) {
+                    while (in.read(buffer) != -1) {
+                        // discard
+                    }
+                }
+            }
+
+            ModuleDescriptor descriptor = ModuleDescriptor.read(zip);
+            if (descriptor.getId() == null || descriptor.getId().isEmpty()) {
+                return "module.xml has no id";
+            }
+            for (ModuleDescriptor.Jar jar : descriptor.getJars()) {
+                if (zip.getEntry(jar.getName()) == null) {
+                    return "module.xml lists a jar that is not in the module: " + jar.getName();
+                }
+            }
+            return null;
+        } catch (IOException e) {
+            return e.getMessage();
+        }
+    }
+
+    /**
+     * A request the gateway handled.
+     */
+    static class Request {
+
+        private final Instant start;
+        private final String method;
+        private final String path;
+        private final int status;
+        private final long bytes;
+        private final long receiveMillis;
+        private final long installMillis;
+        private final long totalMillis;
+
+        Request(Instant start, String method, String path, int status, long bytes, long receiveMillis,
+                long installMillis, long totalMillis) {
+            this.start = start;
+            this.method = method;
+            this.path = path;
+            this.status = status;
+            this.bytes = bytes;
+            this.receiveMillis = receiveMillis;
+            this.installMillis = installMillis;
+            this.totalMillis = totalMillis;
+        }
+
+        static String header() {
+            return "start,method,path,status,bytes,receive_ms,install_ms,total_ms";
+        }
+
+        /**
+         * @return the request as a CSV line matching {@link #header()}.
+         */
+        String toCsv() {
+            return String.join(",", start.toString(), method, path, String.valueOf(status), String.valueOf(bytes),
+                String.valueOf(receiveMillis), String.valueOf(installMillis), String.valueOf(totalMillis));
+        }
+
+        int getStatus() {
+            return status;
+        }
+
+        long getBytes() {
+            return bytes;
+        }
+
+        long getTotalMillis() {
+            return totalMillis;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%s %s -> %d, %d bytes received in %d ms, install %d ms, total %d ms",
+                method, path, status, bytes, receiveMillis, installMillis, totalMillis);
+        }
+
+    }
+
+    interface RequestListener {
+
+        void handled(Request request);
+
+    }
+
+    /**
+     * Passes how long an install took from the install back to the {@link Shaping} filter of the same request.
+     * Requests are handled on one thread each, so a thread local is enough.
+     */
+    private static class InstallTimer {
+
+        private static final ThreadLocal<Long> MILLIS = new ThreadLocal<>();
+
+        static void record(long millis) {
+            MILLIS.set(millis);
+        }
+
+        static long take() {
+            Long millis = MILLIS.get();
+            MILLIS.remove();
+            return millis != null ? millis : 0;
+        }
+
+    }
+
+    /**
+     * Adds the latency, limits the bandwidth of the request body, and records the request.
+     */
+    private class Shaping extends Filter {
+
+        @Override
+        public void doFilter(HttpExchange exchange, Chain chain) throws IOException {
+            Instant start = Instant.now();
+            long startNanos = System.nanoTime();
+
+            try {
+                Thread.sleep(latency.toMillis());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+
+            ShapedInputStream body = new ShapedInputStream(exchange.getRequestBody());
+            exchange.setStreams(body, null);
+            InstallTimer.take();
+
+            try {
+                chain.doFilter(exchange);
+            } finally {
+                Request request = new Request(start, exchange.getRequestMethod(),
+                    exchange.getRequestURI().getPath(), exchange.getResponseCode(), body.bytes,
+                    body.lastReadNanos > 0 ? (body.lastReadNanos - startNanos) / 1_000_000 : 0,
+                    InstallTimer.take(), (System.nanoTime() - startNanos) / 1_000_000);
+
+                requests.add(request);
+                if (listener != null) {
+                    listener.handled(request);
+                }
+            }
+        }
+
+        @Override
+        public String description() {
+            return "latency, bandwidth and request timing";
+        }
+
+    }
+
+    /**
+     * Counts the bytes of a request body and reads them no faster than the bandwidth limit.
+     */
+    private class ShapedInputStream extends FilterInputStream {
+
+        private final long startNanos = System.nanoTime();
+        private long bytes = 0;
+        private long lastReadNanos = 0;
+
+        ShapedInputStream(InputStream in) {
+            super(in);
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if (b != -1) {
+                received(1);
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (bytesPerSecond > 0) {
+                // read at most a tenth of a second's worth at a time, so the rate is smooth
+                len = (int) Math.min(len, Math.max(1, bytesPerSecond / 10));
+            }
+
+            int read = super.read(b, off, len);
+            if (read > 0) {
+                received(read);
+            }
+            return read;
+        }
+
+        private void received(int count) throws IOException {
+            bytes += count;
+            lastReadNanos = System.nanoTime();
+
+            if (bytesPerSecond > 0) {
+                long dueNanos = startNanos + bytes * 1_000_000_000L / bytesPerSecond;
+                long waitMillis = (dueNanos - System.nanoTime()) / 1_000_000;
+                if (waitMillis > 0) {
+                    try {
+                        Thread.sleep(waitMillis);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        throw new IOException("Interrupted while receiving", e);
+                    }
+                }
+                lastReadNanos = System.nanoTime();
+            }
+        }
+
+    }
+
+}
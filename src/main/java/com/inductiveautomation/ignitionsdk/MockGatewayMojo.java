@@ -0,0 +1,179 @@
+package com.inductiveautomation.ignitionsdk;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.maven.plugin.AbstractMojo;
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugin.MojoFailureException;
+import org.apache.maven.plugins.annotations.Mojo;
+import org.apache.maven.plugins.annotations.Parameter;
+
+/**
+ * Runs a stand-in for an Ignition gateway's module loading endpoints, so the {@code post} goal can be tried and
+ * load-tested on any machine. It accepts the Base64 post of the {@code post} goal and its chunked uploads, checks
+ * each module the way a gateway would, and can add latency, limit bandwidth, slow down installs and fail a fraction
+ * of them. The timing of every request is logged and written to a CSV file.
+ * <p/>
+ * Does not need a project: {@code mvn ignition:mock-gateway -Dignition.mockGateway.bandwidth=512}, then post to
+ * {@code http://127.0.0.1:8088} from another build.
+ */
+@Mojo(name = "mock-gateway", requiresProject = false)
+public class MockGatewayMojo extends AbstractMojo {
+
+    /**
+     * The address to listen on.
+     */
+    @Parameter(property = "ignition.mockGateway.host", defaultValue = "127.0.0.1")
+    private String host;
+
+    /**
+     * The port to listen on. 8088 is the port the {@code post} goal uses if no {@code gatewayAddress} is set.
+     */
+    @Parameter(property = "ignition.mockGateway.port", defaultValue = "8088")
+    private int port;
+
+    /**
+     * Milliseconds added before every request is handled, as network round-trip latency.
+     */
+    @Parameter(property = "ignition.mockGateway.latency", defaultValue = "0")
+    private long latency;
+
+    /**
+     * The most KiB per second read from each request body, or 0 for no limit.
+     */
+    @Parameter(property = "ignition.mockGateway.bandwidth", defaultValue = "0")
+    private long bandwidth;
+
+    /**
+     * Milliseconds every install takes, on top of checking the module. Installs happen one at a time.
+     */
+    @Parameter(property = "ignition.mockGateway.installLatency", defaultValue = "0")
+    private long installLatency;
+
+    /**
+     * The fraction of installs, from 0 to 1, that fail with {@code failureStatus}.
+     */
+    @Parameter(property = "ignition.mockGateway.failureRate", defaultValue = "0")
+    private double failureRate;
+
+    /**
+     * The HTTP status of a failed install.
+     */
+    @Parameter(property = "ignition.mockGateway.failureStatus", defaultValue = "500")
+    private int failureStatus;
+
+    /**
+     * Seeds the choice of failed installs, so a run with failures can be repeated.
+     */
+    @Parameter(property = "ignition.mockGateway.seed", defaultValue = "0")
+    private long seed;
+
+    /**
+     * How many seconds to serve before stopping, or 0 to serve until the build is interrupted.
+     */
+    @Parameter(property = "ignition.mockGateway.duration", defaultValue = "0")
+    private long duration;
+
+    /**
+     * Start the gateway and return, so later goals of the same build can post to it; it serves until Maven exits.
+     * {@code duration} is ignored. Defaults to false.
+     */
+    @Parameter(property = "ignition.mockGateway.background", defaultValue = "false")
+    private boolean background;
+
+    /**
+     * The directory modules and upload chunks are written to.
+     */
+    @Parameter(defaultValue = "${session.executionRootDirectory}/target/ignition/mock-gateway")
+    private File storageDirectory;
+
+    /**
+     * The CSV file the timing of every request is written to.
+     */
+    @Parameter(property = "ignition.mockGateway.requestLog",
+        defaultValue = "${session.executionRootDirectory}/target/ignition/mock-gateway-requests.csv")
+    private File requestLog;
+
+    @Override
+    public void execute() throws MojoExecutionException, MojoFailureException {
+        if (failureRate < 0 || failureRate > 1) {
+            throw new MojoExecutionException("failureRate must be between 0 and 1: " + failureRate);
+        }
+
+        PrintWriter log;
+        try {
+            Files.createDirectories(requestLog.getAbsoluteFile().toPath().getParent());
+            log = new PrintWriter(Files.newBufferedWriter(requestLog.toPath(), StandardCharsets.UTF_8));
+        } catch (IOException e) {
+            throw new MojoExecutionException("Error opening request log: " + requestLog, e);
+        }
+        log.println(MockGateway.Request.header());
+        log.flush();
+
+        MockGateway gateway = new MockGateway(storageDirectory.toPath(), Duration.ofMillis(latency),
+            bandwidth * 1024, Duration.ofMillis(installLatency), failureRate, failureStatus, seed,
+            request -> {
+                getLog().info(request.toString());
+                synchronized (log) {
+                    log.println(request.toCsv());
+                    log.flush();
+                }
+            });
+
+        try {
+            gateway.start(new InetSocketAddress(host, port));
+        } catch (IOException e) {
+            log.close();
+            throw new MojoExecutionException("Could not start the mock gateway on " + host + ":" + port, e);
+        }
+
+        getLog().info(String.format("Mock gateway listening on %s (latency %d ms, bandwidth %s, install %d ms, " +
+                "failure rate %.0f%%), logging requests to %s", gateway.getAddress(), latency,
+            bandwidth > 0 ? bandwidth + " KiB/s" : "unlimited", installLatency, failureRate * 100, requestLog));
+
+        if (background) {
+            return;
+        }
+
+        try {
+            if (duration > 0) {
+                TimeUnit.SECONDS.sleep(duration);
+            } else {
+                getLog().info("Serving until interrupted.");
+                Thread.currentThread().join();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            gateway.stop();
+            log.close();
+        }
+
+        logSummary(gateway.getRequests());
+    }
+
+    private void logSummary(List<MockGateway.Request> requests) {
+        if (requests.isEmpty()) {
+            getLog().info("No requests were received.");
+            return;
+        }
+
+        long[] millis = requests.stream().mapToLong(MockGateway.Request::getTotalMillis).sorted().toArray();
+        long failed = requests.stream().filter(r -> r.getStatus() / 100 != 2).count();
+        long bytes = requests.stream().mapToLong(MockGateway.Request::getBytes).sum();
+
+        getLog().info(String.format("%d requests, %d answered with an error, %d bytes received; " +
+                "total time p50 %d ms, p95 %d ms, max %d ms", requests.size(), failed, bytes,
+            millis[(millis.length - 1) / 2], millis[(int) Math.ceil(millis.length * 0.95) - 1],
+            millis[millis.length - 1]));
+    }
+
+}
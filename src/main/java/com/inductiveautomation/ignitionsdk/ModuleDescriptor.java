@@ -0,0 +1,196 @@
+package com.inductiveautomation.ignitionsdk;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.parsers.ParserConfigurationException;
+
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.Node;
+import org.w3c.dom.NodeList;
+import org.xml.sax.SAXException;
+
+/**
+ * The contents of a module.xml, as written by {@link IgnitionModlMojo}.
+ */
+class ModuleDescriptor {
+
+    static final String MODULE_XML = "module.xml";
+
+    private final List<Jar> jars = new ArrayList<>();
+    private final List<ModuleHook> hooks = new ArrayList<>();
+    private final List<ModuleDepends> depends = new ArrayList<>();
+
+    private String id;
+    private String name;
+    private String version;
+    private String requiredIgnitionVersion;
+    private String requiredFrameworkVersion;
+    private String license;
+    private String documentation;
+
+    /**
+     * Read the module.xml of a built module.
+     *
+     * @param modl the module file.
+     * @return the parsed descriptor.
+     * @throws IOException if the module could not be read, has no module.xml, or the module.xml is malformed.
+     */
+    static ModuleDescriptor read(ZipFile modl) throws IOException {
+        ZipEntry entry = modl.getEntry(MODULE_XML);
+        if (entry == null) {
+            throw new IOException(modl.getName() + " does not contain " + MODULE_XML);
+        }
+
+        try (InputStream in = modl.getInputStream(entry)) {
+            return parse(in);
+        }
+    }
+
+    /**
+     * @param in a module.xml stream.
+     * @return the parsed descriptor.
+     * @throws IOException if the stream could not be read or is not a module.xml.
+     */
+    static ModuleDescriptor parse(InputStream in) throws IOException {
+        Document document;
+        try {
+            DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
+            factory.setFeature("http://apache.org/xml/features/disallow-doctype-decl", true);
+            document = factory.newDocumentBuilder().parse(in);
+        } catch (ParserConfigurationException | SAXException e) {
+            throw new IOException("Malformed " + MODULE_XML + ": " + e.getMessage(), e);
+        }
+
+        NodeList modules = document.getElementsByTagName("module");
+        if (modules.getLength() == 0) {
+            throw new IOException(MODULE_XML + " has no <module> element");
+        }
+
+        ModuleDescriptor descriptor = new ModuleDescriptor();
+        NodeList children = modules.item(0).getChildNodes();
+
+        for (int i = 0; i < children.getLength(); i++) {
+            Node node = children.item(i);
+            if (!(node instanceof Element)) {
+                continue;
+            }
+
+            Element element = (Element) node;
+            String text = element.getTextContent().trim();
+            String scope = element.getAttribute("scope");
+
+            switch (element.getTagName()) {
+                case "id":
+                    descriptor.id = text;
+                    break;
+                case "name":
+                    descriptor.name = text;
+                    break;
+                case "version":
+                    descriptor.version = text;
+                    break;
+                case "requiredignitionversion":
+                    descriptor.requiredIgnitionVersion = text;
+                    break;
+                case "requiredframeworkversion":
+                    descriptor.requiredFrameworkVersion = text;
+                    break;
+                case "license":
+                    descriptor.license = text;
+                    break;
+                case "documentation":
+                    descriptor.documentation = text;
+                    break;
+                case "jar":
+                    descriptor.jars.add(new Jar(text, scope));
+                    break;
+                case "hook":
+                    ModuleHook hook = new ModuleHook();
+                    hook.setScope(scope);
+                    hook.setHookClass(text);
+                    descriptor.hooks.add(hook);
+                    break;
+                case "depends":
+                    ModuleDepends d = new ModuleDepends();
+                    d.setScope(scope);
+                    d.setModuleId(text);
+                    descriptor.depends.add(d);
+                    break;
+                default:
+                    break;
+            }
+        }
+
+        return descriptor;
+    }
+
+    String getId() {
+        return id;
+    }
+
+    String getName() {
+        return name;
+    }
+
+    String getVersion() {
+        return version;
+    }
+
+    String getRequiredIgnitionVersion() {
+        return requiredIgnitionVersion;
+    }
+
+    String getRequiredFrameworkVersion() {
+        return requiredFrameworkVersion;
+    }
+
+    String getLicense() {
+        return license;
+    }
+
+    String getDocumentation() {
+        return documentation;
+    }
+
+    List<Jar> getJars() {
+        return jars;
+    }
+
+    List<ModuleHook> getHooks() {
+        return hooks;
+    }
+
+    List<ModuleDepends> getDepends() {
+        return depends;
+    }
+
+    /**
+     * A {@code <jar>} element: a jar file in the module and the scope it is loaded in.
+     */
+    static class Jar {
+
+        private final String name;
+        private final String scope;
+
+        Jar(String name, String scope) {
+            this.name = name;
+            this.scope = scope;
+        }
+
+        String getName() {
+            return name;
+        }
+
+        String getScope() {
+            return scope;
+        }
+
+    }
+
+}
@@ -0,0 +1,44 @@
+package com.inductiveautomation.ignitionsdk;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.codehaus.plexus.util.StringUtils;
+
+/**
+ * Naming and lookup of the module files the plugin builds.
+ */
+class ModuleFiles {
+
+    private ModuleFiles() {}
+
+    /**
+     * @return the file name of the signed module, e.g. "Turbo-Encabulator-Module.modl".
+     */
+    static String signedFileName(String moduleName) {
+        return StringUtils.replace(moduleName, ' ', '-') + ".modl";
+    }
+
+    /**
+     * @return the file name of the unsigned module, e.g. "Turbo-Encabulator-Module-unsigned.modl".
+     */
+    static String unsignedFileName(String moduleName) {
+        return StringUtils.replace(moduleName, ' ', '-') + "-unsigned.modl";
+    }
+
+    /**
+     * @param buildDir the build directory the module was created in.
+     * @param moduleName the name of the module.
+     * @return the signed module if it exists, otherwise the unsigned module.
+     */
+    static Path locate(Path buildDir, String moduleName) {
+        Path signed = buildDir.toAbsolutePath().resolve(signedFileName(moduleName));
+
+        if (Files.exists(signed)) {
+            return signed;
+        } else {
+            return buildDir.toAbsolutePath().resolve(unsignedFileName(moduleName));
+        }
+    }
+
+}
@@ -0,0 +1,147 @@
+package com.inductiveautomation.ignitionsdk;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.maven.artifact.Artifact;
+import org.apache.maven.artifact.resolver.filter.ScopeArtifactFilter;
+import org.apache.maven.plugin.logging.Log;
+import org.apache.maven.project.MavenProject;
+import org.codehaus.plexus.util.StringUtils;
+
+/**
+ * The artifacts of a module's projects, mapped to the Ignition scopes they are loaded in.
+ */
+class ModuleScopes {
+
+    private final Set<Artifact> clientScopeArtifacts = new HashSet<>();
+    private final Set<Artifact> designerScopeArtifacts = new HashSet<>();
+    private final Set<Artifact> gatewayScopeArtifacts = new HashSet<>();
+    private final Set<Artifact> projectArtifacts = new HashSet<>();
+    private final Set<Artifact> providedArtifacts = new HashSet<>();
+
+    private ModuleScopes() {}
+
+    /**
+     * Map the compile scoped artifacts of every project collected by {@code project}'s parent to the Ignition scopes
+     * configured for that project.
+     *
+     * @param project the project the module is built in.
+     * @param projectScopes the Ignition scopes of the module's projects.
+     * @param log the log to report progress to.
+     * @return the resolved scopes.
+     */
+    static ModuleScopes resolve(MavenProject project, ProjectScope[] projectScopes, Log log) {
+        ModuleScopes scopes = new ModuleScopes();
+        Map<String, String> ignitionScopes = new HashMap<>();
+
+        for (ProjectScope ps : projectScopes) {
+            ignitionScopes.put(ps.getName(), ps.getScope());
+        }
+
+        MavenProject parent = project;
+        if (project.hasParent()) {
+            parent = project.getParent();
+        }
+
+        for (MavenProject p : parent.getCollectedProjects()) {
+            BuildEvents.ScopeResolution event = new BuildEvents.ScopeResolution();
+            event.begin();
+
+            String ignitionScope = ignitionScopes.get(p.getName());
+
+            log.info(String.format("project=%s, ignitionScope=%s", p.getName(), ignitionScope));
+
+            // maven project requires that an artifact filter be set to return artifacts from the project
+            p.setArtifactFilter(new ScopeArtifactFilter("compile"));
+            Set<Artifact> artifacts = p.getArtifacts();
+            log.info(String.format("Found %d artifacts for project: %s",
+                    artifacts.size(), p.getName()));
+
+            if (StringUtils.contains(ignitionScope, "C")) {
+                log.info("building client scoped artifact set...");
+                scopes.add(scopes.clientScopeArtifacts, p, artifacts);
+            }
+
+            if (StringUtils.contains(ignitionScope, "D")) {
+                log.info("building designer scoped artifact set...");
+                scopes.add(scopes.designerScopeArtifacts, p, artifacts);
+            }
+
+            if (StringUtils.contains(ignitionScope, "G")) {
+                log.info("building gateway scoped artifact set...");
+                scopes.add(scopes.gatewayScopeArtifacts, p, artifacts);
+            }
+
+            event.end();
+            if (event.shouldCommit()) {
+                event.project = p.getName();
+                event.ignitionScope = ignitionScope;
+                event.artifacts = artifacts.size();
+                event.commit();
+            }
+        }
+
+        return scopes;
+    }
+
+    private void add(Set<Artifact> scopeArtifacts, MavenProject p, Set<Artifact> artifacts) {
+        scopeArtifacts.add(p.getArtifact());
+        projectArtifacts.add(p.getArtifact());
+
+        for (Artifact artifact : artifacts) {
+            if ("compile".equals(artifact.getScope())) {
+                scopeArtifacts.add(artifact);
+            } else if ("provided".equals(artifact.getScope())) {
+                providedArtifacts.add(artifact);
+            }
+        }
+    }
+
+    Set<Artifact> getClientScopeArtifacts() {
+        return clientScopeArtifacts;
+    }
+
+    Set<Artifact> getDesignerScopeArtifacts() {
+        return designerScopeArtifacts;
+    }
+
+    Set<Artifact> getGatewayScopeArtifacts() {
+        return gatewayScopeArtifacts;
+    }
+
+    /**
+     * @param scope one of 'C', 'D' or 'G'.
+     * @return the artifacts loaded in {@code scope}.
+     */
+    Set<Artifact> getScopeArtifacts(char scope) {
+        switch (scope) {
+            case 'C':
+                return clientScopeArtifacts;
+            case 'D':
+                return designerScopeArtifacts;
+            case 'G':
+                return gatewayScopeArtifacts;
+            default:
+                throw new IllegalArgumentException("unknown scope: " + scope);
+        }
+    }
+
+    /**
+     * @return the artifacts of the module's own projects, as opposed to their dependencies.
+     */
+    Set<Artifact> getProjectArtifacts() {
+        return projectArtifacts;
+    }
+
+    /**
+     * @return the provided scoped dependencies of the module's projects, e.g. the Ignition SDK, which the gateway
+     * supplies at runtime.
+     */
+    Set<Artifact> getProvidedArtifacts() {
+        return providedArtifacts;
+    }
+
+}
@@ -0,0 +1,169 @@
+package com.inductiveautomation.ignitionsdk;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.GeneralSecurityException;
+import java.security.Key;
+import java.security.KeyStore;
+import java.security.MessageDigest;
+import java.security.PrivateKey;
+import java.security.Signature;
+import java.security.cert.Certificate;
+import java.security.cert.CertificateFactory;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Signs the files of a module the way Ignition's module signer does, from the SHA-256 each file already has when it
+ * is written, so signing takes no second pass over the module.
+ * <p/>
+ * A signed module has two more entries: {@code signatures.properties}, which maps "/" followed by the path of every
+ * file in the module to the Base64 of its SHA256withRSA (or SHA256withECDSA) signature, and
+ * {@code certificates.p7b}, the signing certificate chain as PKCS #7.
+ */
+class ModuleSigner {
+
+    static final String SIGNATURES = "signatures.properties";
+    static final String CERTIFICATES = "certificates.p7b";
+
+    /**
+     * The DER prefix of a PKCS #1 DigestInfo holding a SHA-256 digest. A NONEwithRSA signature over this prefix and
+     * a digest is the SHA256withRSA signature of the digested content.
+     */
+    private static final byte[] SHA256_DIGEST_INFO = {
+        0x30, 0x31, 0x30, 0x0d, 0x06, 0x09, 0x60, (byte) 0x86, 0x48, 0x01, 0x65, 0x03, 0x04, 0x02, 0x01, 0x05, 0x00,
+        0x04, 0x20
+    };
+
+    private final PrivateKey key;
+    private final byte[] certificates;
+
+    private ModuleSigner(PrivateKey key, byte[] certificates) {
+        this.key = key;
+        this.certificates = certificates;
+    }
+
+    /**
+     * Load the signing key from a keystore of any type the JDK can detect, e.g. JKS or PKCS #12.
+     *
+     * @param alias the alias of the key, or null if the keystore holds only one key.
+     * @param keyPassword the password of the key, or null if it is the keystore password.
+     * @param chainFile a PKCS #7 certificate chain to put in the module, or null to use the key's chain from the
+     *                  keystore.
+     * @throws IOException if the keystore or chain could not be read.
+     * @throws GeneralSecurityException if the key could not be loaded or is neither an RSA nor an EC key.
+     */
+    static ModuleSigner load(Path keystore, char[] storePassword, String alias, char[] keyPassword, Path chainFile)
+        throws IOException, GeneralSecurityException {
+
+        KeyStore store = KeyStore.getInstance(keystore.toFile(), storePassword);
+
+        if (alias == null) {
+            List<String> keyAliases = new ArrayList<>();
+            for (String a : Collections.list(store.aliases())) {
+                if (store.isKeyEntry(a)) {
+                    keyAliases.add(a);
+                }
+            }
+            if (keyAliases.size() != 1) {
+                throw new GeneralSecurityException(String.format("%s holds %d keys %s; set the alias of the one " +
+                    "to sign with", keystore, keyAliases.size(), keyAliases));
+            }
+            alias = keyAliases.get(0);
+        }
+
+        Key key = store.getKey(alias, keyPassword != null ? keyPassword : storePassword);
+        if (!(key instanceof PrivateKey)) {
+            throw new GeneralSecurityException("No private key with alias '" + alias + "' in " + keystore);
+        }
+        if (!key.getAlgorithm().equals("RSA") && !key.getAlgorithm().equals("EC")) {
+            throw new GeneralSecurityException("Modules can only be signed with an RSA or EC key, not " +
+                key.getAlgorithm());
+        }
+
+        byte[] certificates;
+        if (chainFile != null) {
+            certificates = Files.readAllBytes(chainFile);
+        } else {
+            Certificate[] chain = store.getCertificateChain(alias);
+            if (chain == null) {
+                throw new GeneralSecurityException("No certificate chain for alias '" + alias + "' in " + keystore);
+            }
+            certificates = CertificateFactory.getInstance("X.509")
+                .generateCertPath(Arrays.asList(chain))
+                .getEncoded("PKCS7");
+        }
+
+        return new ModuleSigner((PrivateKey) key, certificates);
+    }
+
+    /**
+     * @return the SHA-256 of the certificate chain, which identifies the signer in the module's input fingerprint.
+     */
+    String certificatesSha256() {
+        MessageDigest digest = ContentManifest.newDigest();
+        return ContentManifest.hex(digest.digest(certificates));
+    }
+
+    byte[] getCertificates() {
+        return certificates;
+    }
+
+    /**
+     * Sign a file from its SHA-256. Safe to call from several threads.
+     *
+     * @return the signature of the file, the same as signing its whole content with SHA-256.
+     * @throws GeneralSecurityException if signing failed.
+     */
+    byte[] sign(byte[] sha256) throws GeneralSecurityException {
+        Signature signature;
+        byte[] signed;
+
+        if (key.getAlgorithm().equals("RSA")) {
+            signature = Signature.getInstance("NONEwithRSA");
+            signed = Arrays.copyOf(SHA256_DIGEST_INFO, SHA256_DIGEST_INFO.length + sha256.length);
+            System.arraycopy(sha256, 0, signed, SHA256_DIGEST_INFO.length, sha256.length);
+        } else {
+            signature = Signature.getInstance("NONEwithECDSA");
+            signed = sha256;
+        }
+
+        signature.initSign(key);
+        signature.update(signed);
+        return signature.sign();
+    }
+
+    /**
+     * @param signatures the signature of each file, keyed by its path in the module.
+     * @return the content of {@code signatures.properties}, in path order.
+     */
+    static byte[] signaturesProperties(Map<String, byte[]> signatures) {
+        StringBuilder sb = new StringBuilder();
+        signatures.keySet().stream().sorted().forEach(path -> {
+            escape(sb, "/" + path);
+            sb.append('=').append(Base64.encodeBytes(signatures.get(path), Base64.DONT_BREAK_LINES)).append('\n');
+        });
+        return sb.toString().getBytes(StandardCharsets.ISO_8859_1);
+    }
+
+    /**
+     * Append {@code key} escaped as {@link java.util.Properties#store} would.
+     */
+    private static void escape(StringBuilder sb, String key) {
+        for (char c : key.toCharArray()) {
+            if (c == '\\' || c == '=' || c == ':' || c == ' ' || c == '#' || c == '!') {
+                sb.append('\\').append(c);
+            } else if (c < 0x20 || c > 0x7e) {
+                sb.append(String.format("\\u%04X", (int) c));
+            } else {
+                sb.append(c);
+            }
+        }
+    }
+
+}
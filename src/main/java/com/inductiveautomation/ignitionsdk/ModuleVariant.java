@@ -0,0 +1,59 @@
+package com.inductiveautomation.ignitionsdk;
+
+/**
+ * An extra build of the module that differs from the main one only in module.xml and in whether the license and
+ * documentation are included. Properties that are not set are taken from the main module's configuration.
+ */
+public class ModuleVariant {
+
+    private String name;
+    private String requiredIgnitionVersion;
+    private Integer requiredFrameworkVersion;
+    private Boolean includeLicense;
+    private Boolean includeDocumentation;
+
+    /**
+     * @return the name of the variant, appended to the module file name, e.g. "8.0" for
+     * "Turbo-Encabulator-Module-8.0-unsigned.modl".
+     */
+    public String getName() {
+        return name;
+    }
+
+    public String getRequiredIgnitionVersion() {
+        return requiredIgnitionVersion;
+    }
+
+    public Integer getRequiredFrameworkVersion() {
+        return requiredFrameworkVersion;
+    }
+
+    public Boolean getIncludeLicense() {
+        return includeLicense;
+    }
+
+    public Boolean getIncludeDocumentation() {
+        return includeDocumentation;
+    }
+
+    public void setName(String name) {
+        this.name = name;
+    }
+
+    public void setRequiredIgnitionVersion(String requiredIgnitionVersion) {
+        this.requiredIgnitionVersion = requiredIgnitionVersion;
+    }
+
+    public void setRequiredFrameworkVersion(Integer requiredFrameworkVersion) {
+        this.requiredFrameworkVersion = requiredFrameworkVersion;
+    }
+
+    public void setIncludeLicense(Boolean includeLicense) {
+        this.includeLicense = includeLicense;
+    }
+
+    public void setIncludeDocumentation(Boolean includeDocumentation) {
+        this.includeDocumentation = includeDocumentation;
+    }
+
+}
@@ -0,0 +1,537 @@
+package com.inductiveautomation.ignitionsdk;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.DigestOutputStream;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+
+/**
+ * Zips a directory, deflating entries in parallel.
+ * <p/>
+ * Each file is compressed independently on a worker pool into a scatter buffer, in memory for small files and in a
+ * spill file for large ones, and the compressed entries are then written to the archive one after another in sorted
+ * path order, so the output does not depend on thread timing. Memory held by finished-but-unwritten entries is
+ * bounded: when the budget is used up, no new work is started until the oldest entries have been written.
+ * <p/>
+ * Each file's SHA-256 is computed as it is compressed, and a {@link ContentManifest} listing every file is written
+ * after the files. With a {@link ModuleSigner}, each file is also signed from that SHA-256 on the worker that
+ * compressed it, and the signatures and certificate chain are written as the last entries.
+ * <p/>
+ * Entries and archives past the limits of the original zip format, 4 GiB or 65535 entries, are written with ZIP64
+ * extra fields and a ZIP64 end of central directory record, as {@link java.util.zip.ZipOutputStream} does.
+ */
+class ParallelZipWriter {
+
+    private static final long MEMORY_BUDGET = 64 * 1024 * 1024;
+    private static final long SPILL_THRESHOLD = 4 * 1024 * 1024;
+
+    private static final int LOCAL_HEADER = 0x04034b50;
+    private static final int CENTRAL_HEADER = 0x02014b50;
+    private static final int END_OF_CENTRAL_DIRECTORY = 0x06054b50;
+    private static final int ZIP64_END_OF_CENTRAL_DIRECTORY = 0x06064b50;
+    private static final int ZIP64_END_LOCATOR = 0x07064b50;
+    private static final int ZIP64_EXTRA = 0x0001;
+    private static final long ZIP64_MAGIC = 0xFFFFFFFFL;
+    private static final int ZIP64_MAGIC_COUNT = 0xFFFF;
+    private static final int UTF8_FLAG = 0x0800;
+    private static final int STORED = 0;
+    private static final int DEFLATED = 8;
+
+    private final int threads;
+    private final Path spillDir;
+    private final ModuleSigner signer;
+
+    /**
+     * @param threads the number of compression threads.
+     * @param spillDir the directory large entries are compressed into before they are written.
+     */
+    ParallelZipWriter(int threads, Path spillDir) {
+        this(threads, spillDir, null);
+    }
+
+    /**
+     * @param signer signs every file as it is written, or null to write an unsigned module.
+     */
+    ParallelZipWriter(int threads, Path spillDir, ModuleSigner signer) {
+        this.threads = Math.max(1, threads);
+        this.spillDir = spillDir;
+        this.signer = signer;
+    }
+
+    /**
+     * Zip every file and directory under {@code sourceDir} into {@code zipFile}.
+     *
+     * @return the SHA-256 of the archive, computed as it was written.
+     * @throws IOException if reading a file, compressing, or writing the archive failed.
+     */
+    byte[] write(Path sourceDir, Path zipFile) throws IOException {
+        List<Path> paths;
+        try (Stream<Path> walk = Files.walk(sourceDir)) {
+            paths = walk.filter(p -> !p.equals(sourceDir)).sorted().collect(Collectors.toList());
+        }
+
+        Files.createDirectories(spillDir);
+        // a directory of this archive's own, so a failed write can remove every spill file it made
+        Path spills = Files.createTempDirectory(spillDir, "zip");
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        MessageDigest archiveDigest = ContentManifest.newDigest();
+        boolean complete = false;
+
+        try (CountingOutputStream out = new CountingOutputStream(new DigestOutputStream(
+            new BufferedOutputStream(Files.newOutputStream(zipFile), 64 * 1024), archiveDigest))) {
+
+            List<Entry> written = new ArrayList<>();
+            Deque<Future<Entry>> pending = new ArrayDeque<>();
+            long bufferedBytes = 0;
+
+            for (Path path : paths) {
+                String name = sourceDir.relativize(path).toString().replace('\\', '/');
+                boolean directory = Files.isDirectory(path);
+                long size = directory ? 0 : Files.size(path);
+                long memory = size < SPILL_THRESHOLD ? size : 0;
+
+                while (!pending.isEmpty() &&
+                    (bufferedBytes + memory > MEMORY_BUDGET || pending.size() >= threads * 4)) {
+
+                    Entry entry = pending.poll().get();
+                    bufferedBytes -= entry.memory;
+                    writeLocal(out, entry);
+                    written.add(entry);
+                }
+
+                bufferedBytes += memory;
+
+                if (directory) {
+                    pending.add(executor.submit(() -> directoryEntry(name + "/", path)));
+                } else {
+                    pending.add(executor.submit(() -> {
+                        try (InputStream in = Files.newInputStream(path)) {
+                            return compress(name, Files.getLastModifiedTime(path).toInstant(), in, memory,
+                                signer != null, spills);
+                        }
+                    }));
+                }
+            }
+
+            while (!pending.isEmpty()) {
+                Entry entry = pending.poll().get();
+                writeLocal(out, entry);
+                written.add(entry);
+            }
+
+            Entry manifest = manifestEntry(written, spills);
+            writeLocal(out, manifest);
+            written.add(manifest);
+
+            if (signer != null) {
+                for (Entry entry : signatureEntries(written, manifest.modified, spills)) {
+                    writeLocal(out, entry);
+                    written.add(entry);
+                }
+            }
+
+            writeCentralDirectory(out, written);
+            out.flush();
+            complete = true;
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            throw cause instanceof IOException ? (IOException) cause : new IOException(cause);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while zipping " + sourceDir, e);
+        } finally {
+            executor.shutdownNow();
+            cleanUp(executor, spills, complete ? null : zipFile);
+        }
+
+        return archiveDigest.digest();
+    }
+
+    /**
+     * Delete the partial archive if the archive was not completed, then wait for the workers to stop and delete the
+     * spill directory. Best effort, so it never hides the exception that failed the write.
+     */
+    private static void cleanUp(ExecutorService executor, Path spills, Path partial) {
+        try {
+            if (partial != null) {
+                Files.deleteIfExists(partial);
+            }
+
+            if (!executor.awaitTermination(1, TimeUnit.MINUTES)) {
+                return;
+            }
+
+            try (Stream<Path> files = Files.list(spills)) {
+                for (Path file : files.collect(Collectors.toList())) {
+                    Files.deleteIfExists(file);
+                }
+            }
+            Files.deleteIfExists(spills);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (IOException e) {
+            // left for the next clean build
+        }
+    }
+
+    private Entry directoryEntry(String name, Path path) throws IOException {
+        Entry entry = new Entry(name, Files.getLastModifiedTime(path).toInstant());
+        entry.method = STORED;
+        entry.directory = true;
+        return entry;
+    }
+
+    /**
+     * The manifest takes the newest modification time of the entries it lists, so that zipping the same files again
+     * produces the same manifest entry.
+     */
+    private Entry manifestEntry(List<Entry> entries, Path spills) throws IOException {
+        ContentManifest manifest = new ContentManifest();
+        Instant modified = Instant.EPOCH;
+
+        for (Entry entry : entries) {
+            if (!entry.directory) {
+                manifest.add(entry.name, entry.size, entry.sha256);
+                if (entry.modified.isAfter(modified)) {
+                    modified = entry.modified;
+                }
+            }
+        }
+
+        byte[] bytes = manifest.toBytes();
+        return compress(ContentManifest.NAME, modified, new ByteArrayInputStream(bytes), bytes.length,
+            signer != null, spills);
+    }
+
+    /**
+     * @return the {@link ModuleSigner#SIGNATURES} entry with the signature of every file in {@code entries}, and the
+     * {@link ModuleSigner#CERTIFICATES} entry.
+     */
+    private List<Entry> signatureEntries(List<Entry> entries, Instant modified, Path spills) throws IOException {
+        Map<String, byte[]> signatures = new HashMap<>();
+        for (Entry entry : entries) {
+            if (!entry.directory) {
+                signatures.put(entry.name, entry.signature);
+            }
+        }
+
+        byte[] properties = ModuleSigner.signaturesProperties(signatures);
+        byte[] certificates = signer.getCertificates();
+
+        return Arrays.asList(
+            compress(ModuleSigner.SIGNATURES, modified, new ByteArrayInputStream(properties), properties.length,
+                false, spills),
+            compress(ModuleSigner.CERTIFICATES, modified, new ByteArrayInputStream(certificates),
+                certificates.length, false, spills));
+    }
+
+    /**
+     * @param memory the expected size of the file if it is compressed in memory, or 0 to compress it into a spill
+     *               file in {@code spills}.
+     */
+    private Entry compress(String name, Instant modified, InputStream in, long memory, boolean sign, Path spills)
+        throws IOException {
+
+        BuildEvents.ZipEntryWrite event = new BuildEvents.ZipEntryWrite();
+        event.begin();
+
+        Entry entry = new Entry(name, modified);
+        entry.method = DEFLATED;
+        entry.memory = memory;
+
+        CRC32 crc = new CRC32();
+        MessageDigest sha256 = ContentManifest.newDigest();
+        Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION, true);
+
+        OutputStream buffer;
+        if (memory > 0) {
+            buffer = new ByteArrayOutputStream((int) Math.max(32, memory / 2));
+        } else {
+            entry.spill = Files.createTempFile(spills, "zip", ".spill");
+            buffer = new BufferedOutputStream(Files.newOutputStream(entry.spill), 64 * 1024);
+        }
+
+        try (CountingOutputStream compressed = new CountingOutputStream(buffer);
+             DeflaterOutputStream deflated = new DeflaterOutputStream(compressed, deflater, 64 * 1024)) {
+
+            byte[] chunk = new byte[64 * 1024];
+            int read;
+            while ((read = in.read(chunk)) != -1) {
+                crc.update(chunk, 0, read);
+                sha256.update(chunk, 0, read);
+                deflated.write(chunk, 0, read);
+                entry.size += read;
+            }
+
+            deflated.finish();
+            entry.compressedSize = compressed.count;
+        } finally {
+            deflater.end();
+        }
+
+        if (buffer instanceof ByteArrayOutputStream) {
+            entry.data = ((ByteArrayOutputStream) buffer).toByteArray();
+        }
+
+        entry.crc = crc.getValue();
+        entry.sha256 = sha256.digest();
+
+        if (sign) {
+            try {
+                entry.signature = signer.sign(entry.sha256);
+            } catch (GeneralSecurityException e) {
+                throw new IOException("Could not sign " + name, e);
+            }
+        }
+
+        event.end();
+        if (event.shouldCommit()) {
+            event.name = name;
+            event.size = entry.size;
+            event.compressedSize = entry.compressedSize;
+            event.spilled = entry.spill != null;
+            event.commit();
+        }
+
+        return entry;
+    }
+
+    /**
+     * Write the local header and data of {@code entry}. An entry of 4 GiB or more has its sizes in a ZIP64 extra
+     * field; the sizes are known before the header is written, so there is no data descriptor.
+     */
+    private static void writeLocal(CountingOutputStream out, Entry entry) throws IOException {
+        entry.offset = out.count;
+        boolean zip64 = entry.size >= ZIP64_MAGIC || entry.compressedSize >= ZIP64_MAGIC;
+
+        writeInt(out, LOCAL_HEADER);
+        writeShort(out, zip64 ? 45 : 20);
+        writeShort(out, UTF8_FLAG);
+        writeShort(out, entry.method);
+        writeInt(out, entry.dosTime);
+        writeInt(out, (int) entry.crc);
+        writeInt(out, zip64 ? (int) ZIP64_MAGIC : (int) entry.compressedSize);
+        writeInt(out, zip64 ? (int) ZIP64_MAGIC : (int) entry.size);
+        writeShort(out, entry.nameBytes.length);
+        writeShort(out, zip64 ? 20 : 0);
+        out.write(entry.nameBytes);
+
+        if (zip64) {
+            writeShort(out, ZIP64_EXTRA);
+            writeShort(out, 16);
+            writeLong(out, entry.size);
+            writeLong(out, entry.compressedSize);
+        }
+
+        if (entry.data != null) {
+            out.write(entry.data);
+            entry.data = null;
+        } else if (entry.spill != null) {
+            Files.copy(entry.spill, out);
+            Files.delete(entry.spill);
+        }
+    }
+
+    /**
+     * Write the central directory and its end record. Sizes and offsets of 4 GiB or more go in a ZIP64 extra field
+     * of their entry, and if the entry count, directory size or directory offset does not fit the end record, a ZIP64
+     * end record and its locator are written before it.
+     */
+    private static void writeCentralDirectory(CountingOutputStream out, List<Entry> entries) throws IOException {
+        long start = out.count;
+
+        for (Entry entry : entries) {
+            boolean bigSize = entry.size >= ZIP64_MAGIC;
+            boolean bigCompressedSize = entry.compressedSize >= ZIP64_MAGIC;
+            boolean bigOffset = entry.offset >= ZIP64_MAGIC;
+            int zip64Fields = (bigSize ? 1 : 0) + (bigCompressedSize ? 1 : 0) + (bigOffset ? 1 : 0);
+            int version = zip64Fields > 0 ? 45 : 20;
+
+            writeInt(out, CENTRAL_HEADER);
+            writeShort(out, version);
+            writeShort(out, version);
+            writeShort(out, UTF8_FLAG);
+            writeShort(out, entry.method);
+            writeInt(out, entry.dosTime);
+            writeInt(out, (int) entry.crc);
+            writeInt(out, bigCompressedSize ? (int) ZIP64_MAGIC : (int) entry.compressedSize);
+            writeInt(out, bigSize ? (int) ZIP64_MAGIC : (int) entry.size);
+            writeShort(out, entry.nameBytes.length);
+            writeShort(out, zip64Fields > 0 ? 4 + 8 * zip64Fields : 0);
+            writeShort(out, 0);
+            writeShort(out, 0);
+            writeShort(out, 0);
+            writeInt(out, entry.directory ? 0x10 : 0);
+            writeInt(out, bigOffset ? (int) ZIP64_MAGIC : (int) entry.offset);
+            out.write(entry.nameBytes);
+
+            // the extra field holds only the values that did not fit, in this order
+            if (zip64Fields > 0) {
+                writeShort(out, ZIP64_EXTRA);
+                writeShort(out, 8 * zip64Fields);
+                if (bigSize) {
+                    writeLong(out, entry.size);
+                }
+                if (bigCompressedSize) {
+                    writeLong(out, entry.compressedSize);
+                }
+                if (bigOffset) {
+                    writeLong(out, entry.offset);
+                }
+            }
+        }
+
+        long end = out.count;
+        long size = end - start;
+
+        if (entries.size() >= ZIP64_MAGIC_COUNT || size >= ZIP64_MAGIC || start >= ZIP64_MAGIC) {
+            writeInt(out, ZIP64_END_OF_CENTRAL_DIRECTORY);
+            writeLong(out, 44);
+            writeShort(out, 45);
+            writeShort(out, 45);
+            writeInt(out, 0);
+            writeInt(out, 0);
+            writeLong(out, entries.size());
+            writeLong(out, entries.size());
+            writeLong(out, size);
+            writeLong(out, start);
+
+            writeInt(out, ZIP64_END_LOCATOR);
+            writeInt(out, 0);
+            writeLong(out, end);
+            writeInt(out, 1);
+        }
+
+        writeInt(out, END_OF_CENTRAL_DIRECTORY);
+        writeShort(out, 0);
+        writeShort(out, 0);
+        writeShort(out, Math.min(entries.size(), ZIP64_MAGIC_COUNT));
+        writeShort(out, Math.min(entries.size(), ZIP64_MAGIC_COUNT));
+        writeInt(out, (int) Math.min(size, ZIP64_MAGIC));
+        writeInt(out, (int) Math.min(start, ZIP64_MAGIC));
+        writeShort(out, 0);
+    }
+
+    private static void writeShort(OutputStream out, int v) throws IOException {
+        out.write(v & 0xFF);
+        out.write((v >>> 8) & 0xFF);
+    }
+
+    private static void writeInt(OutputStream out, int v) throws IOException {
+        writeShort(out, v & 0xFFFF);
+        writeShort(out, (v >>> 16) & 0xFFFF);
+    }
+
+    private static void writeLong(OutputStream out, long v) throws IOException {
+        writeInt(out, (int) v);
+        writeInt(out, (int) (v >>> 32));
+    }
+
+    private static int dosTime(Instant instant) {
+        LocalDateTime t = LocalDateTime.ofInstant(instant, ZoneId.systemDefault());
+        if (t.getYear() < 1980) {
+            t = LocalDateTime.of(1980, 1, 1, 0, 0);
+        }
+
+        return (t.getYear() - 1980) << 25 |
+            t.getMonthValue() << 21 |
+            t.getDayOfMonth() << 16 |
+            t.getHour() << 11 |
+            t.getMinute() << 5 |
+            t.getSecond() >> 1;
+    }
+
+    /**
+     * A compressed entry waiting to be written.
+     */
+    private static class Entry {
+
+        private final String name;
+        private final byte[] nameBytes;
+        private final Instant modified;
+        private final int dosTime;
+
+        private int method;
+        private boolean directory;
+        private long crc;
+        private byte[] sha256;
+        private byte[] signature;
+        private long size;
+        private long compressedSize;
+        private long offset;
+        private long memory;
+
+        private byte[] data;
+        private Path spill;
+
+        Entry(String name, Instant modified) {
+            this.name = name;
+            this.nameBytes = name.getBytes(StandardCharsets.UTF_8);
+            this.modified = modified;
+            this.dosTime = dosTime(modified);
+        }
+
+    }
+
+    private static class CountingOutputStream extends OutputStream {
+
+        private final OutputStream out;
+        private long count = 0;
+
+        CountingOutputStream(OutputStream out) {
+            this.out = out;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            out.write(b);
+            count++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            out.write(b, off, len);
+            count += len;
+        }
+
+        @Override
+        public void flush() throws IOException {
+            out.flush();
+        }
+
+        @Override
+        public void close() throws IOException {
+            out.close();
+        }
+
+    }
+
+}
@@ -0,0 +1,218 @@
+package com.inductiveautomation.ignitionsdk;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.maven.plugin.AbstractMojo;
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugin.MojoFailureException;
+import org.apache.maven.plugins.annotations.Mojo;
+import org.apache.maven.plugins.annotations.Parameter;
+
+/**
+ * Reports trends in the performance history written by the {@code modl} and {@code post} goals, and flags a
+ * regression when the latest run of a phase is slower than the median of the runs before it by more than a
+ * threshold.
+ */
+@Mojo(name = "perf-report")
+public class PerfReportMojo extends AbstractMojo {
+
+    /**
+     * The history file the {@code modl} and {@code post} goals append to. Can be set on the command line with
+     * {@code -Dignition.historyFile}.
+     */
+    @Parameter(property = "ignition.historyFile", required = true)
+    private File historyFile;
+
+    /**
+     * The number of runs before the latest one that the median is taken over.
+     */
+    @Parameter(defaultValue = "10")
+    private int window;
+
+    /**
+     * The minimum number of earlier runs a phase needs before it can be flagged.
+     */
+    @Parameter(defaultValue = "3")
+    private int minimumRuns;
+
+    /**
+     * How much slower than the median, in percent, the latest run of a phase must be to be flagged.
+     */
+    @Parameter(defaultValue = "20")
+    private double regressionThreshold;
+
+    /**
+     * How much slower than the median, in milliseconds, the latest run of a phase must also be to be flagged, so that
+     * jitter in very short phases is not reported.
+     */
+    @Parameter(defaultValue = "50")
+    private double minimumSlowdownMillis;
+
+    /**
+     * Fail the build if a regression is flagged. Defaults to false.
+     */
+    @Parameter(defaultValue = "false")
+    private boolean failOnRegression;
+
+    /**
+     * The file the JSON report is written to.
+     */
+    @Parameter(defaultValue = "${project.build.directory}/ignition/perf-report.json")
+    private File reportFile;
+
+    @Override
+    public void execute() throws MojoExecutionException, MojoFailureException {
+        List<PerformanceHistory.Sample> samples;
+        try {
+            samples = PerformanceHistory.read(historyFile.toPath());
+        } catch (IOException e) {
+            throw new MojoExecutionException("Error reading performance history: " + e.getMessage(), e);
+        }
+
+        Map<String, List<PerformanceHistory.Sample>> series = new LinkedHashMap<>();
+        samples.stream()
+            .sorted(Comparator.comparing(PerformanceHistory.Sample::getTimestamp))
+            .forEach(sample -> series.computeIfAbsent(
+                sample.getGoal() + " " + sample.getProject() + " " + sample.getPhase(),
+                k -> new ArrayList<>()).add(sample));
+
+        List<Trend> trends = new ArrayList<>();
+        for (Map.Entry<String, List<PerformanceHistory.Sample>> e : series.entrySet()) {
+            trends.add(trend(e.getKey(), e.getValue()));
+        }
+
+        logReport(trends);
+
+        try {
+            writeReport(trends);
+        } catch (IOException e) {
+            throw new MojoExecutionException("Error writing performance report: " + reportFile, e);
+        }
+
+        long regressions = trends.stream().filter(t -> t.regression).count();
+        if (regressions > 0) {
+            String message = String.format("%d phase(s) slower than %.0f%% over their median.",
+                regressions, regressionThreshold);
+            if (failOnRegression) {
+                throw new MojoFailureException(message);
+            }
+            getLog().warn(message);
+        }
+    }
+
+    private Trend trend(String name, List<PerformanceHistory.Sample> runs) {
+        PerformanceHistory.Sample latest = runs.get(runs.size() - 1);
+        List<PerformanceHistory.Sample> previous = runs.subList(Math.max(0, runs.size() - 1 - window), runs.size() - 1);
+
+        Trend trend = new Trend(name, runs.size(), latest);
+
+        if (!previous.isEmpty()) {
+            trend.medianMillis = median(previous.stream().mapToDouble(PerformanceHistory.Sample::getMillis).toArray());
+            trend.medianBytes = median(previous.stream().mapToDouble(PerformanceHistory.Sample::getBytes).toArray());
+            trend.changePercent = percentChange(trend.medianMillis, latest.getMillis());
+
+            trend.regression = previous.size() >= minimumRuns &&
+                trend.changePercent > regressionThreshold &&
+                latest.getMillis() - trend.medianMillis > minimumSlowdownMillis;
+        }
+
+        return trend;
+    }
+
+    private void logReport(List<Trend> trends) {
+        getLog().info(String.format("%-50s %5s %12s %12s %9s %9s", "phase", "runs", "median ms", "latest ms",
+            "change", "bytes"));
+
+        for (Trend t : trends) {
+            getLog().info(String.format("%-50s %5d %12s %12.1f %9s %9s %s",
+                t.name, t.runs,
+                Double.isNaN(t.medianMillis) ? "-" : String.format("%.1f", t.medianMillis),
+                t.latest.getMillis(),
+                Double.isNaN(t.changePercent) ? "-" : String.format("%+.0f%%", t.changePercent),
+                Double.isNaN(t.medianBytes) ? "-" :
+                    String.format("%+.0f%%", percentChange(t.medianBytes, t.latest.getBytes())),
+                t.regression ? "REGRESSION" : ""));
+        }
+    }
+
+    private void writeReport(List<Trend> trends) throws IOException {
+        Files.createDirectories(reportFile.toPath().toAbsolutePath().getParent());
+
+        try (Writer writer = Files.newBufferedWriter(reportFile.toPath(), StandardCharsets.UTF_8)) {
+            JsonWriter json = new JsonWriter(writer);
+
+            json.beginObject();
+            json.name("history").value(historyFile.getPath());
+            json.name("window").value(window);
+            json.name("regressionThreshold").value(regressionThreshold);
+
+            json.name("phases").beginArray();
+            for (Trend t : trends) {
+                json.beginObject();
+                json.name("goal").value(t.latest.getGoal());
+                json.name("project").value(t.latest.getProject());
+                json.name("phase").value(t.latest.getPhase());
+                json.name("runs").value(t.runs);
+                json.name("latestMillis").value(t.latest.getMillis());
+                json.name("latestBytes").value(t.latest.getBytes());
+                json.name("latestCount").value(t.latest.getCount());
+                json.name("medianMillis").value(t.medianMillis);
+                json.name("medianBytes").value(t.medianBytes);
+                json.name("changePercent").value(t.changePercent);
+                json.name("regression").value(t.regression);
+                json.endObject();
+            }
+            json.endArray();
+
+            json.endObject();
+            writer.write('\n');
+        }
+
+        getLog().info("Performance report written to " + reportFile);
+    }
+
+    private static double median(double[] values) {
+        double[] sorted = values.clone();
+        Arrays.sort(sorted);
+
+        int middle = sorted.length / 2;
+        return sorted.length % 2 == 1 ? sorted[middle] : (sorted[middle - 1] + sorted[middle]) / 2;
+    }
+
+    private static double percentChange(double from, double to) {
+        return from > 0 ? (to - from) / from * 100 : Double.NaN;
+    }
+
+    /**
+     * The latest run of one phase compared to the median of the runs before it.
+     */
+    private static class Trend {
+
+        private final String name;
+        private final int runs;
+        private final PerformanceHistory.Sample latest;
+
+        private double medianMillis = Double.NaN;
+        private double medianBytes = Double.NaN;
+        private double changePercent = Double.NaN;
+        private boolean regression;
+
+        Trend(String name, int runs, PerformanceHistory.Sample latest) {
+            this.name = name;
+            this.runs = runs;
+            this.latest = latest;
+        }
+
+    }
+
+}
@@ -0,0 +1,167 @@
+package com.inductiveautomation.ignitionsdk;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Phase timings of one goal execution, appended to a local CSV history file so that slowdowns can be found across
+ * builds by the {@code perf-report} goal. Each row is one phase:
+ * <pre>
+ * timestamp,goal,project,phase,millis,bytes,count
+ * 2024-05-01T12:00:00Z,modl,my-module-build,zip,812.4,10485760,42
+ * </pre>
+ * {@code bytes} and {@code count} are what the phase processed, e.g. the module size and the number of jars.
+ */
+class PerformanceHistory {
+
+    static final String HEADER = "timestamp,goal,project,phase,millis,bytes,count";
+
+    private final String goal;
+    private final String project;
+    private final Instant timestamp = Instant.now();
+    private final long start = System.nanoTime();
+    private final List<Sample> samples = new ArrayList<>();
+
+    PerformanceHistory(String goal, String project) {
+        this.goal = goal;
+        this.project = project;
+    }
+
+    /**
+     * Record a phase that started at {@code startNanos}, a {@link System#nanoTime()} value, and ended now.
+     */
+    void record(String phase, long startNanos, long bytes, long count) {
+        samples.add(new Sample(timestamp, goal, project, phase, (System.nanoTime() - startNanos) / 1e6, bytes, count));
+    }
+
+    /**
+     * Record a "total" phase covering the whole execution, and append every phase to {@code file}, writing the
+     * header first if the file is new. The file is locked while the rows are written, so executions that share it,
+     * in this build or in another process, append whole executions one after another.
+     */
+    void append(Path file, long bytes, long count) throws IOException {
+        record("total", start, bytes, count);
+
+        Path parent = file.toAbsolutePath().getParent();
+        if (parent != null) {
+            Files.createDirectories(parent);
+        }
+
+        StringBuilder rows = new StringBuilder();
+        for (Sample sample : samples) {
+            rows.append(sample.toCsv()).append('\n');
+        }
+
+        // a file lock is held by the whole JVM, and a second overlapping lock from another thread fails rather
+        // than waits, so threads of a parallel build take turns before locking the file
+        synchronized (PerformanceHistory.class) {
+            try (FileChannel channel = FileChannel.open(file,
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+                 FileLock lock = channel.lock()) {
+
+                if (channel.size() == 0) {
+                    rows.insert(0, HEADER + '\n');
+                }
+
+                ByteBuffer buffer = ByteBuffer.wrap(rows.toString().getBytes(StandardCharsets.UTF_8));
+                while (buffer.hasRemaining()) {
+                    channel.write(buffer);
+                }
+            }
+        }
+    }
+
+    /**
+     * @throws IOException if the file could not be read or a row is malformed.
+     */
+    static List<Sample> read(Path file) throws IOException {
+        List<Sample> samples = new ArrayList<>();
+
+        int lineNumber = 0;
+        for (String line : Files.readAllLines(file, StandardCharsets.UTF_8)) {
+            lineNumber++;
+            if (line.isEmpty() || line.equals(HEADER)) {
+                continue;
+            }
+
+            String[] fields = line.split(",");
+            try {
+                if (fields.length != 7) {
+                    throw new IllegalArgumentException();
+                }
+                samples.add(new Sample(Instant.parse(fields[0]), fields[1], fields[2], fields[3],
+                    Double.parseDouble(fields[4]), Long.parseLong(fields[5]), Long.parseLong(fields[6])));
+            } catch (RuntimeException e) {
+                throw new IOException(String.format("%s:%d: malformed history row: %s", file, lineNumber, line));
+            }
+        }
+
+        return samples;
+    }
+
+    static class Sample {
+
+        private final Instant timestamp;
+        private final String goal;
+        private final String project;
+        private final String phase;
+        private final double millis;
+        private final long bytes;
+        private final long count;
+
+        Sample(Instant timestamp, String goal, String project, String phase, double millis, long bytes, long count) {
+            this.timestamp = timestamp;
+            this.goal = goal;
+            this.project = project;
+            this.phase = phase;
+            this.millis = millis;
+            this.bytes = bytes;
+            this.count = count;
+        }
+
+        Instant getTimestamp() {
+            return timestamp;
+        }
+
+        String getGoal() {
+            return goal;
+        }
+
+        String getProject() {
+            return project;
+        }
+
+        String getPhase() {
+            return phase;
+        }
+
+        double getMillis() {
+            return millis;
+        }
+
+        long getBytes() {
+            return bytes;
+        }
+
+        long getCount() {
+            return count;
+        }
+
+        String toCsv() {
+            return String.format(Locale.ROOT, "%s,%s,%s,%s,%.1f,%d,%d",
+                timestamp, goal, project, phase, millis, bytes, count);
+        }
+
+    }
+
+}
@@ -4,18 +4,37 @@
 package com.inductiveautomation.ignitionsdk;
 
 
+import java.io.BufferedInputStream;
 import java.io.BufferedReader;
 import java.io.File;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
 import java.net.HttpURLConnection;
+import java.net.MalformedURLException;
+import java.net.URI;
+import java.net.URISyntaxException;
 import java.net.URL;
 import java.net.http.HttpClient;
 import java.net.http.HttpRequest;
 import java.net.http.HttpResponse;
+import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 
+import org.apache.maven.execution.MavenSession;
 import org.apache.maven.plugin.AbstractMojo;
 import org.apache.maven.plugin.MojoExecutionException;
 import org.apache.maven.plugin.MojoFailureException;
@@ -25,8 +44,6 @@ import org.apache.maven.plugins.annotations.Mojo;
 import org.apache.maven.plugins.annotations.Parameter;
 import org.apache.maven.plugins.annotations.ResolutionScope;
 import org.apache.maven.project.MavenProject;
-import org.apache.maven.shared.utils.io.FileUtils;
-import org.codehaus.plexus.util.StringUtils;
 
 
 /**
@@ -61,55 +78,438 @@ public class PostModuleMojo extends AbstractMojo {
     @Parameter(required = false)
     private String moduleName;
 
+    /**
+     * The HTTP version to post with, {@code HTTP_2} or {@code HTTP_1_1}. With {@code HTTP_2} the client falls back
+     * to HTTP/1.1 if the gateway does not support HTTP/2. Defaults to {@code HTTP_2}.
+     */
+    @Parameter(defaultValue = "HTTP_2")
+    private String httpVersion;
+
+    /**
+     * Seconds to wait for a connection to the gateway, or 0 to wait indefinitely. Defaults to 10.
+     */
+    @Parameter(defaultValue = "10")
+    private int connectTimeout;
+
+    /**
+     * Seconds to wait for the gateway to respond once the module is sent, or 0 to wait indefinitely. Installing a
+     * module can take a while, so this defaults to 600.
+     */
+    @Parameter(defaultValue = "600")
+    private int requestTimeout;
+
+    /**
+     * The current build session. Connections to the gateway are shared by every post in the session.
+     */
+    @Parameter(defaultValue = "${session}", readonly = true)
+    private MavenSession session;
+
+    /**
+     * Instead of posting right away, queue the module and post the modules of every project in the build together,
+     * when the build ends. Modules are posted in the order of the dependencies declared in their module.xml, and
+     * modules that do not depend on each other are posted concurrently. The gateway and HTTP settings of the last
+     * project to queue a module are used for every module. If the build fails, no module is posted. Defaults to
+     * false.
+     */
+    @Parameter(defaultValue = "false")
+    private boolean postAtEnd;
+
+    /**
+     * Upload the module in checksummed chunks, sent in parallel, instead of in one request. A failed upload is
+     * resumed from the chunks the gateway already has, both by the retries within a post and by the next post of the
+     * same module. The gateway must serve the chunked upload protocol at {@code chunkedUploadPath}. Defaults to false.
+     */
+    @Parameter(defaultValue = "false")
+    private boolean chunkedUpload;
+
+    /**
+     * The path on the gateway that accepts chunked uploads.
+     */
+    @Parameter(defaultValue = "/main/system/DeveloperModuleChunkedUpload")
+    private String chunkedUploadPath;
+
+    /**
+     * The size of each chunk of a chunked upload, in MiB, from 1 to 1024. Defaults to 8.
+     */
+    @Parameter(defaultValue = "8")
+    private int chunkSize;
+
+    /**
+     * The number of chunks sent at once in a chunked upload. Defaults to 4.
+     */
+    @Parameter(defaultValue = "4")
+    private int chunkParallelism;
+
+    /**
+     * How many times chunks that failed are sent again in a chunked upload before the post fails. Defaults to 3.
+     */
+    @Parameter(defaultValue = "3")
+    private int chunkRetries;
+
+    /**
+     * A CSV file to append the time and size of each post to, for the {@code perf-report} goal. Not written if unset.
+     */
+    @Parameter
+    private File historyFile;
+
     @Override
     public void execute() throws MojoExecutionException, MojoFailureException {
+        // the module the modl goal built earlier in this build, with its size and hash, if it is still there
+        BuiltModule built = BuiltModule.get(project);
+
+        Path modulePath;
+        long moduleBytes;
+        if (built != null) {
+            modulePath = built.getPath();
+            moduleBytes = built.getSize();
+            getLog().info(String.format("Installing module built in this build: %s (%d bytes, SHA-256 %s)",
+                modulePath, moduleBytes, built.getSha256()));
+        } else {
+            try {
+                Path buildPath = Paths.get(project.getBuild().getDirectory());
+                modulePath = ModuleFiles.locate(buildPath, moduleName).toAbsolutePath();
+                moduleBytes = Files.size(modulePath);
+            } catch (Exception e) {
+                throw new MojoExecutionException("Could not post the module to the Gateway.", e);
+            }
+            getLog().info("Installing " + modulePath + " to gateway.");
+        }
+
+        PerformanceHistory history = new PerformanceHistory("post", project.getArtifactId());
+
+        if (!postAtEnd) {
+            Map<Path, BuiltModule> builtModules = built != null ?
+                Collections.singletonMap(modulePath, built) : Collections.emptyMap();
+
+            long start = System.nanoTime();
+            postModuleToGateway(modulePath, builtModules);
+            history.record("post", start, moduleBytes, 1);
+            appendHistory(history, moduleBytes, 1);
+            return;
+        }
+
+        PostQueue.add(session, modulePath);
+        PostQueue.postAtSessionEnd(session, getLog(), modules -> {
+            Map<Path, BuiltModule> builtModules = builtModules();
+            long bytes = modules.stream().mapToLong(p -> size(p, builtModules)).sum();
+
+            long start = System.nanoTime();
+            postQueuedModules(modules, builtModules);
+            history.record("post-all", start, bytes, modules.size());
+            appendHistory(history, bytes, modules.size());
+        });
+        getLog().info("Module queued, it will be posted when the build ends.");
+    }
+
+    /**
+     * @return the modules built in this build by the projects of the session, by path.
+     */
+    private Map<Path, BuiltModule> builtModules() {
+        Map<Path, BuiltModule> modules = new HashMap<>();
+        for (MavenProject p : session.getProjects()) {
+            BuiltModule module = BuiltModule.get(p);
+            if (module != null) {
+                modules.put(module.getPath(), module);
+            }
+        }
+        return modules;
+    }
+
+    private static long size(Path modulePath, Map<Path, BuiltModule> builtModules) {
+        BuiltModule built = builtModules.get(modulePath);
+        return built != null ? built.getSize() : modulePath.toFile().length();
+    }
+
+    private void postModuleToGateway(Path modulePath, Map<Path, BuiltModule> builtModules)
+        throws MojoExecutionException {
+
+        if (chunkedUpload) {
+            uploadChunked(Collections.singletonList(modulePath), builtModules);
+            return;
+        }
+
         try {
-            getLog().debug("Attempting to load the following path: ");
+            URL gatewayUrl = gatewayUrl();
+            getLog().info("Deploying to " + gatewayUrl.toString());
+            HttpClient client = GatewayClients.get(session, parseHttpVersion(),
+                connectTimeout > 0 ? Duration.ofSeconds(connectTimeout) : null);
 
-            Path buildPath = Paths.get(project.getBuild().getDirectory());
-            String modulePath = buildPath.toAbsolutePath() + File.separator +
-                    StringUtils.replace(moduleName, ' ', '-') + ".modl";
+            BuildEvents.ModulePost event = new BuildEvents.ModulePost();
+            event.begin();
 
-            if (!FileUtils.fileExists(modulePath))
-                modulePath = buildPath.toAbsolutePath() + File.separator +
-                        StringUtils.replace(moduleName, ' ', '-') + "-unsigned.modl";
+            HttpResponse<String> response = null;
+            try {
+                response = client.send(newRequest(gatewayUrl, modulePath, size(modulePath, builtModules)),
+                    HttpResponse.BodyHandlers.ofString());
+            } finally {
+                commit(event, gatewayUrl, modulePath, response != null ? response.statusCode() : -1);
+            }
+            getLog().debug(String.format("Successfully connected to %s", gatewayUrl.toString()));
+            getLog().debug(response.body());
+        } catch (Exception e) {
+            getLog().error(e);
+            throw new MojoExecutionException("Could not post module to gateway.", e);
+        }
+    }
 
-            getLog().info("Installing " + modulePath + " to gateway.");
-            postModuleToGateway(Paths.get(modulePath));
+    /**
+     * Post modules queued by every project in the build, in waves ordered by their module dependencies. The modules
+     * in a wave are posted concurrently over the session's shared client.
+     */
+    private void postQueuedModules(List<Path> modules, Map<Path, BuiltModule> builtModules)
+        throws MojoExecutionException {
+
+        if (chunkedUpload) {
+            try {
+                List<Path> ordered = new ArrayList<>();
+                PostQueue.inDependencyOrder(modules).forEach(ordered::addAll);
+                uploadChunked(ordered, builtModules);
+            } catch (IOException e) {
+                throw new MojoExecutionException("Could not post modules to gateway.", e);
+            }
+            return;
+        }
+
+        long start = System.nanoTime();
+
+        try {
+            URL gatewayUrl = gatewayUrl();
+            getLog().info(String.format("Deploying %d module(s) to %s", modules.size(), gatewayUrl));
+            HttpClient client = GatewayClients.get(session, parseHttpVersion(),
+                connectTimeout > 0 ? Duration.ofSeconds(connectTimeout) : null);
+
+            for (List<Path> wave : PostQueue.inDependencyOrder(modules)) {
+                Map<Path, CompletableFuture<String>> posts = new LinkedHashMap<>();
+
+                for (Path modulePath : wave) {
+                    BuildEvents.ModulePost event = new BuildEvents.ModulePost();
+                    event.begin();
+
+                    long postStart = System.nanoTime();
+                    posts.put(modulePath, client
+                        .sendAsync(newRequest(gatewayUrl, modulePath, size(modulePath, builtModules)),
+                            HttpResponse.BodyHandlers.ofString())
+                        .whenComplete((response, e) ->
+                            commit(event, gatewayUrl, modulePath, response != null ? response.statusCode() : -1))
+                        .thenApply(response -> String.format("  %-50s HTTP %d in %.1f ms",
+                            modulePath.getFileName(), response.statusCode(), (System.nanoTime() - postStart) / 1e6)));
+                }
+
+                for (CompletableFuture<String> post : posts.values()) {
+                    getLog().info(post.join());
+                }
+            }
         } catch (Exception e) {
-            throw new MojoExecutionException("Could not post the module to the Gateway.", e);
+            Throwable cause = e instanceof CompletionException ? e.getCause() : e;
+            getLog().error(cause);
+            throw new MojoExecutionException("Could not post modules to gateway.", cause);
         }
+
+        getLog().info(String.format("Deployed %d module(s) in %.1f ms",
+            modules.size(), (System.nanoTime() - start) / 1e6));
     }
 
-    private void postModuleToGateway(Path modulePath) throws MojoExecutionException {
-        URL gatewayUrl;
+    /**
+     * Upload {@code modules} one after another with the chunked upload protocol; the chunks of each module are sent
+     * in parallel. Modules built in this build are not hashed again.
+     */
+    private void uploadChunked(List<Path> modules, Map<Path, BuiltModule> builtModules)
+        throws MojoExecutionException {
+
+        if (chunkSize < 1 || chunkSize > 1024) {
+            throw new MojoExecutionException("chunkSize must be between 1 and 1024 MiB: " + chunkSize);
+        }
+
+        try {
+            URI uploadUri = new URL(gatewayUrl(), chunkedUploadPath.replaceAll("/*$", "/")).toURI();
+            getLog().info(String.format("Uploading %d module(s) to %s", modules.size(), uploadUri));
+
+            HttpClient client = GatewayClients.get(session, parseHttpVersion(),
+                connectTimeout > 0 ? Duration.ofSeconds(connectTimeout) : null);
+            ChunkedUploadClient upload = new ChunkedUploadClient(client, uploadUri, chunkSize * 1024 * 1024,
+                chunkParallelism, chunkRetries, requestTimeout > 0 ? Duration.ofSeconds(requestTimeout) : null,
+                getLog());
+
+            for (Path modulePath : modules) {
+                BuildEvents.ModulePost event = new BuildEvents.ModulePost();
+                event.begin();
+                long start = System.nanoTime();
+
+                int status = -1;
+                try {
+                    BuiltModule built = builtModules.get(modulePath);
+                    upload.upload(modulePath, built != null ? built.getSha256() : null);
+                    status = 200;
+                } finally {
+                    commit(event, uploadUri.toURL(), modulePath, status);
+                }
+
+                getLog().info(String.format("  %-50s uploaded in %.1f ms",
+                    modulePath.getFileName(), (System.nanoTime() - start) / 1e6));
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new MojoExecutionException("Interrupted while uploading modules.", e);
+        } catch (Exception e) {
+            getLog().error(e);
+            throw new MojoExecutionException("Could not upload module to gateway.", e);
+        }
+    }
+
+    private URL gatewayUrl() throws MalformedURLException {
         final String modulePostURI = "/main/system/DeveloperModuleLoadingServlet";
 
+        if (gatewayAddress == null) {
+            return new URL("http://localhost:8088" + modulePostURI);
+        } else {
+            return new URL(gatewayAddress + modulePostURI);
+        }
+    }
+
+    private HttpRequest newRequest(URL gatewayUrl, Path modulePath, long moduleBytes)
+        throws IOException, URISyntaxException {
+
+        if (!Files.isReadable(modulePath)) {
+            throw new IOException("Module file is not readable: " + modulePath);
+        }
+
+        // encode while uploading, rather than holding the whole encoded module in memory first, but with the
+        // encoded length known up front so the request has a Content-Length rather than a chunked body
+        long length = encodedLength(moduleBytes);
+        HttpRequest.BodyPublisher body = length == 0 ? HttpRequest.BodyPublishers.noBody() :
+            HttpRequest.BodyPublishers.fromPublisher(
+                HttpRequest.BodyPublishers.ofInputStream(() -> encodedModule(modulePath)), length);
+
+        HttpRequest.Builder requestBuilder = HttpRequest.newBuilder();
+        if (requestTimeout > 0) {
+            requestBuilder.timeout(Duration.ofSeconds(requestTimeout));
+        }
+
+        return requestBuilder
+                .uri(gatewayUrl.toURI())
+                .POST(body)
+                .header("Content-Type", "multipart/form-data")
+                .expectContinue(false)
+                .build();
+    }
+
+    private void appendHistory(PerformanceHistory history, long bytes, long count) {
+        if (historyFile != null) {
+            try {
+                history.append(historyFile.toPath(), bytes, count);
+            } catch (IOException e) {
+                getLog().warn("Could not append to performance history " + historyFile + ": " + e.getMessage());
+            }
+        }
+    }
+
+    private void commit(BuildEvents.ModulePost event, URL gatewayUrl, Path modulePath, int status) {
+        event.end();
+        if (event.shouldCommit()) {
+            event.module = modulePath.getFileName().toString();
+            event.url = gatewayUrl.toString();
+            event.httpVersion = httpVersion;
+            event.moduleBytes = modulePath.toFile().length();
+            event.status = status;
+            event.commit();
+        }
+    }
+
+    private HttpClient.Version parseHttpVersion() throws MojoExecutionException {
+        try {
+            return HttpClient.Version.valueOf(httpVersion);
+        } catch (IllegalArgumentException e) {
+            throw new MojoExecutionException("Unknown httpVersion, expected HTTP_2 or HTTP_1_1: " + httpVersion, e);
+        }
+    }
+
+    /**
+     * @return the length of {@code size} bytes encoded by {@link Base64.InputStream}: four characters for every three
+     * bytes or part of them, with a line break before every 76th character after the first.
+     */
+    static long encodedLength(long size) {
+        long characters = (size + 2) / 3 * 4;
+        return characters == 0 ? 0 : characters + (characters - 1) / 76;
+    }
+
+    private static InputStream encodedModule(Path modulePath) {
         try {
-            if (gatewayAddress == null) {
-                gatewayUrl = new URL("http://localhost:8088" + modulePostURI);
+            InputStream encoded =
+                new Base64.InputStream(new BufferedInputStream(Files.newInputStream(modulePath)), Base64.ENCODE);
+
+            BuildEvents.Base64Encode event = new BuildEvents.Base64Encode();
+            return event.isEnabled() ? new TimedEncoding(encoded, modulePath, event) : encoded;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Times the reads of an encoding stream for a {@link BuildEvents.Base64Encode} event, which is committed when the
+     * stream reaches its end or is closed. Only used while the event is enabled in a recording.
+     */
+    private static class TimedEncoding extends FilterInputStream {
+
+        private final Path modulePath;
+        private final BuildEvents.Base64Encode event;
+
+        private long encodedBytes = 0;
+        private long encodeNanos = 0;
+        private boolean begun = false;
+        private boolean committed = false;
+
+        TimedEncoding(InputStream encoded, Path modulePath, BuildEvents.Base64Encode event) {
+            super(encoded);
+            this.modulePath = modulePath;
+            this.event = event;
+        }
+
+        @Override
+        public int read() throws IOException {
+            byte[] b = new byte[1];
+            return read(b, 0, 1) == -1 ? -1 : b[0] & 0xFF;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (!begun) {
+                event.begin();
+                begun = true;
+            }
+
+            long start = System.nanoTime();
+            int read = super.read(b, off, len);
+            encodeNanos += System.nanoTime() - start;
+
+            if (read == -1) {
+                commit();
             } else {
-                gatewayUrl = new URL(gatewayAddress + modulePostURI);
+                encodedBytes += read;
             }
-            getLog().info("Deploying to " + gatewayUrl.toString());
-            HttpClient client = HttpClient.newBuilder().followRedirects(HttpClient.Redirect.ALWAYS).build();
+            return read;
+        }
 
-            String b64 = Base64.encodeFromFile(modulePath.toString());
-            getLog().debug("Successfully encoded " + modulePath.toString() + ".");
+        @Override
+        public void close() throws IOException {
+            super.close();
+            commit();
+        }
 
-            HttpRequest request = HttpRequest.newBuilder()
-                    .uri(gatewayUrl.toURI())
-                    .POST(HttpRequest.BodyPublishers.ofString(b64))
-                    .header("Content-Type", "multipart/form-data")
-                    .expectContinue(false)
-                    .build();
+        private void commit() {
+            if (!begun || committed) {
+                return;
+            }
+            committed = true;
 
-            HttpResponse<String> response = client.send(request, HttpResponse.BodyHandlers.ofString());
-            getLog().debug(String.format("Successfully connected to %s%s", gatewayUrl.toString(), modulePostURI));
-            getLog().debug(response.body());
-        } catch (Exception e) {
-            getLog().error(e);
-            throw new MojoExecutionException("Could not post module to gateway.", e);
+            event.end();
+            if (event.shouldCommit()) {
+                event.module = modulePath.getFileName().toString();
+                event.moduleBytes = modulePath.toFile().length();
+                event.encodedBytes = encodedBytes;
+                event.encodeTime = encodeNanos;
+                event.commit();
+            }
         }
+
     }
 }
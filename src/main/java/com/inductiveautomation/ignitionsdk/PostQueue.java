@@ -0,0 +1,322 @@
+package com.inductiveautomation.ignitionsdk;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.zip.ZipFile;
+
+import org.apache.maven.execution.ExecutionEvent;
+import org.apache.maven.execution.ExecutionListener;
+import org.apache.maven.execution.MavenExecutionRequest;
+import org.apache.maven.execution.MavenSession;
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugin.logging.Log;
+import org.eclipse.aether.SessionData;
+
+/**
+ * Modules waiting to be posted together once every project in the reactor has been built. The queue is kept in the
+ * session data, so that the post executions of every project in the build add to the same queue, and it is posted
+ * when the session ends, so the order in which projects finish under {@code -T} does not matter.
+ */
+class PostQueue {
+
+    private static final String KEY = PostQueue.class.getName();
+    private static final String POSTER_KEY = KEY + "/poster";
+
+    private PostQueue() {}
+
+    static void add(MavenSession session, Path module) {
+        queue(session).add(module);
+    }
+
+    /**
+     * Have {@code poster} post the queued modules when the session ends. Only the poster given last in a session is
+     * used. If the build failed, nothing is posted and the queued modules are listed in an error instead, and if
+     * posting fails, the build fails.
+     */
+    static void postAtSessionEnd(MavenSession session, Log log, Poster poster) {
+        SessionData data = session.getRepositorySession().getData();
+
+        while (true) {
+            Object existing = data.get(POSTER_KEY);
+            if (existing instanceof SessionEndListener) {
+                ((SessionEndListener) existing).set(poster, log);
+                return;
+            }
+
+            MavenExecutionRequest request = session.getRequest();
+            synchronized (request) {
+                SessionEndListener listener = new SessionEndListener(request.getExecutionListener(), poster, log);
+                if (data.set(POSTER_KEY, existing, listener)) {
+                    // Maven looks the listener up for every event, so it sees this one from now on
+                    request.setExecutionListener(listener);
+                    return;
+                }
+            }
+        }
+    }
+
+    /**
+     * @return the queued modules, in the order they were added, leaving the queue empty.
+     */
+    static List<Path> drain(MavenSession session) {
+        List<Path> queue = queue(session);
+        synchronized (queue) {
+            List<Path> modules = new ArrayList<>(queue);
+            queue.clear();
+            return modules;
+        }
+    }
+
+    /**
+     * Group modules into waves that can be posted concurrently: every module a module depends on, according to its
+     * module.xml, is in an earlier wave. Dependencies on modules that are not in {@code modules} are ignored, as
+     * they are assumed to be installed already.
+     *
+     * @throws IOException if a module.xml could not be read, or the modules depend on each other in a cycle.
+     */
+    static List<List<Path>> inDependencyOrder(List<Path> modules) throws IOException {
+        Map<String, Path> paths = new LinkedHashMap<>();
+        Map<String, Set<String>> depends = new LinkedHashMap<>();
+
+        for (Path module : modules) {
+            ModuleDescriptor descriptor;
+            try (ZipFile zip = new ZipFile(module.toFile())) {
+                descriptor = ModuleDescriptor.read(zip);
+            }
+
+            Set<String> ids = new HashSet<>();
+            for (ModuleDepends d : descriptor.getDepends()) {
+                ids.add(d.getModuleId());
+            }
+
+            paths.put(descriptor.getId(), module);
+            depends.put(descriptor.getId(), ids);
+        }
+
+        for (Set<String> ids : depends.values()) {
+            ids.retainAll(paths.keySet());
+        }
+
+        List<List<Path>> waves = new ArrayList<>();
+        Set<String> posted = new HashSet<>();
+
+        while (!depends.isEmpty()) {
+            List<String> wave = new ArrayList<>();
+            for (Map.Entry<String, Set<String>> e : depends.entrySet()) {
+                if (posted.containsAll(e.getValue())) {
+                    wave.add(e.getKey());
+                }
+            }
+
+            if (wave.isEmpty()) {
+                throw new IOException("Modules depend on each other in a cycle: " + depends.keySet());
+            }
+
+            List<Path> wavePaths = new ArrayList<>();
+            for (String id : wave) {
+                depends.remove(id);
+                posted.add(id);
+                wavePaths.add(paths.get(id));
+            }
+            waves.add(wavePaths);
+        }
+
+        return waves;
+    }
+
+    interface Poster {
+
+        void post(List<Path> modules) throws MojoExecutionException;
+
+    }
+
+    @SuppressWarnings("unchecked")
+    private static List<Path> queue(MavenSession session) {
+        SessionData data = session.getRepositorySession().getData();
+
+        while (true) {
+            Object existing = data.get(KEY);
+            if (existing instanceof List) {
+                return (List<Path>) existing;
+            }
+
+            List<Path> queue = Collections.synchronizedList(new ArrayList<>());
+            if (data.set(KEY, existing, queue)) {
+                return queue;
+            }
+        }
+    }
+
+    /**
+     * Posts the queue when the session ends, before passing the event on, so that the build summary reflects the
+     * outcome. Every event is passed on to the listener that was installed before.
+     */
+    private static class SessionEndListener implements ExecutionListener {
+
+        private final ExecutionListener delegate;
+        private Poster poster;
+        private Log log;
+
+        SessionEndListener(ExecutionListener delegate, Poster poster, Log log) {
+            this.delegate = delegate;
+            this.poster = poster;
+            this.log = log;
+        }
+
+        synchronized void set(Poster poster, Log log) {
+            this.poster = poster;
+            this.log = log;
+        }
+
+        @Override
+        public void sessionEnded(ExecutionEvent event) {
+            MavenSession session = event.getSession();
+            List<Path> modules = drain(session);
+
+            if (!modules.isEmpty()) {
+                Poster poster;
+                Log log;
+                synchronized (this) {
+                    poster = this.poster;
+                    log = this.log;
+                }
+
+                if (session.getResult().hasExceptions()) {
+                    log.error(String.format("The build failed, so %d queued module(s) were not posted: %s",
+                        modules.size(), modules));
+                } else {
+                    try {
+                        poster.post(modules);
+                    } catch (MojoExecutionException e) {
+                        session.getResult().addException(e);
+                    }
+                }
+            }
+
+            if (delegate != null) {
+                delegate.sessionEnded(event);
+            }
+        }
+
+        @Override
+        public void projectDiscoveryStarted(ExecutionEvent event) {
+            if (delegate != null) {
+                delegate.projectDiscoveryStarted(event);
+            }
+        }
+
+        @Override
+        public void sessionStarted(ExecutionEvent event) {
+            if (delegate != null) {
+                delegate.sessionStarted(event);
+            }
+        }
+
+        @Override
+        public void projectSkipped(ExecutionEvent event) {
+            if (delegate != null) {
+                delegate.projectSkipped(event);
+            }
+        }
+
+        @Override
+        public void projectStarted(ExecutionEvent event) {
+            if (delegate != null) {
+                delegate.projectStarted(event);
+            }
+        }
+
+        @Override
+        public void projectSucceeded(ExecutionEvent event) {
+            if (delegate != null) {
+                delegate.projectSucceeded(event);
+            }
+        }
+
+        @Override
+        public void projectFailed(ExecutionEvent event) {
+            if (delegate != null) {
+                delegate.projectFailed(event);
+            }
+        }
+
+        @Override
+        public void mojoSkipped(ExecutionEvent event) {
+            if (delegate != null) {
+                delegate.mojoSkipped(event);
+            }
+        }
+
+        @Override
+        public void mojoStarted(ExecutionEvent event) {
+            if (delegate != null) {
+                delegate.mojoStarted(event);
+            }
+        }
+
+        @Override
+        public void mojoSucceeded(ExecutionEvent event) {
+            if (delegate != null) {
+                delegate.mojoSucceeded(event);
+            }
+        }
+
+        @Override
+        public void mojoFailed(ExecutionEvent event) {
+            if (delegate != null) {
+                delegate.mojoFailed(event);
+            }
+        }
+
+        @Override
+        public void forkStarted(ExecutionEvent event) {
+            if (delegate != null) {
+                delegate.forkStarted(event);
+            }
+        }
+
+        @Override
+        public void forkSucceeded(ExecutionEvent event) {
+            if (delegate != null) {
+                delegate.forkSucceeded(event);
+            }
+        }
+
+        @Override
+        public void forkFailed(ExecutionEvent event) {
+            if (delegate != null) {
+                delegate.forkFailed(event);
+            }
+        }
+
+        @Override
+        public void forkedProjectStarted(ExecutionEvent event) {
+            if (delegate != null) {
+                delegate.forkedProjectStarted(event);
+            }
+        }
+
+        @Override
+        public void forkedProjectSucceeded(ExecutionEvent event) {
+            if (delegate != null) {
+                delegate.forkedProjectSucceeded(event);
+            }
+        }
+
+        @Override
+        public void forkedProjectFailed(ExecutionEvent event) {
+            if (delegate != null) {
+                delegate.forkedProjectFailed(event);
+            }
+        }
+
+    }
+
+}
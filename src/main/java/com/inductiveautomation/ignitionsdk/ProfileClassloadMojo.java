@@ -0,0 +1,357 @@
+package com.inductiveautomation.ignitionsdk;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Writer;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Enumeration;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Stream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+import org.apache.maven.artifact.Artifact;
+import org.apache.maven.plugin.AbstractMojo;
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugin.MojoFailureException;
+import org.apache.maven.plugins.annotations.Mojo;
+import org.apache.maven.plugins.annotations.Parameter;
+import org.apache.maven.plugins.annotations.ResolutionScope;
+import org.apache.maven.project.MavenProject;
+import org.codehaus.plexus.util.StringUtils;
+
+/**
+ * Loads every class of each Ignition scope in an isolated class loader, starting from the hook classes, and reports
+ * where the time goes. Runs entirely on the build machine; no gateway is needed.
+ * <p/>
+ * Provided scoped dependencies, e.g. the Ignition SDK, are placed in a parent class loader so the module's classes
+ * can link against them, but only classes from the scope's own jars are timed.
+ */
+@Mojo(name = "profile-classload",
+    requiresDependencyResolution = ResolutionScope.COMPILE,
+    requiresDependencyCollection = ResolutionScope.COMPILE)
+public class ProfileClassloadMojo extends AbstractMojo {
+
+    /**
+     * The {@link MavenProject}.
+     */
+    @Parameter(defaultValue = "${project}", readonly = true)
+    private MavenProject project;
+
+    /**
+     * The {@link ProjectScope}s; used to map dependencies from a given Maven project to an Ignition scope.
+     */
+    @Parameter(required = true)
+    private ProjectScope[] projectScopes;
+
+    /**
+     * Scope and class names of the hooks provided by this module.
+     */
+    @Parameter(required = true)
+    private ModuleHook[] hooks;
+
+    /**
+     * The Ignition scopes to profile. Defaults to "GCD".
+     */
+    @Parameter(defaultValue = "GCD")
+    private String profileScopes;
+
+    /**
+     * Also run the static initializer of every class and time it separately from loading. Static initializers run
+     * inside the Maven JVM, so only enable this for modules whose initializers are safe to run outside a gateway.
+     * Defaults to false.
+     */
+    @Parameter(defaultValue = "false")
+    private boolean initializeClasses;
+
+    /**
+     * The number of slowest classes and initializers to report for each scope.
+     */
+    @Parameter(defaultValue = "20")
+    private int slowestClasses;
+
+    /**
+     * The file the JSON report is written to.
+     */
+    @Parameter(defaultValue = "${project.build.directory}/ignition/classload-profile.json")
+    private File reportFile;
+
+    @Override
+    public void execute() throws MojoExecutionException, MojoFailureException {
+        ModuleScopes scopes = ModuleScopes.resolve(project, projectScopes, getLog());
+        List<ScopeProfile> profiles = new ArrayList<>();
+
+        try {
+            URL[] providedUrls = toUrls(scopes.getProvidedArtifacts());
+
+            try (URLClassLoader providedLoader =
+                     new URLClassLoader(providedUrls, ClassLoader.getPlatformClassLoader())) {
+
+                for (char scope : profileScopes.toCharArray()) {
+                    Set<Artifact> artifacts = new LinkedHashSet<>();
+                    for (Artifact artifact : scopes.getScopeArtifacts(scope)) {
+                        // The artifact obtained from MavenProject#getArtifact() has a null scope.
+                        if (artifact.getFile() != null &&
+                            (artifact.getScope() == null || "compile".equals(artifact.getScope()))) {
+                            artifacts.add(artifact);
+                        }
+                    }
+
+                    if (artifacts.isEmpty()) {
+                        continue;
+                    }
+
+                    ScopeProfile profile = profile(scope, artifacts, providedLoader);
+                    profiles.add(profile);
+                    logProfile(profile);
+                }
+            }
+
+            writeReport(profiles);
+        } catch (IOException e) {
+            throw new MojoExecutionException("Error profiling class loading.", e);
+        }
+    }
+
+    private ScopeProfile profile(char scope, Set<Artifact> artifacts, ClassLoader parent) throws IOException {
+        ScopeProfile profile = new ScopeProfile(scope);
+        Map<String, String> classJars = new LinkedHashMap<>();
+
+        for (Artifact artifact : artifacts) {
+            // keyed by coordinates, as jars of different groups can share a file name
+            String jarName = coordinates(artifact);
+            profile.jars.put(jarName, new long[3]);
+
+            for (String entryName : entryNames(artifact.getFile().toPath())) {
+                if (entryName.endsWith(".class") && !entryName.startsWith("META-INF/") &&
+                    !entryName.endsWith("module-info.class")) {
+                    classJars.putIfAbsent(entryName.substring(0, entryName.length() - 6).replace('/', '.'), jarName);
+                }
+            }
+        }
+
+        // hooks first, so their eagerly loaded dependencies are attributed to the order the gateway sees
+        Set<String> order = new LinkedHashSet<>();
+        for (ModuleHook h : hooks) {
+            if (StringUtils.contains(h.getScope(), scope) && classJars.containsKey(h.getHookClass())) {
+                order.add(h.getHookClass());
+            }
+        }
+        order.addAll(classJars.keySet());
+
+        try (URLClassLoader loader = new URLClassLoader(toUrls(artifacts), parent)) {
+            long start = System.nanoTime();
+            List<String> loaded = new ArrayList<>();
+
+            for (String className : order) {
+                long t0 = System.nanoTime();
+                try {
+                    Class.forName(className, false, loader);
+                    loaded.add(className);
+                } catch (ClassNotFoundException | LinkageError e) {
+                    profile.loadFailures++;
+                    getLog().debug(String.format("%s: could not load %s: %s", scope, className, e));
+                }
+                long elapsed = System.nanoTime() - t0;
+
+                profile.loadTimes.put(className, elapsed);
+                profile.jars.get(classJars.get(className))[0] += elapsed;
+                profile.jars.get(classJars.get(className))[2]++;
+            }
+
+            profile.loadNanos = System.nanoTime() - start;
+
+            if (initializeClasses) {
+                start = System.nanoTime();
+
+                for (String className : loaded) {
+                    long t0 = System.nanoTime();
+                    try {
+                        Class.forName(className, true, loader);
+                    } catch (Throwable t) {
+                        profile.initFailures++;
+                        getLog().debug(String.format("%s: could not initialize %s: %s", scope, className, t));
+                    }
+                    long elapsed = System.nanoTime() - t0;
+
+                    profile.initTimes.put(className, elapsed);
+                    profile.jars.get(classJars.get(className))[1] += elapsed;
+                }
+
+                profile.initNanos = System.nanoTime() - start;
+            }
+        }
+
+        return profile;
+    }
+
+    private void logProfile(ScopeProfile profile) {
+        getLog().info(String.format("%s scope: loaded %d classes from %d jars in %.1f ms (%d failed)",
+            profile.scope, profile.loadTimes.size() - profile.loadFailures, profile.jars.size(),
+            profile.loadNanos / 1e6, profile.loadFailures));
+
+        if (initializeClasses) {
+            getLog().info(String.format("%s scope: initialized %d classes in %.1f ms (%d failed)", profile.scope,
+                profile.initTimes.size() - profile.initFailures, profile.initNanos / 1e6, profile.initFailures));
+        }
+
+        getLog().info(String.format("  %-60s %8s %10s %10s", "artifact", "classes", "load ms", "init ms"));
+        for (Map.Entry<String, long[]> jar : profile.jars.entrySet()) {
+            long[] times = jar.getValue();
+            getLog().info(String.format("  %-60s %8d %10.1f %10.1f",
+                jar.getKey(), times[2], times[0] / 1e6, times[1] / 1e6));
+        }
+
+        getLog().info("  slowest classes to load:");
+        for (Map.Entry<String, Long> e : slowest(profile.loadTimes)) {
+            getLog().info(String.format("    %10.2f ms  %s", e.getValue() / 1e6, e.getKey()));
+        }
+
+        if (initializeClasses) {
+            getLog().info("  slowest static initializers:");
+            for (Map.Entry<String, Long> e : slowest(profile.initTimes)) {
+                getLog().info(String.format("    %10.2f ms  %s", e.getValue() / 1e6, e.getKey()));
+            }
+        }
+    }
+
+    private List<Map.Entry<String, Long>> slowest(Map<String, Long> times) {
+        List<Map.Entry<String, Long>> slowest = new ArrayList<>(times.entrySet());
+        slowest.sort(Map.Entry.<String, Long>comparingByValue().reversed());
+        return slowest.subList(0, Math.min(slowestClasses, slowest.size()));
+    }
+
+    private void writeReport(List<ScopeProfile> profiles) throws IOException {
+        Files.createDirectories(reportFile.toPath().toAbsolutePath().getParent());
+
+        try (Writer writer = Files.newBufferedWriter(reportFile.toPath(), StandardCharsets.UTF_8)) {
+            JsonWriter json = new JsonWriter(writer);
+
+            json.beginObject();
+            json.name("initializeClasses").value(initializeClasses);
+            json.name("scopes").beginObject();
+
+            for (ScopeProfile profile : profiles) {
+                json.name(String.valueOf(profile.scope)).beginObject();
+                json.name("classes").value(profile.loadTimes.size());
+                json.name("loadFailures").value(profile.loadFailures);
+                json.name("initFailures").value(profile.initFailures);
+                json.name("loadNanos").value(profile.loadNanos);
+                json.name("initNanos").value(profile.initNanos);
+
+                json.name("jars").beginArray();
+                for (Map.Entry<String, long[]> jar : profile.jars.entrySet()) {
+                    json.beginObject();
+                    json.name("artifact").value(jar.getKey());
+                    json.name("classes").value(jar.getValue()[2]);
+                    json.name("loadNanos").value(jar.getValue()[0]);
+                    json.name("initNanos").value(jar.getValue()[1]);
+                    json.endObject();
+                }
+                json.endArray();
+
+                json.name("slowestLoads");
+                writeTimes(json, slowest(profile.loadTimes));
+                json.name("slowestInitializers");
+                writeTimes(json, slowest(profile.initTimes));
+
+                json.endObject();
+            }
+
+            json.endObject();
+            json.endObject();
+            writer.write('\n');
+        }
+
+        getLog().info("Class loading profile written to " + reportFile);
+    }
+
+    private static void writeTimes(JsonWriter json, List<Map.Entry<String, Long>> times) throws IOException {
+        json.beginArray();
+        for (Map.Entry<String, Long> e : times) {
+            json.beginObject();
+            json.name("class").value(e.getKey());
+            json.name("nanos").value(e.getValue());
+            json.endObject();
+        }
+        json.endArray();
+    }
+
+    /**
+     * @return the names of the files in a jar, or, for a project in the reactor that has not been packaged, in its
+     * output directory, relative to it and separated by "/".
+     */
+    private static List<String> entryNames(Path file) throws IOException {
+        List<String> names = new ArrayList<>();
+
+        if (Files.isDirectory(file)) {
+            try (Stream<Path> walk = Files.walk(file)) {
+                walk.filter(Files::isRegularFile)
+                    .forEach(p -> names.add(file.relativize(p).toString().replace(File.separatorChar, '/')));
+            }
+        } else {
+            try (ZipFile zip = new ZipFile(file.toFile())) {
+                Enumeration<? extends ZipEntry> entries = zip.entries();
+                while (entries.hasMoreElements()) {
+                    names.add(entries.nextElement().getName());
+                }
+            }
+        }
+
+        return names;
+    }
+
+    /**
+     * @return "groupId:artifactId:version", with the classifier before the version if there is one.
+     */
+    private static String coordinates(Artifact artifact) {
+        return artifact.getGroupId() + ":" + artifact.getArtifactId() + ":" +
+            (StringUtils.isEmpty(artifact.getClassifier()) ? "" : artifact.getClassifier() + ":") +
+            artifact.getVersion();
+    }
+
+    private static URL[] toUrls(Set<Artifact> artifacts) throws IOException {
+        List<URL> urls = new ArrayList<>();
+        for (Artifact artifact : artifacts) {
+            if (artifact.getFile() != null) {
+                urls.add(artifact.getFile().toURI().toURL());
+            }
+        }
+        return urls.toArray(new URL[0]);
+    }
+
+    /**
+     * Load and initialization times of one scope.
+     */
+    private static class ScopeProfile {
+
+        private final char scope;
+        private final Map<String, Long> loadTimes = new LinkedHashMap<>();
+        private final Map<String, Long> initTimes = new LinkedHashMap<>();
+
+        /**
+         * Artifact coordinates to {load nanos, init nanos, class count}.
+         */
+        private final Map<String, long[]> jars = new LinkedHashMap<>();
+
+        private int loadFailures;
+        private int initFailures;
+        private long loadNanos;
+        private long initNanos;
+
+        ScopeProfile(char scope) {
+            this.scope = scope;
+        }
+
+    }
+
+}
@@ -0,0 +1,350 @@
+package com.inductiveautomation.ignitionsdk;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+import java.util.zip.ZipOutputStream;
+
+import org.objectweb.asm.ClassReader;
+import org.objectweb.asm.ClassWriter;
+import org.objectweb.asm.commons.ClassRemapper;
+import org.objectweb.asm.commons.Remapper;
+
+/**
+ * Computes which classes in a set of jars are reachable from a set of root classes, and writes copies of jars with
+ * the unreachable classes removed.
+ * <p/>
+ * A class is reachable if it is a root, matches a keep rule, is listed as a provider in a {@code META-INF/services}
+ * file, or is referenced from the bytecode of a reachable class. String constants that name a known class are
+ * treated as references, which covers the common {@code Class.forName("...")} idiom.
+ * <p/>
+ * The same references give an estimate of the order the classes are loaded in from the roots; see
+ * {@link #loadOrder(Collection)}.
+ */
+class ReachabilityPruner implements Closeable {
+
+    private static final String SERVICES_PREFIX = "META-INF/services/";
+
+    private final Map<String, ZipFile> classIndex = new HashMap<>();
+    private final Map<Path, ZipFile> openJars = new LinkedHashMap<>();
+    private final Set<String> serviceProviders = new HashSet<>();
+
+    /**
+     * @param jars the jars making up the class universe of one scope.
+     * @throws IOException if a jar could not be read.
+     */
+    ReachabilityPruner(Collection<Path> jars) throws IOException {
+        for (Path jar : jars) {
+            if (openJars.containsKey(jar)) {
+                continue;
+            }
+
+            ZipFile zip = new ZipFile(jar.toFile());
+            openJars.put(jar, zip);
+
+            Enumeration<? extends ZipEntry> entries = zip.entries();
+            while (entries.hasMoreElements()) {
+                ZipEntry entry = entries.nextElement();
+                String name = entry.getName();
+
+                if (isClass(name)) {
+                    classIndex.putIfAbsent(name.substring(0, name.length() - 6), zip);
+                } else if (name.startsWith(SERVICES_PREFIX) && !entry.isDirectory()) {
+                    readServiceProviders(zip, entry);
+                }
+            }
+        }
+    }
+
+    /**
+     * @param roots binary names of the root classes, e.g. hook classes.
+     * @param keepRules class names to keep; "com.example.*" keeps a package and "com.example.**" keeps a package
+     * and its sub-packages.
+     * @return the internal names of all reachable classes.
+     * @throws IOException if a class could not be read.
+     */
+    Set<String> reachableFrom(Collection<String> roots, List<String> keepRules) throws IOException {
+        Set<String> reachable = new HashSet<>();
+        Deque<String> queue = new ArrayDeque<>();
+
+        for (String root : roots) {
+            queue.add(root.replace('.', '/'));
+        }
+        for (String provider : serviceProviders) {
+            queue.add(provider.replace('.', '/'));
+        }
+        for (String className : classIndex.keySet()) {
+            if (matchesKeepRule(className, keepRules)) {
+                queue.add(className);
+            }
+        }
+
+        while (!queue.isEmpty()) {
+            String className = queue.poll();
+            ZipFile zip = classIndex.get(className);
+
+            if (zip == null || !reachable.add(className)) {
+                continue;
+            }
+
+            byte[] bytes;
+            try (InputStream in = zip.getInputStream(zip.getEntry(className + ".class"))) {
+                bytes = in.readAllBytes();
+            }
+
+            ReferenceCollector collector = new ReferenceCollector();
+            new ClassReader(bytes).accept(new ClassRemapper(new ClassWriter(0), collector), 0);
+
+            for (String reference : collector.references) {
+                if (!reachable.contains(reference)) {
+                    queue.add(reference);
+                }
+            }
+        }
+
+        return reachable;
+    }
+
+    /**
+     * @return true if one of the jars holds the class with internal name {@code className}.
+     */
+    boolean hasClass(String className) {
+        return classIndex.containsKey(className);
+    }
+
+    /**
+     * Estimate the order classes are loaded in when the roots are loaded: breadth first along references, with each
+     * class preceded by its superclass and interfaces, which the class loader must define first. References are
+     * followed in name order, so the estimate is the same on every build.
+     *
+     * @param roots binary names of the root classes, e.g. hook classes.
+     * @return the internal names of the classes reachable from the roots, in estimated load order, each mapped to
+     * its distance in references from the nearest root. A supertype has the distance of the class that needed it.
+     * @throws IOException if a class could not be read.
+     */
+    LinkedHashMap<String, Integer> loadOrder(Collection<String> roots) throws IOException {
+        LinkedHashMap<String, Integer> order = new LinkedHashMap<>();
+        Map<String, List<String>> supertypes = new HashMap<>();
+        Set<String> queued = new HashSet<>();
+        Deque<String> queue = new ArrayDeque<>();
+        Map<String, Integer> depths = new HashMap<>();
+
+        for (String root : roots) {
+            String internalName = root.replace('.', '/');
+            if (classIndex.containsKey(internalName) && queued.add(internalName)) {
+                queue.add(internalName);
+                depths.put(internalName, 0);
+            }
+        }
+
+        while (!queue.isEmpty()) {
+            String className = queue.poll();
+            int depth = depths.get(className);
+
+            ClassReader reader = read(className);
+            supertypes.computeIfAbsent(className, k -> supertypes(reader));
+            defineWithSupertypes(className, depth, order, supertypes);
+
+            ReferenceCollector collector = new ReferenceCollector();
+            reader.accept(new ClassRemapper(new ClassWriter(0), collector), 0);
+
+            for (String reference : new TreeSet<>(collector.references)) {
+                if (classIndex.containsKey(reference) && queued.add(reference)) {
+                    queue.add(reference);
+                    depths.put(reference, depth + 1);
+                }
+            }
+        }
+
+        return order;
+    }
+
+    private void defineWithSupertypes(String className, int depth, Map<String, Integer> order,
+                                      Map<String, List<String>> supertypes) throws IOException {
+        if (order.containsKey(className) || !classIndex.containsKey(className)) {
+            return;
+        }
+
+        List<String> direct = supertypes.get(className);
+        if (direct == null) {
+            direct = supertypes(read(className));
+            supertypes.put(className, direct);
+        }
+
+        for (String supertype : direct) {
+            defineWithSupertypes(supertype, depth, order, supertypes);
+        }
+
+        order.putIfAbsent(className, depth);
+    }
+
+    private static List<String> supertypes(ClassReader reader) {
+        List<String> supertypes = new ArrayList<>();
+        if (reader.getSuperName() != null) {
+            supertypes.add(reader.getSuperName());
+        }
+        supertypes.addAll(Arrays.asList(reader.getInterfaces()));
+        return supertypes;
+    }
+
+    private ClassReader read(String className) throws IOException {
+        ZipFile zip = classIndex.get(className);
+        try (InputStream in = zip.getInputStream(zip.getEntry(className + ".class"))) {
+            return new ClassReader(in.readAllBytes());
+        }
+    }
+
+    /**
+     * Copy {@code source} to {@code target}, dropping class entries that are not in {@code reachable}. Resources and
+     * classes under {@code META-INF/versions} are always kept.
+     *
+     * @return the number of class entries dropped.
+     * @throws IOException if reading the source or writing the target failed.
+     */
+    static int prune(Path source, Path target, Set<String> reachable) throws IOException {
+        int dropped = 0;
+
+        try (ZipFile zip = new ZipFile(source.toFile());
+             ZipOutputStream out = new ZipOutputStream(Files.newOutputStream(target))) {
+
+            Enumeration<? extends ZipEntry> entries = zip.entries();
+            while (entries.hasMoreElements()) {
+                ZipEntry entry = entries.nextElement();
+                String name = entry.getName();
+
+                if (isClass(name) && !reachable.contains(name.substring(0, name.length() - 6))) {
+                    dropped++;
+                    continue;
+                }
+
+                ZipEntry copy = new ZipEntry(name);
+                copy.setTime(entry.getTime());
+                out.putNextEntry(copy);
+                try (InputStream in = zip.getInputStream(entry)) {
+                    in.transferTo(out);
+                }
+                out.closeEntry();
+            }
+        }
+
+        return dropped;
+    }
+
+    /**
+     * @return the number of classes in {@code jar} that are in {@code reachable}, or -1 if the jar holds no classes.
+     */
+    static int countReachable(Path jar, Set<String> reachable) throws IOException {
+        int classes = 0;
+        int count = 0;
+
+        try (ZipFile zip = new ZipFile(jar.toFile())) {
+            Enumeration<? extends ZipEntry> entries = zip.entries();
+            while (entries.hasMoreElements()) {
+                String name = entries.nextElement().getName();
+
+                if (isClass(name)) {
+                    classes++;
+                    if (reachable.contains(name.substring(0, name.length() - 6))) {
+                        count++;
+                    }
+                }
+            }
+        }
+
+        return classes == 0 ? -1 : count;
+    }
+
+    @Override
+    public void close() throws IOException {
+        for (ZipFile zip : openJars.values()) {
+            zip.close();
+        }
+    }
+
+    private static boolean isClass(String name) {
+        return name.endsWith(".class") && !name.startsWith("META-INF/") && !name.endsWith("module-info.class");
+    }
+
+    private static boolean matchesKeepRule(String internalName, List<String> keepRules) {
+        String className = internalName.replace('/', '.');
+
+        for (String rule : keepRules) {
+            if (rule.endsWith(".**")) {
+                if (className.startsWith(rule.substring(0, rule.length() - 2))) {
+                    return true;
+                }
+            } else if (rule.endsWith(".*")) {
+                String pkg = rule.substring(0, rule.length() - 1);
+                if (className.startsWith(pkg) && className.indexOf('.', pkg.length()) == -1) {
+                    return true;
+                }
+            } else if (className.equals(rule) || className.startsWith(rule + "$")) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    private void readServiceProviders(ZipFile zip, ZipEntry entry) throws IOException {
+        try (BufferedReader reader = new BufferedReader(
+            new InputStreamReader(zip.getInputStream(entry), StandardCharsets.UTF_8))) {
+
+            String line;
+            while ((line = reader.readLine()) != null) {
+                int comment = line.indexOf('#');
+                String provider = (comment >= 0 ? line.substring(0, comment) : line).trim();
+                if (!provider.isEmpty()) {
+                    serviceProviders.add(provider);
+                }
+            }
+        }
+    }
+
+    /**
+     * A {@link Remapper} that maps nothing, but records every type it is asked about.
+     */
+    private class ReferenceCollector extends Remapper {
+
+        private final Set<String> references = new HashSet<>();
+
+        @Override
+        public String map(String internalName) {
+            references.add(internalName);
+            return internalName;
+        }
+
+        @Override
+        public Object mapValue(Object value) {
+            if (value instanceof String) {
+                String internalName = ((String) value).replace('.', '/');
+                if (classIndex.containsKey(internalName)) {
+                    references.add(internalName);
+                }
+            }
+            return super.mapValue(value);
+        }
+
+    }
+
+}
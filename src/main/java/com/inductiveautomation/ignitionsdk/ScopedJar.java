@@ -0,0 +1,73 @@
+package com.inductiveautomation.ignitionsdk;
+
+import java.nio.file.Path;
+
+import org.apache.maven.artifact.Artifact;
+
+/**
+ * A jar that will be placed in the module and listed in module.xml with the given Ignition scope.
+ */
+public class ScopedJar {
+
+    private final String name;
+    private final String scope;
+    private final Path source;
+    private final boolean thirdParty;
+    private final Artifact artifact;
+
+    public ScopedJar(String name, String scope, Path source, boolean thirdParty) {
+        this(name, scope, source, thirdParty, null);
+    }
+
+    public ScopedJar(String name, String scope, Path source, boolean thirdParty, Artifact artifact) {
+        this.name = name;
+        this.scope = scope;
+        this.source = source;
+        this.thirdParty = thirdParty;
+        this.artifact = artifact;
+    }
+
+    /**
+     * @return a jar with the same scope and artifact as this one, placed in the module as {@code name} and copied
+     * from {@code source}, e.g. a rewritten copy of this jar.
+     */
+    public ScopedJar withSource(String name, Path source) {
+        return new ScopedJar(name, scope, source, thirdParty, artifact);
+    }
+
+    /**
+     * @return the file name of the jar inside the module.
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * @return the Ignition scope of the jar, e.g. "G" or "CD".
+     */
+    public String getScope() {
+        return scope;
+    }
+
+    /**
+     * @return the file the jar is copied from.
+     */
+    public Path getSource() {
+        return source;
+    }
+
+    /**
+     * @return {@code true} if the jar is a dependency rather than the artifact of one of the module's projects.
+     */
+    public boolean isThirdParty() {
+        return thirdParty;
+    }
+
+    /**
+     * @return the Maven artifact the jar was resolved from, or null if it was made from several, e.g. by merging.
+     */
+    public Artifact getArtifact() {
+        return artifact;
+    }
+
+}
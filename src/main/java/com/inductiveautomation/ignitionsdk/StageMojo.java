@@ -0,0 +1,75 @@
+package com.inductiveautomation.ignitionsdk;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugin.MojoFailureException;
+import org.apache.maven.plugins.annotations.LifecyclePhase;
+import org.apache.maven.plugins.annotations.Mojo;
+import org.apache.maven.plugins.annotations.Parameter;
+import org.apache.maven.plugins.annotations.ResolutionScope;
+
+/**
+ * Keeps an exploded copy of the Ignition module up to date for local development. Only jars that changed are
+ * replaced, module.xml is rewritten only when its content changes, and the .modl is zipped only when asked for and
+ * something changed since the last zip.
+ * <p/>
+ * Takes the same configuration as the {@code modl} goal.
+ */
+@Mojo(name = "stage",
+    defaultPhase = LifecyclePhase.PACKAGE,
+    requiresDependencyResolution = ResolutionScope.COMPILE,
+    requiresDependencyCollection = ResolutionScope.COMPILE)
+public class StageMojo extends IgnitionModlMojo {
+
+    /**
+     * The exploded module directory.
+     */
+    @Parameter(defaultValue = "${project.build.directory}/ignition/exploded")
+    private File stageDirectory;
+
+    /**
+     * Also zip the exploded module into the .modl, signed if {@code sign} is set, if it changed since the last zip or
+     * the .modl does not exist. Defaults to false.
+     */
+    @Parameter(defaultValue = "false")
+    private boolean createModl;
+
+    @Override
+    public void execute() throws MojoExecutionException, MojoFailureException {
+        prepareModuleJars();
+
+        StagingDirectory staging;
+        try {
+            staging = newStagingDirectory(stageDirectory.toPath());
+        } catch (IOException e) {
+            throw new MojoExecutionException("Error creating stage directory: " + stageDirectory, e);
+        }
+
+        stageModule(staging);
+
+        // the stamp records that the .modl matches the exploded module
+        Path stamp = stageDirectory.toPath().resolveSibling(stageDirectory.getName() + ".zipped");
+
+        try {
+            if (staging.isChanged()) {
+                Files.deleteIfExists(stamp);
+            }
+
+            if (createModl) {
+                if (Files.exists(stamp) && Files.exists(modlFilePath())) {
+                    getLog().info("Module unchanged, not re-creating " + modlFilePath());
+                } else {
+                    createModlFile(staging.getRoot());
+                    Files.write(stamp, new byte[0]);
+                }
+            }
+        } catch (IOException e) {
+            throw new MojoExecutionException("Error updating stage stamp: " + stamp, e);
+        }
+    }
+
+}
@@ -0,0 +1,238 @@
+package com.inductiveautomation.ignitionsdk;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.apache.maven.plugin.logging.Log;
+
+/**
+ * A persistent directory holding an exploded module, kept in sync with its sources incrementally.
+ * <p/>
+ * A file is left alone if its size and modification time match its source, or if its contents hash the same.
+ * Otherwise the source is placed next to the old file by a {@link FilePlacer}, as a hard link, clone or copy, and
+ * then atomically moved over it. Files that were not synced during a run are stale
+ * and removed by {@link #removeStale()}.
+ */
+class StagingDirectory {
+
+    private final Path root;
+    private final FilePlacer placer;
+    private final Log log;
+    private final Set<Path> expected = new HashSet<>();
+
+    private int unchanged = 0;
+    private int updated = 0;
+    private int removed = 0;
+
+    /**
+     * @param root the directory; created if it does not exist.
+     * @param placer places new and changed files.
+     * @param log the log each placed file is reported to.
+     * @throws IOException if the directory could not be created.
+     */
+    StagingDirectory(Path root, FilePlacer placer, Log log) throws IOException {
+        this.root = Files.createDirectories(root);
+        this.placer = placer;
+        this.log = log;
+    }
+
+    Path getRoot() {
+        return root;
+    }
+
+    /**
+     * Make {@code relativePath} in the staging directory match {@code source}.
+     *
+     * @return {@code true} if the staged file was created or replaced.
+     * @throws IOException if comparing or placing the file failed.
+     */
+    boolean syncFile(Path source, String relativePath) throws IOException {
+        Path target = root.resolve(relativePath);
+
+        // jars listed in more than one scope are synced once
+        if (!expected.add(target)) {
+            return false;
+        }
+
+        BuildEvents.ArtifactPlacement event = new BuildEvents.ArtifactPlacement();
+        event.begin();
+
+        if (Files.exists(target) && isSame(source, target)) {
+            unchanged++;
+            commit(event, source, relativePath, "unchanged");
+            return false;
+        }
+
+        Path temp = tempFileFor(target);
+        Files.deleteIfExists(temp);
+
+        FilePlacer.Strategy strategy = placer.place(source, temp);
+        log.info(String.format("staged %s (%s)", relativePath, strategy));
+
+        replace(temp, target);
+        updated++;
+        commit(event, source, relativePath, strategy.toString());
+        return true;
+    }
+
+    /**
+     * Sync every file under {@code sourceDir} to the same relative location under {@code relativeDir}.
+     *
+     * @throws IOException if walking the source or syncing a file failed.
+     */
+    void syncTree(Path sourceDir, String relativeDir) throws IOException {
+        List<Path> files;
+        try (Stream<Path> walk = Files.walk(sourceDir)) {
+            files = walk.filter(Files::isRegularFile).collect(Collectors.toList());
+        }
+
+        for (Path file : files) {
+            String relative = sourceDir.relativize(file).toString().replace('\\', '/');
+            syncFile(file, relativeDir + "/" + relative);
+        }
+    }
+
+    /**
+     * Write {@code content} to {@code relativePath}, unless the staged file already has exactly that content.
+     *
+     * @return {@code true} if the file was written.
+     * @throws IOException if reading or writing the file failed.
+     */
+    boolean writeFile(byte[] content, String relativePath) throws IOException {
+        Path target = root.resolve(relativePath);
+        expected.add(target);
+
+        if (Files.exists(target) && Arrays.equals(Files.readAllBytes(target), content)) {
+            unchanged++;
+            return false;
+        }
+
+        Path temp = tempFileFor(target);
+        Files.write(temp, content);
+
+        replace(temp, target);
+        updated++;
+        return true;
+    }
+
+    /**
+     * Remove every file that was not synced or written since this instance was created, and any directories left
+     * empty.
+     *
+     * @throws IOException if walking the directory or deleting a file failed.
+     */
+    void removeStale() throws IOException {
+        List<Path> paths;
+        try (Stream<Path> walk = Files.walk(root)) {
+            paths = walk.sorted(Comparator.reverseOrder()).collect(Collectors.toList());
+        }
+
+        for (Path path : paths) {
+            if (path.equals(root)) {
+                continue;
+            }
+
+            if (Files.isDirectory(path)) {
+                try (Stream<Path> children = Files.list(path)) {
+                    if (children.findAny().isEmpty()) {
+                        Files.delete(path);
+                    }
+                }
+            } else if (!expected.contains(path)) {
+                Files.delete(path);
+                removed++;
+            }
+        }
+    }
+
+    /**
+     * @return {@code true} if any file was created, replaced or removed.
+     */
+    boolean isChanged() {
+        return updated > 0 || removed > 0;
+    }
+
+    /**
+     * @return a one-line summary of the sync, e.g. "3 updated, 12 unchanged, 1 removed (2 hard link, 1 reflink)".
+     */
+    String summary() {
+        return String.format("%d updated, %d unchanged, %d removed (%s)",
+            updated, unchanged, removed, placer.summary());
+    }
+
+    private static void commit(BuildEvents.ArtifactPlacement event, Path source, String relativePath,
+                               String strategy) throws IOException {
+        event.end();
+        if (event.shouldCommit()) {
+            event.path = relativePath;
+            event.source = source.toString();
+            event.strategy = strategy;
+            event.bytes = Files.size(source);
+            event.commit();
+        }
+    }
+
+    private static Path tempFileFor(Path target) throws IOException {
+        Files.createDirectories(target.getParent());
+        return target.resolveSibling("." + target.getFileName() + ".tmp");
+    }
+
+    /**
+     * Move {@code temp} over {@code target} in one step, so a reader never sees a partially written file.
+     */
+    private static void replace(Path temp, Path target) throws IOException {
+        try {
+            Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    private static boolean isSame(Path source, Path target) throws IOException {
+        if (Files.size(source) != Files.size(target)) {
+            return false;
+        }
+
+        if (Files.getLastModifiedTime(source).equals(Files.getLastModifiedTime(target))) {
+            return true;
+        }
+
+        boolean same = Arrays.equals(sha256(source), sha256(target));
+        if (same) {
+            // record the new time so the next sync takes the fast path
+            Files.setLastModifiedTime(target, Files.getLastModifiedTime(source));
+        }
+        return same;
+    }
+
+    private static byte[] sha256(Path file) throws IOException {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IOException(e);
+        }
+
+        try (InputStream in = new DigestInputStream(Files.newInputStream(file), digest)) {
+            in.transferTo(OutputStream.nullOutputStream());
+        }
+
+        return digest.digest();
+    }
+
+}
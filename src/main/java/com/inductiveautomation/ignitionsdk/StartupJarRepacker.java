@@ -0,0 +1,165 @@
+package com.inductiveautomation.ignitionsdk;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Enumeration;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.zip.CRC32;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * Rewrites a jar with its entries in the order they are needed at startup, so the class loader reads the start of
+ * the jar instead of seeking all over it.
+ * <p/>
+ * {@code META-INF/} comes first, with the manifest at its head, then the classes of the load order, then the rest of
+ * the jar in its original order. Hot classes, those loaded while the module starts, are stored uncompressed if they
+ * are smaller than a threshold, so reading them needs no inflating; the module itself is compressed, so its size
+ * barely changes. Entry contents are not changed, so the signatures of signed jars stay valid.
+ */
+class StartupJarRepacker {
+
+    private static final String MANIFEST = "META-INF/MANIFEST.MF";
+
+    /**
+     * A class name in a line of a {@code -Xlog:class+load} or {@code -verbose:class} log, or a line holding just a
+     * class name.
+     */
+    private static final Pattern TRACE_LINE =
+        Pattern.compile("(?:\\[class,load\\]\\s+|\\[Loaded\\s+|^\\s*)([\\w$]+(?:\\.[\\w$]+)*)(?:\\s|$)");
+
+    private final Map<String, Integer> rank;
+    private final Set<String> hot;
+    private final int storeBelow;
+
+    /**
+     * @param rank the position of each class in the load order, keyed by internal name.
+     * @param hot the internal names of the classes loaded at startup.
+     * @param storeBelow hot classes smaller than this many bytes are stored uncompressed; 0 stores none.
+     */
+    StartupJarRepacker(Map<String, Integer> rank, Set<String> hot, int storeBelow) {
+        this.rank = rank;
+        this.hot = hot;
+        this.storeBelow = storeBelow;
+    }
+
+    /**
+     * Read the classes of a class loading log, e.g. one written by {@code java -Xlog:class+load:file=trace.txt}, in
+     * the order they were loaded. Lines that do not name a class are skipped.
+     *
+     * @return the internal names of the classes, each once.
+     * @throws IOException if the log could not be read.
+     */
+    static List<String> readTrace(Path trace) throws IOException {
+        Set<String> classes = new LinkedHashSet<>();
+        for (String line : Files.readAllLines(trace, StandardCharsets.UTF_8)) {
+            Matcher m = TRACE_LINE.matcher(line);
+            if (m.find() && m.group(1).indexOf('.') > 0) {
+                classes.add(m.group(1).replace('.', '/'));
+            }
+        }
+        return new ArrayList<>(classes);
+    }
+
+    /**
+     * Write {@code source} to {@code target} in startup order.
+     *
+     * @return the number of hot classes moved to the front and the number stored uncompressed, or null if the jar
+     * holds no hot class and was not written.
+     * @throws IOException if reading the source or writing the target failed.
+     */
+    int[] repack(Path source, Path target) throws IOException {
+        try (ZipFile zip = new ZipFile(source.toFile())) {
+            List<ZipEntry> entries = new ArrayList<>();
+            Enumeration<? extends ZipEntry> e = zip.entries();
+            while (e.hasMoreElements()) {
+                entries.add(e.nextElement());
+            }
+
+            if (entries.stream().noneMatch(entry -> hot.contains(internalName(entry.getName())))) {
+                return null;
+            }
+
+            List<ZipEntry> ordered = new ArrayList<>(entries);
+            // stable, so entries of equal rank keep their original order
+            ordered.sort(Comparator.comparingInt(this::group).thenComparingInt(this::position));
+
+            int[] counts = new int[2];
+            try (ZipOutputStream out = new ZipOutputStream(
+                new BufferedOutputStream(Files.newOutputStream(target), 64 * 1024))) {
+
+                for (ZipEntry entry : ordered) {
+                    byte[] content;
+                    try (InputStream in = zip.getInputStream(entry)) {
+                        content = in.readAllBytes();
+                    }
+
+                    boolean isHot = hot.contains(internalName(entry.getName()));
+                    ZipEntry copy = new ZipEntry(entry.getName());
+                    copy.setTime(entry.getTime());
+
+                    if (isHot && content.length < storeBelow) {
+                        CRC32 crc = new CRC32();
+                        crc.update(content);
+                        copy.setMethod(ZipEntry.STORED);
+                        copy.setSize(content.length);
+                        copy.setCompressedSize(content.length);
+                        copy.setCrc(crc.getValue());
+                        counts[1]++;
+                    }
+                    counts[0] += isHot ? 1 : 0;
+
+                    out.putNextEntry(copy);
+                    out.write(content);
+                    out.closeEntry();
+                }
+            }
+
+            return counts;
+        }
+    }
+
+    /**
+     * @return 0 for {@code META-INF/} and the manifest, 1 for the rest of {@code META-INF/}, 2 for classes in the
+     * load order, 3 for everything else.
+     */
+    private int group(ZipEntry entry) {
+        String name = entry.getName();
+        if (name.equals("META-INF/") || name.equals(MANIFEST)) {
+            return 0;
+        } else if (name.startsWith("META-INF/")) {
+            return 1;
+        } else if (rank.containsKey(internalName(name))) {
+            return 2;
+        } else {
+            return 3;
+        }
+    }
+
+    private int position(ZipEntry entry) {
+        if (entry.getName().equals("META-INF/")) {
+            return -1;
+        }
+        return rank.getOrDefault(internalName(entry.getName()), Integer.MAX_VALUE);
+    }
+
+    /**
+     * @return the internal name of the class in a class entry, or null if the entry is not a class.
+     */
+    private static String internalName(String entryName) {
+        return entryName.endsWith(".class") ? entryName.substring(0, entryName.length() - 6) : null;
+    }
+
+}
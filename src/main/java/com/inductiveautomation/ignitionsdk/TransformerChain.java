@@ -0,0 +1,232 @@
+package com.inductiveautomation.ignitionsdk;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.ServiceLoader;
+import java.util.TreeMap;
+import java.util.zip.Deflater;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * Runs the enabled {@link ArtifactTransformer}s over a jar, entry by entry, and caches the result.
+ * <p/>
+ * Transformed jars are kept in the cache directory under a key made from the SHA-256 of the input jar, the jar's
+ * place in the module, and the id, version and properties of every transformer that accepted it. A jar is only
+ * transformed again when one of those changes.
+ */
+class TransformerChain {
+
+    private final List<ArtifactTransformer> transformers;
+    private final Map<ArtifactTransformer, Map<String, String>> properties;
+    private final Path cacheDir;
+
+    private TransformerChain(List<ArtifactTransformer> transformers,
+                             Map<ArtifactTransformer, Map<String, String>> properties, Path cacheDir) {
+        this.transformers = transformers;
+        this.properties = properties;
+        this.cacheDir = cacheDir;
+    }
+
+    /**
+     * Find the transformers named by {@code ids} on {@code loader} and configure them.
+     *
+     * @param ids the transformer ids, in the order they run.
+     * @param allProperties properties keyed by transformer id, a dot, and the property name.
+     * @param cacheDir the directory transformed jars are cached in.
+     * @throws IllegalArgumentException if no transformer has one of the ids.
+     */
+    static TransformerChain load(String[] ids, Map<String, String> allProperties, ClassLoader loader,
+                                 Path cacheDir) {
+        Map<String, ArtifactTransformer> available = new LinkedHashMap<>();
+        for (ArtifactTransformer transformer : ServiceLoader.load(ArtifactTransformer.class, loader)) {
+            available.putIfAbsent(transformer.getId(), transformer);
+        }
+
+        List<ArtifactTransformer> transformers = new ArrayList<>();
+        Map<ArtifactTransformer, Map<String, String>> properties = new HashMap<>();
+
+        for (String id : ids) {
+            ArtifactTransformer transformer = available.get(id);
+            if (transformer == null) {
+                throw new IllegalArgumentException(String.format(
+                    "No artifact transformer with id '%s' is on the plugin's classpath. Available: %s",
+                    id, available.keySet()));
+            }
+
+            Map<String, String> own = new TreeMap<>();
+            if (allProperties != null) {
+                allProperties.forEach((key, value) -> {
+                    if (key.startsWith(id + ".")) {
+                        own.put(key.substring(id.length() + 1), value);
+                    }
+                });
+            }
+
+            transformer.configure(own);
+            transformers.add(transformer);
+            properties.put(transformer, own);
+        }
+
+        return new TransformerChain(transformers, properties, cacheDir);
+    }
+
+    /**
+     * @return one line per transformer with its id, version and properties, for fingerprinting the chain.
+     */
+    List<String> describe() {
+        List<String> lines = new ArrayList<>();
+        for (ArtifactTransformer transformer : transformers) {
+            lines.add(transformer.getId() + " " + transformer.getVersion() + " " + properties.get(transformer));
+        }
+        return lines;
+    }
+
+    /**
+     * Transform {@code source}, or take its transformed copy from the cache.
+     *
+     * @return the transformed jar, or null if no transformer accepts {@code artifact}.
+     * @throws IOException if reading the source, transforming an entry or writing the result failed.
+     */
+    Result transform(Path source, ArtifactTransformer.Artifact artifact) throws IOException {
+        List<ArtifactTransformer> accepted = new ArrayList<>();
+        for (ArtifactTransformer transformer : transformers) {
+            if (transformer.accepts(artifact)) {
+                accepted.add(transformer);
+            }
+        }
+
+        if (accepted.isEmpty()) {
+            return null;
+        }
+
+        Path cached = cacheDir.resolve(cacheKey(source, artifact, accepted) + ".jar");
+        if (Files.isRegularFile(cached)) {
+            return new Result(cached, true);
+        }
+
+        Files.createDirectories(cacheDir);
+        Path temp = Files.createTempFile(cacheDir, "transform", ".tmp");
+
+        try {
+            run(source, temp, artifact, accepted);
+
+            try {
+                Files.move(temp, cached, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temp, cached, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+
+        return new Result(cached, false);
+    }
+
+    private static void run(Path source, Path target, ArtifactTransformer.Artifact artifact,
+                            List<ArtifactTransformer> chain) throws IOException {
+
+        try (ZipFile zip = new ZipFile(source.toFile());
+             ZipOutputStream out = new ZipOutputStream(Files.newOutputStream(target))) {
+
+            out.setLevel(Deflater.BEST_COMPRESSION);
+
+            List<ArtifactTransformer.Stage> stages = new ArrayList<>();
+            for (ArtifactTransformer transformer : chain) {
+                stages.add(transformer.open(artifact));
+            }
+
+            // sinks.get(i) receives what stage i writes: the next stage, or the jar after the last one
+            List<ArtifactTransformer.Sink> sinks = new ArrayList<>();
+            ArtifactTransformer.Sink next = entry -> {
+                ZipEntry written = new ZipEntry(entry.getName());
+                written.setTime(entry.getTime());
+                out.putNextEntry(written);
+                if (!entry.isDirectory()) {
+                    out.write(entry.getContent());
+                }
+                out.closeEntry();
+            };
+            for (int i = stages.size() - 1; i >= 0; i--) {
+                sinks.add(0, next);
+                ArtifactTransformer.Stage stage = stages.get(i);
+                ArtifactTransformer.Sink downstream = next;
+                next = entry -> stage.entry(entry, downstream);
+            }
+
+            Enumeration<? extends ZipEntry> entries = zip.entries();
+            while (entries.hasMoreElements()) {
+                ZipEntry entry = entries.nextElement();
+
+                byte[] content;
+                try (InputStream in = zip.getInputStream(entry)) {
+                    content = in.readAllBytes();
+                }
+
+                next.write(new ArtifactTransformer.Entry(entry.getName(), entry.getTime(), content));
+            }
+
+            for (int i = 0; i < stages.size(); i++) {
+                stages.get(i).finish(sinks.get(i));
+            }
+        }
+    }
+
+    private String cacheKey(Path source, ArtifactTransformer.Artifact artifact, List<ArtifactTransformer> chain)
+        throws IOException {
+
+        List<String> lines = new ArrayList<>();
+        lines.add("input " + InputFingerprint.sha256(source));
+        lines.add(String.join(" ", "artifact", artifact.getGroupId(), artifact.getArtifactId(),
+            artifact.getVersion(), artifact.getFileName(), artifact.getScope(),
+            String.valueOf(artifact.isThirdParty()), String.valueOf(artifact.isSigned())));
+        for (ArtifactTransformer transformer : chain) {
+            lines.add("transformer " + transformer.getId() + " " + transformer.getVersion() + " " +
+                properties.get(transformer));
+        }
+
+        MessageDigest digest = ContentManifest.newDigest();
+        for (String line : lines) {
+            digest.update(line.getBytes(StandardCharsets.UTF_8));
+            digest.update((byte) '\n');
+        }
+        return ContentManifest.hex(digest.digest());
+    }
+
+    static class Result {
+
+        private final Path path;
+        private final boolean cached;
+
+        Result(Path path, boolean cached) {
+            this.path = path;
+            this.cached = cached;
+        }
+
+        Path getPath() {
+            return path;
+        }
+
+        /**
+         * @return {@code true} if the jar was taken from the cache rather than transformed.
+         */
+        boolean isCached() {
+            return cached;
+        }
+
+    }
+
+}
@@ -0,0 +1,263 @@
+package com.inductiveautomation.ignitionsdk;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.apache.maven.plugin.AbstractMojo;
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugin.MojoFailureException;
+import org.apache.maven.plugins.annotations.LifecyclePhase;
+import org.apache.maven.plugins.annotations.Mojo;
+import org.apache.maven.plugins.annotations.Parameter;
+import org.apache.maven.project.MavenProject;
+
+/**
+ * Checks that a built module is intact and consistent with its module.xml.
+ * <p/>
+ * The module is memory-mapped and every entry, including every entry of every inner jar, is decompressed and
+ * checked against its CRC in parallel. Then module.xml is checked: every listed jar must exist, every jar must be
+ * listed, each hook class must be found in a jar of its scope, and the license and documentation it names must
+ * exist. If the module has a {@link ContentManifest}, each file it lists must match its recorded size and SHA-256.
+ */
+@Mojo(name = "verify", defaultPhase = LifecyclePhase.VERIFY)
+public class VerifyMojo extends AbstractMojo {
+
+    /**
+     * The {@link MavenProject}.
+     */
+    @Parameter(defaultValue = "${project}", readonly = true)
+    private MavenProject project;
+
+    /**
+     * The name of the module. Used to locate the module in the build directory if {@code moduleFile} is not set.
+     */
+    @Parameter(required = false)
+    private String moduleName;
+
+    /**
+     * The module file to verify. Defaults to the signed module in the build directory, or the unsigned module if no
+     * signed module exists.
+     */
+    @Parameter(required = false)
+    private File moduleFile;
+
+    @Override
+    public void execute() throws MojoExecutionException, MojoFailureException {
+        Path modulePath = moduleFile != null ?
+            moduleFile.toPath() :
+            ModuleFiles.locate(Paths.get(project.getBuild().getDirectory()), moduleName);
+
+        getLog().info("Verifying " + modulePath);
+        long start = System.nanoTime();
+
+        List<String> problems = Collections.synchronizedList(new ArrayList<>());
+        Map<String, Set<String>> jarClasses = new ConcurrentHashMap<>();
+        Map<String, String> digests = new ConcurrentHashMap<>();
+
+        ZipIndex modl;
+        try {
+            modl = ZipIndex.open(modulePath);
+        } catch (IOException e) {
+            throw new MojoFailureException("Module is not a readable zip archive: " + e.getMessage(), e);
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors());
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+
+            for (ZipIndex.Entry entry : modl.entries()) {
+                if (entry.isDirectory()) {
+                    continue;
+                }
+
+                futures.add(executor.submit(() -> {
+                    try {
+                        MessageDigest sha256 = ContentManifest.newDigest();
+                        if (isTopLevelJar(entry.getName())) {
+                            byte[] bytes = modl.readAllBytes(entry);
+                            sha256.update(bytes);
+                            jarClasses.put(entry.getName(), verifyJar(entry.getName(), bytes));
+                        } else {
+                            modl.verify(entry, (chunk, length) -> sha256.update(chunk, 0, length));
+                        }
+                        digests.put(entry.getName(), ContentManifest.hex(sha256.digest()));
+                    } catch (IOException e) {
+                        problems.add(e.getMessage());
+                    }
+                    return null;
+                }));
+            }
+
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } catch (ExecutionException e) {
+            throw new MojoExecutionException("Error verifying module.", e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new MojoExecutionException("Interrupted while verifying module.", e);
+        } finally {
+            executor.shutdownNow();
+        }
+
+        checkDescriptor(modl, jarClasses, problems);
+        checkManifest(modl, digests, problems);
+
+        getLog().info(String.format("Checked %d entries in %.1f ms",
+            modl.entries().size(), (System.nanoTime() - start) / 1e6));
+
+        if (!problems.isEmpty()) {
+            for (String problem : problems) {
+                getLog().error(problem);
+            }
+            throw new MojoFailureException(String.format("Module failed verification with %d problem(s).",
+                problems.size()));
+        }
+
+        getLog().info("Module verified.");
+    }
+
+    /**
+     * Check the CRC of every entry inside an inner jar.
+     *
+     * @return the binary names of the classes in the jar.
+     */
+    private Set<String> verifyJar(String jarName, byte[] bytes) throws IOException {
+        ZipIndex jar;
+        try {
+            jar = new ZipIndex(ByteBuffer.wrap(bytes));
+        } catch (IOException e) {
+            throw new IOException(jarName + " is not a well-formed jar: " + e.getMessage(), e);
+        }
+
+        Set<String> classes = new HashSet<>();
+        for (ZipIndex.Entry entry : jar.entries()) {
+            try {
+                jar.verify(entry);
+            } catch (IOException e) {
+                throw new IOException(jarName + ": " + e.getMessage(), e);
+            }
+
+            String name = entry.getName();
+            if (name.endsWith(".class")) {
+                classes.add(name.substring(0, name.length() - 6).replace('/', '.'));
+            }
+        }
+        return classes;
+    }
+
+    private void checkDescriptor(ZipIndex modl, Map<String, Set<String>> jarClasses, List<String> problems) {
+        ZipIndex.Entry moduleXml = modl.entry(ModuleDescriptor.MODULE_XML);
+        if (moduleXml == null) {
+            problems.add("module has no " + ModuleDescriptor.MODULE_XML);
+            return;
+        }
+
+        ModuleDescriptor descriptor;
+        try {
+            descriptor = ModuleDescriptor.parse(new ByteArrayInputStream(modl.readAllBytes(moduleXml)));
+        } catch (IOException e) {
+            problems.add(e.getMessage());
+            return;
+        }
+
+        Map<String, String> listed = new LinkedHashMap<>();
+        for (ModuleDescriptor.Jar jar : descriptor.getJars()) {
+            listed.merge(jar.getName(), jar.getScope(), String::concat);
+
+            if (modl.entry(jar.getName()) == null) {
+                problems.add("module.xml lists a jar that is not in the module: " + jar.getName());
+            }
+        }
+
+        for (ZipIndex.Entry entry : modl.entries()) {
+            if (isTopLevelJar(entry.getName()) && !listed.containsKey(entry.getName())) {
+                problems.add("jar is not listed in module.xml: " + entry.getName());
+            }
+        }
+
+        for (ModuleHook hook : descriptor.getHooks()) {
+            boolean found = false;
+
+            for (Map.Entry<String, String> jar : listed.entrySet()) {
+                Set<String> classes = jarClasses.get(jar.getKey());
+                if (jar.getValue().contains(hook.getScope()) &&
+                    classes != null && classes.contains(hook.getHookClass())) {
+                    found = true;
+                    break;
+                }
+            }
+
+            if (!found) {
+                problems.add(String.format("%s hook %s is not in any %s scoped jar",
+                    hook.getScope(), hook.getHookClass(), hook.getScope()));
+            }
+        }
+
+        if (descriptor.getLicense() != null && modl.entry("license.html") == null) {
+            problems.add("module.xml declares a license but the module has no license.html");
+        }
+
+        if (descriptor.getDocumentation() != null &&
+            modl.entry("doc/" + descriptor.getDocumentation()) == null) {
+            problems.add("module.xml declares documentation that is not in the module: doc/" +
+                descriptor.getDocumentation());
+        }
+    }
+
+    /**
+     * Files added after packaging, such as the signature files added by signing, are not in the manifest and are not
+     * reported.
+     */
+    private void checkManifest(ZipIndex modl, Map<String, String> digests, List<String> problems) {
+        ZipIndex.Entry manifestEntry = modl.entry(ContentManifest.NAME);
+        if (manifestEntry == null) {
+            getLog().info("Module has no " + ContentManifest.NAME + ", skipping SHA-256 checks.");
+            return;
+        }
+
+        ContentManifest manifest;
+        try {
+            manifest = ContentManifest.parse(modl.readAllBytes(manifestEntry));
+        } catch (IOException e) {
+            problems.add(e.getMessage());
+            return;
+        }
+
+        for (Map.Entry<String, ContentManifest.Item> item : manifest.getItems().entrySet()) {
+            String name = item.getKey();
+            ZipIndex.Entry entry = modl.entry(name);
+
+            if (entry == null) {
+                problems.add(ContentManifest.NAME + " lists a file that is not in the module: " + name);
+            } else if (entry.getSize() != item.getValue().getSize()) {
+                problems.add(String.format("size of %s does not match %s: expected %d, was %d",
+                    name, ContentManifest.NAME, item.getValue().getSize(), entry.getSize()));
+            } else if (digests.containsKey(name) && !digests.get(name).equals(item.getValue().getSha256())) {
+                problems.add("SHA-256 of " + name + " does not match " + ContentManifest.NAME);
+            }
+        }
+    }
+
+    private static boolean isTopLevelJar(String name) {
+        return name.endsWith(".jar") && name.indexOf('/') < 0;
+    }
+
+}
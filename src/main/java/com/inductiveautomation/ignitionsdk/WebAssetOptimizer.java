@@ -0,0 +1,417 @@
+package com.inductiveautomation.ignitionsdk;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.CharacterCodingException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.function.UnaryOperator;
+import java.util.regex.Pattern;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.GZIPOutputStream;
+import java.util.zip.InflaterInputStream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * Rewrites the web resources of a jar so browsers download less from the gateway, and recompresses the jar at the
+ * maximum deflate level.
+ * <p/>
+ * Source maps are removed along with the comments that point to them, JavaScript and CSS are minified by
+ * {@link WebMinifier} unless they are already ".min" files, and the image data of PNGs is deflated again at the
+ * maximum level, which leaves the pixels untouched. Optionally a gzipped copy is added next to each text resource
+ * that compresses well. A rewritten resource only replaces the original if it is smaller.
+ * <p/>
+ * The resources of a jar are optimized in parallel on the given executor.
+ */
+class WebAssetOptimizer {
+
+    private static final byte[] PNG_SIGNATURE = {(byte) 0x89, 'P', 'N', 'G', '\r', '\n', 0x1A, '\n'};
+
+    private static final Pattern JS_SOURCE_MAP_URL = Pattern.compile("(?m)^[ \\t]*//[#@] sourceMappingURL=.*$");
+    private static final Pattern CSS_SOURCE_MAP_URL = Pattern.compile("/\\*[#@] sourceMappingURL=[^*]*\\*/");
+
+    private static final Set<String> PRECOMPRESSED_TYPES = new HashSet<>(Arrays.asList(
+        ".js", ".mjs", ".css", ".html", ".htm", ".svg", ".json"));
+
+    private static final long PRECOMPRESS_MINIMUM = 1024;
+
+    private final boolean minify;
+    private final boolean precompress;
+    private final ExecutorService executor;
+
+    /**
+     * @param minify {@code true} to minify JavaScript and CSS.
+     * @param precompress {@code true} to add a ".gz" copy of text resources.
+     * @param executor the executor resources are optimized on.
+     */
+    WebAssetOptimizer(boolean minify, boolean precompress, ExecutorService executor) {
+        this.minify = minify;
+        this.precompress = precompress;
+        this.executor = executor;
+    }
+
+    /**
+     * @return {@code true} if {@code jar} contains any resource this optimizer rewrites.
+     * @throws IOException if the jar could not be read.
+     */
+    boolean hasWebAssets(Path jar) throws IOException {
+        try (ZipFile zip = new ZipFile(jar.toFile())) {
+            return zip.stream().anyMatch(e -> !e.isDirectory() && isWebAsset(e.getName()));
+        }
+    }
+
+    /**
+     * Copy {@code source} to {@code target}, optimizing its web resources. Only the web resources are held in memory;
+     * every other entry is streamed from the source to the target.
+     *
+     * @return what was saved.
+     * @throws IOException if reading the source, optimizing a resource or writing the target failed.
+     */
+    Report optimize(Path source, Path target) throws IOException {
+        Report report = new Report();
+        report.before = Files.size(source);
+
+        try (ZipFile zip = new ZipFile(source.toFile());
+             ZipOutputStream out = new ZipOutputStream(Files.newOutputStream(target))) {
+
+            out.setLevel(Deflater.BEST_COMPRESSION);
+
+            Set<String> names = new HashSet<>();
+            List<ZipEntry> entries = new ArrayList<>();
+            Enumeration<? extends ZipEntry> e = zip.entries();
+            while (e.hasMoreElements()) {
+                ZipEntry entry = e.nextElement();
+                entries.add(entry);
+                names.add(entry.getName());
+            }
+
+            Map<ZipEntry, Future<List<Resource>>> results = new HashMap<>();
+            for (ZipEntry entry : entries) {
+                if (!entry.isDirectory() && isWebAsset(entry.getName())) {
+                    results.put(entry, executor.submit(() -> {
+                        byte[] bytes;
+                        try (InputStream in = zip.getInputStream(entry)) {
+                            bytes = in.readAllBytes();
+                        }
+                        return optimize(entry.getName(), bytes, names, report);
+                    }));
+                }
+            }
+
+            for (ZipEntry entry : entries) {
+                Future<List<Resource>> result = results.get(entry);
+                if (result == null) {
+                    ZipEntry copy = new ZipEntry(entry.getName());
+                    copy.setTime(entry.getTime());
+                    out.putNextEntry(copy);
+                    try (InputStream in = zip.getInputStream(entry)) {
+                        in.transferTo(out);
+                    }
+                    out.closeEntry();
+                    continue;
+                }
+
+                for (Resource resource : result.get()) {
+                    ZipEntry copy = new ZipEntry(resource.name);
+                    copy.setTime(entry.getTime());
+                    out.putNextEntry(copy);
+                    out.write(resource.bytes);
+                    out.closeEntry();
+                }
+            }
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            throw cause instanceof IOException ? (IOException) cause : new IOException(cause);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while optimizing " + source, e);
+        }
+
+        report.after = Files.size(target);
+        return report;
+    }
+
+    /**
+     * @return the resources that replace {@code name} in the jar: none for a source map, otherwise the optimized
+     * resource, followed by its gzipped copy if one is added.
+     */
+    private List<Resource> optimize(String name, byte[] bytes, Set<String> names, Report report) throws IOException {
+        String lower = name.toLowerCase();
+        List<Resource> resources = new ArrayList<>();
+
+        if (lower.endsWith(".js.map") || lower.endsWith(".mjs.map") || lower.endsWith(".css.map")) {
+            report.removedSourceMap(bytes.length);
+            return resources;
+        }
+
+        byte[] optimized = bytes;
+        if (lower.endsWith(".js") || lower.endsWith(".mjs")) {
+            optimized = optimizeText(bytes, JS_SOURCE_MAP_URL, minify && !lower.endsWith(".min.js") ?
+                WebMinifier::minifyJs : null);
+            report.minified(bytes.length - optimized.length);
+        } else if (lower.endsWith(".css")) {
+            optimized = optimizeText(bytes, CSS_SOURCE_MAP_URL, minify && !lower.endsWith(".min.css") ?
+                WebMinifier::minifyCss : null);
+            report.minified(bytes.length - optimized.length);
+        } else if (lower.endsWith(".png")) {
+            optimized = recompressPng(bytes);
+            report.recompressedImage(bytes.length - optimized.length);
+        }
+
+        resources.add(new Resource(name, optimized));
+
+        if (precompress && optimized.length >= PRECOMPRESS_MINIMUM && !names.contains(name + ".gz") &&
+            PRECOMPRESSED_TYPES.contains(extension(lower))) {
+
+            byte[] gzipped = gzip(optimized);
+            if (gzipped.length < optimized.length * 9 / 10) {
+                resources.add(new Resource(name + ".gz", gzipped));
+                report.precompressed(gzipped.length);
+            }
+        }
+
+        return resources;
+    }
+
+    /**
+     * Remove source map comments from, and then minify, UTF-8 text. Text that is not valid UTF-8 is left as it is.
+     */
+    private static byte[] optimizeText(byte[] bytes, Pattern sourceMapUrl,
+                                       UnaryOperator<String> minifier) {
+        String text;
+        try {
+            text = StandardCharsets.UTF_8.newDecoder().decode(ByteBuffer.wrap(bytes)).toString();
+        } catch (CharacterCodingException e) {
+            return bytes;
+        }
+
+        text = sourceMapUrl.matcher(text).replaceAll("");
+        if (minifier != null) {
+            text = minifier.apply(text);
+        }
+
+        byte[] optimized = text.getBytes(StandardCharsets.UTF_8);
+        return optimized.length < bytes.length ? optimized : bytes;
+    }
+
+    /**
+     * Deflate the image data of a PNG again at the maximum level, trying the default and filtered strategies, and
+     * write it as a single IDAT chunk. Every other chunk is kept as it is.
+     *
+     * @return the smaller PNG, or {@code png} if it could not be made smaller or is not a well formed PNG.
+     */
+    static byte[] recompressPng(byte[] png) {
+        if (png.length < PNG_SIGNATURE.length || !Arrays.equals(png, 0, PNG_SIGNATURE.length,
+            PNG_SIGNATURE, 0, PNG_SIGNATURE.length)) {
+            return png;
+        }
+
+        ByteBuffer in = ByteBuffer.wrap(png);
+        in.position(PNG_SIGNATURE.length);
+
+        ByteArrayOutputStream head = new ByteArrayOutputStream();
+        ByteArrayOutputStream tail = new ByteArrayOutputStream();
+        ByteArrayOutputStream imageData = new ByteArrayOutputStream();
+        boolean seenImageData = false;
+
+        while (in.remaining() >= 12) {
+            int start = in.position();
+            int length = in.getInt();
+            if (length < 0 || length > in.remaining() - 8) {
+                return png;
+            }
+
+            String type = new String(png, start + 4, 4, StandardCharsets.US_ASCII);
+            int end = start + 12 + length;
+
+            if (type.equals("IDAT")) {
+                imageData.write(png, start + 8, length);
+                seenImageData = true;
+            } else {
+                (seenImageData ? tail : head).write(png, start, end - start);
+            }
+
+            in.position(end);
+        }
+
+        if (!seenImageData || in.hasRemaining()) {
+            return png;
+        }
+
+        byte[] raw;
+        try (InputStream inflater = new InflaterInputStream(new ByteArrayInputStream(imageData.toByteArray()))) {
+            raw = inflater.readAllBytes();
+        } catch (IOException e) {
+            return png;
+        }
+
+        byte[] best = null;
+        for (int strategy : new int[] {Deflater.DEFAULT_STRATEGY, Deflater.FILTERED}) {
+            byte[] deflated = deflate(raw, strategy);
+            if (best == null || deflated.length < best.length) {
+                best = deflated;
+            }
+        }
+
+        if (best.length >= imageData.size()) {
+            return png;
+        }
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream(png.length);
+        out.writeBytes(PNG_SIGNATURE);
+        out.writeBytes(head.toByteArray());
+
+        byte[] type = "IDAT".getBytes(StandardCharsets.US_ASCII);
+        CRC32 crc = new CRC32();
+        crc.update(type);
+        crc.update(best);
+
+        out.writeBytes(ByteBuffer.allocate(4).putInt(best.length).array());
+        out.writeBytes(type);
+        out.writeBytes(best);
+        out.writeBytes(ByteBuffer.allocate(4).putInt((int) crc.getValue()).array());
+        out.writeBytes(tail.toByteArray());
+
+        return out.toByteArray();
+    }
+
+    private static byte[] deflate(byte[] raw, int strategy) {
+        Deflater deflater = new Deflater(Deflater.BEST_COMPRESSION);
+        deflater.setStrategy(strategy);
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream(raw.length / 2);
+        try (DeflaterOutputStream deflated = new DeflaterOutputStream(out, deflater, 64 * 1024)) {
+            deflated.write(raw);
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        } finally {
+            deflater.end();
+        }
+
+        return out.toByteArray();
+    }
+
+    private static byte[] gzip(byte[] bytes) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(bytes.length / 2);
+        try (GZIPOutputStream gzip = new GZIPOutputStream(out) {
+            {
+                def.setLevel(Deflater.BEST_COMPRESSION);
+            }
+        }) {
+            gzip.write(bytes);
+        }
+        return out.toByteArray();
+    }
+
+    private boolean isWebAsset(String name) {
+        String lower = name.toLowerCase();
+        return lower.endsWith(".js") || lower.endsWith(".mjs") || lower.endsWith(".css") || lower.endsWith(".map") ||
+            lower.endsWith(".png") || (precompress && PRECOMPRESSED_TYPES.contains(extension(lower)));
+    }
+
+    private static String extension(String name) {
+        int dot = name.lastIndexOf('.');
+        return dot < 0 ? "" : name.substring(dot);
+    }
+
+    private static class Resource {
+
+        private final String name;
+        private final byte[] bytes;
+
+        Resource(String name, byte[] bytes) {
+            this.name = name;
+            this.bytes = bytes;
+        }
+
+    }
+
+    /**
+     * The bytes saved in one jar. Savings are counted on the uncompressed resources; {@link #getBefore()} and
+     * {@link #getAfter()} are the sizes of the jar files.
+     */
+    static class Report {
+
+        private long before;
+        private long after;
+
+        private int sourceMaps;
+        private long sourceMapBytes;
+        private int minified;
+        private long minifiedBytes;
+        private int images;
+        private long imageBytes;
+        private int gzipped;
+        private long gzippedBytes;
+
+        private synchronized void removedSourceMap(long bytes) {
+            sourceMaps++;
+            sourceMapBytes += bytes;
+        }
+
+        private synchronized void minified(long saved) {
+            if (saved > 0) {
+                minified++;
+                minifiedBytes += saved;
+            }
+        }
+
+        private synchronized void recompressedImage(long saved) {
+            if (saved > 0) {
+                images++;
+                imageBytes += saved;
+            }
+        }
+
+        private synchronized void precompressed(long bytes) {
+            gzipped++;
+            gzippedBytes += bytes;
+        }
+
+        long getBefore() {
+            return before;
+        }
+
+        long getAfter() {
+            return after;
+        }
+
+        @Override
+        public synchronized String toString() {
+            return String.format("removed %d source maps (%d bytes), minified %d files (-%d bytes), " +
+                    "recompressed %d images (-%d bytes), added %d gzipped copies (+%d bytes)",
+                sourceMaps, sourceMapBytes, minified, minifiedBytes, images, imageBytes, gzipped, gzippedBytes);
+        }
+
+        /**
+         * @return the tab separated report columns after the jar name: jar bytes before and after, and the bytes
+         * removed as source maps, saved by minifying, saved by recompressing images, and added as gzipped copies.
+         */
+        synchronized String toColumns() {
+            return String.join("\t", String.valueOf(before), String.valueOf(after),
+                String.valueOf(sourceMapBytes), String.valueOf(minifiedBytes), String.valueOf(imageBytes),
+                String.valueOf(gzippedBytes));
+        }
+
+    }
+
+}
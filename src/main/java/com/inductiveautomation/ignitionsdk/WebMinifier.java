@@ -0,0 +1,313 @@
+package com.inductiveautomation.ignitionsdk;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * A conservative JavaScript and CSS minifier that removes comments and whitespace but never renames or rewrites
+ * code.
+ * <p/>
+ * Strings, template literals, regular expression literals and {@code url(...)} values are copied as they are, and
+ * comments starting with {@code /*!} are kept because they usually carry a license. In JavaScript a line break is
+ * only removed where it can not end a statement, so automatic semicolon insertion still sees the same breaks. Where
+ * a {@code /} could start either a regular expression or a division, it is taken to start a regular expression and
+ * copied as it is, which at worst leaves some whitespace in.
+ */
+class WebMinifier {
+
+    private static final Set<String> REGEX_KEYWORDS = new HashSet<>(Arrays.asList(
+        "return", "typeof", "case", "do", "else", "in", "instanceof", "new", "delete", "void", "throw", "yield",
+        "await", "of"));
+
+    private WebMinifier() {}
+
+    static String minifyJs(String js) {
+        return new JsMinifier(js).minify();
+    }
+
+    static String minifyCss(String css) {
+        StringBuilder out = new StringBuilder(css.length());
+        int i = 0;
+        boolean space = false;
+
+        while (i < css.length()) {
+            char c = css.charAt(i);
+
+            if (c == '/' && i + 1 < css.length() && css.charAt(i + 1) == '*') {
+                int end = css.indexOf("*/", i + 2);
+                end = end < 0 ? css.length() : end + 2;
+                if (i + 2 < css.length() && css.charAt(i + 2) == '!') {
+                    out.append(css, i, end);
+                } else {
+                    space = true;
+                }
+                i = end;
+            } else if (Character.isWhitespace(c)) {
+                space = true;
+                i++;
+            } else {
+                // a space after a colon is never needed, but one before it starts a pseudo-class selector
+                if (space && out.length() > 0 && "{};,>".indexOf(c) < 0 &&
+                    "{};,>:".indexOf(out.charAt(out.length() - 1)) < 0) {
+                    out.append(' ');
+                }
+                space = false;
+
+                if (c == '"' || c == '\'') {
+                    i = copyQuoted(css, i, out);
+                } else if (css.startsWith("url(", i)) {
+                    int end = css.indexOf(')', i);
+                    end = end < 0 ? css.length() : end + 1;
+                    out.append(css, i, end);
+                    i = end;
+                } else if (c == '}' && out.length() > 0 && out.charAt(out.length() - 1) == ';') {
+                    out.setCharAt(out.length() - 1, '}');
+                    i++;
+                } else {
+                    out.append(c);
+                    i++;
+                }
+            }
+        }
+
+        return out.toString();
+    }
+
+    /**
+     * Copy the string starting with the quote at {@code start}, up to and including the closing quote or the end of
+     * the line.
+     *
+     * @return the index after the copied string.
+     */
+    private static int copyQuoted(String s, int start, StringBuilder out) {
+        char quote = s.charAt(start);
+        int i = start + 1;
+
+        while (i < s.length()) {
+            char c = s.charAt(i);
+            if (c == '\\') {
+                i += 2;
+            } else if (c == quote || c == '\n') {
+                i++;
+                break;
+            } else {
+                i++;
+            }
+        }
+
+        i = Math.min(i, s.length());
+        out.append(s, start, i);
+        return i;
+    }
+
+    private static boolean isIdentifierChar(char c) {
+        return Character.isLetterOrDigit(c) || c == '_' || c == '$' || c == '\\' || c > 126;
+    }
+
+    private static class JsMinifier {
+
+        private final String js;
+        private final StringBuilder out;
+
+        /**
+         * The brace depth of each {@code ${...}} expression of the template literals being copied, innermost last.
+         */
+        private final Deque<int[]> templates = new ArrayDeque<>();
+
+        private int i = 0;
+        private boolean pendingSpace = false;
+        private boolean pendingNewline = false;
+
+        JsMinifier(String js) {
+            this.js = js;
+            this.out = new StringBuilder(js.length());
+        }
+
+        String minify() {
+            while (i < js.length()) {
+                char c = js.charAt(i);
+                char next = i + 1 < js.length() ? js.charAt(i + 1) : 0;
+
+                if (c == '\n' || c == '\r' || c == '\u2028' || c == '\u2029') {
+                    pendingNewline = true;
+                    i++;
+                } else if (Character.isWhitespace(c) || c == '\uFEFF') {
+                    pendingSpace = true;
+                    i++;
+                } else if (c == '/' && next == '/') {
+                    while (i < js.length() && js.charAt(i) != '\n' && js.charAt(i) != '\r') {
+                        i++;
+                    }
+                } else if (c == '/' && next == '*') {
+                    blockComment();
+                } else {
+                    separate(c);
+
+                    if (c == '"' || c == '\'') {
+                        i = copyQuoted(js, i, out);
+                    } else if (c == '`') {
+                        i++;
+                        out.append('`');
+                        template();
+                    } else if (c == '/' && regexAllowed()) {
+                        regex();
+                    } else if (c == '{' && !templates.isEmpty()) {
+                        templates.peekLast()[0]++;
+                        out.append(c);
+                        i++;
+                    } else if (c == '}' && !templates.isEmpty() && templates.peekLast()[0] == 0) {
+                        templates.removeLast();
+                        out.append(c);
+                        i++;
+                        template();
+                    } else {
+                        if (c == '}' && !templates.isEmpty()) {
+                            templates.peekLast()[0]--;
+                        }
+                        out.append(c);
+                        i++;
+                    }
+                }
+            }
+
+            return out.toString();
+        }
+
+        private void blockComment() {
+            int end = js.indexOf("*/", i + 2);
+            end = end < 0 ? js.length() : end + 2;
+
+            if (i + 2 < js.length() && js.charAt(i + 2) == '!') {
+                separate('/');
+                out.append(js, i, end);
+                pendingNewline = true;
+            } else if (js.substring(i, end).indexOf('\n') >= 0) {
+                pendingNewline = true;
+            } else {
+                pendingSpace = true;
+            }
+
+            i = end;
+        }
+
+        /**
+         * Emit the whitespace seen before {@code c}: a line break where one could end a statement, a space where the
+         * tokens would otherwise merge, and nothing otherwise.
+         */
+        private void separate(char c) {
+            if (out.length() > 0) {
+                char last = out.charAt(out.length() - 1);
+
+                if (pendingNewline) {
+                    if (";{,([".indexOf(last) < 0 && "}),;]".indexOf(c) < 0 && last != '\n') {
+                        out.append('\n');
+                    } else if (needsSpace(last, c)) {
+                        out.append(' ');
+                    }
+                } else if (pendingSpace && needsSpace(last, c)) {
+                    out.append(' ');
+                }
+            }
+
+            pendingSpace = false;
+            pendingNewline = false;
+        }
+
+        private boolean needsSpace(char last, char c) {
+            return (isIdentifierChar(last) && (isIdentifierChar(c) || c == '.')) ||
+                ((last == '+' || last == '-') && last == c) ||
+                (last == '/' && (c == '/' || c == '*'));
+        }
+
+        private boolean regexAllowed() {
+            int end = out.length() - 1;
+            while (end >= 0 && (out.charAt(end) == ' ' || out.charAt(end) == '\n')) {
+                end--;
+            }
+            if (end < 0) {
+                return true;
+            }
+
+            char last = out.charAt(end);
+            if (last == ')' || last == ']') {
+                return false;
+            }
+            // a postfix increment or decrement ends an expression, so a division follows
+            if ((last == '+' || last == '-') && end > 0 && out.charAt(end - 1) == last) {
+                return false;
+            }
+            if (!isIdentifierChar(last)) {
+                return true;
+            }
+
+            int start = end;
+            while (start > 0 && isIdentifierChar(out.charAt(start - 1))) {
+                start--;
+            }
+            return REGEX_KEYWORDS.contains(out.substring(start, end + 1));
+        }
+
+        /**
+         * Copy a regular expression literal, up to the closing slash outside a character class. If the line ends
+         * first, the {@code /} was a division and the copied text is plain code, which is left as it is.
+         */
+        private void regex() {
+            int start = i;
+            boolean inClass = false;
+            i++;
+
+            while (i < js.length()) {
+                char c = js.charAt(i);
+                if (c == '\\') {
+                    i += 2;
+                    continue;
+                }
+                if (c == '\n' || c == '\r') {
+                    break;
+                }
+                i++;
+                if (c == '[') {
+                    inClass = true;
+                } else if (c == ']') {
+                    inClass = false;
+                } else if (c == '/' && !inClass) {
+                    break;
+                }
+            }
+
+            i = Math.min(i, js.length());
+            out.append(js, start, i);
+        }
+
+        /**
+         * Copy a template literal from after its opening backtick, or from after the closing brace of a
+         * {@code ${...}} expression, up to its closing backtick or the start of the next expression.
+         */
+        private void template() {
+            while (i < js.length()) {
+                char c = js.charAt(i);
+                if (c == '\\') {
+                    out.append(js, i, Math.min(i + 2, js.length()));
+                    i += 2;
+                } else if (c == '`') {
+                    out.append(c);
+                    i++;
+                    return;
+                } else if (c == '$' && i + 1 < js.length() && js.charAt(i + 1) == '{') {
+                    out.append("${");
+                    i += 2;
+                    templates.addLast(new int[] {0});
+                    return;
+                } else {
+                    out.append(c);
+                    i++;
+                }
+            }
+        }
+
+    }
+
+}
@@ -0,0 +1,410 @@
+package com.inductiveautomation.ignitionsdk;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+import java.util.zip.ZipException;
+
+/**
+ * A read-only view of a zip archive held in a {@link ByteBuffer}, or in a memory-mapped module file.
+ * <p/>
+ * The central directory is parsed once up front; entry data is read straight from the buffers, so entries can be read
+ * concurrently from several threads without any file handles or seeking. A file is mapped in windows of 1 GiB, since
+ * one buffer cannot hold more than 2 GiB, and ZIP64 archives, as {@link ParallelZipWriter} writes for modules of
+ * 65535 entries or 4 GiB and more, are read from their ZIP64 end of central directory record and extra fields.
+ */
+class ZipIndex {
+
+    private static final int LOCAL_HEADER = 0x04034b50;
+    private static final int CENTRAL_HEADER = 0x02014b50;
+    private static final int END_OF_CENTRAL_DIRECTORY = 0x06054b50;
+    private static final int ZIP64_END_OF_CENTRAL_DIRECTORY = 0x06064b50;
+    private static final int ZIP64_END_LOCATOR = 0x07064b50;
+    private static final int ZIP64_EXTRA = 0x0001;
+    private static final long ZIP64_MAGIC = 0xFFFFFFFFL;
+    private static final int STORED = 0;
+    private static final int DEFLATED = 8;
+
+    private static final long WINDOW_SIZE = 1L << 30;
+
+    /**
+     * The archive; window {@code i} starts at byte {@code i * windowSize}.
+     */
+    private final ByteBuffer[] windows;
+    private final long windowSize;
+    private final long length;
+    private final Map<String, Entry> entries = new LinkedHashMap<>();
+
+    /**
+     * @param buffer the whole archive.
+     * @throws ZipException if the buffer does not hold a readable zip archive.
+     */
+    ZipIndex(ByteBuffer buffer) throws ZipException {
+        this(new ByteBuffer[] {buffer.slice()}, Integer.MAX_VALUE, buffer.remaining());
+    }
+
+    private ZipIndex(ByteBuffer[] windows, long windowSize, long length) throws ZipException {
+        this.windows = windows;
+        this.windowSize = windowSize;
+        this.length = length;
+        readCentralDirectory();
+    }
+
+    /**
+     * Memory-map {@code file} and index it.
+     *
+     * @throws IOException if the file could not be mapped or is not a readable zip archive.
+     */
+    static ZipIndex open(Path file) throws IOException {
+        return open(file, WINDOW_SIZE);
+    }
+
+    /**
+     * Memory-map {@code file} in windows of {@code windowSize} bytes and index it.
+     *
+     * @throws IOException if the file could not be mapped or is not a readable zip archive.
+     */
+    static ZipIndex open(Path file, long windowSize) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            ByteBuffer[] windows = new ByteBuffer[(int) Math.max(1, (size + windowSize - 1) / windowSize)];
+            for (int i = 0; i < windows.length; i++) {
+                long start = i * windowSize;
+                windows[i] = channel.map(FileChannel.MapMode.READ_ONLY, start, Math.min(windowSize, size - start));
+            }
+            return new ZipIndex(windows, windowSize, size);
+        }
+    }
+
+    /**
+     * @return the entries in central directory order.
+     */
+    List<Entry> entries() {
+        return Collections.unmodifiableList(new ArrayList<>(entries.values()));
+    }
+
+    /**
+     * @return the entry named {@code name}, or {@code null}.
+     */
+    Entry entry(String name) {
+        return entries.get(name);
+    }
+
+    /**
+     * Read and decompress an entry, passing its data to {@code consumer} in chunks.
+     *
+     * @return the CRC-32 of the decompressed data.
+     * @throws IOException if the entry is corrupt or {@code consumer} failed.
+     */
+    long read(Entry entry, ChunkConsumer consumer) throws IOException {
+        List<ByteBuffer> data = data(entry);
+        CRC32 crc = new CRC32();
+        byte[] chunk = new byte[64 * 1024];
+        long size = 0;
+
+        if (entry.method == STORED) {
+            for (ByteBuffer slice : data) {
+                while (slice.hasRemaining()) {
+                    int n = Math.min(chunk.length, slice.remaining());
+                    slice.get(chunk, 0, n);
+                    crc.update(chunk, 0, n);
+                    consumer.accept(chunk, n);
+                    size += n;
+                }
+            }
+        } else if (entry.method == DEFLATED) {
+            Inflater inflater = new Inflater(true);
+            Iterator<ByteBuffer> input = data.iterator();
+            try {
+                while (!inflater.finished()) {
+                    if (inflater.needsInput()) {
+                        if (!input.hasNext()) {
+                            throw new ZipException("truncated entry: " + entry.name);
+                        }
+                        inflater.setInput(input.next());
+                    }
+                    int n = inflater.inflate(chunk);
+                    if (n == 0 && inflater.needsDictionary()) {
+                        throw new ZipException("truncated entry: " + entry.name);
+                    }
+                    crc.update(chunk, 0, n);
+                    consumer.accept(chunk, n);
+                    size += n;
+                }
+            } catch (DataFormatException e) {
+                throw new ZipException("corrupt entry " + entry.name + ": " + e.getMessage());
+            } finally {
+                inflater.end();
+            }
+        } else {
+            throw new ZipException("unsupported compression method " + entry.method + ": " + entry.name);
+        }
+
+        if (size != entry.size) {
+            throw new ZipException(String.format("size mismatch in %s: expected %d, was %d",
+                entry.name, entry.size, size));
+        }
+
+        return crc.getValue();
+    }
+
+    /**
+     * @return the decompressed contents of {@code entry}.
+     * @throws IOException if the entry is corrupt or its CRC does not match.
+     */
+    byte[] readAllBytes(Entry entry) throws IOException {
+        if (entry.size > Integer.MAX_VALUE - 8) {
+            throw new ZipException("entry too large to read into memory: " + entry.name);
+        }
+
+        byte[] bytes = new byte[(int) entry.size];
+        int[] position = {0};
+        long crc = read(entry, (chunk, length) -> {
+            System.arraycopy(chunk, 0, bytes, position[0], length);
+            position[0] += length;
+        });
+        checkCrc(entry, crc);
+        return bytes;
+    }
+
+    /**
+     * Decompress {@code entry} and compare its CRC-32 to the one recorded in the central directory.
+     *
+     * @throws IOException if the entry is corrupt or its CRC does not match.
+     */
+    void verify(Entry entry) throws IOException {
+        verify(entry, (chunk, length) -> {});
+    }
+
+    /**
+     * Decompress {@code entry}, passing its data to {@code consumer} in chunks, and compare its CRC-32 to the one
+     * recorded in the central directory.
+     *
+     * @throws IOException if the entry is corrupt, its CRC does not match, or {@code consumer} failed.
+     */
+    void verify(Entry entry, ChunkConsumer consumer) throws IOException {
+        checkCrc(entry, read(entry, consumer));
+    }
+
+    private static void checkCrc(Entry entry, long crc) throws ZipException {
+        if (crc != entry.crc) {
+            throw new ZipException(String.format("CRC mismatch in %s: expected %08x, was %08x",
+                entry.name, entry.crc, crc));
+        }
+    }
+
+    /**
+     * @return the compressed data of {@code entry}, one slice per window it lies in.
+     */
+    private List<ByteBuffer> data(Entry entry) throws ZipException {
+        long offset = entry.localHeaderOffset;
+        if (offset < 0 || offset + 30 > length || u32(offset) != LOCAL_HEADER) {
+            throw new ZipException("bad local header for " + entry.name);
+        }
+
+        int nameLength = u16(offset + 26);
+        int extraLength = u16(offset + 28);
+        long start = offset + 30 + nameLength + extraLength;
+
+        if (start + entry.compressedSize > length) {
+            throw new ZipException("entry data runs past the end of the archive: " + entry.name);
+        }
+
+        List<ByteBuffer> slices = new ArrayList<>();
+        long position = start;
+        long end = start + entry.compressedSize;
+        while (position < end) {
+            ByteBuffer window = windows[(int) (position / windowSize)].duplicate();
+            int from = (int) (position % windowSize);
+            int n = (int) Math.min(end - position, window.limit() - from);
+            window.position(from);
+            window.limit(from + n);
+            slices.add(window.slice());
+            position += n;
+        }
+        return slices;
+    }
+
+    private void readCentralDirectory() throws ZipException {
+        long eocd = -1;
+        long minimum = Math.max(0, length - 22 - 0xFFFF);
+        for (long i = length - 22; i >= minimum; i--) {
+            if (u32(i) == END_OF_CENTRAL_DIRECTORY) {
+                eocd = i;
+                break;
+            }
+        }
+
+        if (eocd < 0) {
+            throw new ZipException("no end of central directory record");
+        }
+
+        long count = u16(eocd + 10);
+        long directoryOffset = u32(eocd + 16);
+
+        // when there is a ZIP64 record, it has the full count and offset, and the end record's may be saturated
+        long locator = eocd - 20;
+        if (locator >= 0 && u32(locator) == ZIP64_END_LOCATOR) {
+            long record = u64(locator + 8);
+            if (record < 0 || record + 56 > length || u32(record) != ZIP64_END_OF_CENTRAL_DIRECTORY) {
+                throw new ZipException("bad ZIP64 end of central directory record at " + record);
+            }
+            count = u64(record + 32);
+            directoryOffset = u64(record + 48);
+        } else if (directoryOffset == ZIP64_MAGIC) {
+            throw new ZipException("no ZIP64 end of central directory locator");
+        }
+
+        long position = directoryOffset;
+        for (long i = 0; i < count; i++) {
+            if (position < 0 || position + 46 > length || u32(position) != CENTRAL_HEADER) {
+                throw new ZipException("bad central directory header at " + position);
+            }
+
+            int nameLength = u16(position + 28);
+            int extraLength = u16(position + 30);
+            int commentLength = u16(position + 32);
+            if (position + 46 + nameLength + extraLength > length) {
+                throw new ZipException("bad central directory header at " + position);
+            }
+
+            byte[] nameBytes = new byte[nameLength];
+            for (int b = 0; b < nameLength; b++) {
+                nameBytes[b] = (byte) u8(position + 46 + b);
+            }
+            String name = new String(nameBytes, StandardCharsets.UTF_8);
+
+            long compressedSize = u32(position + 20);
+            long size = u32(position + 24);
+            long localHeaderOffset = u32(position + 42);
+
+            // a saturated field is in the ZIP64 extra field instead, which has only those, in this order
+            if (size == ZIP64_MAGIC || compressedSize == ZIP64_MAGIC || localHeaderOffset == ZIP64_MAGIC) {
+                long extraStart = position + 46 + nameLength;
+                long field = zip64Extra(extraStart, extraLength);
+                if (field < 0) {
+                    throw new ZipException("missing ZIP64 extra field: " + name);
+                }
+                long fieldEnd = field + 4 + u16(field + 2);
+                field += 4;
+
+                if (size == ZIP64_MAGIC) {
+                    size = zip64Field(field, fieldEnd, name);
+                    field += 8;
+                }
+                if (compressedSize == ZIP64_MAGIC) {
+                    compressedSize = zip64Field(field, fieldEnd, name);
+                    field += 8;
+                }
+                if (localHeaderOffset == ZIP64_MAGIC) {
+                    localHeaderOffset = zip64Field(field, fieldEnd, name);
+                }
+            }
+
+            Entry entry = new Entry(name, u16(position + 10), u32(position + 16), compressedSize, size,
+                localHeaderOffset);
+
+            entries.put(entry.name, entry);
+            position += 46 + nameLength + extraLength + commentLength;
+        }
+    }
+
+    /**
+     * @return the position of the ZIP64 extra field among the extra fields at {@code start}, or -1.
+     */
+    private long zip64Extra(long start, int extraLength) {
+        long position = start;
+        long end = Math.min(start + extraLength, length);
+        while (position + 4 <= end) {
+            if (u16(position) == ZIP64_EXTRA) {
+                return position;
+            }
+            position += 4 + u16(position + 2);
+        }
+        return -1;
+    }
+
+    private long zip64Field(long position, long fieldEnd, String name) throws ZipException {
+        if (position + 8 > fieldEnd || fieldEnd > length) {
+            throw new ZipException("truncated ZIP64 extra field: " + name);
+        }
+        return u64(position);
+    }
+
+    private int u8(long position) {
+        return windows[(int) (position / windowSize)].get((int) (position % windowSize)) & 0xFF;
+    }
+
+    private int u16(long position) {
+        return u8(position) | u8(position + 1) << 8;
+    }
+
+    private long u32(long position) {
+        return u16(position) | (long) u16(position + 2) << 16;
+    }
+
+    private long u64(long position) {
+        return u32(position) | u32(position + 4) << 32;
+    }
+
+    @FunctionalInterface
+    interface ChunkConsumer {
+        void accept(byte[] chunk, int length) throws IOException;
+    }
+
+    /**
+     * A central directory entry.
+     */
+    static class Entry {
+
+        private final String name;
+        private final int method;
+        private final long crc;
+        private final long compressedSize;
+        private final long size;
+        private final long localHeaderOffset;
+
+        Entry(String name, int method, long crc, long compressedSize, long size, long localHeaderOffset) {
+            this.name = name;
+            this.method = method;
+            this.crc = crc;
+            this.compressedSize = compressedSize;
+            this.size = size;
+            this.localHeaderOffset = localHeaderOffset;
+        }
+
+        String getName() {
+            return name;
+        }
+
+        long getCrc() {
+            return crc;
+        }
+
+        long getCompressedSize() {
+            return compressedSize;
+        }
+
+        long getSize() {
+            return size;
+        }
+
+        boolean isDirectory() {
+            return name.endsWith("/");
+        }
+
+    }
+
+}
@@ -0,0 +1,237 @@
+package com.inductiveautomation.ignitionsdk;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.sun.net.httpserver.Filter;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.apache.maven.plugin.logging.SystemStreamLog;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Runs {@link ChunkedUploadClient} against {@link ChunkedUploadHandler} on a local server, with a filter that can
+ * fail chunk uploads.
+ */
+class ChunkedUploadTest {
+
+    private static final int CHUNK_SIZE = 64 * 1024;
+    private static final int CHUNKS = 10;
+
+    @TempDir
+    Path tmp;
+
+    private HttpServer server;
+    private HttpClient client;
+    private URI uploadUri;
+    private Path module;
+    private byte[] content;
+    private String sha256;
+    private final List<Path> installed = Collections.synchronizedList(new ArrayList<>());
+
+    /**
+     * The number of chunk PUTs still to answer with 503 instead of handling them.
+     */
+    private final AtomicInteger failPuts = new AtomicInteger();
+    private final AtomicInteger puts = new AtomicInteger();
+
+    @BeforeEach
+    void start() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/upload", new ChunkedUploadHandler(tmp.resolve("storage"), installed::add))
+            .getFilters().add(new FailingPuts());
+        server.start();
+
+        client = HttpClient.newHttpClient();
+        uploadUri = URI.create("http://127.0.0.1:" + server.getAddress().getPort() + "/upload/");
+
+        // the last chunk is shorter than the others
+        content = new byte[CHUNK_SIZE * (CHUNKS - 1) + 1000];
+        new Random(7).nextBytes(content);
+        module = tmp.resolve("Test-Module.modl");
+        Files.write(module, content);
+        sha256 = hex(content);
+    }
+
+    @AfterEach
+    void stop() {
+        server.stop(0);
+    }
+
+    @Test
+    void uploadsAndInstalls() throws Exception {
+        newClient(0).upload(module);
+
+        assertEquals(1, installed.size());
+        assertEquals("Test-Module.modl", installed.get(0).getFileName().toString());
+        assertArrayEquals(content, Files.readAllBytes(installed.get(0)));
+        assertEquals(CHUNKS, puts.get());
+    }
+
+    @Test
+    void resumesPartialUpload() throws Exception {
+        for (int index : Arrays.asList(0, 3, 9)) {
+            assertEquals(204, putChunk(index, chunk(index), hex(chunk(index))).statusCode());
+        }
+
+        HttpResponse<String> state = send(request(uploadUri.resolve(sha256)).GET());
+        assertEquals(200, state.statusCode());
+        assertEquals(Arrays.asList(0, 3, 9), ChunkedUploadClient.parseIndexes(state.body()));
+
+        puts.set(0);
+        newClient(0).upload(module);
+
+        assertEquals(CHUNKS - 3, puts.get());
+        assertArrayEquals(content, Files.readAllBytes(installed.get(0)));
+    }
+
+    @Test
+    void resumesAfterFailedPost() throws Exception {
+        failPuts.set(4);
+        assertThrows(IOException.class, () -> newClient(0).upload(module));
+        assertTrue(installed.isEmpty());
+
+        puts.set(0);
+        newClient(0).upload(module);
+
+        assertEquals(4, puts.get());
+        assertArrayEquals(content, Files.readAllBytes(installed.get(0)));
+    }
+
+    @Test
+    void retriesFailedChunks() throws Exception {
+        failPuts.set(3);
+
+        newClient(2).upload(module);
+
+        assertEquals(CHUNKS + 3, puts.get());
+        assertArrayEquals(content, Files.readAllBytes(installed.get(0)));
+    }
+
+    @Test
+    void rejectsChunkWithWrongChecksum() throws Exception {
+        HttpResponse<String> response = putChunk(1, chunk(1), hex(chunk(2)));
+        assertEquals(400, response.statusCode());
+
+        byte[] truncated = Arrays.copyOf(chunk(1), CHUNK_SIZE - 1);
+        assertEquals(400, putChunk(1, truncated, hex(truncated)).statusCode());
+
+        assertEquals(404, send(request(uploadUri.resolve(sha256)).GET()).statusCode());
+    }
+
+    @Test
+    void completeWithMissingChunks() throws Exception {
+        for (int index = 0; index < CHUNKS; index++) {
+            if (index != 2 && index != 5) {
+                assertEquals(204, putChunk(index, chunk(index), hex(chunk(index))).statusCode());
+            }
+        }
+
+        HttpResponse<String> response = send(request(uploadUri.resolve(sha256))
+            .POST(HttpRequest.BodyPublishers.noBody()));
+
+        assertEquals(409, response.statusCode());
+        assertEquals(Arrays.asList(2, 5), ChunkedUploadClient.parseIndexes(response.body()));
+        assertTrue(installed.isEmpty());
+    }
+
+    @Test
+    void completeWithWrongModuleHash() throws Exception {
+        // every chunk matches its own checksum, but not the module hash the upload is named after
+        sha256 = hex(new byte[]{1, 2, 3});
+        for (int index = 0; index < CHUNKS; index++) {
+            assertEquals(204, putChunk(index, chunk(index), hex(chunk(index))).statusCode());
+        }
+
+        HttpResponse<String> response = send(request(uploadUri.resolve(sha256))
+            .POST(HttpRequest.BodyPublishers.noBody()));
+
+        assertEquals(422, response.statusCode());
+        assertTrue(installed.isEmpty());
+        assertEquals(404, send(request(uploadUri.resolve(sha256)).GET()).statusCode());
+        assertFalse(Files.exists(tmp.resolve("storage").resolve(module.getFileName())));
+    }
+
+    private ChunkedUploadClient newClient(int retries) {
+        return new ChunkedUploadClient(client, uploadUri, CHUNK_SIZE, 4, retries, null, new SystemStreamLog());
+    }
+
+    private byte[] chunk(int index) {
+        int from = index * CHUNK_SIZE;
+        return Arrays.copyOfRange(content, from, Math.min(content.length, from + CHUNK_SIZE));
+    }
+
+    private HttpResponse<String> putChunk(int index, byte[] chunk, String chunkSha256)
+        throws IOException, InterruptedException {
+
+        return send(request(uploadUri.resolve(sha256 + "/" + index))
+            .header(ChunkedUploadClient.CHUNK_SHA256_HEADER, chunkSha256)
+            .PUT(HttpRequest.BodyPublishers.ofByteArray(chunk)));
+    }
+
+    private HttpRequest.Builder request(URI uri) {
+        return HttpRequest.newBuilder(uri)
+            .header(ChunkedUploadClient.NAME_HEADER, module.getFileName().toString())
+            .header(ChunkedUploadClient.SIZE_HEADER, String.valueOf(content.length))
+            .header(ChunkedUploadClient.CHUNK_SIZE_HEADER, String.valueOf(CHUNK_SIZE));
+    }
+
+    private HttpResponse<String> send(HttpRequest.Builder request) throws IOException, InterruptedException {
+        return client.send(request.build(), HttpResponse.BodyHandlers.ofString());
+    }
+
+    private static String hex(byte[] bytes) {
+        MessageDigest digest = ContentManifest.newDigest();
+        return ContentManifest.hex(digest.digest(bytes));
+    }
+
+    /**
+     * Counts chunk PUTs and answers the first {@link #failPuts} of them with 503.
+     */
+    private class FailingPuts extends Filter {
+
+        @Override
+        public void doFilter(HttpExchange exchange, Chain chain) throws IOException {
+            if (exchange.getRequestMethod().equals("PUT")) {
+                puts.incrementAndGet();
+                if (failPuts.getAndUpdate(n -> Math.max(0, n - 1)) > 0) {
+                    try (exchange) {
+                        exchange.getRequestBody().readAllBytes();
+                        ChunkedUploadHandler.respond(exchange, 503, "injected failure");
+                    }
+                    return;
+                }
+            }
+            chain.doFilter(exchange);
+        }
+
+        @Override
+        public String description() {
+            return "fails chunk uploads";
+        }
+
+    }
+
+}
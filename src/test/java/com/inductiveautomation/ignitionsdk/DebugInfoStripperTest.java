@@ -0,0 +1,249 @@
+package com.inductiveautomation.ignitionsdk;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+import java.util.zip.ZipOutputStream;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.objectweb.asm.ClassReader;
+import org.objectweb.asm.ClassVisitor;
+import org.objectweb.asm.ClassWriter;
+import org.objectweb.asm.Label;
+import org.objectweb.asm.MethodVisitor;
+import org.objectweb.asm.Opcodes;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class DebugInfoStripperTest {
+
+    private static final String CLASS_NAME = "com/example/Calc";
+    private static final long TIME = 1_600_000_000_000L;
+
+    @TempDir
+    Path tmp;
+
+    @Test
+    void keepsLineNumbersByDefault() throws Exception {
+        Path stripped = tmp.resolve("stripped.jar");
+        List<String> mapping = new DebugInfoStripper(true).strip(source(), stripped);
+
+        assertTrue(mapping.isEmpty(), mapping.toString());
+
+        byte[] bytes = read(stripped, CLASS_NAME + ".class");
+        Attributes attributes = Attributes.of(bytes);
+        assertEquals("Calc.java", attributes.sourceFile);
+        assertNull(attributes.sourceDebug);
+        assertEquals(Arrays.asList(10, 11, 20, 21, 22, 30), attributes.lines);
+        assertEquals(Collections.emptyList(), attributes.locals);
+
+        Class<?> calc = load(bytes);
+        assertEquals(5, calc.getMethod("add", int.class, int.class).invoke(null, 2, 3));
+        assertEquals(14, calc.getMethod("twice", int.class).invoke(null, 7));
+
+        // a stack trace still shows file and line
+        Method fail = calc.getMethod("fail");
+        Throwable thrown = assertThrows(InvocationTargetException.class, () -> fail.invoke(null)).getCause();
+        StackTraceElement frame = thrown.getStackTrace()[0];
+        assertEquals("Calc.java", frame.getFileName());
+        assertEquals(30, frame.getLineNumber());
+    }
+
+    @Test
+    void mappingRecordsWhatWasRemoved() throws Exception {
+        Path source = source();
+        Attributes before = Attributes.of(read(source, CLASS_NAME + ".class"));
+        assertEquals("Calc.java", before.sourceFile);
+        assertEquals("SMAP\nCalc.kt\n", before.sourceDebug);
+        assertEquals(Arrays.asList("a I", "b I", "values Ljava/util/List<Ljava/lang/String;>;"), before.locals);
+
+        Path stripped = tmp.resolve("stripped.jar");
+        List<String> mapping = new DebugInfoStripper(false).strip(source, stripped);
+
+        assertEquals(Arrays.asList(
+            "com.example.Calc -> Calc.java:",
+            "    add(II)I 10-11",
+            "    twice(I)I 20-22",
+            "    fail()V 30-30"), mapping);
+
+        byte[] bytes = read(stripped, CLASS_NAME + ".class");
+        Attributes after = Attributes.of(bytes);
+        assertNull(after.sourceFile);
+        assertNull(after.sourceDebug);
+        assertEquals(Collections.emptyList(), after.lines);
+        assertEquals(Collections.emptyList(), after.locals);
+
+        Class<?> calc = load(bytes);
+        assertEquals(5, calc.getMethod("add", int.class, int.class).invoke(null, 2, 3));
+
+        // other entries are copied as they were
+        assertArrayEquals("greeting=hi".getBytes(StandardCharsets.UTF_8), read(stripped, "messages.properties"));
+        try (ZipFile zip = new ZipFile(stripped.toFile())) {
+            assertEquals(TIME, zip.getEntry(CLASS_NAME + ".class").getTime());
+        }
+    }
+
+    /**
+     * Write a jar with one class compiled with full debug information, and a resource.
+     */
+    private Path source() throws IOException {
+        Path jar = tmp.resolve("source.jar");
+        try (ZipOutputStream out = new ZipOutputStream(Files.newOutputStream(jar))) {
+            ZipEntry entry = new ZipEntry(CLASS_NAME + ".class");
+            entry.setTime(TIME);
+            out.putNextEntry(entry);
+            out.write(calc());
+            out.closeEntry();
+
+            entry = new ZipEntry("messages.properties");
+            entry.setTime(TIME);
+            out.putNextEntry(entry);
+            out.write("greeting=hi".getBytes(StandardCharsets.UTF_8));
+            out.closeEntry();
+        }
+        return jar;
+    }
+
+    /**
+     * A class from Calc.java with a SourceDebugExtension and three static methods: {@code add(int, int)} on lines
+     * 10-11, {@code twice(int)} on lines 20-22 with a generic local variable, and {@code fail()} on line 30, which
+     * throws an IllegalStateException.
+     */
+    private static byte[] calc() {
+        ClassWriter writer = new ClassWriter(ClassWriter.COMPUTE_MAXS);
+        writer.visit(Opcodes.V11, Opcodes.ACC_PUBLIC, CLASS_NAME, null, "java/lang/Object", null);
+        writer.visitSource("Calc.java", "SMAP\nCalc.kt\n");
+
+        MethodVisitor add = writer.visitMethod(Opcodes.ACC_PUBLIC | Opcodes.ACC_STATIC, "add", "(II)I", null, null);
+        add.visitCode();
+        Label start = line(add, 10);
+        add.visitVarInsn(Opcodes.ILOAD, 0);
+        add.visitVarInsn(Opcodes.ILOAD, 1);
+        add.visitInsn(Opcodes.IADD);
+        line(add, 11);
+        add.visitInsn(Opcodes.IRETURN);
+        Label end = new Label();
+        add.visitLabel(end);
+        add.visitLocalVariable("a", "I", null, start, end, 0);
+        add.visitLocalVariable("b", "I", null, start, end, 1);
+        add.visitMaxs(0, 0);
+        add.visitEnd();
+
+        MethodVisitor twice = writer.visitMethod(Opcodes.ACC_PUBLIC | Opcodes.ACC_STATIC, "twice", "(I)I", null, null);
+        twice.visitCode();
+        start = line(twice, 20);
+        twice.visitInsn(Opcodes.ACONST_NULL);
+        twice.visitVarInsn(Opcodes.ASTORE, 1);
+        Label scope = line(twice, 21);
+        twice.visitVarInsn(Opcodes.ILOAD, 0);
+        twice.visitInsn(Opcodes.ICONST_2);
+        twice.visitInsn(Opcodes.IMUL);
+        line(twice, 22);
+        twice.visitInsn(Opcodes.IRETURN);
+        end = new Label();
+        twice.visitLabel(end);
+        twice.visitLocalVariable("values", "Ljava/util/List;", "Ljava/util/List<Ljava/lang/String;>;",
+            scope, end, 1);
+        twice.visitMaxs(0, 0);
+        twice.visitEnd();
+
+        MethodVisitor fail = writer.visitMethod(Opcodes.ACC_PUBLIC | Opcodes.ACC_STATIC, "fail", "()V", null, null);
+        fail.visitCode();
+        line(fail, 30);
+        fail.visitTypeInsn(Opcodes.NEW, "java/lang/IllegalStateException");
+        fail.visitInsn(Opcodes.DUP);
+        fail.visitMethodInsn(Opcodes.INVOKESPECIAL, "java/lang/IllegalStateException", "<init>", "()V", false);
+        fail.visitInsn(Opcodes.ATHROW);
+        fail.visitMaxs(0, 0);
+        fail.visitEnd();
+
+        writer.visitEnd();
+        return writer.toByteArray();
+    }
+
+    private static Label line(MethodVisitor method, int line) {
+        Label label = new Label();
+        method.visitLabel(label);
+        method.visitLineNumber(line, label);
+        return label;
+    }
+
+    private static Class<?> load(byte[] bytes) {
+        return new ClassLoader(DebugInfoStripperTest.class.getClassLoader()) {
+            Class<?> define() {
+                return defineClass(null, bytes, 0, bytes.length);
+            }
+        }.define();
+    }
+
+    private static byte[] read(Path jar, String name) throws IOException {
+        try (ZipFile zip = new ZipFile(jar.toFile());
+             InputStream in = zip.getInputStream(zip.getEntry(name))) {
+            return in.readAllBytes();
+        }
+    }
+
+    /**
+     * The debug attributes of a class: its SourceFile and SourceDebugExtension, the lines of every LineNumberTable,
+     * and every LocalVariableTable entry as "name descriptor", with the LocalVariableTypeTable signature instead of
+     * the descriptor where there is one.
+     */
+    private static class Attributes extends ClassVisitor {
+
+        private String sourceFile;
+        private String sourceDebug;
+        private final List<Integer> lines = new ArrayList<>();
+        private final List<String> locals = new ArrayList<>();
+
+        private Attributes() {
+            super(Opcodes.ASM9);
+        }
+
+        static Attributes of(byte[] bytes) {
+            Attributes attributes = new Attributes();
+            new ClassReader(bytes).accept(attributes, 0);
+            return attributes;
+        }
+
+        @Override
+        public void visitSource(String source, String debug) {
+            sourceFile = source;
+            sourceDebug = debug;
+        }
+
+        @Override
+        public MethodVisitor visitMethod(int access, String name, String descriptor, String signature,
+                                         String[] exceptions) {
+
+            return new MethodVisitor(Opcodes.ASM9) {
+                @Override
+                public void visitLineNumber(int line, Label start) {
+                    lines.add(line);
+                }
+
+                @Override
+                public void visitLocalVariable(String name, String descriptor, String signature, Label start,
+                                               Label end, int index) {
+                    locals.add(name + " " + (signature != null ? signature : descriptor));
+                }
+            };
+        }
+
+    }
+
+}
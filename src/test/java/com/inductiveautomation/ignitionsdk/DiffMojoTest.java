@@ -0,0 +1,183 @@
+package com.inductiveautomation.ignitionsdk;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.lang.reflect.Field;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class DiffMojoTest {
+
+    @TempDir
+    Path tmp;
+
+    @Test
+    void classifiesEntriesAndComparesInsideJars() throws Exception {
+        Map<String, byte[]> before = new LinkedHashMap<>();
+        before.put("module.xml", descriptor("1.0.0", "common-1.0.jar", "G com.example.GatewayHook"));
+        before.put("license.html", bytes("license"));
+        before.put("doc/old.html", bytes("old page"));
+        before.put("common-1.0.jar", jar(1000, "com/example/A.class", "a", "com/example/B.class", "b",
+            "res.txt", "same"));
+        before.put("lib.jar", jar(1000, "lib/X.class", "x"));
+        before.put("gone.jar", jar(1000, "gone/G.class", "g"));
+
+        Map<String, byte[]> after = new LinkedHashMap<>();
+        after.put("module.xml", descriptor("1.1.0", "common-1.1.jar", "G com.example.GatewayHook"));
+        after.put("license.html", bytes("license, longer"));
+        after.put("doc/new.html", bytes("new page"));
+        after.put("common-1.1.jar", jar(2000, "com/example/A.class", "a, changed", "com/example/C.class", "c",
+            "res.txt", "same"));
+        // rebuilt later with the same entries
+        after.put("lib.jar", jar(2000, "lib/X.class", "x"));
+        after.put("new.jar", jar(2000, "added/N.class", "n"));
+
+        String json = diff(before, after);
+
+        assertTrue(json.contains("\"changes\":[" +
+            "{\"name\":\"common-1.1.jar\",\"previousName\":\"common-1.0.jar\",\"change\":\"changed\","),
+            json);
+        assertTrue(json.contains("\"entries\":[" +
+            "{\"name\":\"com/example/A.class\",\"change\":\"changed\",\"bytesBefore\":1,\"bytesAfter\":10,\"delta\":9}," +
+            "{\"name\":\"com/example/B.class\",\"change\":\"removed\",\"bytesBefore\":1,\"bytesAfter\":0,\"delta\":-1}," +
+            "{\"name\":\"com/example/C.class\",\"change\":\"added\",\"bytesBefore\":0,\"bytesAfter\":1,\"delta\":1}]}"),
+            json);
+        assertTrue(json.contains(
+            "{\"name\":\"doc/new.html\",\"change\":\"added\",\"bytesBefore\":0,\"bytesAfter\":8,\"delta\":8}," +
+            "{\"name\":\"doc/old.html\",\"change\":\"removed\",\"bytesBefore\":8,\"bytesAfter\":0,\"delta\":-8}," +
+            "{\"name\":\"gone.jar\",\"change\":\"removed\","), json);
+        assertTrue(json.contains(
+            "{\"name\":\"license.html\",\"change\":\"changed\",\"bytesBefore\":7,\"bytesAfter\":15,\"delta\":8}"), json);
+        assertTrue(json.contains("{\"name\":\"new.jar\",\"change\":\"added\","), json);
+        assertFalse(json.contains("lib.jar"), json);
+        assertFalse(json.contains("res.txt"), json);
+    }
+
+    @Test
+    void moduleXmlIsComparedFieldByField() throws Exception {
+        Map<String, byte[]> before = new LinkedHashMap<>();
+        before.put("module.xml", bytes("<modules><module><id>com.example</id><version>1.0.0</version>" +
+            "<jar scope=\"CD\">common.jar</jar><jar scope=\"G\">gateway.jar</jar>" +
+            "<hook scope=\"G\">com.example.GatewayHook</hook><depends scope=\"G\">com.other</depends>" +
+            "</module></modules>"));
+
+        Map<String, byte[]> after = new LinkedHashMap<>();
+        // reordered and reformatted, which alone is no change
+        after.put("module.xml", bytes("<modules>\n  <module>\n    <version>1.0.1</version>\n" +
+            "    <id>com.example</id>\n    <jar scope=\"G\">gateway.jar</jar>\n" +
+            "    <jar scope=\"CDG\">common.jar</jar>\n    <hook scope=\"G\">com.example.GatewayHook</hook>\n" +
+            "    <hook scope=\"C\">com.example.ClientHook</hook>\n  </module>\n</modules>\n"));
+
+        String json = diff(before, after);
+
+        assertTrue(json.contains("\"moduleXml\":[" +
+            "\"version:1.0.0->1.0.1\"," +
+            "\"-jarCDcommon.jar\",\"+jarCDGcommon.jar\"," +
+            "\"+hookCcom.example.ClientHook\"," +
+            "\"-dependsGcom.other\"]"), json);
+    }
+
+    @Test
+    void comparesZip64Modules() throws Exception {
+        Map<String, byte[]> before = new LinkedHashMap<>();
+        Map<String, byte[]> after = new LinkedHashMap<>();
+        for (int i = 0; i < 66_000; i++) {
+            before.put("doc/" + i + ".html", bytes("page " + i));
+            after.put("doc/" + i + ".html", bytes(i == 65_999 ? "page " + i + ", edited" : "page " + i));
+        }
+        after.put("doc/extra.html", bytes("extra"));
+
+        String json = diff(before, after);
+
+        assertTrue(json.contains("\"changes\":[" +
+            "{\"name\":\"doc/65999.html\",\"change\":\"changed\",\"bytesBefore\":10,\"bytesAfter\":18,\"delta\":8}," +
+            "{\"name\":\"doc/extra.html\",\"change\":\"added\",\"bytesBefore\":0,\"bytesAfter\":5,\"delta\":5}]"),
+            json);
+    }
+
+    @Test
+    void artifactNameDropsVersion() {
+        assertEquals("foo", DiffMojo.artifactName("foo-1.0.jar"));
+        assertEquals("commons-lang3", DiffMojo.artifactName("commons-lang3-3.12.0.jar"));
+        assertEquals("guava", DiffMojo.artifactName("guava-31.1-jre.jar"));
+        assertEquals("sample-client", DiffMojo.artifactName("sample-client-1.0.0-SNAPSHOT.jar"));
+        assertEquals("lib", DiffMojo.artifactName("lib.jar"));
+    }
+
+    /**
+     * Run the diff of two modules.
+     *
+     * @return the JSON report without whitespace.
+     */
+    private String diff(Map<String, byte[]> before, Map<String, byte[]> after) throws Exception {
+        Path baseline = tmp.resolve("baseline.modl");
+        Path module = tmp.resolve("module.modl");
+        Files.write(baseline, zip(before, 1000));
+        Files.write(module, zip(after, 2000));
+
+        Path report = tmp.resolve("diff.json");
+        DiffMojo mojo = new DiffMojo();
+        set(mojo, "baselineFile", baseline.toFile());
+        set(mojo, "moduleFile", module.toFile());
+        set(mojo, "reportFile", report.toFile());
+        mojo.execute();
+
+        return new String(Files.readAllBytes(report), StandardCharsets.UTF_8).replaceAll("\\s", "");
+    }
+
+    private static byte[] descriptor(String version, String jar, String hook) {
+        String[] scopeAndClass = hook.split(" ");
+        return bytes("<modules><module><id>com.example</id><version>" + version + "</version>" +
+            "<jar scope=\"G\">" + jar + "</jar>" +
+            "<hook scope=\"" + scopeAndClass[0] + "\">" + scopeAndClass[1] + "</hook></module></modules>");
+    }
+
+    /**
+     * @param time the modification time of every entry.
+     * @param namesAndContents entry names, each followed by its content.
+     */
+    private static byte[] jar(long time, String... namesAndContents) throws IOException {
+        Map<String, byte[]> entries = new LinkedHashMap<>();
+        for (int i = 0; i < namesAndContents.length; i += 2) {
+            entries.put(namesAndContents[i], bytes(namesAndContents[i + 1]));
+        }
+        return zip(entries, time);
+    }
+
+    private static byte[] zip(Map<String, byte[]> entries, long time) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ZipOutputStream out = new ZipOutputStream(bytes)) {
+            for (Map.Entry<String, byte[]> e : entries.entrySet()) {
+                ZipEntry entry = new ZipEntry(e.getKey());
+                entry.setTime(time * 1_000_000_000L);
+                out.putNextEntry(entry);
+                out.write(e.getValue());
+                out.closeEntry();
+            }
+        }
+        return bytes.toByteArray();
+    }
+
+    private static byte[] bytes(String s) {
+        return s.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static void set(Object mojo, String name, Object value) throws ReflectiveOperationException {
+        Field field = mojo.getClass().getDeclaredField(name);
+        field.setAccessible(true);
+        field.set(mojo, value);
+    }
+
+}
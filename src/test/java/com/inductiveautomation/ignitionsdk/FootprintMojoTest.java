@@ -0,0 +1,27 @@
+package com.inductiveautomation.ignitionsdk;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class FootprintMojoTest {
+
+    @Test
+    void scopesAreNormalizedToOneLetterOrder() {
+        assertEquals("C", FootprintMojo.normalizeScope("C"));
+        assertEquals("CD", FootprintMojo.normalizeScope("DC"));
+        assertEquals("CDG", FootprintMojo.normalizeScope("GCD"));
+        assertEquals("DG", FootprintMojo.normalizeScope("GD"));
+    }
+
+    @Test
+    void unknownAndRepeatedScopesAreRejected() {
+        assertNull(FootprintMojo.normalizeScope(""));
+        assertNull(FootprintMojo.normalizeScope("GX"));
+        assertNull(FootprintMojo.normalizeScope("c"));
+        assertNull(FootprintMojo.normalizeScope("CC"));
+        assertNull(FootprintMojo.normalizeScope("CDGD"));
+    }
+
+}
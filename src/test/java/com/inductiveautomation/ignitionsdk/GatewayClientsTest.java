@@ -0,0 +1,93 @@
+package com.inductiveautomation.ignitionsdk;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+
+import com.sun.net.httpserver.HttpServer;
+import org.apache.maven.execution.DefaultMavenExecutionRequest;
+import org.apache.maven.execution.DefaultMavenExecutionResult;
+import org.apache.maven.execution.MavenSession;
+import org.eclipse.aether.DefaultRepositorySystemSession;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+/**
+ * Posts to a local server that records the client end of every connection a request arrives on.
+ */
+class GatewayClientsTest {
+
+    private HttpServer server;
+    private URI postUri;
+    private final Set<InetSocketAddress> connections = Collections.synchronizedSet(new HashSet<>());
+
+    @BeforeEach
+    void start() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/post", exchange -> {
+            try (exchange) {
+                connections.add(exchange.getRemoteAddress());
+                exchange.getRequestBody().readAllBytes();
+                ChunkedUploadHandler.respond(exchange, 200, "installed");
+            }
+        });
+        server.start();
+
+        postUri = URI.create("http://127.0.0.1:" + server.getAddress().getPort() + "/post");
+    }
+
+    @AfterEach
+    void stop() {
+        server.stop(0);
+    }
+
+    @Test
+    void postsInOneSessionShareAConnection() throws Exception {
+        MavenSession session = newSession();
+
+        HttpClient first = GatewayClients.get(session, HttpClient.Version.HTTP_1_1, null);
+        post(first);
+        HttpClient second = GatewayClients.get(session, HttpClient.Version.HTTP_1_1, null);
+        post(second);
+
+        assertSame(first, second);
+        assertEquals(1, connections.size());
+    }
+
+    @Test
+    void sessionsAndConfigurationsHaveTheirOwnClients() throws Exception {
+        MavenSession session = newSession();
+        HttpClient client = GatewayClients.get(session, HttpClient.Version.HTTP_1_1, null);
+
+        assertNotSame(client, GatewayClients.get(newSession(), HttpClient.Version.HTTP_1_1, null));
+        assertNotSame(client, GatewayClients.get(session, HttpClient.Version.HTTP_2, null));
+
+        post(client);
+        post(GatewayClients.get(newSession(), HttpClient.Version.HTTP_1_1, null));
+        assertEquals(2, connections.size());
+    }
+
+    private void post(HttpClient client) throws IOException, InterruptedException {
+        HttpResponse<String> response = client.send(HttpRequest.newBuilder(postUri)
+            .POST(HttpRequest.BodyPublishers.ofString("module")).build(), HttpResponse.BodyHandlers.ofString());
+        assertEquals(200, response.statusCode());
+    }
+
+    @SuppressWarnings("deprecation")
+    private static MavenSession newSession() {
+        return new MavenSession(null, new DefaultRepositorySystemSession(), new DefaultMavenExecutionRequest(),
+            new DefaultMavenExecutionResult());
+    }
+
+}
@@ -0,0 +1,120 @@
+package com.inductiveautomation.ignitionsdk;
+
+import java.io.IOException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+import com.google.common.collect.Sets;
+import org.apache.commons.io.IOUtils;
+import org.apache.maven.artifact.Artifact;
+import org.apache.maven.execution.MavenSession;
+import org.apache.maven.model.Model;
+import org.codehaus.plexus.util.StringUtils;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.objectweb.asm.ClassReader;
+import org.objectweb.asm.commons.Remapper;
+
+/**
+ * Times loading classes from several third-party jars on one class loader, as a scope's class loader does, and from
+ * the same jars merged by {@link JarMerger}. Every class of every jar is loaded, without initializing it, by a
+ * new class loader per round; a lookup tries each jar in turn until one has the class, so the classes of the last
+ * jars are found after misses in all the others.
+ * <p/>
+ * The two versions are timed in alternating rounds, after one untimed round each, so JIT warm-up and the page cache
+ * favor neither. Not part of the regular test run:
+ * <pre>
+ * mvn test -Dtest=JarMergerBenchmark
+ * </pre>
+ */
+class JarMergerBenchmark {
+
+    private static final int ROUNDS = 30;
+
+    @TempDir
+    Path tmp;
+
+    @Test
+    void testClasspathJars() throws Exception {
+        List<Path> jars = new ArrayList<>();
+        for (Class<?> c : Arrays.asList(Sets.class, IOUtils.class, Artifact.class, MavenSession.class, Model.class,
+            StringUtils.class, ClassReader.class, Remapper.class)) {
+
+            jars.add(Paths.get(c.getProtectionDomain().getCodeSource().getLocation().toURI()));
+        }
+
+        List<String> classes = new ArrayList<>();
+        for (Path jar : jars) {
+            try (ZipFile zip = new ZipFile(jar.toFile())) {
+                for (ZipEntry entry : Collections.list(zip.entries())) {
+                    String name = entry.getName();
+                    if (name.endsWith(".class") && !name.contains("-")) {
+                        classes.add(name.substring(0, name.length() - 6).replace('/', '.'));
+                    }
+                }
+            }
+        }
+
+        Path merged = tmp.resolve("merged.jar");
+        JarMerger merger = new JarMerger();
+        merger.merge(jars, merged);
+
+        System.out.printf("%d jars, %d entries merged, %d conflicts, %d classes loaded%n", jars.size(),
+            merger.getEntryCount(), merger.getConflicts().size(), classes.size());
+
+        List<Path> single = Collections.singletonList(merged);
+        load(jars, classes);
+        load(single, classes);
+
+        long[] separate = new long[ROUNDS];
+        long[] together = new long[ROUNDS];
+        for (int i = 0; i < ROUNDS; i++) {
+            separate[i] = load(jars, classes);
+            together[i] = load(single, classes);
+        }
+
+        report("separate jars", separate, separate);
+        report("merged jar", together, separate);
+    }
+
+    private static long load(List<Path> jars, List<String> classes) throws IOException {
+        URL[] urls = new URL[jars.size()];
+        for (int i = 0; i < urls.length; i++) {
+            urls[i] = jars.get(i).toUri().toURL();
+        }
+
+        long start = System.nanoTime();
+
+        try (URLClassLoader loader = new URLClassLoader(urls, ClassLoader.getPlatformClassLoader())) {
+            for (String className : classes) {
+                try {
+                    Class.forName(className, false, loader);
+                } catch (ClassNotFoundException | LinkageError e) {
+                    // a class that cannot be linked costs the same in both versions
+                }
+            }
+        }
+
+        return System.nanoTime() - start;
+    }
+
+    private static void report(String name, long[] nanos, long[] baseline) {
+        long median = median(nanos);
+        System.out.printf("%-16s %8.2f ms  %5.2fx%n", name, median / 1e6, (double) median(baseline) / median);
+    }
+
+    private static long median(long[] values) {
+        long[] sorted = values.clone();
+        Arrays.sort(sorted);
+        return sorted[(sorted.length - 1) / 2];
+    }
+
+}
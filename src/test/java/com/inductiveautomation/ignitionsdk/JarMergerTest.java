@@ -0,0 +1,130 @@
+package com.inductiveautomation.ignitionsdk;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.jar.JarFile;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class JarMergerTest {
+
+    private static final long TIME = 1_600_000_000_000L;
+
+    @TempDir
+    Path tmp;
+
+    @Test
+    void reportsConflictsOutsideLicenseFiles() throws IOException {
+        Path a = jar("a.jar", Map.of(
+            "a/Same.class", "same",
+            "a/Differs.class", "first",
+            "META-INF/versions/11/a/Differs.class", "first",
+            "META-INF/CERT.SF", "first",
+            "META-INF/LICENSE.txt", "first",
+            "NOTICE", "first"));
+        Path b = jar("b.jar", Map.of(
+            "a/Same.class", "same",
+            "a/Differs.class", "second",
+            "META-INF/versions/11/a/Differs.class", "second",
+            "META-INF/CERT.SF", "second",
+            "META-INF/LICENSE.txt", "second",
+            "NOTICE", "second"));
+
+        JarMerger merger = new JarMerger();
+        Path merged = tmp.resolve("merged.jar");
+        merger.merge(Arrays.asList(a, b), merged);
+
+        assertEquals(Arrays.asList(
+            "META-INF/CERT.SF (a.jar vs b.jar)",
+            "META-INF/versions/11/a/Differs.class (a.jar vs b.jar)",
+            "a/Differs.class (a.jar vs b.jar)"), merger.getConflicts());
+
+        try (JarFile jar = new JarFile(merged.toFile())) {
+            assertEquals("first", read(jar, "a/Differs.class"));
+            assertEquals("first", read(jar, "META-INF/LICENSE.txt"));
+        }
+    }
+
+    @Test
+    void concatenatesServiceFiles() throws IOException {
+        Path a = jar("a.jar", Map.of("META-INF/services/x.Service", "# providers\na.Impl\n"));
+        Path b = jar("b.jar", Map.of("META-INF/services/x.Service", "b.Impl\na.Impl"));
+
+        JarMerger merger = new JarMerger();
+        Path merged = tmp.resolve("merged.jar");
+        merger.merge(Arrays.asList(a, b), merged);
+
+        assertTrue(merger.getConflicts().isEmpty());
+        try (JarFile jar = new JarFile(merged.toFile())) {
+            assertEquals("a.Impl\nb.Impl\n", read(jar, "META-INF/services/x.Service"));
+        }
+    }
+
+    @Test
+    void mergedJarIsReproducible() throws IOException {
+        Path a = jar("a.jar", TIME, Map.of(
+            "a/", "",
+            "a/A.class", "a",
+            "META-INF/services/x.Service", "a.Impl"));
+        Path b = jar("b.jar", TIME + 10_000, Map.of(
+            "b/B.class", "b",
+            "META-INF/services/x.Service", "b.Impl"));
+
+        Path first = tmp.resolve("first.jar");
+        Path second = tmp.resolve("second.jar");
+        new JarMerger().merge(Arrays.asList(a, b), first);
+        new JarMerger().merge(Arrays.asList(a, b), second);
+
+        assertEquals(-1, Files.mismatch(first, second));
+
+        try (JarFile jar = new JarFile(first.toFile())) {
+            assertEquals(TIME + 10_000, jar.getEntry(JarFile.MANIFEST_NAME).getTime());
+            assertEquals(TIME, jar.getEntry("a/").getTime());
+            assertEquals(TIME, jar.getEntry("a/A.class").getTime());
+            assertEquals(TIME + 10_000, jar.getEntry("b/B.class").getTime());
+            assertEquals(TIME + 10_000, jar.getEntry("META-INF/services/x.Service").getTime());
+        }
+    }
+
+    private Path jar(String name, Map<String, String> entries) throws IOException {
+        return jar(name, TIME, entries);
+    }
+
+    /**
+     * Write a jar with the given entries, in name order.
+     *
+     * @param time the modification time of every entry.
+     */
+    private Path jar(String name, long time, Map<String, String> entries) throws IOException {
+        Path jar = tmp.resolve(name);
+        try (ZipOutputStream out = new ZipOutputStream(Files.newOutputStream(jar))) {
+            for (Map.Entry<String, String> e : new TreeMap<>(entries).entrySet()) {
+                ZipEntry entry = new ZipEntry(e.getKey());
+                entry.setTime(time);
+                out.putNextEntry(entry);
+                out.write(e.getValue().getBytes(StandardCharsets.UTF_8));
+                out.closeEntry();
+            }
+        }
+        return jar;
+    }
+
+    private static String read(JarFile jar, String name) throws IOException {
+        try (InputStream in = jar.getInputStream(jar.getEntry(name))) {
+            return new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        }
+    }
+
+}
@@ -0,0 +1,185 @@
+package com.inductiveautomation.ignitionsdk;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.security.GeneralSecurityException;
+import java.security.Signature;
+import java.security.cert.Certificate;
+import java.security.cert.CertificateFactory;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Properties;
+import java.util.Random;
+import java.util.stream.Collectors;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Signs modules with keystores generated by keytool and checks every signature with the JDK's own SHA256withRSA and
+ * SHA256withECDSA, so the signatures computed from precomputed digests are known to be the standard ones.
+ */
+class ModuleSignerTest {
+
+    private static final char[] STORE_PASSWORD = "store-password".toCharArray();
+    private static final char[] KEY_PASSWORD = "key-password".toCharArray();
+
+    @TempDir
+    Path tmp;
+
+    @Test
+    void rsaSignaturesVerify() throws Exception {
+        Path keystore = tmp.resolve("rsa.p12");
+        genKey(keystore, "PKCS12", "signer", "RSA", STORE_PASSWORD);
+
+        ModuleSigner signer = ModuleSigner.load(keystore, STORE_PASSWORD, null, null, null);
+
+        verifyModule(signer, "SHA256withRSA");
+    }
+
+    @Test
+    void ecSignaturesVerify() throws Exception {
+        Path keystore = tmp.resolve("ec.p12");
+        genKey(keystore, "PKCS12", "signer", "EC", STORE_PASSWORD);
+
+        ModuleSigner signer = ModuleSigner.load(keystore, STORE_PASSWORD, null, null, null);
+
+        verifyModule(signer, "SHA256withECDSA");
+    }
+
+    @Test
+    void separateKeyPassword() throws Exception {
+        Path keystore = tmp.resolve("rsa.jks");
+        genKey(keystore, "JKS", "signer", "RSA", KEY_PASSWORD);
+
+        assertThrows(GeneralSecurityException.class,
+            () -> ModuleSigner.load(keystore, STORE_PASSWORD, null, null, null));
+
+        ModuleSigner signer = ModuleSigner.load(keystore, STORE_PASSWORD, "signer", KEY_PASSWORD, null);
+
+        verifyModule(signer, "SHA256withRSA");
+    }
+
+    @Test
+    void multipleKeysNeedAnAlias() throws Exception {
+        Path keystore = tmp.resolve("two.p12");
+        genKey(keystore, "PKCS12", "first", "RSA", STORE_PASSWORD);
+        genKey(keystore, "PKCS12", "second", "EC", STORE_PASSWORD);
+
+        GeneralSecurityException e = assertThrows(GeneralSecurityException.class,
+            () -> ModuleSigner.load(keystore, STORE_PASSWORD, null, null, null));
+        assertTrue(e.getMessage().contains("holds 2 keys"), e.getMessage());
+
+        verifyModule(ModuleSigner.load(keystore, STORE_PASSWORD, "second", null, null), "SHA256withECDSA");
+    }
+
+    @Test
+    void missingAliasFails() throws Exception {
+        Path keystore = tmp.resolve("rsa.p12");
+        genKey(keystore, "PKCS12", "signer", "RSA", STORE_PASSWORD);
+
+        assertThrows(GeneralSecurityException.class,
+            () -> ModuleSigner.load(keystore, STORE_PASSWORD, "other", null, null));
+    }
+
+    /**
+     * Zip a small module with {@code signer} and check that every file has a signature that verifies against the
+     * certificate in the module.
+     */
+    private void verifyModule(ModuleSigner signer, String algorithm) throws Exception {
+        Path source = tmp.resolve("module-" + algorithm);
+        Files.createDirectories(source.resolve("doc/img"));
+        Files.write(source.resolve("module.xml"), "<modules/>".getBytes(StandardCharsets.UTF_8));
+        Files.write(source.resolve("doc/index.html"), "<html>hello</html>".getBytes(StandardCharsets.UTF_8));
+        Files.write(source.resolve("doc/empty.txt"), new byte[0]);
+        byte[] large = new byte[5 * 1024 * 1024];
+        new Random(1).nextBytes(large);
+        Files.write(source.resolve("doc/img/large.bin"), large);
+
+        Path modl = tmp.resolve("module-" + algorithm + ".modl");
+        new ParallelZipWriter(4, tmp.resolve("spill"), signer).write(source, modl);
+
+        try (ZipFile zip = new ZipFile(modl.toFile())) {
+            Properties signatures = new Properties();
+            try (InputStream in = zip.getInputStream(zip.getEntry(ModuleSigner.SIGNATURES))) {
+                signatures.load(in);
+            }
+
+            Certificate certificate;
+            try (InputStream in = zip.getInputStream(zip.getEntry(ModuleSigner.CERTIFICATES))) {
+                certificate = CertificateFactory.getInstance("X.509")
+                    .generateCertPath(in, "PKCS7").getCertificates().get(0);
+            }
+            assertArrayEquals(signer.getCertificates(), read(zip, zip.getEntry(ModuleSigner.CERTIFICATES)));
+
+            List<String> signed = new ArrayList<>();
+            for (ZipEntry entry : Collections.list(zip.entries())) {
+                String name = entry.getName();
+                if (entry.isDirectory() || name.equals(ModuleSigner.SIGNATURES) ||
+                    name.equals(ModuleSigner.CERTIFICATES)) {
+                    continue;
+                }
+
+                String encoded = signatures.getProperty("/" + name);
+                assertNotNull(encoded, "no signature for " + name);
+
+                Signature verifier = Signature.getInstance(algorithm);
+                verifier.initVerify(certificate);
+                verifier.update(read(zip, entry));
+                assertTrue(verifier.verify(Base64.decode(encoded)), "signature of " + name + " does not verify");
+                signed.add(name);
+            }
+
+            assertEquals(Arrays.asList("doc/empty.txt", "doc/img/large.bin", "doc/index.html", "module.xml",
+                ContentManifest.NAME).stream().sorted().collect(Collectors.toList()),
+                signed.stream().sorted().collect(Collectors.toList()));
+            assertEquals(signed.size(), signatures.size());
+        }
+    }
+
+    private static byte[] read(ZipFile zip, ZipEntry entry) throws IOException {
+        try (InputStream in = zip.getInputStream(entry)) {
+            return in.readAllBytes();
+        }
+    }
+
+    /**
+     * Add a key with a self-signed certificate to {@code keystore}, creating it if needed.
+     */
+    private static void genKey(Path keystore, String storeType, String alias, String keyAlg, char[] keyPassword)
+        throws IOException, InterruptedException {
+
+        Path keytool = Paths.get(System.getProperty("java.home"), "bin", "keytool");
+        List<String> command = new ArrayList<>(Arrays.asList(
+            keytool.toString(), "-genkeypair",
+            "-keystore", keystore.toString(),
+            "-storetype", storeType,
+            "-storepass", new String(STORE_PASSWORD),
+            "-keypass", new String(keyPassword),
+            "-alias", alias,
+            "-keyalg", keyAlg,
+            "-keysize", keyAlg.equals("EC") ? "256" : "2048",
+            "-dname", "CN=Module Signer Test",
+            "-validity", "1"));
+
+        Process process = new ProcessBuilder(command).redirectErrorStream(true).start();
+        String output = new String(process.getInputStream().readAllBytes(), StandardCharsets.UTF_8);
+        assertEquals(0, process.waitFor(), output);
+        assertTrue(Files.exists(keystore), output);
+    }
+
+}
@@ -0,0 +1,199 @@
+package com.inductiveautomation.ignitionsdk;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+import java.util.zip.ZipInputStream;
+import java.util.zip.ZipOutputStream;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Zips a synthetic doc tree of 10,000 files, 9,000 HTML pages and 1,000 images, with a single-threaded
+ * {@link ZipOutputStream}, as the modl goal did before {@link ParallelZipWriter}, and with the parallel writer at one
+ * thread and at one thread per processor. The parallel writer also computes the SHA-256 of every file for the
+ * content manifest, which the baseline does not.
+ * <p/>
+ * Also zips a sparse file just over 4 GiB, which needs ZIP64 sizes, and reads the archive back with {@link ZipFile},
+ * {@link ZipInputStream} and {@link ZipIndex}. Deflating it takes tens of seconds, which is why it lives here. Not part
+ * of the regular test run:
+ * <pre>
+ * mvn test -Dtest=ParallelZipWriterBenchmark
+ * </pre>
+ */
+class ParallelZipWriterBenchmark {
+
+    private static final int PAGES = 9_000;
+    private static final int IMAGES = 1_000;
+    private static final int ROUNDS = 5;
+
+    private static final String[] WORDS = {
+        "gateway", "designer", "client", "module", "tag", "provider", "history", "alarm", "script", "project",
+        "the", "a", "of", "and", "to", "is", "in", "for", "with", "value", "quality", "timestamp", "<p>", "</p>",
+        "<div class=\"section\">", "</div>", "<a href=\"index.html\">", "</a>", "<code>", "</code>"
+    };
+
+    @TempDir
+    Path tmp;
+
+    @Test
+    void docTree() throws IOException {
+        Path source = tmp.resolve("doc-tree");
+        long bytes = generate(source);
+
+        int processors = Runtime.getRuntime().availableProcessors();
+        System.out.printf("%d files, %.1f MiB, %d processors%n", PAGES + IMAGES, bytes / 1048576.0, processors);
+
+        long zipOutputStream = median(() -> zipOutputStream(source, tmp.resolve("zos.zip")));
+        report("ZipOutputStream", zipOutputStream, zipOutputStream);
+
+        long oneThread = median(() -> new ParallelZipWriter(1, tmp.resolve("spill"))
+            .write(source, tmp.resolve("one.zip")));
+        report("ParallelZipWriter, 1 thread", oneThread, zipOutputStream);
+
+        if (processors > 1) {
+            long allThreads = median(() -> new ParallelZipWriter(processors, tmp.resolve("spill"))
+                .write(source, tmp.resolve("all.zip")));
+            report("ParallelZipWriter, " + processors + " threads", allThreads, zipOutputStream);
+        }
+    }
+
+    @Test
+    void entryPast4GiB() throws IOException {
+        Path source = Files.createDirectories(tmp.resolve("source"));
+        long bigSize = (4L << 30) + 1000;
+        // sparse, so the test needs almost no disk; zeros compress to a few MiB
+        try (RandomAccessFile file = new RandomAccessFile(source.resolve("big.bin").toFile(), "rw")) {
+            file.setLength(bigSize);
+        }
+        byte[] small = "after the big one".getBytes(StandardCharsets.UTF_8);
+        Files.write(source.resolve("small.txt"), small);
+
+        Path zip = tmp.resolve("big.zip");
+        long start = System.nanoTime();
+        new ParallelZipWriter(1, tmp.resolve("spill")).write(source, zip);
+        System.out.printf("%.1f GiB file zipped in %d ms%n", bigSize / 1073741824.0,
+            (System.nanoTime() - start) / 1_000_000);
+
+        try (ZipFile zipFile = new ZipFile(zip.toFile())) {
+            assertEquals(bigSize, zipFile.getEntry("big.bin").getSize());
+            try (InputStream in = zipFile.getInputStream(zipFile.getEntry("small.txt"))) {
+                assertArrayEquals(small, in.readAllBytes());
+            }
+        }
+
+        // the sizes in the local header come from its ZIP64 extra field
+        try (ZipInputStream in = new ZipInputStream(Files.newInputStream(zip))) {
+            ZipEntry entry = in.getNextEntry();
+            assertEquals("big.bin", entry.getName());
+            assertEquals(bigSize, entry.getSize());
+        }
+
+        // and those in the central directory from its own
+        ZipIndex index = ZipIndex.open(zip);
+        assertEquals(bigSize, index.entry("big.bin").getSize());
+        assertArrayEquals(small, index.readAllBytes(index.entry("small.txt")));
+    }
+
+    /**
+     * @return the total size of the files.
+     */
+    private static long generate(Path root) throws IOException {
+        Random random = new Random(42);
+        long bytes = 0;
+
+        for (int i = 0; i < PAGES; i++) {
+            Path page = root.resolve(String.format("pages/%02d/page-%04d.html", i % 90, i));
+            Files.createDirectories(page.getParent());
+
+            StringBuilder sb = new StringBuilder("<html><body><h1>Page ").append(i).append("</h1>\n");
+            int length = 2048 + random.nextInt(18 * 1024);
+            while (sb.length() < length) {
+                sb.append(WORDS[random.nextInt(WORDS.length)]).append(random.nextInt(8) == 0 ? '\n' : ' ');
+            }
+            sb.append("</body></html>\n");
+
+            byte[] content = sb.toString().getBytes(StandardCharsets.UTF_8);
+            Files.write(page, content);
+            bytes += content.length;
+        }
+
+        for (int i = 0; i < IMAGES; i++) {
+            Path image = root.resolve(String.format("images/%02d/image-%04d.png", i % 10, i));
+            Files.createDirectories(image.getParent());
+
+            // already compressed, like real images
+            byte[] content = new byte[5 * 1024 + random.nextInt(45 * 1024)];
+            random.nextBytes(content);
+            Files.write(image, content);
+            bytes += content.length;
+        }
+
+        return bytes;
+    }
+
+    private static void zipOutputStream(Path source, Path zip) throws IOException {
+        List<Path> paths;
+        try (Stream<Path> walk = Files.walk(source)) {
+            paths = walk.filter(p -> !p.equals(source)).sorted().collect(Collectors.toList());
+        }
+
+        try (ZipOutputStream out = new ZipOutputStream(
+            new BufferedOutputStream(Files.newOutputStream(zip), 64 * 1024))) {
+
+            for (Path path : paths) {
+                String name = source.relativize(path).toString().replace('\\', '/');
+                if (Files.isDirectory(path)) {
+                    out.putNextEntry(new ZipEntry(name + "/"));
+                } else {
+                    out.putNextEntry(new ZipEntry(name));
+                    Files.copy(path, out);
+                }
+                out.closeEntry();
+            }
+        }
+    }
+
+    /**
+     * @return the median milliseconds of {@link #ROUNDS} runs, after one untimed run.
+     */
+    private static long median(Zip zip) throws IOException {
+        zip.run();
+
+        long[] millis = new long[ROUNDS];
+        for (int i = 0; i < ROUNDS; i++) {
+            long start = System.nanoTime();
+            zip.run();
+            millis[i] = (System.nanoTime() - start) / 1_000_000;
+        }
+
+        Arrays.sort(millis);
+        return millis[ROUNDS / 2];
+    }
+
+    private static void report(String name, long millis, long baseline) {
+        System.out.printf("%-32s %6d ms  %5.2fx%n", name, millis, (double) baseline / millis);
+    }
+
+    private interface Zip {
+
+        void run() throws IOException;
+
+    }
+
+}
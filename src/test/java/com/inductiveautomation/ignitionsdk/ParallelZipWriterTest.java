@@ -0,0 +1,108 @@
+package com.inductiveautomation.ignitionsdk;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+import java.util.stream.Stream;
+import java.util.zip.ZipFile;
+import java.util.zip.ZipInputStream;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ParallelZipWriterTest {
+
+    @TempDir
+    Path tmp;
+
+    @Test
+    void writesReadableArchive() throws IOException {
+        Path source = tmp.resolve("source");
+        Files.createDirectories(source.resolve("doc/img"));
+        Files.write(source.resolve("module.xml"), "<modules/>".getBytes(StandardCharsets.UTF_8));
+        Files.write(source.resolve("doc/empty.txt"), new byte[0]);
+        byte[] spilled = new byte[5 * 1024 * 1024];
+        new Random(3).nextBytes(spilled);
+        Files.write(source.resolve("doc/img/large.bin"), spilled);
+
+        Path zip = tmp.resolve("out.zip");
+        byte[] sha256 = new ParallelZipWriter(4, tmp.resolve("spill")).write(source, zip);
+
+        assertEquals(InputFingerprint.sha256(zip), ContentManifest.hex(sha256));
+        try (ZipFile zipFile = new ZipFile(zip.toFile())) {
+            assertTrue(zipFile.getEntry("doc/").isDirectory());
+            assertArrayEquals("<modules/>".getBytes(StandardCharsets.UTF_8), read(zipFile, "module.xml"));
+            assertArrayEquals(new byte[0], read(zipFile, "doc/empty.txt"));
+            assertArrayEquals(spilled, read(zipFile, "doc/img/large.bin"));
+            assertNotNull(zipFile.getEntry(ContentManifest.NAME));
+        }
+        assertSpillsRemoved();
+    }
+
+    @Test
+    void moreThan65535Entries() throws IOException {
+        Path source = tmp.resolve("source");
+        int files = 70_000;
+        for (int dir = 0; dir < 70; dir++) {
+            Path d = Files.createDirectories(source.resolve("doc/" + dir));
+            for (int i = 0; i < files / 70; i++) {
+                Files.write(d.resolve(i + ".html"), ("page " + dir + "/" + i).getBytes(StandardCharsets.UTF_8));
+            }
+        }
+
+        Path zip = tmp.resolve("many.zip");
+        new ParallelZipWriter(4, tmp.resolve("spill")).write(source, zip);
+
+        try (ZipFile zipFile = new ZipFile(zip.toFile())) {
+            // the files, 71 directories and the content manifest
+            assertEquals(files + 71 + 1, zipFile.size());
+            assertArrayEquals("page 69/999".getBytes(StandardCharsets.UTF_8), read(zipFile, "doc/69/999.html"));
+        }
+        try (ZipInputStream in = new ZipInputStream(Files.newInputStream(zip))) {
+            int entries = 0;
+            while (in.getNextEntry() != null) {
+                entries++;
+            }
+            assertEquals(files + 71 + 1, entries);
+        }
+    }
+
+    @Test
+    void failureRemovesPartialArchiveAndSpills() throws IOException {
+        Path source = Files.createDirectories(tmp.resolve("source"));
+        byte[] spilled = new byte[8 * 1024 * 1024];
+        new Random(5).nextBytes(spilled);
+        Files.write(source.resolve("a-large.bin"), spilled);
+        // sorted after the large file, so it fails while the large file is being spilled
+        Files.createSymbolicLink(source.resolve("b-broken"), tmp.resolve("missing"));
+
+        Path zip = tmp.resolve("failed.zip");
+        assertThrows(IOException.class, () -> new ParallelZipWriter(2, tmp.resolve("spill")).write(source, zip));
+
+        assertFalse(Files.exists(zip));
+        assertSpillsRemoved();
+    }
+
+    private void assertSpillsRemoved() throws IOException {
+        try (Stream<Path> files = Files.list(tmp.resolve("spill"))) {
+            assertEquals(0, files.count());
+        }
+    }
+
+    private static byte[] read(ZipFile zipFile, String name) throws IOException {
+        try (InputStream in = zipFile.getInputStream(zipFile.getEntry(name))) {
+            return in.readAllBytes();
+        }
+    }
+
+}
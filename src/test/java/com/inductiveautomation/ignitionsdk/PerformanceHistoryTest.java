@@ -0,0 +1,65 @@
+package com.inductiveautomation.ignitionsdk;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class PerformanceHistoryTest {
+
+    private static final int PHASES = 50;
+
+    @TempDir
+    Path tmp;
+
+    @Test
+    void parallelExecutionsAppendWholeRuns() throws Exception {
+        Path file = tmp.resolve("history/perf.csv");
+
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<?>> appends = new ArrayList<>();
+            for (int i = 0; i < 40; i++) {
+                String project = "project-" + i;
+                appends.add(executor.submit(() -> {
+                    PerformanceHistory history = new PerformanceHistory("modl", project);
+                    for (int phase = 0; phase < PHASES; phase++) {
+                        history.record("phase-" + phase, System.nanoTime(), phase, 1);
+                    }
+                    history.append(file, 0, 0);
+                    return null;
+                }));
+            }
+            for (Future<?> append : appends) {
+                append.get();
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        List<String> lines = Files.readAllLines(file, StandardCharsets.UTF_8);
+        assertEquals(PerformanceHistory.HEADER, lines.get(0));
+        assertEquals(1, lines.stream().filter(PerformanceHistory.HEADER::equals).count());
+
+        List<PerformanceHistory.Sample> samples = PerformanceHistory.read(file);
+        assertEquals(40 * (PHASES + 1), samples.size());
+        for (int run = 0; run < 40; run++) {
+            String project = samples.get(run * (PHASES + 1)).getProject();
+            for (int phase = 0; phase <= PHASES; phase++) {
+                PerformanceHistory.Sample sample = samples.get(run * (PHASES + 1) + phase);
+                assertEquals(project, sample.getProject());
+                assertEquals(phase < PHASES ? "phase-" + phase : "total", sample.getPhase());
+            }
+        }
+    }
+
+}
@@ -0,0 +1,106 @@
+package com.inductiveautomation.ignitionsdk;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.reflect.Field;
+import java.net.InetSocketAddress;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import com.sun.net.httpserver.HttpServer;
+import org.apache.maven.execution.DefaultMavenExecutionRequest;
+import org.apache.maven.execution.DefaultMavenExecutionResult;
+import org.apache.maven.execution.MavenSession;
+import org.apache.maven.project.MavenProject;
+import org.eclipse.aether.DefaultRepositorySystemSession;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class PostModuleMojoTest {
+
+    @TempDir
+    Path tmp;
+
+    @Test
+    void encodedLengthMatchesTheEncodingStream() throws IOException {
+        Random random = new Random(13);
+        for (int size = 0; size <= 1000; size++) {
+            assertEncodedLength(random, size);
+        }
+        for (int size : new int[] {57 * 1000, 57 * 1000 + 1, 1024 * 1024, 1024 * 1024 + 2}) {
+            assertEncodedLength(random, size);
+        }
+    }
+
+    @Test
+    void postsTheModuleBuiltInThisBuild() throws Exception {
+        byte[] module = new byte[5000];
+        new Random(7).nextBytes(module);
+        Path built = Files.write(Files.createDirectories(tmp.resolve("elsewhere")).resolve("Built.modl"), module);
+
+        // a stale module where the goal would look for one by name
+        Path target = Files.createDirectories(tmp.resolve("target"));
+        Files.write(target.resolve(ModuleFiles.signedFileName("Example")), new byte[] {1, 2, 3});
+
+        MavenProject project = new MavenProject();
+        project.getBuild().setDirectory(target.toString());
+        BuiltModule.publish(project, built, "0123");
+
+        List<byte[]> bodies = Collections.synchronizedList(new ArrayList<>());
+        HttpServer server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/main/system/DeveloperModuleLoadingServlet", exchange -> {
+            try (exchange) {
+                bodies.add(exchange.getRequestBody().readAllBytes());
+                ChunkedUploadHandler.respond(exchange, 200, "installed");
+            }
+        });
+        server.start();
+
+        try {
+            PostModuleMojo mojo = new PostModuleMojo();
+            set(mojo, "project", project);
+            set(mojo, "session", newSession());
+            set(mojo, "gatewayAddress", "http://127.0.0.1:" + server.getAddress().getPort());
+            set(mojo, "httpVersion", "HTTP_1_1");
+            // no moduleName, as the module does not need to be found by name
+            mojo.execute();
+        } finally {
+            server.stop(0);
+        }
+
+        try (InputStream encoded = new Base64.InputStream(new ByteArrayInputStream(module), Base64.ENCODE)) {
+            assertEquals(1, bodies.size());
+            assertArrayEquals(encoded.readAllBytes(), bodies.get(0));
+        }
+    }
+
+    private static void assertEncodedLength(Random random, int size) throws IOException {
+        byte[] bytes = new byte[size];
+        random.nextBytes(bytes);
+
+        try (InputStream encoded = new Base64.InputStream(new ByteArrayInputStream(bytes), Base64.ENCODE)) {
+            assertEquals(encoded.readAllBytes().length, PostModuleMojo.encodedLength(size), "size " + size);
+        }
+    }
+
+    @SuppressWarnings("deprecation")
+    private static MavenSession newSession() {
+        return new MavenSession(null, new DefaultRepositorySystemSession(), new DefaultMavenExecutionRequest(),
+            new DefaultMavenExecutionResult());
+    }
+
+    private static void set(Object mojo, String name, Object value) throws ReflectiveOperationException {
+        Field field = mojo.getClass().getDeclaredField(name);
+        field.setAccessible(true);
+        field.set(mojo, value);
+    }
+
+}
@@ -0,0 +1,189 @@
+package com.inductiveautomation.ignitionsdk;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import org.apache.maven.execution.AbstractExecutionListener;
+import org.apache.maven.execution.DefaultMavenExecutionRequest;
+import org.apache.maven.execution.DefaultMavenExecutionResult;
+import org.apache.maven.execution.ExecutionEvent;
+import org.apache.maven.execution.ExecutionListener;
+import org.apache.maven.execution.MavenSession;
+import org.apache.maven.plugin.MojoExecution;
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugin.logging.SystemStreamLog;
+import org.apache.maven.project.MavenProject;
+import org.eclipse.aether.DefaultRepositorySystemSession;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class PostQueueTest {
+
+    @TempDir
+    Path tmp;
+
+    @Test
+    void wavesPostDependenciesFirst() throws IOException {
+        Path a = module("a", "b");
+        Path b = module("b", "installed.elsewhere");
+        Path c = module("c");
+        Path d = module("d", "a", "c");
+
+        assertEquals(Arrays.asList(Arrays.asList(b, c), Collections.singletonList(a), Collections.singletonList(d)),
+            PostQueue.inDependencyOrder(Arrays.asList(a, b, c, d)));
+        // a is not posted with d, so only c has to come first
+        assertEquals(Arrays.asList(Collections.singletonList(c), Collections.singletonList(d)),
+            PostQueue.inDependencyOrder(Arrays.asList(d, c)));
+    }
+
+    @Test
+    void cycleIsAnError() throws IOException {
+        Path x = module("x", "y");
+        Path y = module("y", "x");
+        Path z = module("z");
+
+        IOException e = assertThrows(IOException.class, () -> PostQueue.inDependencyOrder(Arrays.asList(x, y, z)));
+        assertEquals("Modules depend on each other in a cycle: [x, y]", e.getMessage());
+    }
+
+    @Test
+    void postsAtSessionEndThenPassesTheEventOn() throws IOException {
+        List<String> events = new ArrayList<>();
+        MavenSession session = newSession();
+        session.getRequest().setExecutionListener(new RecordingListener(events));
+
+        Path first = module("first");
+        Path second = module("second");
+        PostQueue.add(session, first);
+        PostQueue.postAtSessionEnd(session, new SystemStreamLog(), modules -> events.add("replaced poster"));
+        PostQueue.add(session, second);
+        // a later project's execution replaces the poster rather than wrapping the listener again
+        PostQueue.postAtSessionEnd(session, new SystemStreamLog(), modules -> events.add("posted " + modules));
+
+        ExecutionListener listener = session.getRequest().getExecutionListener();
+        listener.projectStarted(event(session));
+        assertEquals(Collections.singletonList("projectStarted"), events);
+
+        listener.sessionEnded(event(session));
+        assertEquals(Arrays.asList("projectStarted", "posted " + Arrays.asList(first, second), "sessionEnded"),
+            events);
+        assertTrue(PostQueue.drain(session).isEmpty());
+        assertTrue(session.getResult().getExceptions().isEmpty());
+    }
+
+    @Test
+    void failedBuildOrPostIsReported() throws IOException {
+        List<String> events = new ArrayList<>();
+        MavenSession session = newSession();
+        session.getRequest().setExecutionListener(new RecordingListener(events));
+
+        PostQueue.add(session, module("first"));
+        PostQueue.postAtSessionEnd(session, new SystemStreamLog(), modules -> {
+            throw new MojoExecutionException("gateway refused " + modules.size());
+        });
+        session.getRequest().getExecutionListener().sessionEnded(event(session));
+
+        assertEquals(Collections.singletonList("sessionEnded"), events);
+        assertEquals(1, session.getResult().getExceptions().size());
+        assertEquals("gateway refused 1", session.getResult().getExceptions().get(0).getMessage());
+
+        // the build has failed now, so the next queued module is listed rather than posted
+        PostQueue.add(session, module("second"));
+        session.getRequest().getExecutionListener().sessionEnded(event(session));
+
+        assertEquals(Arrays.asList("sessionEnded", "sessionEnded"), events);
+        assertEquals(1, session.getResult().getExceptions().size());
+    }
+
+    /**
+     * Write a module containing only a module.xml.
+     *
+     * @param depends the ids of the modules it depends on.
+     */
+    private Path module(String id, String... depends) throws IOException {
+        StringBuilder xml = new StringBuilder("<modules><module><id>").append(id).append("</id>");
+        for (String d : depends) {
+            xml.append("<depends scope=\"G\">").append(d).append("</depends>");
+        }
+        xml.append("</module></modules>");
+
+        Path module = tmp.resolve(id + ".modl");
+        try (ZipOutputStream out = new ZipOutputStream(Files.newOutputStream(module))) {
+            out.putNextEntry(new ZipEntry("module.xml"));
+            out.write(xml.toString().getBytes(StandardCharsets.UTF_8));
+            out.closeEntry();
+        }
+        return module;
+    }
+
+    @SuppressWarnings("deprecation")
+    private static MavenSession newSession() {
+        return new MavenSession(null, new DefaultRepositorySystemSession(), new DefaultMavenExecutionRequest(),
+            new DefaultMavenExecutionResult());
+    }
+
+    private static ExecutionEvent event(MavenSession session) {
+        return new ExecutionEvent() {
+            @Override
+            public Type getType() {
+                return null;
+            }
+
+            @Override
+            public MavenSession getSession() {
+                return session;
+            }
+
+            @Override
+            public MavenProject getProject() {
+                return null;
+            }
+
+            @Override
+            public MojoExecution getMojoExecution() {
+                return null;
+            }
+
+            @Override
+            public Exception getException() {
+                return null;
+            }
+        };
+    }
+
+    /**
+     * Stands in for the listener Maven installs, recording the events passed on to it.
+     */
+    private static class RecordingListener extends AbstractExecutionListener {
+
+        private final List<String> events;
+
+        RecordingListener(List<String> events) {
+            this.events = events;
+        }
+
+        @Override
+        public void projectStarted(ExecutionEvent event) {
+            events.add("projectStarted");
+        }
+
+        @Override
+        public void sessionEnded(ExecutionEvent event) {
+            events.add("sessionEnded");
+        }
+
+    }
+
+}
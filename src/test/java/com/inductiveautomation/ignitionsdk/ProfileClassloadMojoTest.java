@@ -0,0 +1,182 @@
+package com.inductiveautomation.ignitionsdk;
+
+import java.io.IOException;
+import java.lang.reflect.Field;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.Set;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import org.apache.maven.artifact.Artifact;
+import org.apache.maven.artifact.DefaultArtifact;
+import org.apache.maven.artifact.handler.DefaultArtifactHandler;
+import org.apache.maven.plugin.logging.SystemStreamLog;
+import org.apache.maven.project.MavenProject;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.objectweb.asm.ClassWriter;
+import org.objectweb.asm.Opcodes;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ProfileClassloadMojoTest {
+
+    @TempDir
+    Path tmp;
+
+    private MavenProject build;
+    private Artifact common;
+    private Artifact gateway;
+    private Artifact utilA;
+    private Artifact utilB;
+    private Artifact sdk;
+
+    /**
+     * A module of two reactor projects that have not been packaged, so their artifacts are their output directories:
+     * sample-common in every scope and sample-gateway in the gateway scope. sample-common depends on two jars that
+     * share the file name util-1.0.jar, one with a classifier, and on a provided SDK that sample-gateway's hook
+     * extends.
+     */
+    @BeforeEach
+    void reactor() throws IOException {
+        common = artifact("ex", "sample-common", "1.0.0", null, null,
+            classes("common", "com/example/common/Common", "java/lang/Object"));
+        Files.write(common.getFile().toPath().resolve("common.properties"), "a=1".getBytes(StandardCharsets.UTF_8));
+        gateway = artifact("ex", "sample-gateway", "1.0.0", null, null,
+            classes("gateway", "com/example/gateway/GatewayHook", "com/sdk/Api"));
+
+        utilA = artifact("com.a", "util", "1.0", "compile", null, jar("a/util-1.0.jar", "com/a/util/A"));
+        utilB = artifact("com.b", "util", "1.0", "compile", "jdk11", jar("b/util-1.0.jar", "com/b/util/B"));
+        sdk = artifact("com.sdk", "sdk", "8.1", "provided", null, jar("sdk/sdk-8.1.jar", "com/sdk/Api"));
+        Artifact junit = artifact("junit", "junit", "4.13", "test", null, jar("junit/junit-4.13.jar", "junit/T"));
+
+        MavenProject commonProject = project("sample-common", common, utilA, utilB, sdk, junit);
+        MavenProject gatewayProject = project("sample-gateway", gateway, sdk);
+
+        build = project("sample-build", artifact("ex", "sample-build", "1.0.0", null, null, null));
+        MavenProject parent = project("sample", artifact("ex", "sample", "1.0.0", null, null, null));
+        parent.setCollectedProjects(Arrays.asList(commonProject, gatewayProject, build));
+        build.setParent(parent);
+    }
+
+    @Test
+    void scopesHoldProjectsAndTheirCompileDependencies() {
+        ModuleScopes scopes = ModuleScopes.resolve(build, projectScopes(), new SystemStreamLog());
+
+        assertEquals(artifacts(common, utilA, utilB), scopes.getScopeArtifacts('C'));
+        assertEquals(artifacts(common, utilA, utilB), scopes.getScopeArtifacts('D'));
+        assertEquals(artifacts(common, utilA, utilB, gateway), scopes.getScopeArtifacts('G'));
+        assertEquals(artifacts(common, gateway), scopes.getProjectArtifacts());
+        assertEquals(artifacts(sdk), scopes.getProvidedArtifacts());
+    }
+
+    @Test
+    void profilesEveryClassOfEachScopeByArtifact() throws Exception {
+        ModuleHook hook = new ModuleHook();
+        hook.setScope("G");
+        hook.setHookClass("com.example.gateway.GatewayHook");
+
+        Path report = tmp.resolve("classload-profile.json");
+        ProfileClassloadMojo mojo = new ProfileClassloadMojo();
+        set(mojo, "project", build);
+        set(mojo, "projectScopes", projectScopes());
+        set(mojo, "hooks", new ModuleHook[] {hook});
+        set(mojo, "profileScopes", "GC");
+        set(mojo, "slowestClasses", 20);
+        set(mojo, "reportFile", report.toFile());
+        mojo.execute();
+
+        String json = new String(Files.readAllBytes(report), StandardCharsets.UTF_8).replaceAll("\\s", "");
+
+        // the hook links against the provided SDK, which is not profiled itself
+        assertTrue(json.contains("\"G\":{\"classes\":4,\"loadFailures\":0,"), json);
+        assertTrue(json.contains("\"C\":{\"classes\":3,\"loadFailures\":0,"), json);
+        assertFalse(json.contains("\"D\":"), json);
+        assertFalse(json.contains("com.sdk"), json);
+        assertFalse(json.contains("junit"), json);
+
+        String gatewayScope = json.substring(json.indexOf("\"G\":"), json.indexOf("\"C\":"));
+        for (String artifact : Arrays.asList("ex:sample-common:1.0.0", "ex:sample-gateway:1.0.0", "com.a:util:1.0",
+            "com.b:util:jdk11:1.0")) {
+
+            assertTrue(gatewayScope.contains("{\"artifact\":\"" + artifact + "\",\"classes\":1,"), gatewayScope);
+        }
+        assertTrue(gatewayScope.contains("\"class\":\"com.example.gateway.GatewayHook\""), gatewayScope);
+    }
+
+    private static ProjectScope[] projectScopes() {
+        ProjectScope common = new ProjectScope();
+        common.setName("sample-common");
+        common.setScope("CDG");
+        ProjectScope gateway = new ProjectScope();
+        gateway.setName("sample-gateway");
+        gateway.setScope("G");
+        return new ProjectScope[] {common, gateway};
+    }
+
+    private static MavenProject project(String name, Artifact artifact, Artifact... dependencies) {
+        MavenProject project = new MavenProject();
+        project.setName(name);
+        project.setArtifactId(artifact.getArtifactId());
+        project.setArtifact(artifact);
+        project.setResolvedArtifacts(new LinkedHashSet<>(Arrays.asList(dependencies)));
+        return project;
+    }
+
+    private static Artifact artifact(String groupId, String artifactId, String version, String scope,
+                                     String classifier, Path file) {
+
+        Artifact artifact = new DefaultArtifact(groupId, artifactId, version, scope, "jar", classifier,
+            new DefaultArtifactHandler("jar"));
+        artifact.setFile(file != null ? file.toFile() : null);
+        return artifact;
+    }
+
+    /**
+     * @return the output directory of a reactor project with one class.
+     */
+    private Path classes(String project, String className, String superName) throws IOException {
+        Path classes = tmp.resolve(project + "/target/classes");
+        Path file = classes.resolve(className + ".class");
+        Files.createDirectories(file.getParent());
+        Files.write(file, classBytes(className, superName));
+        return classes;
+    }
+
+    private Path jar(String path, String className) throws IOException {
+        Path jar = tmp.resolve(path);
+        Files.createDirectories(jar.getParent());
+        try (ZipOutputStream out = new ZipOutputStream(Files.newOutputStream(jar))) {
+            out.putNextEntry(new ZipEntry(className + ".class"));
+            out.write(classBytes(className, "java/lang/Object"));
+            out.closeEntry();
+        }
+        return jar;
+    }
+
+    private static byte[] classBytes(String name, String superName) {
+        ClassWriter writer = new ClassWriter(0);
+        writer.visit(Opcodes.V11, Opcodes.ACC_PUBLIC, name, null, superName, null);
+        writer.visitEnd();
+        return writer.toByteArray();
+    }
+
+    private static Set<Artifact> artifacts(Artifact... artifacts) {
+        return new HashSet<>(Arrays.asList(artifacts));
+    }
+
+    private static void set(Object mojo, String name, Object value) throws ReflectiveOperationException {
+        Field field = mojo.getClass().getDeclaredField(name);
+        field.setAccessible(true);
+        field.set(mojo, value);
+    }
+
+}
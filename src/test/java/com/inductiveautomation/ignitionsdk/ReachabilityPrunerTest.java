@@ -0,0 +1,255 @@
+package com.inductiveautomation.ignitionsdk;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+import java.util.zip.ZipOutputStream;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.objectweb.asm.ClassWriter;
+import org.objectweb.asm.MethodVisitor;
+import org.objectweb.asm.Opcodes;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ReachabilityPrunerTest {
+
+    private static final long TIME = 1_600_000_000_000L;
+
+    @TempDir
+    Path tmp;
+
+    @Test
+    void keepRulesMatchWholePackagesAndNestedClasses() throws IOException {
+        Path jar = jar("rules.jar",
+            type("com/example/keep/A"),
+            type("com/example/keep/sub/B"),
+            type("com/example/keepother/C"),
+            type("com/example/Name"),
+            type("com/example/Name$Inner"),
+            type("com/example/NameOther"));
+
+        try (ReachabilityPruner pruner = new ReachabilityPruner(Collections.singletonList(jar))) {
+            assertEquals(set("com/example/keep/A"),
+                pruner.reachableFrom(Collections.emptyList(), Collections.singletonList("com.example.keep.*")));
+            assertEquals(set("com/example/keep/A", "com/example/keep/sub/B"),
+                pruner.reachableFrom(Collections.emptyList(), Collections.singletonList("com.example.keep.**")));
+            assertEquals(set("com/example/Name", "com/example/Name$Inner"),
+                pruner.reachableFrom(Collections.emptyList(), Collections.singletonList("com.example.Name")));
+        }
+    }
+
+    @Test
+    void serviceProvidersAndWhatTheyReferenceAreReachable() throws IOException {
+        Path jar = jar("services.jar",
+            resource("META-INF/services/com.example.Service",
+                "# providers\ncom.example.Impl # the only one\n\n"),
+            type("com/example/Service"),
+            type("com/example/Impl", "java/lang/Object", "com/example/Helper"),
+            type("com/example/Helper"),
+            type("com/example/Unused"));
+
+        try (ReachabilityPruner pruner = new ReachabilityPruner(Collections.singletonList(jar))) {
+            assertEquals(set("com/example/Impl", "com/example/Helper"),
+                pruner.reachableFrom(Collections.emptyList(), Collections.emptyList()));
+        }
+    }
+
+    @Test
+    void stringConstantsNamingClassesAreReferences() throws IOException {
+        Path jar = jar("forname.jar",
+            entry("com/example/Root.class", forName("com/example/Root",
+                "com.example.Plugin", "com.example.Missing", "not a class name")),
+            type("com/example/Plugin"),
+            type("com/example/Other"));
+
+        try (ReachabilityPruner pruner = new ReachabilityPruner(Collections.singletonList(jar))) {
+            assertEquals(set("com/example/Root", "com/example/Plugin"),
+                pruner.reachableFrom(Collections.singletonList("com.example.Root"), Collections.emptyList()));
+        }
+    }
+
+    @Test
+    void pruneDropsUnreachableClassesOnly() throws IOException {
+        Path source = jar("source.jar",
+            type("com/example/Root"),
+            type("com/example/Dead"),
+            entry("META-INF/versions/11/com/example/Dead.class", type("com/example/Dead").getValue()),
+            entry("module-info.class", new byte[] {0}),
+            resource("com/example/messages.properties", "greeting=hi"));
+
+        try (ReachabilityPruner pruner = new ReachabilityPruner(Collections.singletonList(source))) {
+            assertTrue(pruner.hasClass("com/example/Dead"));
+            assertFalse(pruner.hasClass("META-INF/versions/11/com/example/Dead"));
+            assertFalse(pruner.hasClass("module-info"));
+        }
+
+        Set<String> reachable = set("com/example/Root");
+        Path target = tmp.resolve("target.jar");
+        assertEquals(1, ReachabilityPruner.prune(source, target, reachable));
+
+        try (ZipFile zip = new ZipFile(target.toFile())) {
+            List<String> names = new ArrayList<>();
+            for (ZipEntry entry : Collections.list(zip.entries())) {
+                names.add(entry.getName());
+                assertEquals(TIME, entry.getTime(), entry.getName());
+            }
+            assertEquals(Arrays.asList("com/example/Root.class", "META-INF/versions/11/com/example/Dead.class",
+                "module-info.class", "com/example/messages.properties"), names);
+        }
+
+        assertEquals(1, ReachabilityPruner.countReachable(source, reachable));
+        assertEquals(0, ReachabilityPruner.countReachable(source, Collections.emptySet()));
+        assertEquals(-1, ReachabilityPruner.countReachable(
+            jar("resources.jar", resource("config.properties", "a=1")), reachable));
+    }
+
+    @Test
+    void loadOrderDefinesSupertypesFirst() throws IOException {
+        Path jar = jar("order.jar",
+            type("com/example/Base"),
+            iface("com/example/Iface"),
+            type("com/example/A", "com/example/Base"),
+            type("com/example/B"),
+            type("com/example/Unreached"));
+        // the root extends Base and implements Iface, with no other reference to it
+        Path rootJar = jar("root.jar", entry("com/example/Root.class", classBytes("com/example/Root",
+            "com/example/Base", new String[] {"com/example/Iface"}, "com/example/B", "com/example/A")));
+
+        Map<String, Integer> expected = new LinkedHashMap<>();
+        expected.put("com/example/Base", 0);
+        expected.put("com/example/Iface", 0);
+        expected.put("com/example/Root", 0);
+        expected.put("com/example/A", 1);
+        expected.put("com/example/B", 1);
+
+        try (ReachabilityPruner pruner = new ReachabilityPruner(Arrays.asList(rootJar, jar))) {
+            Map<String, Integer> order = pruner.loadOrder(Collections.singletonList("com.example.Root"));
+            assertEquals(new ArrayList<>(expected.entrySet()), new ArrayList<>(order.entrySet()));
+        }
+    }
+
+    @Test
+    void loadOrderFollowsReferencesInNameOrder() throws IOException {
+        List<String> referenced = new ArrayList<>();
+        List<Map.Entry<String, byte[]>> entries = new ArrayList<>();
+        for (int i = 0; i < 40; i++) {
+            String name = String.format("com/example/R%02d", i);
+            referenced.add(name);
+            entries.add(type(name));
+        }
+
+        // declared in neither name nor hash order
+        List<String> declared = new ArrayList<>(referenced);
+        Collections.shuffle(declared, new Random(3));
+        entries.add(entry("com/example/Root.class", classBytes("com/example/Root", "java/lang/Object",
+            new String[0], declared.toArray(new String[0]))));
+
+        @SuppressWarnings("unchecked")
+        Path jar = jar("many.jar", entries.toArray(new Map.Entry[0]));
+
+        try (ReachabilityPruner pruner = new ReachabilityPruner(Collections.singletonList(jar))) {
+            List<String> order = new ArrayList<>(
+                pruner.loadOrder(Collections.singletonList("com.example.Root")).keySet());
+            assertEquals("com/example/Root", order.get(0));
+            assertEquals(referenced, order.subList(1, order.size()));
+        }
+    }
+
+    @SafeVarargs
+    private final Path jar(String name, Map.Entry<String, byte[]>... entries) throws IOException {
+        Path jar = tmp.resolve(name);
+        try (ZipOutputStream out = new ZipOutputStream(Files.newOutputStream(jar))) {
+            for (Map.Entry<String, byte[]> e : entries) {
+                ZipEntry entry = new ZipEntry(e.getKey());
+                entry.setTime(TIME);
+                out.putNextEntry(entry);
+                out.write(e.getValue());
+                out.closeEntry();
+            }
+        }
+        return jar;
+    }
+
+    private static Map.Entry<String, byte[]> entry(String name, byte[] bytes) {
+        return new AbstractMap.SimpleEntry<>(name, bytes);
+    }
+
+    private static Map.Entry<String, byte[]> resource(String name, String content) {
+        return entry(name, content.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * A class with a superclass and a field of each referenced type.
+     */
+    private static Map.Entry<String, byte[]> type(String name, String superName, String... references) {
+        return entry(name + ".class", classBytes(name, superName, new String[0], references));
+    }
+
+    private static Map.Entry<String, byte[]> type(String name) {
+        return type(name, "java/lang/Object");
+    }
+
+    private static Map.Entry<String, byte[]> iface(String name) {
+        ClassWriter writer = new ClassWriter(0);
+        writer.visit(Opcodes.V11, Opcodes.ACC_PUBLIC | Opcodes.ACC_INTERFACE | Opcodes.ACC_ABSTRACT, name, null,
+            "java/lang/Object", null);
+        writer.visitEnd();
+        return entry(name + ".class", writer.toByteArray());
+    }
+
+    private static byte[] classBytes(String name, String superName, String[] interfaces, String... references) {
+        ClassWriter writer = new ClassWriter(0);
+        writer.visit(Opcodes.V11, Opcodes.ACC_PUBLIC, name, null, superName, interfaces);
+        for (int i = 0; i < references.length; i++) {
+            writer.visitField(Opcodes.ACC_PRIVATE, "f" + i, "L" + references[i] + ";", null, null).visitEnd();
+        }
+        writer.visitEnd();
+        return writer.toByteArray();
+    }
+
+    /**
+     * A class with one method calling {@code Class.forName} with each of {@code classNames}.
+     */
+    private static byte[] forName(String name, String... classNames) {
+        ClassWriter writer = new ClassWriter(0);
+        writer.visit(Opcodes.V11, Opcodes.ACC_PUBLIC, name, null, "java/lang/Object", null);
+
+        MethodVisitor method = writer.visitMethod(Opcodes.ACC_STATIC, "load", "()V", null,
+            new String[] {"java/lang/ClassNotFoundException"});
+        method.visitCode();
+        for (String className : classNames) {
+            method.visitLdcInsn(className);
+            method.visitMethodInsn(Opcodes.INVOKESTATIC, "java/lang/Class", "forName",
+                "(Ljava/lang/String;)Ljava/lang/Class;", false);
+            method.visitInsn(Opcodes.POP);
+        }
+        method.visitInsn(Opcodes.RETURN);
+        method.visitMaxs(1, 0);
+        method.visitEnd();
+
+        writer.visitEnd();
+        return writer.toByteArray();
+    }
+
+    private static Set<String> set(String... values) {
+        return new HashSet<>(Arrays.asList(values));
+    }
+
+}
@@ -0,0 +1,146 @@
+package com.inductiveautomation.ignitionsdk;
+
+import java.io.IOException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+import com.google.common.collect.Sets;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Times loading a set of startup classes from a real jar, Guava, before and after {@link StartupJarRepacker}, the
+ * way a gateway or designer does when a module starts: a new class loader opens the jar and loads each class in load
+ * order without initializing it. Every eighth class is hot, loaded in the reverse of the jar order, so the original
+ * jar is read all over. Repacking is timed once with hot classes compressed, which only changes the order, and once
+ * with small hot classes stored.
+ * <p/>
+ * The versions are timed in alternating rounds, after one untimed round each, so JIT warm-up and the page cache
+ * favor none of them. Not part of the regular test run:
+ * <pre>
+ * mvn test -Dtest=StartupJarRepackerBenchmark
+ * </pre>
+ */
+class StartupJarRepackerBenchmark {
+
+    private static final int ROUNDS = 30;
+
+    @TempDir
+    Path tmp;
+
+    @Test
+    void guava() throws Exception {
+        Path original = Paths.get(Sets.class.getProtectionDomain().getCodeSource().getLocation().toURI());
+
+        List<String> hot = new ArrayList<>();
+        try (ZipFile zip = new ZipFile(original.toFile())) {
+            List<String> classes = new ArrayList<>();
+            for (ZipEntry entry : Collections.list(zip.entries())) {
+                String name = entry.getName();
+                if (name.endsWith(".class") && !name.endsWith("module-info.class")) {
+                    classes.add(name.substring(0, name.length() - 6));
+                }
+            }
+            for (int i = classes.size() - 1; i >= 0; i -= 8) {
+                hot.add(classes.get(i));
+            }
+        }
+
+        Map<String, Integer> rank = new HashMap<>();
+        for (String className : hot) {
+            rank.put(className, rank.size());
+        }
+
+        Path ordered = tmp.resolve("ordered.jar");
+        new StartupJarRepacker(rank, new HashSet<>(hot), 0).repack(original, ordered);
+        Path stored = tmp.resolve("stored.jar");
+        int[] counts = new StartupJarRepacker(rank, new HashSet<>(hot), 4096).repack(original, stored);
+
+        List<String> binaryNames = new ArrayList<>();
+        for (String className : hot) {
+            binaryNames.add(className.replace('/', '.'));
+        }
+
+        System.out.printf("%s: %d hot classes, %d stored, %d could not be loaded%n", original.getFileName(),
+            counts[0], counts[1], failures(original, binaryNames));
+
+        long[][] nanos = compare(binaryNames, original, ordered, stored);
+        report("original", nanos[0], nanos[0]);
+        report("startup order", nanos[1], nanos[0]);
+        report("startup order, stored", nanos[2], nanos[0]);
+    }
+
+    /**
+     * @return the nanoseconds of every timed round, per jar.
+     */
+    private static long[][] compare(List<String> classes, Path... jars) throws IOException {
+        for (Path jar : jars) {
+            load(jar, classes);
+        }
+
+        long[][] nanos = new long[jars.length][ROUNDS];
+        for (int i = 0; i < ROUNDS; i++) {
+            for (int j = 0; j < jars.length; j++) {
+                nanos[j][i] = load(jars[j], classes);
+            }
+        }
+        return nanos;
+    }
+
+    private static long load(Path jar, List<String> classes) throws IOException {
+        long start = System.nanoTime();
+
+        try (URLClassLoader loader = newLoader(jar)) {
+            for (String className : classes) {
+                try {
+                    Class.forName(className, false, loader);
+                } catch (ClassNotFoundException | LinkageError e) {
+                    // counted by failures(); a class that cannot be linked costs the same in every version
+                }
+            }
+        }
+
+        return System.nanoTime() - start;
+    }
+
+    private static int failures(Path jar, List<String> classes) throws IOException {
+        int failures = 0;
+        try (URLClassLoader loader = newLoader(jar)) {
+            for (String className : classes) {
+                try {
+                    Class.forName(className, false, loader);
+                } catch (ClassNotFoundException | LinkageError e) {
+                    failures++;
+                }
+            }
+        }
+        return failures;
+    }
+
+    private static URLClassLoader newLoader(Path jar) throws IOException {
+        return new URLClassLoader(new URL[]{jar.toUri().toURL()}, ClassLoader.getPlatformClassLoader());
+    }
+
+    private static void report(String name, long[] nanos, long[] baseline) {
+        long median = median(nanos);
+        System.out.printf("%-24s %8.2f ms  %5.2fx%n", name, median / 1e6, (double) median(baseline) / median);
+    }
+
+    private static long median(long[] values) {
+        long[] sorted = values.clone();
+        Arrays.sort(sorted);
+        return sorted[(sorted.length - 1) / 2];
+    }
+
+}
@@ -0,0 +1,82 @@
+package com.inductiveautomation.ignitionsdk;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+import java.util.zip.ZipOutputStream;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class WebAssetOptimizerTest {
+
+    @TempDir
+    Path tmp;
+
+    @Test
+    void optimizesWebAssetsAndCopiesEverythingElse() throws IOException {
+        byte[] library = new byte[1024 * 1024];
+        new Random(11).nextBytes(library);
+
+        Path source = tmp.resolve("source.jar");
+        try (ZipOutputStream out = new ZipOutputStream(Files.newOutputStream(source))) {
+            put(out, "com/example/Hook.class", library);
+            put(out, "web/app.js", "var a = 1; // one\n//# sourceMappingURL=app.js.map\n");
+            put(out, "web/app.js.map", "{}");
+            put(out, "web/style.css", "a {\n  color: red;\n}\n");
+            put(out, "web/data.bin", library);
+        }
+
+        Path target = tmp.resolve("target.jar");
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            new WebAssetOptimizer(true, false, executor).optimize(source, target);
+        } finally {
+            executor.shutdownNow();
+        }
+
+        try (ZipFile zip = new ZipFile(target.toFile())) {
+            List<String> names = new ArrayList<>();
+            for (ZipEntry entry : Collections.list(zip.entries())) {
+                names.add(entry.getName());
+            }
+
+            assertEquals(Arrays.asList("com/example/Hook.class", "web/app.js", "web/style.css", "web/data.bin"), names);
+            assertArrayEquals(library, read(zip, "com/example/Hook.class"));
+            assertArrayEquals(library, read(zip, "web/data.bin"));
+            assertEquals("var a=1;", new String(read(zip, "web/app.js"), StandardCharsets.UTF_8));
+            assertEquals("a{color:red}", new String(read(zip, "web/style.css"), StandardCharsets.UTF_8));
+        }
+    }
+
+    private static void put(ZipOutputStream out, String name, String content) throws IOException {
+        put(out, name, content.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static void put(ZipOutputStream out, String name, byte[] content) throws IOException {
+        out.putNextEntry(new ZipEntry(name));
+        out.write(content);
+        out.closeEntry();
+    }
+
+    private static byte[] read(ZipFile zip, String name) throws IOException {
+        try (InputStream in = zip.getInputStream(zip.getEntry(name))) {
+            return in.readAllBytes();
+        }
+    }
+
+}
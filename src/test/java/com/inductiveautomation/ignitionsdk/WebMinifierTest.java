@@ -0,0 +1,50 @@
+package com.inductiveautomation.ignitionsdk;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class WebMinifierTest {
+
+    @Test
+    void divisionAfterPostfixIncrement() {
+        assertEquals("x=i++/2/3;", WebMinifier.minifyJs("x = i++ / 2 / 3;"));
+        assertEquals("x=i--/2/3;", WebMinifier.minifyJs("x = i-- / 2 / 3;"));
+    }
+
+    @Test
+    void divisionOnTheNextLine() {
+        // a line break before a division does not end the statement, so either way is the same program
+        assertEquals("var b=a\n/2/c;", WebMinifier.minifyJs("var b = a\n/ 2 / c;"));
+    }
+
+    @Test
+    void lineBreakAfterReturnIsKept() {
+        assertEquals("function f(){return\n{}}", WebMinifier.minifyJs("function f() {\n  return\n  {}\n}"));
+    }
+
+    @Test
+    void objectLiteralInTemplateExpression() {
+        assertEquals("s=`${{a:1}.a} and ${b}`;", WebMinifier.minifyJs("s = `${ {a: 1}.a } and ${ b }`;"));
+    }
+
+    @Test
+    void slashInRegexCharacterClass() {
+        assertEquals("var r=/[/]/g;t=r.test(s)/2;", WebMinifier.minifyJs("var r = /[/]/g;\nt = r.test(s) / 2;"));
+    }
+
+    @Test
+    void licenseCommentsAreKept() {
+        assertEquals("/*! (c) Example, MIT */\nvar a=1;",
+            WebMinifier.minifyJs("/*! (c) Example, MIT */\n// not this\nvar a = 1; /* nor this */"));
+        assertEquals("/*! (c) Example */ a{color:red}",
+            WebMinifier.minifyCss("/*! (c) Example */\n/* not this */\na {\n  color: red;\n}\n"));
+    }
+
+    @Test
+    void cssCalcKeepsOperatorSpaces() {
+        assertEquals("a{width:calc(1px + 2px);margin:calc(100% - (2 * 10px))}",
+            WebMinifier.minifyCss("a {\n  width: calc(1px + 2px);\n  margin: calc(100% - (2 * 10px));\n}"));
+    }
+
+}
@@ -0,0 +1,110 @@
+package com.inductiveautomation.ignitionsdk;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.reflect.Field;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.zip.CRC32;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+
+class ZipIndexTest {
+
+    @TempDir
+    Path tmp;
+
+    @Test
+    void entriesSpanningWindowsAreReadWhole() throws IOException {
+        Random random = new Random(17);
+        Map<String, byte[]> contents = new LinkedHashMap<>();
+        contents.put("empty.txt", new byte[0]);
+        contents.put("one.bin", new byte[] {42});
+        contents.put("random.bin", randomBytes(random, 70_000));
+        contents.put("text.txt", "abcdefgh".repeat(25_000).getBytes(StandardCharsets.UTF_8));
+        contents.put("stored.bin", randomBytes(random, 10_000));
+
+        Path zip = tmp.resolve("windows.zip");
+        try (ZipOutputStream out = new ZipOutputStream(Files.newOutputStream(zip))) {
+            for (Map.Entry<String, byte[]> e : contents.entrySet()) {
+                ZipEntry entry = new ZipEntry(e.getKey());
+                if (e.getKey().startsWith("stored")) {
+                    CRC32 crc = new CRC32();
+                    crc.update(e.getValue());
+                    entry.setMethod(ZipEntry.STORED);
+                    entry.setSize(e.getValue().length);
+                    entry.setCrc(crc.getValue());
+                }
+                out.putNextEntry(entry);
+                out.write(e.getValue());
+                out.closeEntry();
+            }
+        }
+
+        // windows far smaller than the entries, and one not dividing anything evenly
+        for (long windowSize : new long[] {1 << 30, 4096, 1000}) {
+            ZipIndex index = ZipIndex.open(zip, windowSize);
+            assertEquals(contents.size(), index.entries().size());
+            for (Map.Entry<String, byte[]> e : contents.entrySet()) {
+                assertArrayEquals(e.getValue(), index.readAllBytes(index.entry(e.getKey())),
+                    e.getKey() + " in windows of " + windowSize);
+            }
+        }
+    }
+
+    @Test
+    void zip64ModuleRoundTrip() throws Exception {
+        Path source = tmp.resolve("source");
+        Files.createDirectories(source);
+        Files.write(source.resolve(ModuleDescriptor.MODULE_XML),
+            "<modules><module><id>com.example.docs</id></module></modules>".getBytes(StandardCharsets.UTF_8));
+        int files = 70_000;
+        for (int dir = 0; dir < 70; dir++) {
+            Path d = Files.createDirectories(source.resolve("doc/" + dir));
+            for (int i = 0; i < files / 70; i++) {
+                Files.write(d.resolve(i + ".html"), ("page " + dir + "/" + i).getBytes(StandardCharsets.UTF_8));
+            }
+        }
+
+        Path modl = tmp.resolve("docs.modl");
+        new ParallelZipWriter(4, tmp.resolve("spill")).write(source, modl);
+
+        ZipIndex index = ZipIndex.open(modl, 64 * 1024);
+        // the files, module.xml, 71 directories and the content manifest
+        assertEquals(files + 1 + 71 + 1, index.entries().size());
+        assertNotNull(index.entry(ContentManifest.NAME));
+        assertArrayEquals("page 69/999".getBytes(StandardCharsets.UTF_8),
+            index.readAllBytes(index.entry("doc/69/999.html")));
+        for (ZipIndex.Entry entry : index.entries()) {
+            index.verify(entry);
+        }
+
+        VerifyMojo verify = new VerifyMojo();
+        set(verify, "moduleFile", modl.toFile());
+        verify.execute();
+    }
+
+    private static byte[] randomBytes(Random random, int size) {
+        byte[] bytes = new byte[size];
+        random.nextBytes(bytes);
+        return bytes;
+    }
+
+    private static void set(Object mojo, String name, File value) throws ReflectiveOperationException {
+        Field field = mojo.getClass().getDeclaredField(name);
+        field.setAccessible(true);
+        field.set(mojo, value);
+    }
+
+}